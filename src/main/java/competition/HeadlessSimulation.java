@@ -0,0 +1,272 @@
+package competition;
+
+import competition.injection.components.BaseRobotComponent;
+import competition.simulation.replay.InputFrame;
+import competition.simulation.replay.SimulationRecording;
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.Command;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs the simulated robot against a virtual clock instead of the wall clock.
+ * The HAL's simulated FPGA time (what XTimer, AdvantageKit and the robot loop's notifier all read) is paused, and
+ * only moves forward by one robot period once the previous loop has finished. The simulator is updated from
+ * the robot loop as usual, so a whole autonomous routine runs as fast as the CPU can get through the loops.
+ * The HAL and driver station are global, so only one of these should be running in a JVM at a time.
+ *
+ * <p>Runs can be recorded to a file (driver station state, joysticks and every random draw the simulators make,
+ * loop by loop) and replayed later, reproducing the run bit for bit. Each recorded loop carries a checksum of the
+ * robot's true and estimated poses, so a replay reports the first loop where it stopped matching.
+ */
+public class HeadlessSimulation implements AutoCloseable {
+    private static final Logger log = LogManager.getLogger(HeadlessSimulation.class);
+
+    // Wall-clock time to wait for a single loop before deciding the robot is stuck.
+    // Generous, since the first loop also waits for robotInit.
+    static final long loopTimeoutMs = 30_000;
+
+    final Robot robot;
+    final Thread robotThread;
+    private int loopCount = 0;
+    private SimulationRecording.Writer recordingWriter;
+    private InputFrame.JoystickState[] lastRecordedJoysticks;
+
+    public record ReplayResult(int frames, int firstDivergentFrame, String divergenceReason) {
+        public boolean matched() {
+            return firstDivergentFrame < 0;
+        }
+    }
+
+    public HeadlessSimulation() {
+        RobotBase.suppressExitWarning(true);
+        SimHooks.pauseTiming();
+        DriverStationSim.setDsAttached(true);
+        DriverStationSim.setAllianceStationId(AllianceStationID.Blue1);
+        DriverStationSim.setEnabled(false);
+        DriverStationSim.notifyNewData();
+
+        robot = new Robot();
+        robotThread = new Thread(robot::startCompetition, "HeadlessRobot");
+        robotThread.setDaemon(true);
+        robotThread.start();
+
+        // The first loop runs disabledInit, after which everything is injected and wired up.
+        step();
+    }
+
+    public BaseRobotComponent getInjectorComponent() {
+        return robot.getInjectorComponent();
+    }
+
+    public Robot getRobot() {
+        return robot;
+    }
+
+    /**
+     * Moves the clock forward one robot period and waits for that loop to finish.
+     */
+    public void step() {
+        robot.completedLoops.drainPermits();
+        SimHooks.stepTiming(robot.getPeriod());
+        loopCount++;
+        try {
+            if (!robot.completedLoops.tryAcquire(loopTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException(
+                        "Robot loop didn't finish at " + getSimulatedSeconds() + " simulated seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the robot loop", e);
+        }
+
+        if (recordingWriter != null) {
+            recordingWriter.write(captureFrame());
+        }
+    }
+
+    /**
+     * Seeds the simulators' randomness, and draws the match-to-match variation from the same seed.
+     */
+    public void seed(long seed) {
+        getInjectorComponent().simulationRandom().setSeed(seed);
+        getInjectorComponent().simulationVariation().randomize(seed);
+    }
+
+    /**
+     * Seeds the run and records every loop from here on until stopRecording() or close().
+     */
+    public void startRecording(Path path, long seed, String description) {
+        stopRecording();
+        makeRepeatable();
+        seed(seed);
+        recordingWriter = new SimulationRecording.Writer(path,
+                new SimulationRecording.Header(seed, robot.getPeriod(), description));
+        lastRecordedJoysticks = null;
+        getInjectorComponent().simulationRandom().setRecording(true);
+    }
+
+    public void stopRecording() {
+        if (recordingWriter != null) {
+            getInjectorComponent().simulationRandom().setRecording(false);
+            recordingWriter.close();
+            recordingWriter = null;
+        }
+    }
+
+    /**
+     * Plays a recording back from the current state, which should match the state the recording started from
+     * (normally a freshly constructed simulation).
+     */
+    public ReplayResult replay(Path path) {
+        stopRecording();
+        var random = getInjectorComponent().simulationRandom();
+        try (var reader = new SimulationRecording.Reader(path)) {
+            var header = reader.getHeader();
+            if (header.loopPeriodSeconds() != robot.getPeriod()) {
+                return new ReplayResult(0, 0, "Recorded with a " + header.loopPeriodSeconds() + " s loop period");
+            }
+            log.info("Replaying {} (seed {})", header.description(), header.seed());
+            makeRepeatable();
+            seed(header.seed());
+            random.setReplaying(true);
+
+            int frames = 0;
+            for (var frame = reader.read(); frame != null; frame = reader.read()) {
+                frame.apply();
+                random.queueDrawsToReplay(frame.randomDraws());
+                step();
+                if (random.checkAndClearReplayDivergence()) {
+                    return new ReplayResult(frames, frames, "Simulators made a different number of random draws");
+                }
+                if (computeStateChecksum() != frame.stateChecksum()) {
+                    return new ReplayResult(frames, frames, "Robot poses no longer match the recording");
+                }
+                frames++;
+            }
+            return new ReplayResult(frames, -1, null);
+        } finally {
+            random.setReplaying(false);
+        }
+    }
+
+    /**
+     * Takes out the sources of run-to-run variation that don't come from the inputs we record.
+     */
+    private void makeRepeatable() {
+        // Background route planning finishes whenever the worker thread gets scheduled, which can change advice
+        // from one run to the next. Plan on the robot loop instead, once the field graph is ready.
+        getInjectorComponent().oracleSubsystem().setPlanRoutesInBackground(false);
+        getInjectorComponent().fieldRoutePlanner().whenReady().join();
+        // Likewise, a scoring order found within a time budget depends on how fast this machine happens to be.
+        getInjectorComponent().scoringOrderPlanner().setRepeatable(true);
+    }
+
+    private InputFrame captureFrame() {
+        // Joysticks are read from what the driver station handed the loop that just ran
+        var joysticks = InputFrame.captureJoysticks();
+        boolean joysticksChanged = !InputFrame.sameJoysticks(joysticks, lastRecordedJoysticks);
+        lastRecordedJoysticks = joysticks;
+        return new InputFrame(
+                DriverStationSim.getEnabled(),
+                DriverStationSim.getAutonomous(),
+                DriverStationSim.getTest(),
+                DriverStationSim.getAllianceStationId(),
+                joysticksChanged ? joysticks : null,
+                getInjectorComponent().simulationRandom().takeRecordedDraws(),
+                computeStateChecksum());
+    }
+
+    long computeStateChecksum() {
+        long checksum = 17;
+        checksum = addToChecksum(checksum, getInjectorComponent().simulator().getGroundTruthPose());
+        checksum = addToChecksum(checksum, getInjectorComponent().poseSubsystem().getCurrentPose2d());
+        return checksum;
+    }
+
+    private static long addToChecksum(long checksum, Pose2d pose) {
+        checksum = checksum * 31 + Double.doubleToLongBits(pose.getX());
+        checksum = checksum * 31 + Double.doubleToLongBits(pose.getY());
+        return checksum * 31 + Double.doubleToLongBits(pose.getRotation().getRadians());
+    }
+
+    public void runFor(double seconds) {
+        long loops = Math.round(seconds / robot.getPeriod());
+        for (long i = 0; i < loops; i++) {
+            step();
+        }
+    }
+
+    /**
+     * Steps until the condition holds (checked between loops) or the time runs out.
+     * @return Whether the condition was met
+     */
+    public boolean runUntil(BooleanSupplier condition, double timeoutSeconds) {
+        double deadline = getSimulatedSeconds() + timeoutSeconds;
+        while (!condition.getAsBoolean()) {
+            if (getSimulatedSeconds() >= deadline) {
+                return false;
+            }
+            step();
+        }
+        return true;
+    }
+
+    /**
+     * Selects the routine and enables the robot in autonomous, running the loop where autonomousInit happens.
+     */
+    public void startAutonomous(Command autonomousCommand) {
+        selectAutonomous(autonomousCommand);
+        DriverStationSim.setAutonomous(true);
+        DriverStationSim.setEnabled(true);
+        DriverStationSim.notifyNewData();
+        step();
+    }
+
+    /**
+     * Selects the routine without enabling. The selection isn't part of a recording, so a replay has to select
+     * the same routine before calling replay().
+     */
+    public void selectAutonomous(Command autonomousCommand) {
+        getInjectorComponent().autonomousCommandSelector().setCurrentAutonomousCommand(autonomousCommand);
+    }
+
+    public void disable() {
+        DriverStationSim.setEnabled(false);
+        DriverStationSim.notifyNewData();
+        step();
+    }
+
+    /**
+     * @return Simulated time since this simulation started
+     */
+    public double getSimulatedSeconds() {
+        return loopCount * robot.getPeriod();
+    }
+
+    @Override
+    public void close() {
+        stopRecording();
+        robot.endCompetition();
+        try {
+            robotThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        robot.close();
+
+        DriverStationSim.setEnabled(false);
+        DriverStationSim.setAutonomous(false);
+        DriverStationSim.notifyNewData();
+        SimHooks.resumeTiming();
+        log.info("Headless simulation ran {} loops ({} simulated seconds)", loopCount, getSimulatedSeconds());
+    }
+}
@@ -11,6 +11,7 @@ import competition.injection.components.DaggerRobotComponent2024;
 import competition.injection.components.DaggerRoboxComponent;
 import competition.injection.components.DaggerSimulationComponent;
 import competition.operator_interface.OperatorInterface;
+import competition.profiling.LoopTimeProfiler;
 import competition.simulation.BaseSimulator;
 import competition.subsystems.pose.PoseSubsystem;
 import edu.wpi.first.hal.AllianceStationID;
@@ -19,22 +20,30 @@ import edu.wpi.first.wpilibj.DriverStation.Alliance;
 import edu.wpi.first.wpilibj.Preferences;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import xbot.common.advantage.DataFrameRefreshable;
 import xbot.common.command.BaseRobot;
 import xbot.common.command.XScheduler;
 import xbot.common.math.FieldPose;
 import xbot.common.subsystems.pose.BasePoseSubsystem;
 
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
 
 public class Robot extends BaseRobot {
     Logger log = LogManager.getLogger(Robot.class);
 
     final CountDownLatch reachedDisabledInit = new CountDownLatch(1);
     final CountDownLatch reachedEndOfLoop = new CountDownLatch(5);
+    // One permit per finished loop, so HeadlessSimulation knows when it's safe to move the clock again.
+    final Semaphore completedLoops = new Semaphore(0);
 
     BaseSimulator simulator;
     ElectricalContract simulatorContract = new UnitTestContract2025();
     OperatorInterface oi;
+    LoopTimeProfiler profiler;
+    LoopTimeProfiler.Section oiSection;
+    LoopTimeProfiler.Section simulatorSection;
+    LoopTimeProfiler.Section schedulerSection;
 
     Robot() {
         // We currently can't keep up with 0.02s loop times, and the error reporting about loop
@@ -52,28 +61,41 @@ public class Robot extends BaseRobot {
         getInjectorComponent().swerveDefaultCommandMap();
         getInjectorComponent().superstructureMechanismSubsystem();
         getInjectorComponent().oracleSubsystem();
+        getInjectorComponent().reefOccupancyTracker();
+        // Start working out the oracle's route fields now, so they're ready by the time it wants them.
+        getInjectorComponent().fieldRoutePlanner().whenReady();
         getInjectorComponent().lightSubsystem();
         oi = getInjectorComponent().operatorInterface();
 
+        profiler = getInjectorComponent().loopTimeProfiler();
+        oiSection = profiler.getSection("OperatorInterface.periodic");
+        simulatorSection = profiler.getSection("Simulator.update");
+        // Everything in the scheduler run that isn't covered by a more specific section - mostly command execution.
+        schedulerSection = profiler.getSection("Scheduler.commands");
+
         if (BaseRobot.isSimulation()) {
             simulator = getInjectorComponent().simulator();
         }
 
 
-        dataFrameRefreshables.add(getInjectorComponent().driveSubsystem());
-        dataFrameRefreshables.add(getInjectorComponent().poseSubsystem());
-        dataFrameRefreshables.add(getInjectorComponent().coprocessorCommunicationSubsystem());
-        dataFrameRefreshables.add(getInjectorComponent().aprilTagVisionSubsystemExtended());
-        dataFrameRefreshables.add(getInjectorComponent().armPivotSubsystem());
-        dataFrameRefreshables.add(getInjectorComponent().elevatorSubsystem());
-        dataFrameRefreshables.add(getInjectorComponent().coralScorerSubsystem());
-        dataFrameRefreshables.add(getInjectorComponent().algaeCollectionSubsystem());
-        dataFrameRefreshables.add(getInjectorComponent().algaeArmSubsystem());
+        addProfiledDataFrameRefreshable(getInjectorComponent().driveSubsystem());
+        addProfiledDataFrameRefreshable(getInjectorComponent().poseSubsystem());
+        addProfiledDataFrameRefreshable(getInjectorComponent().coprocessorCommunicationSubsystem());
+        addProfiledDataFrameRefreshable(getInjectorComponent().aprilTagVisionSubsystemExtended());
+        addProfiledDataFrameRefreshable(getInjectorComponent().armPivotSubsystem());
+        addProfiledDataFrameRefreshable(getInjectorComponent().elevatorSubsystem());
+        addProfiledDataFrameRefreshable(getInjectorComponent().coralScorerSubsystem());
+        addProfiledDataFrameRefreshable(getInjectorComponent().algaeCollectionSubsystem());
+        addProfiledDataFrameRefreshable(getInjectorComponent().algaeArmSubsystem());
 
         // Not needed unless we are actively configuring the LaserCAN.
         //CanBridge.runTCP();
     }
 
+    private void addProfiledDataFrameRefreshable(DataFrameRefreshable refreshable) {
+        dataFrameRefreshables.add(profiler.profile(refreshable.getClass().getSimpleName(), refreshable));
+    }
+
     protected BaseRobotComponent createDaggerComponent() {
         if (BaseRobot.isReal()) {
 
@@ -126,6 +148,13 @@ public class Robot extends BaseRobot {
         poseSub.getResetTranslationToVisionEstimateCommand().schedule();
     }
 
+    @Override
+    public void autonomousInit() {
+        super.autonomousInit();
+        // A match always starts in autonomous, with an empty reef.
+        getInjectorComponent().reefOccupancy().reset();
+    }
+
     @Override
     public void simulationInit() {
         super.simulationInit();
@@ -154,14 +183,26 @@ public class Robot extends BaseRobot {
         super.simulationPeriodic();
 
         if (simulator != null) {
-            simulator.update();
+            simulatorSection.start();
+            try {
+                simulator.update();
+            } finally {
+                simulatorSection.stop();
+            }
         }
     }
 
     @Override
     protected void loopFunc() {
+        if (profiler != null) {
+            profiler.startLoop();
+        }
         super.loopFunc();
+        if (profiler != null) {
+            profiler.endLoop();
+        }
         reachedEndOfLoop.countDown();
+        completedLoops.release();
     }
 
     public XScheduler getScheduler() {
@@ -170,10 +211,27 @@ public class Robot extends BaseRobot {
 
     @Override
     public void sharedPeriodic() {
-        super.sharedPeriodic();
+        if (profiler == null) {
+            super.sharedPeriodic();
+        } else {
+            // Anything that ran inside the scheduler with its own section (refreshables, subsystem periodics)
+            // is subtracted out, leaving the command phase plus any unprofiled subsystems.
+            double sectionMsBefore = profiler.getTotalSectionMsThisLoop();
+            long schedulerStartNanos = System.nanoTime();
+            super.sharedPeriodic();
+            double schedulerMs = (System.nanoTime() - schedulerStartNanos) / 1_000_000.0;
+            double attributedMs = profiler.getTotalSectionMsThisLoop() - sectionMsBefore;
+            schedulerSection.record(Math.max(0, schedulerMs - attributedMs));
+        }
+
         if(oi != null) {
             double propertyStart = getPerformanceTimestampInMs();
-            oi.periodic();
+            oiSection.start();
+            try {
+                oi.periodic();
+            } finally {
+                oiSection.stop();
+            }
             double propertyEnd = getPerformanceTimestampInMs();
             org.littletonrobotics.junction.Logger.recordOutput("OI Periodic ms", propertyEnd - propertyStart);
         }
@@ -0,0 +1,15 @@
+package competition.injection;
+
+import javax.inject.Qualifier;
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Marks the executor that runs work handed off from the robot loop, like route planning and coprocessor I/O.
+ */
+@Qualifier
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+public @interface BackgroundExecutor {
+}
@@ -1,19 +1,29 @@
 package competition.injection.components;
 
+import competition.auto_programs.FromLeftCageScoreLeftFacesLevelFours;
 import competition.electrical_contract.ElectricalContract;
 import competition.motion.TrapezoidProfileManager;
 import competition.operator_interface.NeoTrellisSubsystem;
 import competition.operator_interface.OperatorCommandMap;
 import competition.operator_interface.OperatorInterface;
+import competition.profiling.LoopTimeProfiler;
 import competition.simulation.BaseSimulator;
+import competition.simulation.SimulatedMatchStats;
+import competition.simulation.SimulationRandom;
+import competition.simulation.SimulationVariation;
 import competition.subsystems.SubsystemDefaultCommandMap;
 import competition.subsystems.algae_arm.AlgaeArmSubsystem;
 import competition.subsystems.algae_collection.AlgaeCollectionSubsystem;
 import competition.subsystems.coral_arm.CoralArmSubsystem;
 import competition.subsystems.coral_scorer.CoralScorerSubsystem;
+import competition.subsystems.drive.logic.AlignCameraToAprilTagCalculator;
 import competition.subsystems.elevator.ElevatorSubsystem;
+import competition.subsystems.oracle.FieldRoutePlanner;
 import competition.subsystems.oracle.OracleSubsystem;
 import competition.subsystems.oracle.ReefCoordinateGenerator;
+import competition.subsystems.oracle.ReefOccupancy;
+import competition.subsystems.oracle.ReefOccupancyTracker;
+import competition.subsystems.oracle.ScoringOrderPlanner;
 import competition.subsystems.oracle.ScoringQueue;
 import competition.subsystems.pose.PoseSubsystem;
 import competition.subsystems.vision.AprilTagVisionSubsystemExtended;
@@ -22,6 +32,7 @@ import competition.subsystems.lights.LightSubsystem;
 import competition.subsystems.vision.CoprocessorCommunicationSubsystem;
 import xbot.common.injection.components.BaseComponent;
 import xbot.common.injection.swerve.SwerveComponentHolder;
+import xbot.common.subsystems.autonomous.AutonomousCommandSelector;
 import xbot.common.subsystems.drive.swerve.SwerveDefaultCommandMap;
 import xbot.common.subsystems.pose.BasePoseSubsystem;
 import xbot.common.subsystems.pose.GameField;
@@ -44,6 +55,12 @@ public abstract class BaseRobotComponent extends BaseComponent {
 
     public abstract BaseSimulator simulator();
 
+    public abstract SimulationVariation simulationVariation();
+
+    public abstract SimulatedMatchStats simulatedMatchStats();
+
+    public abstract SimulationRandom simulationRandom();
+
     public abstract CoralArmSubsystem armPivotSubsystem();
 
     public abstract ElevatorSubsystem elevatorSubsystem();
@@ -58,19 +75,35 @@ public abstract class BaseRobotComponent extends BaseComponent {
 
     public abstract ReefCoordinateGenerator reefCoordinateGenerator();
 
+    public abstract FieldRoutePlanner fieldRoutePlanner();
+
     public abstract LightSubsystem lightSubsystem();
 
     public abstract TrapezoidProfileManager.Factory trapezoidProfileManagerFactory();
 
+    public abstract AlignCameraToAprilTagCalculator.AlignCameraToAprilTagCalculatorFactory alignCameraToAprilTagCalculatorFactory();
+
     public abstract NeoTrellisSubsystem neoTrellisSubsystem();
 
     public abstract OperatorInterface operatorInterface();
 
     public abstract ScoringQueue scoringQueue();
 
+    public abstract ScoringOrderPlanner scoringOrderPlanner();
+
+    public abstract ReefOccupancy reefOccupancy();
+
+    public abstract ReefOccupancyTracker reefOccupancyTracker();
+
     public abstract GameField gameField();
 
     public abstract AlgaeArmSubsystem algaeArmSubsystem();
 
     public abstract AlgaeCollectionSubsystem algaeCollectionSubsystem();
+
+    public abstract LoopTimeProfiler loopTimeProfiler();
+
+    public abstract AutonomousCommandSelector autonomousCommandSelector();
+
+    public abstract FromLeftCageScoreLeftFacesLevelFours fromLeftCageScoreLeftFacesLevelFours();
 }
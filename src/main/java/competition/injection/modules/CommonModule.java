@@ -1,16 +1,21 @@
 package competition.injection.modules;
 
 import competition.electrical_contract.ElectricalContract;
+import competition.injection.BackgroundExecutor;
 import competition.subsystems.coral_scorer.CoralScorerSubsystem;
 import competition.subsystems.drive.DriveSubsystem;
 import competition.subsystems.oracle.contracts.CoralCollectionInfoSource;
+import competition.simulation.vision.SimulatedCameras;
 import competition.subsystems.pose.PoseSubsystem;
 import competition.subsystems.vision.AprilTagVisionSubsystemExtended;
 import dagger.Binds;
+import dagger.BindsOptionalOf;
 import dagger.Module;
 import dagger.Provides;
 import edu.wpi.first.apriltag.AprilTagFieldLayout;
 import edu.wpi.first.apriltag.AprilTagFields;
+import org.ironmaple.simulation.SimulatedArena;
+import org.ironmaple.simulation.seasonspecific.reefscape2025.Arena2025Reefscape;
 import xbot.common.injection.electrical_contract.XCameraElectricalContract;
 import xbot.common.injection.electrical_contract.XSwerveDriveElectricalContract;
 import xbot.common.injection.swerve.FrontLeftDrive;
@@ -23,9 +28,12 @@ import xbot.common.subsystems.drive.BaseDriveSubsystem;
 import xbot.common.subsystems.drive.BaseSwerveDriveSubsystem;
 import xbot.common.subsystems.pose.BasePoseSubsystem;
 import xbot.common.subsystems.pose.GameField;
+import xbot.common.subsystems.vision.AprilTagVisionIOFactory;
 import xbot.common.subsystems.vision.AprilTagVisionSubsystem;
 
 import javax.inject.Singleton;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /**
  * This module defines bindings that apply to all robot configurations.
@@ -70,6 +78,31 @@ public abstract class CommonModule {
         return AprilTagFieldLayout.loadField(AprilTagFields.k2025ReefscapeWelded);
     }
 
+    @Provides
+    @Singleton
+    public static SimulatedArena simulatedArena() {
+        // One arena per component instead of maple-sim's global instance, so simulations can't see each other's
+        // game pieces. Only built if something actually asks for the simulator.
+        return new Arena2025Reefscape();
+    }
+
+    @Provides
+    @Singleton
+    public static @BackgroundExecutor Executor backgroundExecutor() {
+        // Each user keeps at most one task queued at a time, so a slow route plan never holds up anyone else's
+        // work. Threads that sit idle go away on their own.
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "RobotBackground");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Only simulated robots provide this; everyone else uses the cameras from the device modules.
+    @BindsOptionalOf
+    @SimulatedCameras
+    abstract AprilTagVisionIOFactory simulatedCameras();
+
     @Provides
     @Singleton
     public static GameField.Symmetry gameFieldSymmetry() {
@@ -6,6 +6,8 @@ import competition.electrical_contract.ElectricalContract;
 import competition.electrical_contract.UnitTestContract2025;
 import competition.simulation.BaseSimulator;
 import competition.simulation.MapleSimulator;
+import competition.simulation.vision.SimulatedAprilTagVisionIOFactory;
+import competition.simulation.vision.SimulatedCameras;
 import competition.subsystems.drive.DriveSubsystem;
 import competition.subsystems.pose.PoseSubsystem;
 import competition.subsystems.vision.AprilTagVisionSubsystemExtended;
@@ -17,6 +19,7 @@ import xbot.common.subsystems.drive.BaseDriveSubsystem;
 import xbot.common.subsystems.drive.BaseSwerveDriveSubsystem;
 import xbot.common.subsystems.pose.BasePoseSubsystem;
 import xbot.common.subsystems.pose.SimulatedPositionSupplier;
+import xbot.common.subsystems.vision.AprilTagVisionIOFactory;
 import xbot.common.subsystems.vision.AprilTagVisionSubsystem;
 
 @Module
@@ -28,4 +31,8 @@ public abstract class SimulatedRobotModule {
     @Binds
     @Singleton
     abstract SimulatedPositionSupplier getSimulatedPositionSupplier(BaseSimulator impl);
+
+    @Binds
+    @SimulatedCameras
+    abstract AprilTagVisionIOFactory getSimulatedCameras(SimulatedAprilTagVisionIOFactory impl);
 }
@@ -1,6 +1,8 @@
 package competition.operator_interface;
 
+import competition.profiling.LoopTimeProfiler;
 import competition.subsystems.oracle.FaceBranch;
+import competition.subsystems.oracle.ReefOccupancy;
 import competition.subsystems.oracle.ScoringQueue;
 import competition.subsystems.pose.Landmarks;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
@@ -19,13 +21,14 @@ import java.util.HashMap;
 /**
  * General neotrellis map of buttons:
  * xooooxxh 1-8
- * oxCxxoxh 9-16
+ * oxCTxoxh 9-16
  * oxRPxoxh 17-24
  * xooooxxh 25-32
  * o - branch button
  * x - unused
  * h - height button
  * C - clear queue
+ * T - toggle whether a reef slot (or a face's algae) is filled, instead of queueing it
  * D - remove algae
  * P - process algae
  *
@@ -39,6 +42,7 @@ public class NeoTrellisSubsystem extends BaseSubsystem {
     final OperatorInterface oi;
     final XJoystick neoTrellis;
     final ScoringQueue scoringQueue;
+    final ReefOccupancy reefOccupancy;
 
     final HashMap<FaceBranch, Integer> locationsToButtonIndices;
     final HashMap<Landmarks.CoralLevel, Integer> levelsToButtonIndices;
@@ -48,14 +52,20 @@ public class NeoTrellisSubsystem extends BaseSubsystem {
     final AdvancedTrigger removeAlgaeButton;
     final AdvancedTrigger processAlgaeButton;
     final AdvancedTrigger resetQueueButton;
+    final AdvancedTrigger toggleReefSlotButton;
 
     final Latch comboDetectedLatch;
 
+    final LoopTimeProfiler.Section periodicSection;
+
     @Inject
-    public NeoTrellisSubsystem(OperatorInterface oi, ScoringQueue scoringQueue) {
+    public NeoTrellisSubsystem(OperatorInterface oi, ScoringQueue scoringQueue, ReefOccupancy reefOccupancy,
+                               LoopTimeProfiler profiler) {
         this.oi = oi;
         this.neoTrellis = oi.neoTrellis;
         this.scoringQueue = scoringQueue;
+        this.reefOccupancy = reefOccupancy;
+        this.periodicSection = profiler.getSection("NeoTrellisSubsystem.periodic");
 
         locationsToButtons = new HashMap<>();
         levelsToButtons = new HashMap<>();
@@ -67,6 +77,7 @@ public class NeoTrellisSubsystem extends BaseSubsystem {
         removeAlgaeButton = neoTrellis.getifAvailable(19);
         processAlgaeButton = neoTrellis.getifAvailable(20);
         resetQueueButton = neoTrellis.getifAvailable(11);
+        toggleReefSlotButton = neoTrellis.getifAvailable(12);
 
         // Resetting doesn't need any other button to be pressed, so we set it up as a typical
         // "press this button and get this command" binding.
@@ -136,6 +147,11 @@ public class NeoTrellisSubsystem extends BaseSubsystem {
         // Find the first coral button that's currently active
         for (var heightEntry : levelsToButtons.entrySet()) {
             if (heightEntry.getValue().getAsBoolean()) {
+                if (toggleReefSlotButton.getAsBoolean()) {
+                    // Fixing up the reef state by hand, e.g. after a partner scores.
+                    reefOccupancy.toggleCoral(location.face(), location.branch(), heightEntry.getKey());
+                    return;
+                }
                 scoringQueue.addCoralTask(
                         location.face(),
                         location.branch(),
@@ -147,6 +163,10 @@ public class NeoTrellisSubsystem extends BaseSubsystem {
 
         // If we didn't get a coral task, check algae
         if (removeAlgaeButton.getAsBoolean()) {
+            if (toggleReefSlotButton.getAsBoolean()) {
+                reefOccupancy.toggleAlgae(location.face());
+                return;
+            }
             scoringQueue.addAlgaeRemovalTask(location.face());
             return;
         }
@@ -164,28 +184,33 @@ public class NeoTrellisSubsystem extends BaseSubsystem {
 
     @Override
     public void periodic() {
-        // is any location button pressed
-        boolean anyLocationPressed = false;
-        for (AdvancedTrigger button : locationsToButtons.values()) {
-            if (button.getAsBoolean()) {
-                anyLocationPressed = true;
-                break;
+        periodicSection.start();
+        try {
+            // is any location button pressed
+            boolean anyLocationPressed = false;
+            for (AdvancedTrigger button : locationsToButtons.values()) {
+                if (button.getAsBoolean()) {
+                    anyLocationPressed = true;
+                    break;
+                }
             }
-        }
 
-        // is any height pressed
-        boolean anyHeightPressed = false;
-        for (AdvancedTrigger button : levelsToButtons.values()) {
-            if (button.getAsBoolean()) {
-                anyHeightPressed = true;
-                break;
+            // is any height pressed
+            boolean anyHeightPressed = false;
+            for (AdvancedTrigger button : levelsToButtons.values()) {
+                if (button.getAsBoolean()) {
+                    anyHeightPressed = true;
+                    break;
+                }
             }
-        }
 
-        boolean isAnyActionPressed =
-                anyHeightPressed || processAlgaeButton.getAsBoolean() || removeAlgaeButton.getAsBoolean();
+            boolean isAnyActionPressed =
+                    anyHeightPressed || processAlgaeButton.getAsBoolean() || removeAlgaeButton.getAsBoolean();
 
-        comboDetectedLatch.setValue(anyLocationPressed && isAnyActionPressed);
+            comboDetectedLatch.setValue(anyLocationPressed && isAnyActionPressed);
+        } finally {
+            periodicSection.stop();
+        }
     }
 
     public int getNeoTrellisButtonIndex(Landmarks.ReefFace face, Landmarks.Branch branch) {
@@ -208,5 +233,9 @@ public class NeoTrellisSubsystem extends BaseSubsystem {
         return 11;
     }
 
+    public int getNeoTrellisButtonToggleReefSlot() {
+        return 12;
+    }
+
 
 }
\ No newline at end of file
@@ -31,6 +31,7 @@ import competition.subsystems.elevator.ElevatorSubsystem;
 import competition.subsystems.elevator.commands.ForceElevatorCalibratedCommand;
 import competition.subsystems.elevator.commands.SetElevatorTargetHeightCommand;
 import competition.subsystems.oracle.commands.DriveAccordingToOracleCommand;
+import competition.subsystems.oracle.commands.ReloadReefScoringOffsetsCommand;
 import competition.subsystems.oracle.commands.SuperstructureAccordingToOracleCommand;
 import competition.subsystems.pose.Cameras;
 import competition.subsystems.pose.Landmarks;
@@ -241,8 +242,10 @@ public class OperatorCommandMap {
     }
 
     @Inject
-    public void setupDriverStationDashboardCommands(CalibrateDriveCommand calibrateDriveCommand) {
+    public void setupDriverStationDashboardCommands(CalibrateDriveCommand calibrateDriveCommand,
+                                                    ReloadReefScoringOffsetsCommand reloadReefScoringOffsetsCommand) {
         calibrateDriveCommand.includeOnSmartDashboard();
+        reloadReefScoringOffsetsCommand.includeOnSmartDashboard();
     }
 
     // Programmer commands are only meant to be used to debug or test the robot. They should not be used in competition,
@@ -0,0 +1,265 @@
+package competition.profiling;
+
+import xbot.common.advantage.AKitLogger;
+import xbot.common.advantage.DataFrameRefreshable;
+import xbot.common.properties.BooleanProperty;
+import xbot.common.properties.DoubleProperty;
+import xbot.common.properties.PropertyFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures how long each part of the robot loop takes, so we can find the hot paths keeping us from
+ * running at a 20ms loop.
+ * Each profiled piece of work (a data frame refresh, a subsystem periodic, the simulator, etc.) gets a
+ * {@link Section}. Every loop, each section publishes rolling p50/p99/max timings, and if the loop as a whole
+ * went over budget, the largest contributors for that loop are recorded as well.
+ */
+@Singleton
+public class LoopTimeProfiler {
+
+    public static final int windowSize = 128;
+    static final int maxOverrunContributors = 3;
+
+    final AKitLogger aKitLog;
+    final BooleanProperty enabled;
+    final DoubleProperty loopBudgetMs;
+
+    private final List<Section> sections = new ArrayList<>();
+    private final double[] sortScratch = new double[windowSize];
+    private final Section[] contributorScratch = new Section[maxOverrunContributors];
+
+    private long loopStartNanos;
+    private int overrunCount;
+    private String lastOverrunContributors = "";
+
+    @Inject
+    public LoopTimeProfiler(PropertyFactory pf) {
+        pf.setPrefix("LoopTimeProfiler");
+        enabled = pf.createPersistentProperty("Enabled", true);
+        loopBudgetMs = pf.createPersistentProperty("LoopBudget-ms", 20.0);
+        aKitLog = new AKitLogger("LoopTimeProfiler/");
+    }
+
+    /**
+     * A single timed piece of work. Sections are cheap to start and stop (no allocation), and may be
+     * started and stopped more than once per loop; the time is summed for that loop.
+     */
+    public static class Section {
+        final String name;
+        final String p50Key;
+        final String p99Key;
+        final String maxKey;
+        final String lastKey;
+
+        final double[] samplesMs = new double[windowSize];
+        int nextSampleIndex = 0;
+        int sampleCount = 0;
+
+        long startNanos = -1;
+        double thisLoopMs = 0;
+        boolean ranThisLoop = false;
+
+        double p50Ms;
+        double p99Ms;
+        double maxMs;
+
+        Section(String name) {
+            this.name = name;
+            this.p50Key = "Sections/" + name + "/p50-ms";
+            this.p99Key = "Sections/" + name + "/p99-ms";
+            this.maxKey = "Sections/" + name + "/max-ms";
+            this.lastKey = "Sections/" + name + "/last-ms";
+        }
+
+        public void start() {
+            startNanos = System.nanoTime();
+        }
+
+        public void stop() {
+            if (startNanos < 0) {
+                // stop() without a matching start(); nothing sensible to record.
+                return;
+            }
+            record((System.nanoTime() - startNanos) / 1_000_000.0);
+            startNanos = -1;
+        }
+
+        /**
+         * Adds time to this section for the current loop. Useful when the duration was measured elsewhere.
+         * @param durationMs Time spent, in milliseconds
+         */
+        public void record(double durationMs) {
+            thisLoopMs += durationMs;
+            ranThisLoop = true;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getThisLoopMs() {
+            return thisLoopMs;
+        }
+
+        public double getP50Ms() {
+            return p50Ms;
+        }
+
+        public double getP99Ms() {
+            return p99Ms;
+        }
+
+        public double getMaxMs() {
+            return maxMs;
+        }
+    }
+
+    /**
+     * Gets (or creates) the section with the given name.
+     * @param name Name of the section, used as the logging key
+     * @return The section
+     */
+    public Section getSection(String name) {
+        for (Section section : sections) {
+            if (section.name.equals(name)) {
+                return section;
+            }
+        }
+        Section section = new Section(name);
+        sections.add(section);
+        return section;
+    }
+
+    /**
+     * Wraps a DataFrameRefreshable so that every refresh is timed under its own section.
+     * @param name Name of the section
+     * @param refreshable The refreshable to time
+     * @return A refreshable that can be used in place of the original
+     */
+    public DataFrameRefreshable profile(String name, DataFrameRefreshable refreshable) {
+        Section section = getSection(name + ".refreshDataFrame");
+        return () -> {
+            section.start();
+            try {
+                refreshable.refreshDataFrame();
+            } finally {
+                section.stop();
+            }
+        };
+    }
+
+    /**
+     * Total time recorded by all sections so far in the current loop. Callers can use this to
+     * work out how much of a larger block of time was not attributed to any section.
+     * @return Milliseconds recorded this loop
+     */
+    public double getTotalSectionMsThisLoop() {
+        double total = 0;
+        for (Section section : sections) {
+            total += section.thisLoopMs;
+        }
+        return total;
+    }
+
+    public void startLoop() {
+        loopStartNanos = System.nanoTime();
+    }
+
+    public void endLoop() {
+        completeLoop((System.nanoTime() - loopStartNanos) / 1_000_000.0);
+    }
+
+    void completeLoop(double loopDurationMs) {
+        if (!enabled.get()) {
+            resetSectionsForNextLoop();
+            return;
+        }
+
+        for (Section section : sections) {
+            if (section.ranThisLoop) {
+                addSample(section, section.thisLoopMs);
+                aKitLog.record(section.lastKey, section.thisLoopMs);
+            }
+            aKitLog.record(section.p50Key, section.p50Ms);
+            aKitLog.record(section.p99Key, section.p99Ms);
+            aKitLog.record(section.maxKey, section.maxMs);
+        }
+
+        aKitLog.record("LoopDuration-ms", loopDurationMs);
+        aKitLog.record("UnprofiledDuration-ms", loopDurationMs - getTotalSectionMsThisLoop());
+
+        if (loopDurationMs > loopBudgetMs.get()) {
+            overrunCount++;
+            lastOverrunContributors = describeLargestContributors();
+            aKitLog.record("OverrunContributors", lastOverrunContributors);
+        }
+        aKitLog.record("OverrunCount", overrunCount);
+
+        resetSectionsForNextLoop();
+    }
+
+    private void addSample(Section section, double sampleMs) {
+        section.samplesMs[section.nextSampleIndex] = sampleMs;
+        section.nextSampleIndex = (section.nextSampleIndex + 1) % windowSize;
+        section.sampleCount = Math.min(section.sampleCount + 1, windowSize);
+
+        int count = section.sampleCount;
+        System.arraycopy(section.samplesMs, 0, sortScratch, 0, count);
+        Arrays.sort(sortScratch, 0, count);
+        section.p50Ms = sortScratch[(int) Math.round(0.50 * (count - 1))];
+        section.p99Ms = sortScratch[(int) Math.ceil(0.99 * (count - 1))];
+        section.maxMs = sortScratch[count - 1];
+    }
+
+    private String describeLargestContributors() {
+        Arrays.fill(contributorScratch, null);
+        for (Section section : sections) {
+            if (!section.ranThisLoop) {
+                continue;
+            }
+            // Simple insertion into a tiny, descending top-N list.
+            for (int i = 0; i < contributorScratch.length; i++) {
+                if (contributorScratch[i] == null || section.thisLoopMs > contributorScratch[i].thisLoopMs) {
+                    System.arraycopy(contributorScratch, i, contributorScratch, i + 1, contributorScratch.length - i - 1);
+                    contributorScratch[i] = section;
+                    break;
+                }
+            }
+        }
+
+        StringBuilder description = new StringBuilder();
+        for (Section contributor : contributorScratch) {
+            if (contributor == null) {
+                break;
+            }
+            if (description.length() > 0) {
+                description.append(", ");
+            }
+            description.append(contributor.name)
+                    .append('=')
+                    .append(String.format("%.2f", contributor.thisLoopMs))
+                    .append("ms");
+        }
+        return description.toString();
+    }
+
+    private void resetSectionsForNextLoop() {
+        for (Section section : sections) {
+            section.thisLoopMs = 0;
+            section.ranThisLoop = false;
+        }
+    }
+
+    public int getOverrunCount() {
+        return overrunCount;
+    }
+
+    public String getLastOverrunContributors() {
+        return lastOverrunContributors;
+    }
+}
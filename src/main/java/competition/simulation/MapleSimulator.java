@@ -16,6 +16,7 @@ import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.units.measure.Distance;
 import xbot.common.advantage.AKitLogger;
+import xbot.common.controls.sensors.XTimer;
 import xbot.common.controls.sensors.mock_adapters.MockGyro;
 
 import static edu.wpi.first.units.Units.Inches;
@@ -49,6 +50,11 @@ public class MapleSimulator implements BaseSimulator {
 
     final Distance humanLoadingDistanceThreshold = Meters.of(0.5);
 
+    final SimulationVariation variation;
+    final SimulatedMatchStats matchStats;
+    // When the robot got ready for the human player to feed it coral, or NaN if it isn't ready
+    double readyForHumanPlayerSince = Double.NaN;
+
     // maple-sim stuff ----------------------------
     final DriveTrainSimulationConfig config;
     final SimulatedArena arena;
@@ -58,7 +64,8 @@ public class MapleSimulator implements BaseSimulator {
     public MapleSimulator(PoseSubsystem pose, DriveSubsystem drive, ElevatorSimulator elevatorSimulator,
                           CoralArmSimulator armSimulator, ReefSimulator reefSimulator, 
                           CoralScorerSimulator coralScorerSimulator, AlgaeArmSimulator algaeArmSimulator,
-                          LightsSimulator lightsSimulator) {
+                          LightsSimulator lightsSimulator, SimulatedArena arena, SimulationVariation variation,
+                          SimulatedMatchStats matchStats) {
         this.pose = pose;
         this.drive = drive;
         this.elevatorSimulator = elevatorSimulator;
@@ -69,13 +76,16 @@ public class MapleSimulator implements BaseSimulator {
         this.algaeArmSimulator = algaeArmSimulator;
         this.lightsSimulator = lightsSimulator;
         this.superstructureMechanism = new SuperstructureMechanism();
+        this.variation = variation;
+        this.matchStats = matchStats;
 
         aKitLog = new AKitLogger("Simulator/");
 
         /**
          * MapleSim arena and drive setup
          */
-        arena = SimulatedArena.getInstance();
+        // Our own arena rather than maple-sim's global instance, so separate simulations don't share a field
+        this.arena = arena;
         arena.resetFieldForAuto();
         // TODO: custom things to provide here like motor ratios and what have you
         config = DriveTrainSimulationConfig.Default().withCustomModuleTranslations(new Translation2d[] {
@@ -152,8 +162,10 @@ public class MapleSimulator implements BaseSimulator {
             if(distanceToReef > 0.3 || coralAlreadyScored) {
                 if (coralAlreadyScored) {
                     System.out.println("Coral already scored, dropping on ground");
+                    matchStats.recordFailure(SimulatedMatchStats.Failure.CoralDroppedOnFilledSlot);
                 } else {
                     System.out.println("Too far from reef, dropping on ground");
+                    matchStats.recordFailure(SimulatedMatchStats.Failure.CoralDroppedAwayFromReef);
                 }
                 // we fail to score the coral, drop it on the ground
                 ReefscapeCoral coral = new ReefscapeCoral(new Pose2d(frontOfRobot, currentPose.getRotation()));
@@ -161,6 +173,7 @@ public class MapleSimulator implements BaseSimulator {
                 arena.addGamePiece(coral);
             } else {
                 reefSimulator.scoreCoral(closetCoralKey);
+                matchStats.recordCoralScored();
             }
 
             
@@ -186,7 +199,16 @@ public class MapleSimulator implements BaseSimulator {
         }
 
         if (elevatorAtCollectionHeight && armAtCollectionAngle && coralScorerIsIntaking && robotNearHumanLoading) {
-            coralScorerSimulator.simulateCoralLoad();
+            // The human player needs a moment to notice and feed the coral through
+            if (Double.isNaN(readyForHumanPlayerSince)) {
+                readyForHumanPlayerSince = XTimer.getFPGATimestamp();
+            }
+            if (XTimer.getFPGATimestamp() - readyForHumanPlayerSince >= variation.getHumanPlayerDelaySeconds()) {
+                coralScorerSimulator.simulateCoralLoad();
+                readyForHumanPlayerSince = Double.NaN;
+            }
+        } else {
+            readyForHumanPlayerSince = Double.NaN;
         }
     }
 
@@ -222,7 +244,9 @@ public class MapleSimulator implements BaseSimulator {
     @Override
     public void resetPosition(Pose2d pose) {
         arena.resetFieldForAuto();
-        this.swerveDriveSimulation.getDriveTrainSimulation().setSimulationWorldPose(pose);
+        // The robot is never placed exactly where it's told it was
+        this.swerveDriveSimulation.getDriveTrainSimulation().setSimulationWorldPose(
+                pose.transformBy(variation.getStartingPoseError()));
         this.pose.setCurrentPoseInMeters(pose);
     }
 
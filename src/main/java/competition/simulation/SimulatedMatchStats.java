@@ -0,0 +1,56 @@
+package competition.simulation;
+
+import xbot.common.controls.sensors.XTimer;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What happened to the game pieces during a simulated match, for evaluating autos in bulk.
+ */
+@Singleton
+public class SimulatedMatchStats {
+
+    public enum Failure {
+        CoralDroppedAwayFromReef,
+        CoralDroppedOnFilledSlot,
+        AutoDidNotFinish,
+        SchedulerCrash,
+        RunCrashed
+    }
+
+    private final List<Double> coralScoredTimes = new ArrayList<>();
+    private final Map<Failure, Integer> failureCounts = new EnumMap<>(Failure.class);
+
+    @Inject
+    public SimulatedMatchStats() {
+    }
+
+    public void recordCoralScored() {
+        coralScoredTimes.add(XTimer.getFPGATimestamp());
+    }
+
+    public void recordFailure(Failure failure) {
+        failureCounts.merge(failure, 1, Integer::sum);
+    }
+
+    /**
+     * @return FPGA timestamps of each coral that made it onto the reef, in order
+     */
+    public List<Double> getCoralScoredTimes() {
+        return new ArrayList<>(coralScoredTimes);
+    }
+
+    public Map<Failure, Integer> getFailureCounts() {
+        return new EnumMap<>(failureCounts);
+    }
+
+    public void reset() {
+        coralScoredTimes.clear();
+        failureCounts.clear();
+    }
+}
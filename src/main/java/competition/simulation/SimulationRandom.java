@@ -0,0 +1,104 @@
+package competition.simulation;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayDeque;
+import java.util.Random;
+
+/**
+ * The one source of randomness for the simulators, so a run can be repeated.
+ * Draws come from a seeded generator. While recording, every draw is also kept so it can be written out with the
+ * loop it happened in; while replaying, draws are handed back from the recording instead.
+ */
+@Singleton
+public class SimulationRandom {
+
+    public static final long defaultSeed = 488;
+
+    private final Random random = new Random(defaultSeed);
+    private final ArrayDeque<Double> recordedDraws = new ArrayDeque<>();
+    private final ArrayDeque<Double> drawsToReplay = new ArrayDeque<>();
+    private boolean recording = false;
+    private boolean replaying = false;
+    private boolean replayDiverged = false;
+
+    @Inject
+    public SimulationRandom() {
+    }
+
+    public synchronized void setSeed(long seed) {
+        random.setSeed(seed);
+    }
+
+    /**
+     * @return Uniform in [0, 1)
+     */
+    public synchronized double nextDouble() {
+        if (replaying) {
+            if (!drawsToReplay.isEmpty()) {
+                return drawsToReplay.poll();
+            }
+            // Asked for more than the recording has; carry on, but the replay is no longer faithful
+            replayDiverged = true;
+        }
+        double value = random.nextDouble();
+        if (recording) {
+            recordedDraws.add(value);
+        }
+        return value;
+    }
+
+    /**
+     * @return Uniform in [-halfWidth, halfWidth)
+     */
+    public double nextNoise(double halfWidth) {
+        return (nextDouble() - 0.5) * 2 * halfWidth;
+    }
+
+    /**
+     * @return Standard normal. Built from two uniform draws, so it's recorded and replayed like any other draw.
+     */
+    public double nextGaussian() {
+        double notZero = 1 - nextDouble();
+        double angle = 2 * Math.PI * nextDouble();
+        return Math.sqrt(-2 * Math.log(notZero)) * Math.cos(angle);
+    }
+
+    public synchronized void setRecording(boolean recording) {
+        this.recording = recording;
+        recordedDraws.clear();
+    }
+
+    /**
+     * @return Every draw since the last call, oldest first
+     */
+    public synchronized double[] takeRecordedDraws() {
+        var draws = new double[recordedDraws.size()];
+        for (int i = 0; i < draws.length; i++) {
+            draws[i] = recordedDraws.poll();
+        }
+        return draws;
+    }
+
+    public synchronized void setReplaying(boolean replaying) {
+        this.replaying = replaying;
+        drawsToReplay.clear();
+        replayDiverged = false;
+    }
+
+    public synchronized void queueDrawsToReplay(double[] draws) {
+        for (double draw : draws) {
+            drawsToReplay.add(draw);
+        }
+    }
+
+    /**
+     * @return Whether the simulation has asked for a different number of draws than were recorded, since the last call
+     */
+    public synchronized boolean checkAndClearReplayDivergence() {
+        boolean diverged = replayDiverged || !drawsToReplay.isEmpty();
+        replayDiverged = false;
+        drawsToReplay.clear();
+        return diverged;
+    }
+}
@@ -0,0 +1,83 @@
+package competition.simulation;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform2d;
+import xbot.common.advantage.AKitLogger;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Random;
+
+/**
+ * Knobs the simulators read for things that vary from match to match in real life.
+ * The defaults are the nominal values the simulators have always used; randomize() draws a new set,
+ * so a batch of simulated matches doesn't play out identically.
+ */
+@Singleton
+public class SimulationVariation {
+
+    static final double nominalLaserNoiseMeters = 0.01;
+    static final double maxLaserNoiseMeters = 0.03;
+    static final double startingTranslationErrorStdDevMeters = 0.05;
+    static final double startingHeadingErrorStdDevDegrees = 2;
+    static final double maxHumanPlayerDelaySeconds = 1.5;
+    // On top of the cameras' configured latency; a busy coprocessor or network is only ever slower.
+    static final double maxExtraVisionLatencySeconds = 0.06;
+
+    final AKitLogger aKitLog;
+
+    private double laserNoiseMeters = nominalLaserNoiseMeters;
+    private Transform2d startingPoseError = new Transform2d();
+    private double humanPlayerDelaySeconds = 0;
+    private double extraVisionLatencySeconds = 0;
+
+    @Inject
+    public SimulationVariation() {
+        aKitLog = new AKitLogger("Simulator/Variation/");
+    }
+
+    public void randomize(long seed) {
+        var random = new Random(seed);
+        laserNoiseMeters = random.nextDouble() * maxLaserNoiseMeters;
+        startingPoseError = new Transform2d(
+                random.nextGaussian() * startingTranslationErrorStdDevMeters,
+                random.nextGaussian() * startingTranslationErrorStdDevMeters,
+                Rotation2d.fromDegrees(random.nextGaussian() * startingHeadingErrorStdDevDegrees));
+        humanPlayerDelaySeconds = random.nextDouble() * maxHumanPlayerDelaySeconds;
+        extraVisionLatencySeconds = random.nextDouble() * maxExtraVisionLatencySeconds;
+
+        aKitLog.record("Seed", seed);
+        aKitLog.record("LaserNoise-m", laserNoiseMeters);
+        aKitLog.record("StartingPoseError", startingPoseError);
+        aKitLog.record("HumanPlayerDelay-s", humanPlayerDelaySeconds);
+        aKitLog.record("ExtraVisionLatency-s", extraVisionLatencySeconds);
+    }
+
+    /**
+     * @return Half-width of the uniform noise added to the elevator's laser distance readings
+     */
+    public double getLaserNoiseMeters() {
+        return laserNoiseMeters;
+    }
+
+    /**
+     * @return How far the robot really is from where it was told it was placed, relative to that pose
+     */
+    public Transform2d getStartingPoseError() {
+        return startingPoseError;
+    }
+
+    /**
+     * @return How long the human player takes to feed coral once the robot is ready at the station
+     */
+    public double getHumanPlayerDelaySeconds() {
+        return humanPlayerDelaySeconds;
+    }
+
+    /**
+     * @return How much later than their configured latency the simulated cameras' frames reach the robot
+     */
+    public double getExtraVisionLatencySeconds() {
+        return extraVisionLatencySeconds;
+    }
+}
@@ -0,0 +1,196 @@
+package competition.simulation;
+
+import static edu.wpi.first.units.Units.Rotations;
+import static edu.wpi.first.units.Units.RotationsPerSecond;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import xbot.common.controls.actuators.mock_adapters.MockCANMotorController;
+import xbot.common.math.PIDManager;
+
+/**
+ * A motor-driven mechanism (elevator or arm) plus its motor controller's onboard position PID, both stepped many
+ * times per robot loop. Real motor controllers close their position loop at around 1 kHz; running our emulated
+ * PID once per robot loop made the simulated mechanisms overshoot and oscillate in ways the real ones don't,
+ * and behave differently whenever the loop period changed.
+ *
+ * <p>State is kept in primitives so dozens of substeps per loop stay cheap. The plant is the same DC motor model
+ * WPILib's ElevatorSim and SingleJointedArmSim use. Velocity is integrated exactly over each substep (holding the
+ * voltage and gravity constant), so it's stable at any substep size.
+ */
+public class SubsteppedMechanism {
+
+    public static final double defaultSubstepSeconds = 0.001;
+    static final double gravity = 9.8;
+    // If the simulation stalls (e.g. at a breakpoint), don't try to catch up more than this in one update.
+    static final double maxUpdateSeconds = 0.1;
+
+    // acceleration = inputGain * volts - backEmfGain * velocity - linearGravity - armGravityGain * cos(position)
+    final double inputGain;
+    final double backEmfGain;
+    final double linearGravity;
+    final double armGravityGain;
+    final double minPosition;
+    final double maxPosition;
+    // motor rotations = position * motorRotationsPerUnit + motorRotationsAtZero
+    final double motorRotationsPerUnit;
+    final double motorRotationsAtZero;
+    final double substepSeconds;
+
+    double position;
+    double velocity;
+    double lastUpdateTime = Double.NaN;
+
+    // Emulated onboard PID
+    double integral = 0;
+    double previousError = Double.NaN;
+
+    private SubsteppedMechanism(double inputGain, double backEmfGain, double linearGravity, double armGravityGain,
+                                double minPosition, double maxPosition, double startingPosition,
+                                double motorRotationsPerUnit, double motorRotationsAtZero, double substepSeconds) {
+        this.inputGain = inputGain;
+        this.backEmfGain = backEmfGain;
+        this.linearGravity = linearGravity;
+        this.armGravityGain = armGravityGain;
+        this.minPosition = minPosition;
+        this.maxPosition = maxPosition;
+        this.position = startingPosition;
+        this.velocity = 0;
+        this.motorRotationsPerUnit = motorRotationsPerUnit;
+        this.motorRotationsAtZero = motorRotationsAtZero;
+        this.substepSeconds = substepSeconds;
+    }
+
+    /**
+     * An elevator, with position in meters.
+     */
+    public static SubsteppedMechanism createElevator(DCMotor gearbox, double gearing, double carriageMassKg,
+                                                     double drumRadiusMeters, double minHeightMeters,
+                                                     double maxHeightMeters, boolean simulateGravity,
+                                                     double startingHeightMeters, double motorRotationsPerMeter,
+                                                     double motorRotationsAtZero, double substepSeconds) {
+        double torquePerVolt = gearing * gearbox.KtNMPerAmp / gearbox.rOhms;
+        return new SubsteppedMechanism(
+                torquePerVolt / (drumRadiusMeters * carriageMassKg),
+                torquePerVolt * gearing / (gearbox.KvRadPerSecPerVolt * drumRadiusMeters * drumRadiusMeters * carriageMassKg),
+                simulateGravity ? gravity : 0,
+                0,
+                minHeightMeters, maxHeightMeters, startingHeightMeters,
+                motorRotationsPerMeter, motorRotationsAtZero, substepSeconds);
+    }
+
+    /**
+     * A single jointed arm (modeled as a uniform rod), with position in radians where 0 is horizontal.
+     */
+    public static SubsteppedMechanism createArm(DCMotor gearbox, double gearing, double moiKgMetersSquared,
+                                                double armLengthMeters, double minAngleRads, double maxAngleRads,
+                                                boolean simulateGravity, double startingAngleRads,
+                                                double motorRotationsPerRadian, double motorRotationsAtZero,
+                                                double substepSeconds) {
+        double torquePerVolt = gearing * gearbox.KtNMPerAmp / gearbox.rOhms;
+        return new SubsteppedMechanism(
+                torquePerVolt / moiKgMetersSquared,
+                torquePerVolt * gearing / (gearbox.KvRadPerSecPerVolt * moiKgMetersSquared),
+                0,
+                simulateGravity ? 1.5 * gravity / armLengthMeters : 0,
+                minAngleRads, maxAngleRads, startingAngleRads,
+                motorRotationsPerRadian, motorRotationsAtZero, substepSeconds);
+    }
+
+    /**
+     * Advances the mechanism to the given time. If the motor is in position mode, the emulated onboard PID runs
+     * every substep; otherwise the motor's power is held for the whole update. Afterwards the motor's position
+     * and velocity are updated to match the mechanism.
+     * @param gravityFeedForward Power added to the PID's output, as the real controller's feed forward would
+     */
+    public void update(MockCANMotorController motor, PIDManager pid, double gravityFeedForward,
+                       boolean enabled, double batteryVolts, double nowSeconds) {
+        double elapsed = Double.isNaN(lastUpdateTime) ? SimulationConstants.loopPeriodSec : nowSeconds - lastUpdateTime;
+        lastUpdateTime = nowSeconds;
+        elapsed = Math.max(0, Math.min(maxUpdateSeconds, elapsed));
+        int substeps = (int) Math.ceil(elapsed / substepSeconds - 1e-9);
+
+        boolean positionControl = motor.getControlMode() == MockCANMotorController.ControlMode.Position;
+        if (!positionControl) {
+            integral = 0;
+            previousError = Double.NaN;
+        }
+
+        if (substeps > 0) {
+            double dt = elapsed / substeps;
+            double decay = Math.exp(-backEmfGain * dt);
+            // Our PID gains are tuned per call at the nominal loop period, the way PIDManager works, so convert
+            // them to per-second gains like a real motor controller's.
+            double kP = pid.getP();
+            double kI = pid.getI() / SimulationConstants.loopPeriodSec;
+            double kD = pid.getD() * SimulationConstants.loopPeriodSec;
+            double targetRotations = positionControl ? motor.getTargetPosition().in(Rotations) : 0;
+            // Positive power turns the motor the way its encoder counts up.
+            double inputDirection = Math.signum(motorRotationsPerUnit);
+
+            double power = motor.getPower();
+            for (int i = 0; i < substeps; i++) {
+                if (positionControl) {
+                    power = calculatePositionOutput(targetRotations, getMotorRotations(), dt, kP, kI, kD)
+                            + gravityFeedForward;
+                    power = Math.max(-1, Math.min(1, power));
+                }
+                step(enabled ? power * batteryVolts * inputDirection : 0, dt, decay);
+            }
+            if (positionControl) {
+                motor.setPower(power);
+            }
+        }
+
+        motor.setPosition(Rotations.of(getMotorRotations()));
+        motor.setVelocity(RotationsPerSecond.of(velocity * motorRotationsPerUnit));
+    }
+
+    double calculatePositionOutput(double targetRotations, double currentRotations, double dt,
+                                   double kP, double kI, double kD) {
+        double error = targetRotations - currentRotations;
+        integral += error * dt;
+        // Keep the integral from winding up past what could ever saturate the output
+        if (kI > 0) {
+            integral = Math.max(-1 / kI, Math.min(1 / kI, integral));
+        }
+        double derivative = Double.isNaN(previousError) ? 0 : (error - previousError) / dt;
+        previousError = error;
+        double output = kP * error + kI * integral + kD * derivative;
+        return Math.max(-1, Math.min(1, output));
+    }
+
+    void step(double volts, double dt, double decay) {
+        double forcing = inputGain * volts - linearGravity;
+        if (armGravityGain != 0) {
+            forcing -= armGravityGain * Math.cos(position);
+        }
+        double previousVelocity = velocity;
+        if (backEmfGain > 0) {
+            double terminalVelocity = forcing / backEmfGain;
+            velocity = terminalVelocity + (velocity - terminalVelocity) * decay;
+        } else {
+            velocity += forcing * dt;
+        }
+        position += 0.5 * (previousVelocity + velocity) * dt;
+
+        if (position <= minPosition) {
+            position = minPosition;
+            velocity = Math.max(0, velocity);
+        } else if (position >= maxPosition) {
+            position = maxPosition;
+            velocity = Math.min(0, velocity);
+        }
+    }
+
+    public double getPosition() {
+        return position;
+    }
+
+    public double getVelocity() {
+        return velocity;
+    }
+
+    public double getMotorRotations() {
+        return position * motorRotationsPerUnit + motorRotationsAtZero;
+    }
+}
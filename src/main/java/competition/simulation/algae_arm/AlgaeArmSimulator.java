@@ -2,28 +2,27 @@ package competition.simulation.algae_arm;
 
 import javax.inject.Inject;
 
-import competition.simulation.MotorInternalPIDHelper;
-import competition.simulation.SimulationConstants;
+import competition.simulation.SubsteppedMechanism;
 import competition.subsystems.algae_arm.AlgaeArmSubsystem;
 
 import static edu.wpi.first.units.Units.Meters;
 import static edu.wpi.first.units.Units.Radians;
 import static edu.wpi.first.units.Units.Degrees;
 import static edu.wpi.first.units.Units.Kilograms;
-import static edu.wpi.first.units.Units.Rotations;
 import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.units.measure.Angle;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.simulation.SingleJointedArmSim;
 import xbot.common.advantage.AKitLogger;
+import xbot.common.controls.sensors.XTimer;
 import xbot.common.controls.actuators.mock_adapters.MockCANMotorController;
 import xbot.common.math.PIDManager;
 import xbot.common.properties.PropertyFactory;
 
 public class AlgaeArmSimulator {
     final DCMotor motor = DCMotor.getKrakenX60(1);
-    final SingleJointedArmSim armSim;
+    final SubsteppedMechanism armSim;
     final PIDManager pidManager;
 
     final AlgaeArmSubsystem armPivotSubsystem;
@@ -39,7 +38,9 @@ public class AlgaeArmSimulator {
         this.armPivotSubsystem = armPivotSubsystem;
         this.armMotor = (MockCANMotorController) armPivotSubsystem.armMotor;
 
-        this.armSim = new SingleJointedArmSim(
+        // The arm's relative angle is the sim's angle plus 90 degrees
+        double motorRotationsPerRadian = 1 / AlgaeArmSimConstants.armEncoderAnglePerRotation.in(Radians);
+        this.armSim = SubsteppedMechanism.createArm(
                 motor,
                 AlgaeArmSimConstants.armReduction,
                 SingleJointedArmSim.estimateMOI(AlgaeArmSimConstants.armLength.in(Meters),
@@ -48,35 +49,28 @@ public class AlgaeArmSimulator {
                 AlgaeArmSimConstants.minAngleRads.in(Radians),
                 AlgaeArmSimConstants.maxAngleRads.in(Radians),
                 true,
-                AlgaeArmSimConstants.startingAngle.in(Radians));
+                AlgaeArmSimConstants.startingAngle.in(Radians),
+                motorRotationsPerRadian,
+                motorRotationsPerRadian * Degrees.of(90).in(Radians),
+                SubsteppedMechanism.defaultSubstepSeconds);
     }
 
     public void update() {
-        // based on the motor state, potentially run internal PID if need be
-        MotorInternalPIDHelper.updateInternalPID(armMotor, pidManager);
-
-        if(DriverStation.isEnabled()) {
-            armSim.setInput(this.armMotor.getPower() * RobotController.getBatteryVoltage());
-        } else {
-            armSim.setInput(0.0);
-        }
-        
-        armSim.update(SimulationConstants.loopPeriodSec); // 20ms
+        // Runs the motor's onboard PID along with the physics, and updates the motor's encoder position
+        armSim.update(armMotor, pidManager, 0.0,
+                DriverStation.isEnabled(), RobotController.getBatteryVoltage(), XTimer.getFPGATimestamp());
 
         // Read out the new arm position for rendering
         var armRelativeAngle = getArmAngle();
-        aKitLog.record("armRawSimAngleDegrees",  Radians.of(armSim.getAngleRads()).in(Degrees));
+        aKitLog.record("armRawSimAngleDegrees",  Radians.of(armSim.getPosition()).in(Degrees));
         aKitLog.record("armRelativeAngleDegrees", armRelativeAngle.in(Degrees));
 
-        var armMotorRotations = armRelativeAngle.in(Radians) / AlgaeArmSimConstants.armEncoderAnglePerRotation.in(Radians);
-        armMotor.setPosition(Rotations.of(armMotorRotations));
-
         // TODO: simulate lower limit sensor triggered when arm is at 0' in relative terms
     }
 
     public Angle getArmAngle() {
         // TODO: convert from global frame of reference to 0' being down
-        var armSimAngle = Radians.of(armSim.getAngleRads());
+        var armSimAngle = Radians.of(armSim.getPosition());
 
         return armSimAngle.plus(Degrees.of(90));
     }
@@ -2,8 +2,7 @@ package competition.simulation.coral_arm;
 
 import javax.inject.Inject;
 
-import competition.simulation.MotorInternalPIDHelper;
-import competition.simulation.SimulationConstants;
+import competition.simulation.SubsteppedMechanism;
 import competition.subsystems.coral_arm.CoralArmSubsystem;
 
 import static edu.wpi.first.units.Units.Meters;
@@ -19,6 +18,7 @@ import edu.wpi.first.wpilibj.MockDigitalInput;
 import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.simulation.SingleJointedArmSim;
 import xbot.common.advantage.AKitLogger;
+import xbot.common.controls.sensors.XTimer;
 import xbot.common.controls.actuators.mock_adapters.MockCANMotorController;
 import xbot.common.controls.sensors.mock_adapters.MockAbsoluteEncoder;
 import xbot.common.controls.sensors.mock_adapters.MockDutyCycleEncoder;
@@ -27,7 +27,7 @@ import xbot.common.properties.PropertyFactory;
 
 public class CoralArmSimulator {
     final DCMotor motor = DCMotor.getKrakenX60(1);
-    final SingleJointedArmSim armSim;
+    final SubsteppedMechanism armSim;
     final PIDManager pidManager;
     final AKitLogger aKitLog;
 
@@ -46,7 +46,9 @@ public class CoralArmSimulator {
         this.absoluteEncoder = (MockDutyCycleEncoder) armPivotSubsystem.armAbsoluteEncoder;
         this.lowSensor = (MockDigitalInput) armPivotSubsystem.lowSensor;
 
-        this.armSim = new SingleJointedArmSim(
+        // The arm's relative angle is measured the opposite way from the sim's angle, starting at angleAtRobotZero
+        double motorRotationsPerRadian = -1 / CoralArmSimConstants.armEncoderAnglePerRotation.in(Radians);
+        this.armSim = SubsteppedMechanism.createArm(
                 motor,
                 CoralArmSimConstants.armReduction,
                 SingleJointedArmSim.estimateMOI(CoralArmSimConstants.armLength.in(Meters),
@@ -55,28 +57,22 @@ public class CoralArmSimulator {
                 CoralArmSimConstants.minAngleRads.in(Radians),
                 CoralArmSimConstants.maxAngleRads.in(Radians),
                 true,
-                CoralArmSimConstants.startingAngle.in(Radians));
+                CoralArmSimConstants.startingAngle.in(Radians),
+                motorRotationsPerRadian,
+                -motorRotationsPerRadian * CoralArmSimConstants.angleAtRobotZero.in(Radians),
+                SubsteppedMechanism.defaultSubstepSeconds);
     }
 
     public void update() {
-        // based on the motor state, potentially run internal PID if need be
-        MotorInternalPIDHelper.updateInternalPID(armMotor, pidManager);
-
-        if(DriverStation.isEnabled()) {
-            armSim.setInput(this.armMotor.getPower() * RobotController.getBatteryVoltage() * -1.0);
-        } else {
-            armSim.setInput(0.0);
-        }
-        // invert power because the simulated arm is going "backwards"
-        armSim.update(SimulationConstants.loopPeriodSec); // 20ms
+        // Runs the motor's onboard PID along with the physics, and updates the motor's encoder position.
+        // Power is inverted on the way in because the simulated arm is going "backwards".
+        armSim.update(armMotor, pidManager, 0.0,
+                DriverStation.isEnabled(), RobotController.getBatteryVoltage(), XTimer.getFPGATimestamp());
 
         // Read out the new arm position for rendering
         var armRelativeAngle = getArmAngle();
         aKitLog.record("armAngle", armRelativeAngle.in(Degrees));
 
-        var armMotorRotations = armRelativeAngle.in(Radians) / CoralArmSimConstants.armEncoderAnglePerRotation.in(Radians);
-        armMotor.setPosition(Rotations.of(armMotorRotations));
-
         absoluteEncoder.setRawPosition(getAbsoluteEncoderPosition(getArmAngle(), 0.0,
                 armPivotSubsystem.rangeOfMotionDegrees.get() / 360).in(Rotations) + 0.5);
 
@@ -87,7 +83,7 @@ public class CoralArmSimulator {
     public Angle getArmAngle() {
         // convert from the armSim frame of reference to our actual arm frame of
         // reference where the bottom is 0' and the top is 125'
-        var armSimAngle = Radians.of(armSim.getAngleRads());
+        var armSimAngle = Radians.of(armSim.getPosition());
 
         return armSimAngle.minus(CoralArmSimConstants.angleAtRobotZero).times(-1);
     }
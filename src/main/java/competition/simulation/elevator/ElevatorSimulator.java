@@ -2,15 +2,14 @@ package competition.simulation.elevator;
 
 import static edu.wpi.first.units.Units.Meters;
 import static edu.wpi.first.units.Units.Rotations;
-import static edu.wpi.first.units.Units.Second;
-import static edu.wpi.first.units.Units.Seconds;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import competition.electrical_contract.ElectricalContract;
-import competition.simulation.MotorInternalPIDHelper;
-import competition.simulation.SimulationConstants;
+import competition.simulation.SimulationRandom;
+import competition.simulation.SimulationVariation;
+import competition.simulation.SubsteppedMechanism;
 import competition.subsystems.elevator.ElevatorSubsystem;
 import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation3d;
@@ -18,8 +17,8 @@ import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.units.Units;
 import edu.wpi.first.units.measure.Distance;
 import edu.wpi.first.wpilibj.RobotController;
-import edu.wpi.first.wpilibj.simulation.ElevatorSim;
 import xbot.common.advantage.AKitLogger;
+import xbot.common.controls.sensors.XTimer;
 import xbot.common.controls.actuators.mock_adapters.MockCANMotorController;
 import xbot.common.controls.sensors.mock_adapters.MockLaserCAN;
 import xbot.common.math.PIDManager;
@@ -32,12 +31,13 @@ import edu.wpi.first.wpilibj.MockDigitalInput;
 public class ElevatorSimulator {
     protected final AKitLogger aKitLog;
 
-    final ElevatorSim elevatorSim;
+    final SubsteppedMechanism elevatorSim;
     final DCMotor elevatorGearBox = DCMotor.getKrakenX60(2);
     final PIDManager pidManager;
     final ElectricalContract electricalContract;
     final double gravityFeedForward = 0.02;
-    final double laserNoiseInMeters = 0.01;
+    final SimulationVariation variation;
+    final SimulationRandom random;
 
     final ElevatorSubsystem elevatorSubsystem;
     final MockCANMotorController motor;
@@ -46,8 +46,11 @@ public class ElevatorSimulator {
 
     @Inject
     public ElevatorSimulator(ElevatorSubsystem elevatorSubsystem, PIDManagerFactory pidManagerFactory,
-            PropertyFactory pf, ElectricalContract electricalContract) {
+            PropertyFactory pf, ElectricalContract electricalContract, SimulationVariation variation,
+            SimulationRandom random) {
         aKitLog = new AKitLogger("Simulator/");
+        this.variation = variation;
+        this.random = random;
         pf.setPrefix("ElevatorSimulator");
         this.electricalContract = electricalContract;
         this.elevatorSubsystem = elevatorSubsystem;
@@ -60,7 +63,7 @@ public class ElevatorSimulator {
         motor.setPosition(ElevatorSimConstants.rotationsAtZero);
         laserSensor.setDistance(ElevatorSimConstants.startingHeightMeters);
 
-        this.elevatorSim = new ElevatorSim(
+        this.elevatorSim = SubsteppedMechanism.createElevator(
                 elevatorGearBox,
                 ElevatorSimConstants.elevatorGearing,
                 ElevatorSimConstants.carriageMass,
@@ -69,40 +72,27 @@ public class ElevatorSimulator {
                 ElevatorSimConstants.maxElevatorHeightMeters,
                 true,
                 ElevatorSimConstants.startingHeightMeters,
-                0.0,
-                0.0);
+                ElevatorSimConstants.rotationsPerMeterHeight,
+                ElevatorSimConstants.rotationsAtZero.in(Rotations),
+                SubsteppedMechanism.defaultSubstepSeconds);
     }
 
     public Distance getCurrentHeight() {
-        return Meters.of(this.elevatorSim.getPositionMeters());
+        return Meters.of(this.elevatorSim.getPosition());
     }
 
     public void update() {
-        MotorInternalPIDHelper.updateInternalPID(motor, pidManager, gravityFeedForward);
         aKitLog.record("ElevatorMotorControlMode", motor.getControlMode());
 
-        if (DriverStation.isEnabled()) {
-            this.elevatorSim.setInputVoltage(this.motor.getPower() * RobotController.getBatteryVoltage());
-        } else {
-            this.elevatorSim.setInputVoltage(0);
-        }
-
-        this.elevatorSim.update(SimulationConstants.loopPeriodSec);
+        // Runs the motor's onboard PID along with the physics, and updates the motor's encoder position and velocity
+        this.elevatorSim.update(motor, pidManager, gravityFeedForward,
+                DriverStation.isEnabled(), RobotController.getBatteryVoltage(), XTimer.getFPGATimestamp());
 
         // Read out the new elevator position for rendering
         var elevatorCurrentHeight = getCurrentHeight();
 
         // We'll set our laserSensor distance to our elevator height with some noise (to *mimic reality*)
-        laserSensor.setDistance(elevatorCurrentHeight.in(Meters) + ((Math.random() - 0.5) * laserNoiseInMeters * 2));
-
-        // update the motor encoder position based on the elevator height, add in the
-        // random from zero offset
-        var prevPosition = this.motor.getPosition();
-        this.motor.setPosition(
-                Rotations.of(elevatorCurrentHeight.in(Meters) * ElevatorSimConstants.rotationsPerMeterHeight)
-                        .plus(ElevatorSimConstants.rotationsAtZero));
-        // set the motors velocity based on change in position and the control loop time
-        this.motor.setVelocity(prevPosition.minus(this.motor.getPosition()).per(Second).times(SimulationConstants.loopPeriodSec));
+        laserSensor.setDistance(elevatorCurrentHeight.in(Meters) + random.nextNoise(variation.getLaserNoiseMeters()));
 
         // this would be used to simulate the bottom position sensor being triggered
         var elevatorIsAtBottom = elevatorCurrentHeight
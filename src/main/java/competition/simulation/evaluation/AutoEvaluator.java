@@ -0,0 +1,156 @@
+package competition.simulation.evaluation;
+
+import competition.simulation.SimulatedMatchStats;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs many simulated autonomous matches in parallel and summarizes how they went.
+ * Every run is its own JVM (see SimulatedMatchRun), so runs share no HAL, clock, Dagger or arena state,
+ * and each gets a different seed for the randomized simulation conditions.
+ */
+public class AutoEvaluator {
+    private static final Logger log = LogManager.getLogger(AutoEvaluator.class);
+
+    static final double autoSeconds = 15;
+    // Wall-clock limit for a single run, in case the robot hangs.
+    static final long runTimeoutSeconds = 300;
+
+    final int parallelism;
+
+    public AutoEvaluator(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public List<MatchResult> evaluate(String autoName, int runs, long baseSeed) throws InterruptedException {
+        var pool = Executors.newFixedThreadPool(parallelism);
+        try {
+            var futures = new ArrayList<Future<MatchResult>>();
+            for (int i = 0; i < runs; i++) {
+                long seed = baseSeed + i;
+                futures.add(pool.submit(() -> runInOwnProcess(autoName, seed)));
+            }
+
+            var results = new ArrayList<MatchResult>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    log.error("Run with seed {} failed", baseSeed + i, e.getCause());
+                    results.add(MatchResult.crashed(baseSeed + i));
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    MatchResult runInOwnProcess(String autoName, long seed) throws IOException, InterruptedException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        var command = List.of(
+                java,
+                "-cp", System.getProperty("java.class.path"),
+                "-Djava.library.path=" + System.getProperty("java.library.path", ""),
+                SimulatedMatchRun.class.getName(),
+                autoName,
+                Long.toString(seed),
+                Double.toString(autoSeconds));
+
+        File output = File.createTempFile("auto-eval-" + seed + "-", ".log");
+        var process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(output)
+                .start();
+
+        if (!process.waitFor(runTimeoutSeconds, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            log.warn("Run with seed {} timed out; output is in {}", seed, output);
+            return MatchResult.crashed(seed);
+        }
+
+        var resultLine = Files.readAllLines(output.toPath()).stream()
+                .filter(line -> line.startsWith(SimulatedMatchRun.resultPrefix))
+                .findFirst();
+        if (resultLine.isEmpty()) {
+            log.warn("Run with seed {} exited with {} and no result; output is in {}", seed, process.exitValue(), output);
+            return MatchResult.crashed(seed);
+        }
+        Files.delete(output.toPath());
+        return MatchResult.fromJson(new JSONObject(resultLine.get().substring(SimulatedMatchRun.resultPrefix.length())));
+    }
+
+    static double percentile(List<Double> sortedValues, double fraction) {
+        if (sortedValues.isEmpty()) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(fraction * sortedValues.size()) - 1;
+        return sortedValues.get(Math.max(0, Math.min(sortedValues.size() - 1, index)));
+    }
+
+    public static String summarize(String autoName, List<MatchResult> results) {
+        var coralHistogram = new TreeMap<Integer, Integer>();
+        var cycleTimes = new ArrayList<Double>();
+        var failureCounts = new EnumMap<SimulatedMatchStats.Failure, Integer>(SimulatedMatchStats.Failure.class);
+        var runsWithFailure = new EnumMap<SimulatedMatchStats.Failure, Integer>(SimulatedMatchStats.Failure.class);
+        double totalCoral = 0;
+
+        for (var result : results) {
+            coralHistogram.merge(result.coralScored(), 1, Integer::sum);
+            totalCoral += result.coralScored();
+            cycleTimes.addAll(result.cycleTimes());
+            result.failures().forEach((failure, count) -> {
+                failureCounts.merge(failure, count, Integer::sum);
+                runsWithFailure.merge(failure, 1, Integer::sum);
+            });
+        }
+        cycleTimes.sort(null);
+
+        var summary = new StringBuilder();
+        summary.append(String.format("%s: %d runs%n", autoName, results.size()));
+        summary.append(String.format("Coral scored: mean %.2f%n",
+                results.isEmpty() ? Double.NaN : totalCoral / results.size()));
+        coralHistogram.forEach((coral, runs) ->
+                summary.append(String.format("  %d coral: %d runs%n", coral, runs)));
+        summary.append(String.format("Cycle times (s): p10 %.2f, p50 %.2f, p90 %.2f, max %.2f (%d cycles)%n",
+                percentile(cycleTimes, 0.1), percentile(cycleTimes, 0.5), percentile(cycleTimes, 0.9),
+                percentile(cycleTimes, 1.0), cycleTimes.size()));
+        summary.append(String.format("Failures:%n"));
+        if (failureCounts.isEmpty()) {
+            summary.append(String.format("  none%n"));
+        }
+        failureCounts.forEach((failure, count) -> summary.append(String.format("  %s: %d times in %d runs%n",
+                failure, count, runsWithFailure.get(failure))));
+        return summary.toString();
+    }
+
+    /**
+     * Arguments (all optional): auto name, number of runs, parallelism (defaults to one run per core), first seed.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        String autoName = args.length > 0 ? args[0] : AutoPrograms.defaultAuto;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int parallelism = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long baseSeed = args.length > 3 ? Long.parseLong(args[3]) : 0;
+
+        long startNanos = System.nanoTime();
+        var results = new AutoEvaluator(parallelism).evaluate(autoName, runs, baseSeed);
+        System.out.print(summarize(autoName, results));
+        System.out.printf("Evaluated in %.1f s with %d runs in parallel%n",
+                (System.nanoTime() - startNanos) / 1e9, parallelism);
+    }
+}
@@ -0,0 +1,36 @@
+package competition.simulation.evaluation;
+
+import competition.injection.components.BaseRobotComponent;
+import edu.wpi.first.wpilibj2.command.Command;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * The autonomous routines that can be evaluated in simulation, by name.
+ * Only routines that place the simulated robot at their starting pose belong here; the others would start
+ * wherever the simulator happened to put the robot.
+ */
+public final class AutoPrograms {
+
+    public static final String defaultAuto = "FromLeftCageScoreLeftFacesLevelFours";
+
+    private static final Map<String, Function<BaseRobotComponent, Command>> programs = Map.of(
+            "FromLeftCageScoreLeftFacesLevelFours", BaseRobotComponent::fromLeftCageScoreLeftFacesLevelFours);
+
+    private AutoPrograms() {
+    }
+
+    public static Set<String> getNames() {
+        return programs.keySet();
+    }
+
+    public static Command create(String name, BaseRobotComponent component) {
+        var program = programs.get(name);
+        if (program == null) {
+            throw new IllegalArgumentException("Unknown auto " + name + "; expected one of " + getNames());
+        }
+        return program.apply(component);
+    }
+}
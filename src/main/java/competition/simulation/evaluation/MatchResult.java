@@ -0,0 +1,61 @@
+package competition.simulation.evaluation;
+
+import competition.simulation.SimulatedMatchStats;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of one simulated autonomous run.
+ * @param cycleTimes Seconds from the start of auto to the first score, then between each score and the next
+ */
+public record MatchResult(long seed, int coralScored, List<Double> cycleTimes,
+                          Map<SimulatedMatchStats.Failure, Integer> failures) {
+
+    public static MatchResult fromStats(long seed, double autoStartTime, SimulatedMatchStats stats) {
+        var cycleTimes = new ArrayList<Double>();
+        double previous = autoStartTime;
+        for (double scoredTime : stats.getCoralScoredTimes()) {
+            cycleTimes.add(scoredTime - previous);
+            previous = scoredTime;
+        }
+        return new MatchResult(seed, cycleTimes.size(), cycleTimes, stats.getFailureCounts());
+    }
+
+    /**
+     * For a run that never reported back.
+     */
+    public static MatchResult crashed(long seed) {
+        var failures = new EnumMap<SimulatedMatchStats.Failure, Integer>(SimulatedMatchStats.Failure.class);
+        failures.put(SimulatedMatchStats.Failure.RunCrashed, 1);
+        return new MatchResult(seed, 0, List.of(), failures);
+    }
+
+    public JSONObject toJson() {
+        var failuresJson = new JSONObject();
+        failures.forEach((failure, count) -> failuresJson.put(failure.name(), count));
+        return new JSONObject()
+                .put("seed", seed)
+                .put("coralScored", coralScored)
+                .put("cycleTimes", new JSONArray(cycleTimes))
+                .put("failures", failuresJson);
+    }
+
+    public static MatchResult fromJson(JSONObject json) {
+        var cycleTimesJson = json.getJSONArray("cycleTimes");
+        var cycleTimes = new ArrayList<Double>();
+        for (int i = 0; i < cycleTimesJson.length(); i++) {
+            cycleTimes.add(cycleTimesJson.getDouble(i));
+        }
+        var failuresJson = json.getJSONObject("failures");
+        var failures = new EnumMap<SimulatedMatchStats.Failure, Integer>(SimulatedMatchStats.Failure.class);
+        for (String name : failuresJson.keySet()) {
+            failures.put(SimulatedMatchStats.Failure.valueOf(name), failuresJson.getInt(name));
+        }
+        return new MatchResult(json.getLong("seed"), json.getInt("coralScored"), cycleTimes, failures);
+    }
+}
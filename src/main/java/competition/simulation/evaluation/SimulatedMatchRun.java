@@ -0,0 +1,81 @@
+package competition.simulation.evaluation;
+
+import competition.HeadlessSimulation;
+import competition.simulation.SimulatedMatchStats;
+import xbot.common.controls.sensors.XTimer;
+
+import java.nio.file.Path;
+
+/**
+ * Runs one autonomous routine in the headless simulator with randomized conditions, and prints the outcome.
+ * Meant to be launched as its own process by AutoEvaluator, since the HAL (and with it the simulated clock)
+ * is global to a JVM.
+ */
+public final class SimulatedMatchRun {
+
+    static final String resultPrefix = "MATCH_RESULT ";
+
+    private SimulatedMatchRun() {
+    }
+
+    public static MatchResult run(String autoName, long seed, double autoSeconds) {
+        return run(autoName, seed, autoSeconds, null);
+    }
+
+    /**
+     * @param recordTo If not null, the run is recorded here so it can be replayed
+     */
+    public static MatchResult run(String autoName, long seed, double autoSeconds, Path recordTo) {
+        try (var sim = new HeadlessSimulation()) {
+            var component = sim.getInjectorComponent();
+            if (recordTo != null) {
+                sim.startRecording(recordTo, seed, autoName + " seed " + seed);
+            } else {
+                sim.seed(seed);
+            }
+            var stats = component.simulatedMatchStats();
+            stats.reset();
+
+            var auto = AutoPrograms.create(autoName, component);
+            double autoStartTime = XTimer.getFPGATimestamp();
+            sim.startAutonomous(auto);
+            if (!sim.runUntil(() -> !auto.isScheduled(), autoSeconds)) {
+                stats.recordFailure(SimulatedMatchStats.Failure.AutoDidNotFinish);
+            }
+            if (sim.getRobot().getScheduler().getNumberOfCrashes() > 0) {
+                stats.recordFailure(SimulatedMatchStats.Failure.SchedulerCrash);
+            }
+            sim.disable();
+            return MatchResult.fromStats(seed, autoStartTime, stats);
+        }
+    }
+
+    /**
+     * Replays a recorded run of the given auto.
+     */
+    public static HeadlessSimulation.ReplayResult replay(String autoName, Path recording) {
+        try (var sim = new HeadlessSimulation()) {
+            sim.selectAutonomous(AutoPrograms.create(autoName, sim.getInjectorComponent()));
+            return sim.replay(recording);
+        }
+    }
+
+    /**
+     * Arguments: auto name, seed, seconds of autonomous to run, and optionally a file to record the run to.
+     * Or: "replay", auto name, recording file.
+     */
+    public static void main(String[] args) {
+        if (args[0].equals("replay")) {
+            var result = replay(args[1], Path.of(args[2]));
+            System.out.println(result.matched()
+                    ? "Replayed " + result.frames() + " loops exactly"
+                    : "Replay diverged at loop " + result.firstDivergentFrame() + ": " + result.divergenceReason());
+            System.exit(result.matched() ? 0 : 1);
+        }
+        var result = run(args[0], Long.parseLong(args[1]), Double.parseDouble(args[2]),
+                args.length > 3 ? Path.of(args[3]) : null);
+        System.out.println(resultPrefix + result.toJson());
+        // The robot leaves non-daemon threads (NetworkTables and friends) behind.
+        System.exit(0);
+    }
+}
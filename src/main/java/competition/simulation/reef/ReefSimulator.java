@@ -4,11 +4,6 @@ import static edu.wpi.first.units.Units.Degrees;
 import static edu.wpi.first.units.Units.Meters;
 import static edu.wpi.first.units.Units.Radians;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -18,7 +13,6 @@ import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.geometry.Translation3d;
-import edu.wpi.first.units.measure.Distance;
 import xbot.common.advantage.AKitLogger;
 
 @Singleton
@@ -41,90 +35,150 @@ public class ReefSimulator {
     record ReefAlgaeKey(ReefFace face, ReefLevel level) {
     }
 
+    // Algae only ever sits between L2 and L3, so those are the only algae slots we keep poses for.
+    static final ReefLevel[] algaeLevels = { ReefLevel.LEVEL_2, ReefLevel.LEVEL_3 };
+    static final int coralSlotCount = ReefFace.values().length * ReefLevel.values().length * ReefPost.values().length;
+    static final int algaeSlotCount = ReefFace.values().length * algaeLevels.length;
+
     final AKitLogger aKitLog;
     public static final Translation2d reefCenter = Landmarks.BlueCenterOfReef.getTranslation();
     public static final Translation2d reefCenterToFar = new Translation2d(Landmarks.reefCenterToFace.in(Meters), 0);
     final double faceAngleDeltaDeg = 60;
 
-    Set<ReefAlgaeKey> reefAlgaeLocations = new HashSet<>();
-    Set<ReefCoralKey> reefCoralLocations = new HashSet<>();
+    // Every slot's key and pose, worked out once. Slots are indexed by coralSlotIndex / algaeSlotIndex.
+    final ReefCoralKey[] coralSlotKeys = new ReefCoralKey[coralSlotCount];
+    final Pose3d[] coralSlotPoses = new Pose3d[coralSlotCount];
+    final Pose3d[] algaeSlotPoses = new Pose3d[algaeSlotCount];
+    // Slot positions as flat xyz triples, so nearest-slot searches don't touch any objects.
+    final double[] coralSlotXyz = new double[coralSlotCount * 3];
+
+    // One bit per slot index.
+    long scoredCoralBits = 0;
+    int algaeBits = 0;
+
+    // The logged arrays are only rebuilt when the reef actually changes.
+    Pose3d[] coralPosesForLog = new Pose3d[0];
+    Pose3d[] algaePosesForLog = new Pose3d[0];
+    boolean posesForLogStale = true;
 
     @Inject
     public ReefSimulator() {
         aKitLog = new AKitLogger("Simulator/");
+        for (ReefFace face : ReefFace.values()) {
+            for (ReefLevel level : ReefLevel.values()) {
+                for (ReefPost post : ReefPost.values()) {
+                    int slot = coralSlotIndex(face, level, post);
+                    var pose = computeCoralPose(face, level, post);
+                    coralSlotKeys[slot] = new ReefCoralKey(face, level, post);
+                    coralSlotPoses[slot] = pose;
+                    coralSlotXyz[slot * 3] = pose.getX();
+                    coralSlotXyz[slot * 3 + 1] = pose.getY();
+                    coralSlotXyz[slot * 3 + 2] = pose.getZ();
+                }
+            }
+            for (ReefLevel level : algaeLevels) {
+                algaeSlotPoses[algaeSlotIndex(face, level)] = computeAlgaePose(face, level);
+            }
+        }
         this.resetField();
         //this.fillReefWithCoral();
     }
 
+    static int coralSlotIndex(ReefFace face, ReefLevel level, ReefPost post) {
+        return (face.ordinal() * ReefLevel.values().length + level.ordinal()) * ReefPost.values().length
+                + post.ordinal();
+    }
+
+    static int algaeSlotIndex(ReefFace face, ReefLevel level) {
+        return switch (level) {
+            case LEVEL_2 -> face.ordinal() * algaeLevels.length;
+            case LEVEL_3 -> face.ordinal() * algaeLevels.length + 1;
+            default -> throw new IllegalArgumentException("Algae can't be on " + level);
+        };
+    }
+
     public void update() {
-        aKitLog.record("FieldSimulation/ReefCoral", getCoralPoses());
-        aKitLog.record("FieldSimulation/ReefAlgae", getAlgaePoses());
+        if (posesForLogStale) {
+            coralPosesForLog = getCoralPoses();
+            algaePosesForLog = getAlgaePoses();
+            posesForLogStale = false;
+        }
+        aKitLog.record("FieldSimulation/ReefCoral", coralPosesForLog);
+        aKitLog.record("FieldSimulation/ReefAlgae", algaePosesForLog);
     }
 
     public void fillReefWithCoral() {
         // for debugging positions
-        // enumerate faces, levels and posts
-        for (ReefFace face : ReefFace.values()) {
-            for (ReefLevel level : ReefLevel.values()) {
-                for (ReefPost post : ReefPost.values()) {
-                    reefCoralLocations.add(new ReefCoralKey(face, level, post));
-                }
-            }
-        }
+        setScoredCoralBits(-1L >>> (Long.SIZE - coralSlotCount));
     }
 
     public ReefCoralKey findNearestCoral(Translation3d scorerPose) {
-        var coralDistanceMap = new HashMap<ReefCoralKey, Distance>();
-        for (ReefFace face : ReefFace.values()) {
-            for (ReefLevel level : ReefLevel.values()) {
-                for (ReefPost post : ReefPost.values()) {
-                    var key = new ReefCoralKey(face, level, post);
-                    // TODO: consider some logic to ignore locations that already have coral on them
-                    // or otherwise cause the coral to drop to the floor if that happens?
-                    var pose = getCoralPose(key.face, key.level, key.post);
-                    var distance = Meters.of(scorerPose.getDistance(pose.getTranslation()));
-                    coralDistanceMap.put(key, distance);
-                }
+        // TODO: consider some logic to ignore locations that already have coral on them
+        // or otherwise cause the coral to drop to the floor if that happens?
+        return coralSlotKeys[findNearestCoralSlot(scorerPose.getX(), scorerPose.getY(), scorerPose.getZ())];
+    }
+
+    int findNearestCoralSlot(double x, double y, double z) {
+        int closestSlot = 0;
+        double closestDistanceSquared = Double.POSITIVE_INFINITY;
+        for (int slot = 0; slot < coralSlotCount; slot++) {
+            double dx = coralSlotXyz[slot * 3] - x;
+            double dy = coralSlotXyz[slot * 3 + 1] - y;
+            double dz = coralSlotXyz[slot * 3 + 2] - z;
+            double distanceSquared = dx * dx + dy * dy + dz * dz;
+            if (distanceSquared < closestDistanceSquared) {
+                closestDistanceSquared = distanceSquared;
+                closestSlot = slot;
             }
         }
-        // sort coralDistanceMap by distance and find the key for the smallest distance
-        var closestCoral = coralDistanceMap.entrySet().stream()
-            .min(Map.Entry.comparingByValue())
-            .map(Map.Entry::getKey)
-            .orElseThrow(() -> new IllegalStateException("No corals found"));
-        return closestCoral;
+        return closestSlot;
     }
 
     public void scoreCoral(ReefCoralKey coral) {
-        reefCoralLocations.add(coral);
+        setScoredCoralBits(scoredCoralBits | (1L << coralSlotIndex(coral.face, coral.level, coral.post)));
     }
 
     public boolean isCoralScored(ReefCoralKey coral) {
-        return reefCoralLocations.contains(coral);
+        return (scoredCoralBits & (1L << coralSlotIndex(coral.face, coral.level, coral.post))) != 0;
     }
 
     public void scoreCoralNearestTo(Translation3d scorerPose) {
-        var closestCoral = findNearestCoral(scorerPose);
-        
-        reefCoralLocations.add(closestCoral);
+        scoreCoral(findNearestCoral(scorerPose));
     }
 
     public void resetField() {
-        reefCoralLocations.clear();
-        reefAlgaeLocations.clear();
+        setScoredCoralBits(0);
         // populate algae locations with where algae starts
-        reefAlgaeLocations.add(new ReefAlgaeKey(ReefFace.CLOSE, ReefLevel.LEVEL_3));
-        reefAlgaeLocations.add(new ReefAlgaeKey(ReefFace.CLOSE_LEFT, ReefLevel.LEVEL_2));
-        reefAlgaeLocations.add(new ReefAlgaeKey(ReefFace.CLOSE_RIGHT, ReefLevel.LEVEL_2));
-        reefAlgaeLocations.add(new ReefAlgaeKey(ReefFace.FAR_LEFT, ReefLevel.LEVEL_3));
-        reefAlgaeLocations.add(new ReefAlgaeKey(ReefFace.FAR_RIGHT, ReefLevel.LEVEL_3));
-        reefAlgaeLocations.add(new ReefAlgaeKey(ReefFace.FAR, ReefLevel.LEVEL_2));
+        setAlgaeBits((1 << algaeSlotIndex(ReefFace.CLOSE, ReefLevel.LEVEL_3))
+                | (1 << algaeSlotIndex(ReefFace.CLOSE_LEFT, ReefLevel.LEVEL_2))
+                | (1 << algaeSlotIndex(ReefFace.CLOSE_RIGHT, ReefLevel.LEVEL_2))
+                | (1 << algaeSlotIndex(ReefFace.FAR_LEFT, ReefLevel.LEVEL_3))
+                | (1 << algaeSlotIndex(ReefFace.FAR_RIGHT, ReefLevel.LEVEL_3))
+                | (1 << algaeSlotIndex(ReefFace.FAR, ReefLevel.LEVEL_2)));
+    }
+
+    private void setScoredCoralBits(long bits) {
+        if (bits != scoredCoralBits) {
+            scoredCoralBits = bits;
+            posesForLogStale = true;
+        }
+    }
+
+    private void setAlgaeBits(int bits) {
+        if (bits != algaeBits) {
+            algaeBits = bits;
+            posesForLogStale = true;
+        }
     }
 
     public Pose3d[] getCoralPoses() {
-        return reefCoralLocations.stream()
-                .map(coralLocation -> getCoralPose(coralLocation.face(), coralLocation.level(), coralLocation.post()))
-                .toArray(Pose3d[]::new);
+        var poses = new Pose3d[Long.bitCount(scoredCoralBits)];
+        long remaining = scoredCoralBits;
+        for (int i = 0; remaining != 0; i++) {
+            poses[i] = coralSlotPoses[Long.numberOfTrailingZeros(remaining)];
+            remaining &= remaining - 1;
+        }
+        return poses;
     }
 
     public Pose3d getCoralPose(ReefCoralKey key) {
@@ -132,6 +186,10 @@ public class ReefSimulator {
     }
 
     public Pose3d getCoralPose(ReefFace face, ReefLevel level, ReefPost post) {
+        return coralSlotPoses[coralSlotIndex(face, level, post)];
+    }
+
+    Pose3d computeCoralPose(ReefFace face, ReefLevel level, ReefPost post) {
         // given a reef face, level, and post, return a Pose3d for where that piece of
         // coral is stuck on the reef
         var rotation = getRotationFromFarFace(face);
@@ -168,9 +226,13 @@ public class ReefSimulator {
     }
 
     public Pose3d[] getAlgaePoses() {
-        return reefAlgaeLocations.stream()
-                .map(algaeLocation -> getAlgaePose(algaeLocation.face(), algaeLocation.level()))
-                .toArray(Pose3d[]::new);
+        var poses = new Pose3d[Integer.bitCount(algaeBits)];
+        int remaining = algaeBits;
+        for (int i = 0; remaining != 0; i++) {
+            poses[i] = algaeSlotPoses[Integer.numberOfTrailingZeros(remaining)];
+            remaining &= remaining - 1;
+        }
+        return poses;
     }
 
     public Rotation2d getRotationFromFarFace(ReefFace face) {
@@ -187,6 +249,10 @@ public class ReefSimulator {
     }
 
     public Pose3d getAlgaePose(ReefFace face, ReefLevel level) {
+        return algaeSlotPoses[algaeSlotIndex(face, level)];
+    }
+
+    Pose3d computeAlgaePose(ReefFace face, ReefLevel level) {
         // given a reef face and level, return a Pose3d for where that piece of
         // algae is stuck on the reef
         // TODO: this number isn't right, update it
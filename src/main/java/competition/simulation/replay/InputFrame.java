@@ -0,0 +1,94 @@
+package competition.simulation.replay;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+
+import java.util.Arrays;
+
+/**
+ * Everything from outside the robot code that one loop saw: driver station state, joysticks,
+ * and the simulators' random draws. Also carries a checksum of the simulated state at the end of the loop,
+ * so a replay can tell exactly where it stopped matching.
+ * @param joysticks Null when the joysticks are the same as in the previous frame
+ */
+public record InputFrame(boolean enabled, boolean autonomous, boolean test, AllianceStationID allianceStation,
+                         JoystickState[] joysticks, double[] randomDraws, long stateChecksum) {
+
+    public record JoystickState(float[] axes, int buttonCount, int buttons, short[] povs) {
+
+        public static JoystickState capture(int port) {
+            var axes = new float[DriverStation.getStickAxisCount(port)];
+            for (int i = 0; i < axes.length; i++) {
+                // The HAL stores axes as floats, so this is exact
+                axes[i] = (float) DriverStation.getStickAxis(port, i);
+            }
+            int buttonCount = DriverStation.getStickButtonCount(port);
+            int buttons = 0;
+            for (int button = 1; button <= buttonCount; button++) {
+                if (DriverStation.getStickButton(port, button)) {
+                    buttons |= 1 << (button - 1);
+                }
+            }
+            var povs = new short[DriverStation.getStickPOVCount(port)];
+            for (int i = 0; i < povs.length; i++) {
+                povs[i] = (short) DriverStation.getStickPOV(port, i);
+            }
+            return new JoystickState(axes, buttonCount, buttons, povs);
+        }
+
+        public void apply(int port) {
+            DriverStationSim.setJoystickAxisCount(port, axes.length);
+            for (int i = 0; i < axes.length; i++) {
+                DriverStationSim.setJoystickAxis(port, i, axes[i]);
+            }
+            DriverStationSim.setJoystickButtonCount(port, buttonCount);
+            DriverStationSim.setJoystickButtons(port, buttons);
+            DriverStationSim.setJoystickPOVCount(port, povs.length);
+            for (int i = 0; i < povs.length; i++) {
+                DriverStationSim.setJoystickPOV(port, i, povs[i]);
+            }
+        }
+
+        public boolean sameAs(JoystickState other) {
+            return other != null && buttonCount == other.buttonCount && buttons == other.buttons
+                    && Arrays.equals(axes, other.axes) && Arrays.equals(povs, other.povs);
+        }
+    }
+
+    public static JoystickState[] captureJoysticks() {
+        var joysticks = new JoystickState[DriverStation.kJoystickPorts];
+        for (int port = 0; port < joysticks.length; port++) {
+            joysticks[port] = JoystickState.capture(port);
+        }
+        return joysticks;
+    }
+
+    public static boolean sameJoysticks(JoystickState[] first, JoystickState[] second) {
+        if (first == null || second == null || first.length != second.length) {
+            return false;
+        }
+        for (int port = 0; port < first.length; port++) {
+            if (!first[port].sameAs(second[port])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Puts this frame's inputs into the simulated driver station, for the next loop to pick up.
+     */
+    public void apply() {
+        DriverStationSim.setEnabled(enabled);
+        DriverStationSim.setAutonomous(autonomous);
+        DriverStationSim.setTest(test);
+        DriverStationSim.setAllianceStationId(allianceStation);
+        if (joysticks != null) {
+            for (int port = 0; port < joysticks.length; port++) {
+                joysticks[port].apply(port);
+            }
+        }
+        DriverStationSim.notifyNewData();
+    }
+}
@@ -0,0 +1,177 @@
+package competition.simulation.replay;
+
+import edu.wpi.first.hal.AllianceStationID;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Binary file of InputFrames from a simulated run.
+ *
+ * <p>Layout: a header (magic, version, seed, loop period, description), then one record per loop:
+ * a flags byte (enabled, autonomous, test, joysticks changed), the alliance station, the joysticks if they changed,
+ * the random draws, and the state checksum. Joysticks are only written when they change, which for an auto is
+ * almost never, so a frame is usually about a dozen bytes.
+ */
+public final class SimulationRecording {
+
+    static final int magic = 0x58534d52; // "XSMR"
+    static final byte version = 1;
+
+    private static final int enabledFlag = 1;
+    private static final int autonomousFlag = 1 << 1;
+    private static final int testFlag = 1 << 2;
+    private static final int joysticksFlag = 1 << 3;
+
+    public record Header(long seed, double loopPeriodSeconds, String description) {
+    }
+
+    private SimulationRecording() {
+    }
+
+    public static class Writer implements AutoCloseable {
+        private final DataOutputStream out;
+        private InputFrame.JoystickState[] lastJoysticks;
+
+        public Writer(Path path, Header header) {
+            try {
+                out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+                out.writeInt(magic);
+                out.writeByte(version);
+                out.writeLong(header.seed());
+                out.writeDouble(header.loopPeriodSeconds());
+                out.writeUTF(header.description());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Couldn't start recording to " + path, e);
+            }
+        }
+
+        public void write(InputFrame frame) {
+            try {
+                boolean writeJoysticks = frame.joysticks() != null
+                        && !InputFrame.sameJoysticks(frame.joysticks(), lastJoysticks);
+                int flags = (frame.enabled() ? enabledFlag : 0)
+                        | (frame.autonomous() ? autonomousFlag : 0)
+                        | (frame.test() ? testFlag : 0)
+                        | (writeJoysticks ? joysticksFlag : 0);
+                out.writeByte(flags);
+                out.writeByte(frame.allianceStation().ordinal());
+
+                if (writeJoysticks) {
+                    out.writeByte(frame.joysticks().length);
+                    for (var joystick : frame.joysticks()) {
+                        out.writeByte(joystick.axes().length);
+                        for (float axis : joystick.axes()) {
+                            out.writeFloat(axis);
+                        }
+                        out.writeByte(joystick.buttonCount());
+                        out.writeInt(joystick.buttons());
+                        out.writeByte(joystick.povs().length);
+                        for (short pov : joystick.povs()) {
+                            out.writeShort(pov);
+                        }
+                    }
+                    lastJoysticks = frame.joysticks();
+                }
+
+                out.writeShort(frame.randomDraws().length);
+                for (double draw : frame.randomDraws()) {
+                    out.writeDouble(draw);
+                }
+                out.writeLong(frame.stateChecksum());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Couldn't write a recorded frame", e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                out.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public static class Reader implements AutoCloseable {
+        private final DataInputStream in;
+        private final Header header;
+
+        public Reader(Path path) {
+            try {
+                in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+                if (in.readInt() != magic || in.readByte() != version) {
+                    throw new IOException("Not a simulation recording (or an unsupported version)");
+                }
+                header = new Header(in.readLong(), in.readDouble(), in.readUTF());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Couldn't read recording " + path, e);
+            }
+        }
+
+        public Header getHeader() {
+            return header;
+        }
+
+        /**
+         * @return The next frame, or null at the end of the recording. Joysticks are null if they didn't change.
+         */
+        public InputFrame read() {
+            try {
+                int flags;
+                try {
+                    flags = in.readUnsignedByte();
+                } catch (EOFException e) {
+                    return null;
+                }
+                var allianceStation = AllianceStationID.values()[in.readUnsignedByte()];
+
+                InputFrame.JoystickState[] joysticks = null;
+                if ((flags & joysticksFlag) != 0) {
+                    joysticks = new InputFrame.JoystickState[in.readUnsignedByte()];
+                    for (int port = 0; port < joysticks.length; port++) {
+                        var axes = new float[in.readUnsignedByte()];
+                        for (int i = 0; i < axes.length; i++) {
+                            axes[i] = in.readFloat();
+                        }
+                        int buttonCount = in.readUnsignedByte();
+                        int buttons = in.readInt();
+                        var povs = new short[in.readUnsignedByte()];
+                        for (int i = 0; i < povs.length; i++) {
+                            povs[i] = in.readShort();
+                        }
+                        joysticks[port] = new InputFrame.JoystickState(axes, buttonCount, buttons, povs);
+                    }
+                }
+
+                var draws = new double[in.readUnsignedShort()];
+                for (int i = 0; i < draws.length; i++) {
+                    draws[i] = in.readDouble();
+                }
+                long checksum = in.readLong();
+
+                return new InputFrame((flags & enabledFlag) != 0, (flags & autonomousFlag) != 0,
+                        (flags & testFlag) != 0, allianceStation, joysticks, draws, checksum);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Recording is truncated or corrupt", e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
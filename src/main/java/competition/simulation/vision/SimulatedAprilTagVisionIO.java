@@ -0,0 +1,207 @@
+package competition.simulation.vision;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import xbot.common.advantage.AKitLogger;
+import xbot.common.controls.sensors.XTimer;
+import xbot.common.subsystems.vision.AprilTagVisionIO;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+/**
+ * A camera that "sees" AprilTags by projecting the field layout into its view from the simulator's ground truth.
+ * Frames are captured at the configured rate and delivered after the configured latency, with noise on every
+ * tag position. Each camera starts at a random point in its frame period, like real cameras that aren't
+ * synchronized, and frames are captured at their own times between loops from the interpolated ground truth.
+ * Tags outside the field of view, too far away, behind the camera or seen too edge-on are culled. Each frame
+ * with tags also produces a pose observation, noisier with distance and less noisy with more tags.
+ */
+public class SimulatedAprilTagVisionIO implements AprilTagVisionIO {
+
+    static final TargetObservation noTarget = new TargetObservation(new Rotation2d(), new Rotation2d(), -1, null, 0);
+    // If the simulation stalls, start capturing again from now rather than catching up frame by frame.
+    static final double maxCaptureLagSeconds = 0.5;
+
+    record Sighting(Pose3d cameraToTag, double distance, double viewingCosine) {
+    }
+
+    record Frame(double captureTime, TargetObservation[] targets, int[] tagIds, PoseObservation poseObservation) {
+    }
+
+    final Transform3d robotToCamera;
+    final SimulatedAprilTagVisionIOFactory config;
+    final AKitLogger aKitLog;
+    private final ArrayDeque<Frame> framesInFlight = new ArrayDeque<>();
+    private double nextCaptureTime = Double.NaN;
+    private Pose2d previousGroundTruth;
+    private double previousGroundTruthTime = Double.NaN;
+    private int framesDelivered = 0;
+
+    public SimulatedAprilTagVisionIO(String name, Transform3d robotToCamera, SimulatedAprilTagVisionIOFactory config) {
+        this.robotToCamera = robotToCamera;
+        this.config = config;
+        aKitLog = new AKitLogger("Simulator/AprilTagCameras/" + name + "/");
+    }
+
+    /**
+     * @return Where the tag is relative to the camera, or null if the camera can't see it
+     */
+    static Sighting see(Pose3d cameraPose, Pose3d tagPose, double horizontalFieldOfViewRads,
+                        double verticalFieldOfViewRads, double maxDistance, double maxViewingAngleRads) {
+        var cameraToTag = tagPose.relativeTo(cameraPose);
+        double x = cameraToTag.getX();
+        double y = cameraToTag.getY();
+        double z = cameraToTag.getZ();
+        if (x <= 0) {
+            return null;
+        }
+        double distance = Math.sqrt(x * x + y * y + z * z);
+        if (distance > maxDistance
+                || Math.abs(Math.atan2(y, x)) > horizontalFieldOfViewRads / 2
+                || Math.abs(Math.atan2(z, x)) > verticalFieldOfViewRads / 2) {
+            return null;
+        }
+
+        // A tag faces out along its own +X axis
+        var tagNormal = new Translation3d(1, 0, 0).rotateBy(tagPose.getRotation());
+        var tagToCamera = cameraPose.getTranslation().minus(tagPose.getTranslation());
+        double viewingCosine = (tagNormal.getX() * tagToCamera.getX()
+                + tagNormal.getY() * tagToCamera.getY()
+                + tagNormal.getZ() * tagToCamera.getZ()) / distance;
+        if (viewingCosine < Math.cos(maxViewingAngleRads)) {
+            return null;
+        }
+        return new Sighting(cameraToTag, distance, viewingCosine);
+    }
+
+    @Override
+    public void updateInputs(VisionIOInputs inputs) {
+        double now = XTimer.getFPGATimestamp();
+        double framePeriod = 1 / Math.max(1, config.framesPerSecond.get());
+        var groundTruth = config.simulator.get().getGroundTruthPose();
+        if (Double.isNaN(nextCaptureTime)) {
+            nextCaptureTime = now + config.random.nextDouble() * framePeriod;
+        } else if (now - nextCaptureTime > maxCaptureLagSeconds) {
+            nextCaptureTime = now;
+        }
+        while (now >= nextCaptureTime) {
+            framesInFlight.add(captureFrame(nextCaptureTime, groundTruthAt(nextCaptureTime, groundTruth, now)));
+            nextCaptureTime += framePeriod;
+        }
+        previousGroundTruth = groundTruth;
+        previousGroundTruthTime = now;
+
+        var poseObservations = new ArrayList<PoseObservation>();
+        Frame latest = null;
+        double latency = config.getLatencySeconds();
+        while (!framesInFlight.isEmpty() && framesInFlight.peek().captureTime() + latency <= now) {
+            latest = framesInFlight.poll();
+            framesDelivered++;
+            if (latest.poseObservation() != null) {
+                poseObservations.add(latest.poseObservation());
+            }
+        }
+
+        inputs.connected = true;
+        inputs.poseObservations = poseObservations.toArray(new PoseObservation[0]);
+        // Like a real camera, targets stay as they were until the next frame arrives
+        if (latest != null) {
+            inputs.targetObservations = latest.targets();
+            inputs.tagIds = latest.tagIds();
+            inputs.latestTargetObservation = bestTarget(latest.targets());
+            aKitLog.record("VisibleTagCount", latest.targets().length);
+        }
+        aKitLog.record("FramesDelivered", framesDelivered);
+    }
+
+    private static TargetObservation bestTarget(TargetObservation[] targets) {
+        var best = noTarget;
+        for (var target : targets) {
+            if (best == noTarget || target.ambiguity() < best.ambiguity()) {
+                best = target;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The simulator only moves once per loop, so a capture between loops sees where the robot was in between.
+     */
+    private Pose2d groundTruthAt(double time, Pose2d groundTruthNow, double now) {
+        if (previousGroundTruth == null || !(time > previousGroundTruthTime) || now <= previousGroundTruthTime) {
+            return groundTruthNow;
+        }
+        return previousGroundTruth.interpolate(groundTruthNow,
+                (time - previousGroundTruthTime) / (now - previousGroundTruthTime));
+    }
+
+    private Frame captureFrame(double captureTime, Pose2d groundTruth) {
+        var robotPose = new Pose3d(groundTruth);
+        var cameraPose = robotPose.transformBy(robotToCamera);
+        var random = config.random;
+        double noisePerMeter = config.translationNoisePerMeter.get();
+
+        var targets = new ArrayList<TargetObservation>();
+        double totalDistance = 0;
+        for (var tag : config.fieldLayout.getTags()) {
+            var sighting = see(cameraPose, tag.pose,
+                    Math.toRadians(config.horizontalFieldOfViewDegrees.get()),
+                    Math.toRadians(config.verticalFieldOfViewDegrees.get()),
+                    config.maxDistanceMeters.get(),
+                    Math.toRadians(config.maxViewingAngleDegrees.get()));
+            if (sighting == null) {
+                continue;
+            }
+
+            double noise = noisePerMeter * sighting.distance();
+            var seen = sighting.cameraToTag();
+            var noisyTranslation = new Translation3d(
+                    seen.getX() + random.nextGaussian() * noise,
+                    seen.getY() + random.nextGaussian() * noise,
+                    seen.getZ() + random.nextGaussian() * noise);
+            double ambiguity = Math.min(1,
+                    config.ambiguityPerMeter.get() * sighting.distance() / Math.max(0.1, sighting.viewingCosine()));
+            targets.add(new TargetObservation(
+                    // Positive yaw is to the right, like PhotonVision's
+                    new Rotation2d(-Math.atan2(noisyTranslation.getY(), noisyTranslation.getX())),
+                    new Rotation2d(Math.atan2(noisyTranslation.getZ(), noisyTranslation.getX())),
+                    tag.ID,
+                    new Transform3d(noisyTranslation, seen.getRotation()),
+                    ambiguity));
+            totalDistance += sighting.distance();
+        }
+
+        var tagIds = new int[targets.size()];
+        for (int i = 0; i < tagIds.length; i++) {
+            tagIds[i] = targets.get(i).fiducialId();
+        }
+
+        PoseObservation poseObservation = null;
+        if (!targets.isEmpty()) {
+            double averageDistance = totalDistance / targets.size();
+            // Solving against more tags averages out more of the error
+            double spread = 1 / Math.sqrt(targets.size());
+            double translationNoise = noisePerMeter * averageDistance * spread;
+            double headingNoise = Math.toRadians(config.headingNoiseDegrees.get()) * spread;
+            var estimatedPose = new Pose3d(
+                    robotPose.getX() + random.nextGaussian() * translationNoise,
+                    robotPose.getY() + random.nextGaussian() * translationNoise,
+                    0,
+                    new Rotation3d(0, 0, robotPose.getRotation().getZ() + random.nextGaussian() * headingNoise));
+            poseObservation = new PoseObservation(
+                    captureTime,
+                    estimatedPose,
+                    // Multi-tag solves aren't ambiguous
+                    targets.size() == 1 ? targets.get(0).ambiguity() : 0,
+                    targets.size(),
+                    averageDistance,
+                    PoseObservationType.PHOTONVISION);
+        }
+        return new Frame(captureTime, targets.toArray(new TargetObservation[0]), tagIds, poseObservation);
+    }
+}
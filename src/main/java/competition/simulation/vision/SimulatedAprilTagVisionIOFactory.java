@@ -0,0 +1,77 @@
+package competition.simulation.vision;
+
+import competition.simulation.BaseSimulator;
+import competition.simulation.SimulationRandom;
+import competition.simulation.SimulationVariation;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.geometry.Transform3d;
+import xbot.common.properties.DoubleProperty;
+import xbot.common.properties.PropertyFactory;
+import xbot.common.subsystems.vision.AprilTagVisionIO;
+import xbot.common.subsystems.vision.AprilTagVisionIOFactory;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+/**
+ * Creates synthetic AprilTag cameras that see the field from the simulator's ground truth pose.
+ * The camera properties are shared by every simulated camera.
+ */
+@Singleton
+public class SimulatedAprilTagVisionIOFactory implements AprilTagVisionIOFactory {
+
+    final AprilTagFieldLayout fieldLayout;
+    // The simulator is built after the vision subsystem (it needs the pose subsystem), so look it up lazily.
+    final Provider<BaseSimulator> simulator;
+    final SimulationRandom random;
+    final SimulationVariation variation;
+
+    final DoubleProperty framesPerSecond;
+    final DoubleProperty latencySeconds;
+    final DoubleProperty translationNoisePerMeter;
+    final DoubleProperty headingNoiseDegrees;
+    final DoubleProperty ambiguityPerMeter;
+    final DoubleProperty horizontalFieldOfViewDegrees;
+    final DoubleProperty verticalFieldOfViewDegrees;
+    final DoubleProperty maxDistanceMeters;
+    final DoubleProperty maxViewingAngleDegrees;
+
+    @Inject
+    public SimulatedAprilTagVisionIOFactory(AprilTagFieldLayout fieldLayout, Provider<BaseSimulator> simulator,
+                                            SimulationRandom random, SimulationVariation variation,
+                                            PropertyFactory pf) {
+        this.fieldLayout = fieldLayout;
+        this.simulator = simulator;
+        this.random = random;
+        this.variation = variation;
+
+        pf.setPrefix("Simulator/AprilTagCameras");
+        framesPerSecond = pf.createPersistentProperty("FramesPerSecond", 30.0);
+        // Capture to the robot receiving the result. Matches AprilTagVisionSubsystemExtended's assumed latency.
+        latencySeconds = pf.createPersistentProperty("Latency-s", 0.04);
+        // Standard deviation of the error in each axis of a tag's position, per meter away from the camera.
+        translationNoisePerMeter = pf.createPersistentProperty("TranslationNoisePerMeter", 0.01);
+        // Standard deviation of the heading error in multi-tag pose estimates.
+        headingNoiseDegrees = pf.createPersistentProperty("HeadingNoise-deg", 1.0);
+        // Single-tag ambiguity grows with distance, and with how obliquely the tag is seen.
+        ambiguityPerMeter = pf.createPersistentProperty("AmbiguityPerMeter", 0.04);
+        horizontalFieldOfViewDegrees = pf.createPersistentProperty("HorizontalFieldOfView-deg", 70.0);
+        verticalFieldOfViewDegrees = pf.createPersistentProperty("VerticalFieldOfView-deg", 50.0);
+        maxDistanceMeters = pf.createPersistentProperty("MaxDistance-m", 5.0);
+        // Tags seen more edge-on than this aren't detected.
+        maxViewingAngleDegrees = pf.createPersistentProperty("MaxViewingAngle-deg", 75.0);
+    }
+
+    /**
+     * @return Capture to delivery time for this match, including any variation drawn for it
+     */
+    double getLatencySeconds() {
+        return latencySeconds.get() + variation.getExtraVisionLatencySeconds();
+    }
+
+    @Override
+    public AprilTagVisionIO create(String name, Transform3d robotToCamera) {
+        return new SimulatedAprilTagVisionIO(name, robotToCamera, this);
+    }
+}
@@ -0,0 +1,15 @@
+package competition.simulation.vision;
+
+import javax.inject.Qualifier;
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Marks the AprilTag camera IO factory that simulated robots use in place of the one from the device modules.
+ */
+@Qualifier
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SimulatedCameras {
+}
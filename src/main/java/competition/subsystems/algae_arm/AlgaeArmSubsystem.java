@@ -15,6 +15,7 @@ import xbot.common.properties.PropertyFactory;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.Optional;
 
 import static edu.wpi.first.units.Units.Degree;
 import static edu.wpi.first.units.Units.Degrees;
@@ -27,6 +28,8 @@ import static edu.wpi.first.units.Units.RotationsPerSecond;
 public class AlgaeArmSubsystem extends BaseSetpointSubsystem<Angle> {
     public final XCANMotorController armMotor;
     Angle targetAngle = Degree.of(0);
+    // Set when the target came from a named position rather than a raw angle
+    private Optional<AlgaeArmPositions> targetPosition = Optional.empty();
     final ElectricalContract electricalContract;
     double rotationsAtZero;
     boolean isCalibrated = false;
@@ -133,6 +136,7 @@ public class AlgaeArmSubsystem extends BaseSetpointSubsystem<Angle> {
     @Override
     public void setTargetValue(Angle value) {
         targetAngle = value;
+        targetPosition = Optional.empty();
     }
 
     public void setTargetValue(AlgaeArmPositions position) {
@@ -142,6 +146,14 @@ public class AlgaeArmSubsystem extends BaseSetpointSubsystem<Angle> {
             case ReefAlgaeHigh -> setTargetValue(Degrees.of(reefHighSweepStart.get()));
             default -> setTargetValue(Degrees.of(0));
         }
+        targetPosition = Optional.of(position);
+    }
+
+    /**
+     * @return The named position the arm was last sent to, or empty if it was given a raw angle since
+     */
+    public Optional<AlgaeArmPositions> getTargetPosition() {
+        return targetPosition;
     }
 
     public void setPositionalGoalIncludingOffset(Angle setpoint) {
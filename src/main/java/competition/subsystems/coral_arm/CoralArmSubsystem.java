@@ -1,6 +1,7 @@
 package competition.subsystems.coral_arm;
 
 import competition.electrical_contract.ElectricalContract;
+import competition.profiling.LoopTimeProfiler;
 import competition.subsystems.pose.Landmarks;
 import edu.wpi.first.units.measure.Angle;
 import edu.wpi.first.units.measure.AngularVelocity;
@@ -48,12 +49,16 @@ public class CoralArmSubsystem extends BaseSetpointSubsystem<Angle> {
 
     public Landmarks.CoralLevel targetCoralLevel;
 
+    private final LoopTimeProfiler.Section periodicSection;
+
     @Inject
     public CoralArmSubsystem(XCANMotorController.XCANMotorControllerFactory xcanMotorControllerFactory,
                              ElectricalContract electricalContract, PropertyFactory propertyFactory,
                              XDutyCycleEncoder.XDutyCycleEncoderFactory xDutyCycleEncoderFactory,
-                             XDigitalInput.XDigitalInputFactory xDigitalInputFactory) {
+                             XDigitalInput.XDigitalInputFactory xDigitalInputFactory,
+                             LoopTimeProfiler profiler) {
         propertyFactory.setPrefix(this);
+        this.periodicSection = profiler.getSection("CoralArmSubsystem.periodic");
 
         this.electricalContract = electricalContract;
 
@@ -285,29 +290,34 @@ public class CoralArmSubsystem extends BaseSetpointSubsystem<Angle> {
 
     @Override
     public void periodic() {
-        if (electricalContract.isCoralArmMotorReady()) {
-            armMotor.periodic();
-        }
+        periodicSection.start();
+        try {
+            if (electricalContract.isCoralArmMotorReady()) {
+                armMotor.periodic();
+            }
 
-        if (!isCalibrated) {
-            periodicTickCounter++;
-            if (this.isTouchingBottom() && periodicTickCounter >= 20) {
-                forceCalibratedHere();
-                setTargetValue(getCurrentValue());
+            if (!isCalibrated) {
+                periodicTickCounter++;
+                if (this.isTouchingBottom() && periodicTickCounter >= 20) {
+                    forceCalibratedHere();
+                    setTargetValue(getCurrentValue());
+                }
             }
-        }
 
-        aKitLog.record("Target Angle", this.getTargetValue().in(Degrees));
-        aKitLog.record("Current Angle", this.getCurrentValue().in(Degrees));
-        aKitLog.record("isCalibrated", this.isCalibrated());
-        isNotCalibratedAlert.set(!isCalibrated());
-        if (electricalContract.isCoralArmPivotAbsoluteEncoderReady()) {
-            aKitLog.record("Current Angle using AbsEncoder", this.getArmAngle().in(Degrees));
-        }
-        if(electricalContract.isAlgaeArmBottomSensorReady()) {
-            aKitLog.record("lowSensor Status", lowSensor.get());
+            aKitLog.record("Target Angle", this.getTargetValue().in(Degrees));
+            aKitLog.record("Current Angle", this.getCurrentValue().in(Degrees));
+            aKitLog.record("isCalibrated", this.isCalibrated());
+            isNotCalibratedAlert.set(!isCalibrated());
+            if (electricalContract.isCoralArmPivotAbsoluteEncoderReady()) {
+                aKitLog.record("Current Angle using AbsEncoder", this.getArmAngle().in(Degrees));
+            }
+            if(electricalContract.isAlgaeArmBottomSensorReady()) {
+                aKitLog.record("lowSensor Status", lowSensor.get());
+            }
+            aKitLog.record("Is Sensor Active", this.isTouchingBottom());
+        } finally {
+            periodicSection.stop();
         }
-        aKitLog.record("Is Sensor Active", this.isTouchingBottom());
     }
   
     public boolean getIsTargetAngleScoring() {
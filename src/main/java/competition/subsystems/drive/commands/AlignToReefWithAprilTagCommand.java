@@ -38,13 +38,14 @@ public class AlignToReefWithAprilTagCommand extends AlignToTagGlobalMovementWith
 
     @Override
     public void initialize() {
+        int targetAprilTagId = aprilTagVisionSubsystem.getTargetAprilTagID(pose.getClosestReefFacePose());
         if (isDriverRelative) {
-            setDriverRelativeCameraToUse();
+            setDriverRelativeCameraToUse(targetAprilTagId);
         }
 
         super.setConfigurations(
                 cameraToUse,
-                aprilTagVisionSubsystem.getTargetAprilTagID(pose.getClosestReefFacePose()),
+                targetAprilTagId,
                 isCameraBackwards,
                 offsetInInches
             );
@@ -55,20 +56,20 @@ public class AlignToReefWithAprilTagCommand extends AlignToTagGlobalMovementWith
         this.isDriverRelative = isEnabled;
     }
 
-    private void setDriverRelativeCameraToUse() {
+    private void setDriverRelativeCameraToUse(int targetAprilTagId) {
         List<Integer> farReefFacePoseIDList = Arrays.asList(20, 21, 22, 9, 10 , 11);
         List<Integer> closeReefFacePoseIDList = Arrays.asList(19, 18, 17, 6, 7, 8);
 
         // if our target april tag is a far april tag and cameras haven't been flipped,
         // flip and use the other front camera to align with tag
-        if (farReefFacePoseIDList.contains(aprilTagVisionSubsystem.getTargetAprilTagID(pose.getClosestReefFacePose()))
+        if (farReefFacePoseIDList.contains(targetAprilTagId)
                 && !hasCameraFlippedDriverRelative) {
             cameraToUse = (cameraToUse + 1) % 2;
             hasCameraFlippedDriverRelative = true;
         }
         // if our target april tag is a close april tag and cameras have been flipped,
         // flip and use the other front camera to align with tag
-        else if (closeReefFacePoseIDList.contains(aprilTagVisionSubsystem.getTargetAprilTagID(pose.getClosestReefFacePose()))
+        else if (closeReefFacePoseIDList.contains(targetAprilTagId)
                 && hasCameraFlippedDriverRelative) {
             cameraToUse = (cameraToUse + 1) % 2;
             hasCameraFlippedDriverRelative = false;
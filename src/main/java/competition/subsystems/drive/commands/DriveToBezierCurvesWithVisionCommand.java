@@ -1,16 +1,13 @@
 package competition.subsystems.drive.commands;
 
 import competition.subsystems.drive.DriveSubsystem;
+import competition.subsystems.oracle.OracleSubsystem;
 import competition.subsystems.pose.PoseSubsystem;
 import competition.subsystems.vision.CoprocessorCommunicationSubsystem;
+import competition.subsystems.vision.CoprocessorPathRequester;
 import edu.wpi.first.math.geometry.Pose2d;
-import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.math.geometry.Translation2d;
-import org.kobe.xbot.JClient.XTablesClient;
-import org.kobe.xbot.JClient.XTablesClientManager;
-import org.kobe.xbot.Utilities.VisionCoprocessorCommander;
 import org.kobe.xbot.Utilities.Entities.XTableValues;
-import org.kobe.xbot.Utilities.Entities.VisionCoprocessor;
+import xbot.common.controls.sensors.XTimer;
 import xbot.common.logging.RobotAssertionManager;
 import xbot.common.properties.PropertyFactory;
 import xbot.common.subsystems.drive.SwerveSimpleBezierCommand;
@@ -23,32 +20,70 @@ import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+/**
+ * Drives a path planned by the vision coprocessor. The path is requested in the background; until it arrives,
+ * the robot follows a path around the reef computed locally, so a slow or missing coprocessor never holds up
+ * the robot loop.
+ */
 public class DriveToBezierCurvesWithVisionCommand extends SwerveSimpleBezierCommand {
+    // Once the robot has been driving the fallback path for a while, a late coprocessor path would start
+    // from somewhere behind it, so it isn't worth switching to.
+    static final double maxSecondsToSwitchToCoprocessorPath = 0.5;
+
     DriveSubsystem drive;
     PoseSubsystem pose;
     CoprocessorCommunicationSubsystem coprocessorComms;
+    final CoprocessorPathRequester pathRequester;
+    final OracleSubsystem oracle;
     XTableValues.BezierCurves lastBezierCurves;
     Pose2d lastTargetPose;
+    CompletableFuture<XTableValues.BezierCurves> pendingCurves;
+    double fallbackStartTime;
 
     @Inject
     DriveToBezierCurvesWithVisionCommand(PoseSubsystem pose, DriveSubsystem drive, CoprocessorCommunicationSubsystem coprocessorComms,
                                          PropertyFactory pf, HeadingModule.HeadingModuleFactory headingModuleFactory,
-                                         RobotAssertionManager assertionManager) {
+                                         RobotAssertionManager assertionManager, CoprocessorPathRequester pathRequester,
+                                         OracleSubsystem oracle) {
         super(drive, pose, pf, headingModuleFactory, assertionManager);
         this.pose = pose;
         this.drive = drive;
         this.coprocessorComms = coprocessorComms;
+        this.pathRequester = pathRequester;
+        this.oracle = oracle;
     }
 
     @Override
     public void initialize() {
-        if (retrieveCurvesFromVision()) {
-            super.initialize();
+        pendingCurves = retrieveCurvesFromVision();
+        var curves = pendingCurves.isDone() && !pendingCurves.isCompletedExceptionally()
+                ? pendingCurves.join()
+                : null;
+        if (curves != null) {
+            this.log.info("Using cached coprocessor path");
+            pendingCurves = null;
+            this.lastBezierCurves = curves;
+            this.prepareToDriveWithCurves(curves);
+        } else {
+            prepareToDriveFallbackPath();
         }
+        super.initialize();
+    }
+
+    /**
+     * Drives around whichever reef is closer to the target, until the coprocessor's path shows up.
+     */
+    private void prepareToDriveFallbackPath() {
+        var currentPose = this.pose.getCurrentPose2d();
+        var circle = oracle.getClosestReefRoutingCircle(this.lastTargetPose.getTranslation());
+        this.logic.setKeyPoints(circle.generateSwervePoints(currentPose, this.lastTargetPose));
+        this.logic.setConstantVelocity(this.drive.getDriveToWaypointsSpeed().get());
+        fallbackStartTime = XTimer.getFPGATimestamp();
+        this.aKitLog.record("UsingFallbackPath", true);
     }
 
     //allows for driving not in a straight line
@@ -62,6 +97,11 @@ public class DriveToBezierCurvesWithVisionCommand extends SwerveSimpleBezierComm
             }
         }
 
+        if (swervePoints.isEmpty()) {
+            this.log.warn("Coprocessor path had no control points; keeping the current path");
+            return;
+        }
+
         if (this.lastTargetPose != null) {
             var lastSwervePoint = swervePoints.get(swervePoints.size() - 1);
             lastSwervePoint.setPose(this.lastTargetPose);
@@ -101,8 +141,10 @@ public class DriveToBezierCurvesWithVisionCommand extends SwerveSimpleBezierComm
         return true;
     }
 
-    //allows for driving not in a straight line
-    public boolean retrieveCurvesFromVision() {
+    /**
+     * Asks the coprocessor for a path from here to the target pose. Doesn't wait for it.
+     */
+    public CompletableFuture<XTableValues.BezierCurves> retrieveCurvesFromVision() {
         var currentPose = this.pose.getCurrentPose2d();
         var start = XTableValues.ControlPoint.newBuilder()
             .setY(currentPose.getY())
@@ -129,27 +171,41 @@ public class DriveToBezierCurvesWithVisionCommand extends SwerveSimpleBezierComm
             .setFinalRotationTurnSpeedFactor(2)
             .build();
         
-        try (VisionCoprocessorCommander commander = new VisionCoprocessorCommander(VisionCoprocessor.ORIN2)) {
-
-            XTableValues.BezierCurves curves = commander
-                    .requestBezierPathWithOptions(XTableValues.RequestVisionCoprocessorMessage.newBuilder()
-                            .setStart(start)
-                            .setEnd(end)
-                            .setSafeDistanceInches(3) // Will stay an EXTRA 3 inches away (recommended)
-                            .setOptions(options)
-                            .build(), 5, TimeUnit.SECONDS);
-            this.lastBezierCurves = curves;
-            this.prepareToDriveWithCurves(this.lastBezierCurves);
-        }
-
-        return true;
+        return pathRequester.request(currentPose, this.lastTargetPose,
+                XTableValues.RequestVisionCoprocessorMessage.newBuilder()
+                        .setStart(start)
+                        .setEnd(end)
+                        .setSafeDistanceInches(3) // Will stay an EXTRA 3 inches away (recommended)
+                        .setOptions(options)
+                        .build());
     }
 
     @Override
     public void execute() {
+        if (pendingCurves != null && pendingCurves.isDone()) {
+            if (pendingCurves.isCompletedExceptionally()) {
+                this.log.warn("No path from the coprocessor; staying on the fallback path");
+            } else if (XTimer.getFPGATimestamp() - fallbackStartTime > maxSecondsToSwitchToCoprocessorPath) {
+                this.log.info("Coprocessor path arrived too late to use; staying on the fallback path");
+            } else {
+                this.lastBezierCurves = pendingCurves.join();
+                this.prepareToDriveWithCurves(this.lastBezierCurves);
+                // Start following the new path from wherever we are now
+                super.initialize();
+                this.aKitLog.record("UsingFallbackPath", false);
+            }
+            pendingCurves = null;
+        }
         super.execute();
     }
 
+    @Override
+    public void end(boolean interrupted) {
+        // Any request still in flight keeps going, so its path is cached for next time
+        pendingCurves = null;
+        super.end(interrupted);
+    }
+
     @Override
     public boolean isFinished() {
         return super.isFinished();
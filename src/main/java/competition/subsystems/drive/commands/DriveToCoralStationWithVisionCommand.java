@@ -5,6 +5,7 @@ import competition.subsystems.drive.DriveSubsystem;
 import competition.subsystems.pose.Landmarks;
 import competition.subsystems.pose.PoseSubsystem;
 import competition.subsystems.vision.CoprocessorCommunicationSubsystem;
+import competition.subsystems.vision.CoprocessorPathRequester;
 import competition.subsystems.drive.commands.DriveToBezierCurvesWithVisionCommand;
 import edu.wpi.first.apriltag.AprilTagFieldLayout;
 import edu.wpi.first.units.Units;
@@ -31,8 +32,8 @@ public class DriveToCoralStationWithVisionCommand extends DriveToBezierCurvesWit
             CoprocessorCommunicationSubsystem coprocessorComms,
             PropertyFactory pf, HeadingModule.HeadingModuleFactory headingModuleFactory,
             RobotAssertionManager assertionManager, ElectricalContract electricalContract,
-            AprilTagFieldLayout aprilTagFieldLayout) {
-        super(pose, drive, coprocessorComms, pf, headingModuleFactory, assertionManager);
+            AprilTagFieldLayout aprilTagFieldLayout, CoprocessorPathRequester pathRequester) {
+        super(pose, drive, coprocessorComms, pf, headingModuleFactory, assertionManager, pathRequester);
         this.distanceToOuterBumerInMeters = electricalContract.getDistanceFromCenterToOuterBumperX().in(Units.Meters);
         this.aprilTagFieldLayout = aprilTagFieldLayout;
     }
@@ -19,6 +19,7 @@ public class DriveToNearestReefFaceUntilDetectionCommand extends SwerveSimpleTra
     DriveSubsystem drive;
     AprilTagVisionSubsystemExtended aprilTagVisionSubsystem;
     Pose2d targetReefFacePose;
+    int targetAprilTagId;
     PoseSubsystem pose;
 
     @Inject
@@ -37,6 +38,7 @@ public class DriveToNearestReefFaceUntilDetectionCommand extends SwerveSimpleTra
         log.info("Initializing");
 
         targetReefFacePose = pose.getClosestReefFacePose();
+        targetAprilTagId = aprilTagVisionSubsystem.getTargetAprilTagID(targetReefFacePose);
 
         ArrayList<XbotSwervePoint> swervePoints = new ArrayList<>();
         swervePoints.add(new XbotSwervePoint(targetReefFacePose, 10));
@@ -53,8 +55,7 @@ public class DriveToNearestReefFaceUntilDetectionCommand extends SwerveSimpleTra
 
     @Override
     public boolean isFinished() {
-        return aprilTagVisionSubsystem.reefAprilTagCameraHasCorrectTarget(
-                aprilTagVisionSubsystem.getTargetAprilTagID(targetReefFacePose))
+        return aprilTagVisionSubsystem.reefAprilTagCameraHasCorrectTarget(targetAprilTagId)
                 || logic.recommendIsFinished(pose.getCurrentPose2d(), drive.getPositionalPid(), headingModule);
     }
 
@@ -25,6 +25,7 @@ public class DriveToReefFaceFromAngleUntilDetectionCommand extends SwerveSimpleT
     PoseSubsystem pose;
     Pose2d currentPose;
     Pose2d targetReefFacePose;
+    int targetAprilTagId;
     ReefRoutingCircle routingCircle;
     boolean kinematics = true;
     private Cameras camera = Cameras.FRONT_LEFT_CAMERA;
@@ -49,6 +50,7 @@ public class DriveToReefFaceFromAngleUntilDetectionCommand extends SwerveSimpleT
 
         currentPose = pose.getCurrentPose2d();
         targetReefFacePose = Landmarks.getReefFacePose(pose.getReefFaceFromAngle());
+        targetAprilTagId = aprilTagVisionSubsystem.getTargetAprilTagID(targetReefFacePose);
         List<XbotSwervePoint> swervePoints = routingCircle.generateSwervePoints(currentPose, targetReefFacePose);
         this.logic.setKeyPoints(swervePoints);
         if (kinematics) {
@@ -64,8 +66,7 @@ public class DriveToReefFaceFromAngleUntilDetectionCommand extends SwerveSimpleT
 
     @Override
     public boolean isFinished() {
-        return aprilTagVisionSubsystem.doesCameraBestObservationHaveAprilTagId(camera.getIndex(),
-                aprilTagVisionSubsystem.getTargetAprilTagID(targetReefFacePose))
+        return aprilTagVisionSubsystem.doesCameraBestObservationHaveAprilTagId(camera.getIndex(), targetAprilTagId)
                 || logic.recommendIsFinished(pose.getCurrentPose2d(), drive.getPositionalPid(), headingModule);
     }
 
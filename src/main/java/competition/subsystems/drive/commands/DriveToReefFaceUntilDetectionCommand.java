@@ -19,6 +19,7 @@ import java.util.ArrayList;
 public class DriveToReefFaceUntilDetectionCommand extends SwerveSimpleTrajectoryCommand {
 
     Pose2d targetReefFacePose;
+    int targetAprilTagId;
     AprilTagVisionSubsystemExtended aprilTagVisionSubsystem;
     boolean kinematics = true;
 
@@ -40,7 +41,9 @@ public class DriveToReefFaceUntilDetectionCommand extends SwerveSimpleTrajectory
     public void initialize() {
         log.info("Initializing");
         ArrayList<XbotSwervePoint> swervePoints = new ArrayList<>();
-        swervePoints.add(new XbotSwervePoint(PoseSubsystem.convertBlueToRedIfNeeded(targetReefFacePose), 10));
+        var allianceReefFacePose = PoseSubsystem.convertBlueToRedIfNeeded(targetReefFacePose);
+        targetAprilTagId = aprilTagVisionSubsystem.getTargetAprilTagID(allianceReefFacePose);
+        swervePoints.add(new XbotSwervePoint(allianceReefFacePose, 10));
         this.logic.setKeyPoints(swervePoints);
         if (kinematics) {
             this.logic.setGlobalKinematicValues(new SwervePointKinematics(.5, 0, 0, 2));
@@ -55,8 +58,7 @@ public class DriveToReefFaceUntilDetectionCommand extends SwerveSimpleTrajectory
 
     @Override
     public boolean isFinished() {
-        return aprilTagVisionSubsystem.reefAprilTagCameraHasCorrectTarget(
-                aprilTagVisionSubsystem.getTargetAprilTagID(targetReefFacePose))
+        return aprilTagVisionSubsystem.reefAprilTagCameraHasCorrectTarget(targetAprilTagId)
                 || logic.recommendIsFinished(pose.getCurrentPose2d(), drive.getPositionalPid(), headingModule);
     }
 }
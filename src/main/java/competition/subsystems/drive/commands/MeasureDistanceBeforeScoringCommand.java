@@ -32,12 +32,11 @@ public class MeasureDistanceBeforeScoringCommand extends BaseCommand {
     public boolean isFinished() {
         Pose2d targetReefFacePose = Landmarks.getBranchPose(pose.getReefFaceFromAngle(), branch);
         aKitLog.record("targetReefPose", targetReefFacePose);
-        aKitLog.record("distance ", pose.getCurrentPose2d().getTranslation()
-                .getDistance(targetReefFacePose.getTranslation()));
+        double distance = pose.getPoseSnapshot().distanceTo(targetReefFacePose);
+        aKitLog.record("distance ", distance);
         aKitLog.record("branch", branch.name());
 
-        return pose.getCurrentPose2d().getTranslation().getDistance(targetReefFacePose.getTranslation())
-                < distanceThresholdSupplier.get().in(Meters);
+        return distance < distanceThresholdSupplier.get().in(Meters);
 
     }
 
@@ -2,14 +2,12 @@ package competition.subsystems.drive.commands;
 
 import javax.inject.Inject;
 
-import org.kobe.xbot.JClient.XTablesClient;
-import org.kobe.xbot.JClient.XTablesClientManager;
-
 import competition.operator_interface.OperatorInterface;
 import competition.subsystems.drive.DriveSubsystem;
 import competition.subsystems.pose.Landmarks;
 import competition.subsystems.pose.PoseSubsystem;
 import competition.subsystems.vision.CoprocessorCommunicationSubsystem;
+import competition.subsystems.vision.CoprocessorDataChannel;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.units.DistanceUnit;
@@ -40,37 +38,22 @@ public class TeleportToPositionCommand extends BaseCommand {
 
     @Override
     public void execute() {
-        XTablesClient client = coprocessorComs.tryGetXTablesClient();
-        if(client == null){
+        if (coprocessorComs.tryGetXTablesClient() == null) {
             log.warn("Xtables client is null, not setting command!");
             cancel();
             return;
         }
 
-        double defaultX = PoseSubsystem.fieldXMidpointInMeters.in(Units.Meter);
-        double defaultY = PoseSubsystem.fieldYMidpointInMeters.in(Units.Meter);
-        double defaultYaw = 0;
-
-        try{
-            Double networkX = client.getDouble("setXPosition");
-            if(networkX != null){
-                defaultX = networkX;
-            }
-            
-            Double networkY = client.getDouble("setYPosition");
-            if(networkY != null){
-                defaultY = networkY;
-            }
-    
-            Double networkYaw = client.getDouble("setYawRotation");
-            if(networkYaw != null){
-                defaultYaw = networkYaw;
-            }
-        }
-        catch(IllegalArgumentException illegalArgumentException){
-            log.warn("Invalid types recieved from xclient");
-        }
-        
+        // Whatever the dashboard last set, as of this loop; no network calls here.
+        double defaultX = coprocessorComs.getTeleportXChannel().get()
+                .map(CoprocessorDataChannel.Reading::value)
+                .orElse(PoseSubsystem.fieldXMidpointInMeters.in(Units.Meter));
+        double defaultY = coprocessorComs.getTeleportYChannel().get()
+                .map(CoprocessorDataChannel.Reading::value)
+                .orElse(PoseSubsystem.fieldYMidpointInMeters.in(Units.Meter));
+        double defaultYaw = coprocessorComs.getTeleportYawChannel().get()
+                .map(CoprocessorDataChannel.Reading::value)
+                .orElse(0.0);
 
         log.info(String.format("Set Position X(m): %f Y(m): %f Yaw(Degrees): %f", defaultX,defaultY,defaultYaw));
 
@@ -23,7 +23,6 @@ import xbot.common.math.XYPair;
 import xbot.common.properties.DoubleProperty;
 import xbot.common.properties.PropertyFactory;
 import xbot.common.subsystems.drive.control_logic.HeadingModule;
-import xbot.common.subsystems.vision.AprilTagVisionIO;
 
 import java.util.Optional;
 
@@ -65,6 +64,10 @@ public class AlignCameraToAprilTagCalculator {
     private TagAcquisitionState tagAcquisitionState = TagAcquisitionState.NeverSeen;
     private Activity activity = Activity.Searching;
     Translation2d targetLocationOnField = new Translation2d(0, 0);
+    // The capture time and robot-relative tag location we last used, so the same camera frame isn't fused twice.
+    double lastFusedCaptureTimestampSeconds = Double.NaN;
+    Translation2d lastRobotRelativeTagLocation = null;
+    int targetFixCount = 0;
 
     final DoubleProperty interstitialDistance;
     final DoubleProperty distanceFromInterstitialToAdvance;
@@ -73,6 +76,7 @@ public class AlignCameraToAprilTagCalculator {
     final DoubleProperty shovePower;
     final DoubleProperty shoveDuration;
     final DoubleProperty maxTagAmbiguity;
+    final DoubleProperty targetFixFilterGain;
 
 
     double shoveStartTime = 0;
@@ -115,6 +119,8 @@ public class AlignCameraToAprilTagCalculator {
         shovePower = pf.createPersistentProperty("ShovePower", 0.25);
         shoveDuration = pf.createPersistentProperty("ShoveDuration-s", 0.5);
         maxTagAmbiguity = pf.createPersistentProperty("MaxTagAmbiguity", 0.5);
+        // How much each new sighting of the tag moves our idea of the target. 1 means only trust the latest sighting.
+        targetFixFilterGain = pf.createPersistentProperty("TargetFixFilterGain", 0.3);
 
         reset();
     }
@@ -123,6 +129,9 @@ public class AlignCameraToAprilTagCalculator {
         drive.getPositionalPid().reset();
         tagAcquisitionState = TagAcquisitionState.NeverSeen;
         activity = Activity.Searching;
+        lastFusedCaptureTimestampSeconds = Double.NaN;
+        lastRobotRelativeTagLocation = null;
+        targetFixCount = 0;
     }
 
     public void configureAndReset(int targetAprilTagID, int targetCameraID, Distance offset,
@@ -133,7 +142,7 @@ public class AlignCameraToAprilTagCalculator {
         this.targetCameraID = targetCameraID;
         this.isCameraBackwards = isCameraBackwards;
 
-        this.initialHeading = pose.getCurrentPose2d().getRotation().getDegrees();
+        this.initialHeading = pose.getPoseSnapshot().heading().getDegrees();
         this.isCameraBackwards = isCameraBackwards;
 
         CameraInfo cameraInfo = electricalContract.getCameraInfo()[targetCameraID];
@@ -186,9 +195,8 @@ public class AlignCameraToAprilTagCalculator {
 
         // First, let's get any evergreen information we will need in almost all state machines.
         // Mostly, this is about where we should be pointing - and we generally point at the tag unless we are fairly close.
-        Optional<AprilTagVisionIO.TargetObservation> targetObservation = aprilTagVisionSubsystem.getTargetObservation(targetCameraID, targetAprilTagID);
-        boolean doWeSeeOurTargetTag = targetObservation.isPresent() && targetObservation.get().ambiguity() < maxTagAmbiguity.get();
-        Translation2d currentTranslation = pose.getCurrentPose2d().getTranslation();
+        boolean doWeSeeOurTargetTag = aprilTagVisionSubsystem.isTagVisible(targetCameraID, targetAprilTagID, maxTagAmbiguity.get());
+        Translation2d currentTranslation = currentPose.getTranslation();
         double headingToPointAtAprilTag = Radians.of(
                 currentTranslation.minus(aprilTagPositionInGlobalFieldCoordinates).getAngle().getRadians() + Math.PI
         ).plus(Radians.of(isCameraBackwards ? Math.PI : 0)).in(Degrees);
@@ -303,16 +311,53 @@ public class AlignCameraToAprilTagCalculator {
             return;
         }
 
+        fuseTargetFix(
+                aprilTagData.get(),
+                aprilTagVisionSubsystem.getTagCaptureTimestamp(targetCameraID, targetAprilTagID),
+                currentPose);
+    }
+
+    /**
+     * Folds one sighting of the tag into our idea of where the final target is on the field.
+     * @param robotRelativeTag Where the tag was relative to the robot when the frame was captured
+     * @param captureTimestampSeconds FPGA time the frame was captured
+     * @param currentPose Where the robot is now, used if we don't remember where it was at capture time
+     * @return False if the sighting came from the same frame as the last one, and so was ignored
+     */
+    boolean fuseTargetFix(Translation2d robotRelativeTag, double captureTimestampSeconds, Pose2d currentPose) {
+        if (captureTimestampSeconds == lastFusedCaptureTimestampSeconds
+                || robotRelativeTag.equals(lastRobotRelativeTagLocation)) {
+            // Same frame as last time; nothing new to learn from it.
+            return false;
+        }
+        lastFusedCaptureTimestampSeconds = captureTimestampSeconds;
+        lastRobotRelativeTagLocation = robotRelativeTag;
+
         // The aprilTagData has the robot-relative location of the AprilTag, but if we tried to drive into it we would crash
         // into the Reef/Coral station, since the robot has some width/depth. We will create a transform that includes an
         // X-offset (since X is the forward/backward direction) to account for this.
         Transform2d relativeGoalTransform = new Transform2d(
-                aprilTagData.get().minus(alignmentPointOffset),
+                robotRelativeTag.minus(alignmentPointOffset),
                 new Rotation2d()
         );
+
+        // The tag location is relative to where the robot was when the frame was captured, not where it is now.
+        // At approach speeds that difference is several centimeters, so look up the pose from capture time.
+        Pose2d poseAtCapture = pose.getPoseAtTimestamp(captureTimestampSeconds).orElse(currentPose);
+
         // Use WPI libraries to transform the relative goal into a field-oriented goal. That way, if we ever lose the tag,
         // we can still attempt to move to this target location
-        targetLocationOnField = currentPose.transformBy(relativeGoalTransform).getTranslation();
+        Translation2d targetFix = poseAtCapture.transformBy(relativeGoalTransform).getTranslation();
+        akitLog.record("TargetFix", targetFix);
+
+        // Blend successive fixes together rather than jumping to each one, so camera noise doesn't turn into
+        // a twitchy setpoint for the drive PID.
+        targetLocationOnField = targetFixCount == 0
+                ? targetFix
+                : targetLocationOnField.interpolate(targetFix, targetFixFilterGain.get());
+        targetFixCount++;
+        akitLog.record("TargetLocationOnField", targetLocationOnField);
+        return true;
     }
 
     public boolean recommendIsFinished() {
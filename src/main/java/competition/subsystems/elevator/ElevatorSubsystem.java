@@ -2,6 +2,7 @@ package competition.subsystems.elevator;
 
 import competition.electrical_contract.ElectricalContract;
 import competition.motion.ComplimentaryFilter;
+import competition.profiling.LoopTimeProfiler;
 import competition.subsystems.pose.Landmarks;
 import edu.wpi.first.units.measure.Angle;
 import edu.wpi.first.units.measure.Distance;
@@ -22,6 +23,7 @@ import xbot.common.properties.PropertyFactory;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.Optional;
 
 import static edu.wpi.first.units.Units.Hertz;
 import static edu.wpi.first.units.Units.Inches;
@@ -48,6 +50,8 @@ public class ElevatorSubsystem extends BaseSetpointSubsystem<Distance> {
     private Angle elevatorMotorPositionOffset;
 
     public Distance elevatorTargetHeight;
+    // Set when the target came from a coral level rather than a raw height
+    private Optional<Landmarks.CoralLevel> targetCoralLevel = Optional.empty();
 
     public final DoubleProperty rotationsPerMeter;
 
@@ -76,12 +80,15 @@ public class ElevatorSubsystem extends BaseSetpointSubsystem<Distance> {
 
     private final ComplimentaryFilter sensorFusionFilter;
 
+    private final LoopTimeProfiler.Section periodicSection;
+
     @Inject
     public ElevatorSubsystem(XCANMotorController.XCANMotorControllerFactory motorFactory, PropertyFactory pf,
                              ElectricalContract contract, XDigitalInput.XDigitalInputFactory xDigitalInputFactory,
-                             XLaserCAN.XLaserCANFactory xLaserCANFactory) {
+                             XLaserCAN.XLaserCANFactory xLaserCANFactory, LoopTimeProfiler profiler) {
 
         this.contract = contract;
+        this.periodicSection = profiler.getSection("ElevatorSubsystem.periodic");
 
         this.laserCANPositionOffset = Meters.zero();
         this.elevatorMotorPositionOffset = Rotations.zero();
@@ -223,6 +230,7 @@ public class ElevatorSubsystem extends BaseSetpointSubsystem<Distance> {
     @Override
     public void setTargetValue(Distance value) {
         elevatorTargetHeight = value;
+        targetCoralLevel = Optional.empty();
     }
 
     public void setTargetHeight(Landmarks.CoralLevel value) {
@@ -233,6 +241,14 @@ public class ElevatorSubsystem extends BaseSetpointSubsystem<Distance> {
             case COLLECTING -> setTargetValue(humanLoadHeight.get());
             default -> setTargetValue(baseHeight.get());
         }
+        targetCoralLevel = Optional.of(value);
+    }
+
+    /**
+     * @return The coral level the elevator was last sent to, or empty if it was given a raw height since
+     */
+    public Optional<Landmarks.CoralLevel> getTargetCoralLevel() {
+        return targetCoralLevel;
     }
 
     public boolean isTouchingBottom() {
@@ -330,27 +346,32 @@ public class ElevatorSubsystem extends BaseSetpointSubsystem<Distance> {
 
     @Override
     public void periodic() {
-        if (contract.isElevatorReady()) {
-            masterMotor.periodic();
-        }
-        //bandage case: isTouchingBottom flashes true for one tick on startup, investigate later?
-        if (this.isTouchingBottom() && periodicTickCounter >= 3 && !isCalibrated()) {
-            markElevatorAsCalibratedAgainstLowerLimit();
-            setTargetValue(getCurrentValue());
-        }
+        periodicSection.start();
+        try {
+            if (contract.isElevatorReady()) {
+                masterMotor.periodic();
+            }
+            //bandage case: isTouchingBottom flashes true for one tick on startup, investigate later?
+            if (this.isTouchingBottom() && periodicTickCounter >= 3 && !isCalibrated()) {
+                markElevatorAsCalibratedAgainstLowerLimit();
+                setTargetValue(getCurrentValue());
+            }
 
-        aKitLog.record("ElevatorTargetHeight-m", elevatorTargetHeight);
-        aKitLog.record("ElevatorCurrentHeight-m", getCurrentValue().in(Meters));
-        aKitLog.record("ElevatorBottomSensor", this.isTouchingBottom());
-        aKitLog.record("isElevatorCalibrated", isCalibrated());
-        aKitLog.record("isElevatorMaintainerAtGoal", this.isMaintainerAtGoal());
-        isNotCalibratedAlert.set(!isCalibrated());
-        aKitLog.record("ElevatorDistanceSensor-m", getRawLaserDistance().in(Meters));
-        aKitLog.record("CalibratedElevatorDistanceSensor-m", getCalibratedLaserDistance().in(Meters));
-        aKitLog.record("CalibratedElevatorMotorSensor-m", getCalibratedMotorDistance().in(Meters));
-        aKitLog.record("MotorOffset-rotations", elevatorMotorPositionOffset.in(Rotations));
-
-        periodicTickCounter++;
+            aKitLog.record("ElevatorTargetHeight-m", elevatorTargetHeight);
+            aKitLog.record("ElevatorCurrentHeight-m", getCurrentValue().in(Meters));
+            aKitLog.record("ElevatorBottomSensor", this.isTouchingBottom());
+            aKitLog.record("isElevatorCalibrated", isCalibrated());
+            aKitLog.record("isElevatorMaintainerAtGoal", this.isMaintainerAtGoal());
+            isNotCalibratedAlert.set(!isCalibrated());
+            aKitLog.record("ElevatorDistanceSensor-m", getRawLaserDistance().in(Meters));
+            aKitLog.record("CalibratedElevatorDistanceSensor-m", getCalibratedLaserDistance().in(Meters));
+            aKitLog.record("CalibratedElevatorMotorSensor-m", getCalibratedMotorDistance().in(Meters));
+            aKitLog.record("MotorOffset-rotations", elevatorMotorPositionOffset.in(Rotations));
+
+            periodicTickCounter++;
+        } finally {
+            periodicSection.stop();
+        }
     }
 
 
@@ -6,6 +6,7 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import competition.electrical_contract.ElectricalContract;
+import competition.profiling.LoopTimeProfiler;
 import competition.subsystems.coral_scorer.CoralScorerSubsystem;
 import edu.wpi.first.wpilibj.DriverStation;
 import xbot.common.command.BaseSubsystem;
@@ -22,6 +23,8 @@ public class LightSubsystem extends BaseSubsystem {
     final AutonomousCommandSelector autonomousCommandSelector;
     final CoralScorerSubsystem coralScorerSubsystem;
 
+    final LoopTimeProfiler.Section periodicSection;
+
     LightsStateMessage state = LightsStateMessage.NoCode;
 
     public enum LightsStateMessage{
@@ -81,9 +84,11 @@ public class LightSubsystem extends BaseSubsystem {
     public LightSubsystem(XDigitalOutputFactory digitalOutputFactory,
                           ElectricalContract contract,
                           AutonomousCommandSelector autonomousCommandSelector,
-                          CoralScorerSubsystem coralScorerSubsystem) {
+                          CoralScorerSubsystem coralScorerSubsystem,
+                          LoopTimeProfiler profiler) {
         this.autonomousCommandSelector = autonomousCommandSelector;
         this.coralScorerSubsystem = coralScorerSubsystem;
+        this.periodicSection = profiler.getSection("LightSubsystem.periodic");
     }
 
     public LightsStateMessage getCurrentState() {
@@ -134,9 +139,14 @@ public class LightSubsystem extends BaseSubsystem {
 
     @Override
     public void periodic() {
-        this.state = getCurrentState();
-        sendState(state);
-
-        aKitLog.record("LightState", state.toString());
+        periodicSection.start();
+        try {
+            this.state = getCurrentState();
+            sendState(state);
+
+            aKitLog.record("LightState", state.toString());
+        } finally {
+            periodicSection.stop();
+        }
     }  
 }
\ No newline at end of file
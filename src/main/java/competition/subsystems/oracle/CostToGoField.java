@@ -0,0 +1,295 @@
+package competition.subsystems.oracle;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Shortest driving distance from every cell of a {@link FieldObstacleGrid} to one goal, computed once with
+ * Dijkstra's algorithm over the 8-connected grid. Finding a route from anywhere is then just walking downhill.
+ * Immutable once computed.
+ */
+public class CostToGoField implements FieldObstacleGrid.CellFilter {
+
+    private static final int[] neighborColumnOffsets = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] neighborRowOffsets = {0, 0, 1, -1, 1, -1, 1, -1};
+    private static final double diagonalStep = Math.sqrt(2);
+
+    // How far from the start we'll look for a reachable cell if the robot is somewhere the grid considers blocked,
+    // such as pressed up against the reef.
+    static final int maxStartSearchRings = 6;
+
+    private final FieldObstacleGrid grid;
+    private final Translation2d goal;
+    private final double dockingRadiusSquared;
+    private final float[] costs;
+
+    /**
+     * @param grid The field to plan over
+     * @param goal Where routes should end
+     * @param dockingRadiusMeters Blocked cells within this distance of the goal are treated as free, so goals that
+     *                            touch a field element (like a coral station) can still be reached
+     */
+    public CostToGoField(FieldObstacleGrid grid, Translation2d goal, double dockingRadiusMeters) {
+        this.grid = grid;
+        this.goal = goal;
+        this.dockingRadiusSquared = dockingRadiusMeters * dockingRadiusMeters;
+        this.costs = new float[grid.getCellCount()];
+        Arrays.fill(costs, Float.POSITIVE_INFINITY);
+
+        int goalCell = grid.getCellIndex(goal.getX(), goal.getY());
+        if (goalCell >= 0) {
+            computeCosts(goalCell);
+        }
+    }
+
+    private void computeCosts(int goalCell) {
+        var queue = new CellQueue(Math.max(16, grid.getCellCount() / 4));
+        costs[goalCell] = 0;
+        queue.push(goalCell, 0);
+
+        while (!queue.isEmpty()) {
+            float cost = queue.peekCost();
+            int cell = queue.pop();
+            if (cost > costs[cell]) {
+                // We already found a cheaper way here.
+                continue;
+            }
+
+            int column = grid.getColumn(cell);
+            int row = grid.getRow(cell);
+            for (int i = 0; i < neighborColumnOffsets.length; i++) {
+                int neighborColumn = column + neighborColumnOffsets[i];
+                int neighborRow = row + neighborRowOffsets[i];
+                if (neighborColumn < 0 || neighborRow < 0
+                        || neighborColumn >= grid.getColumns() || neighborRow >= grid.getRows()) {
+                    continue;
+                }
+                int neighbor = grid.getCellIndex(neighborColumn, neighborRow);
+                if (!isPassable(neighbor)) {
+                    continue;
+                }
+                if (i >= 4 && !(isPassable(grid.getCellIndex(neighborColumn, row))
+                        && isPassable(grid.getCellIndex(column, neighborRow)))) {
+                    // Don't cut diagonally past the corner of an obstacle.
+                    continue;
+                }
+
+                float neighborCost = (float) (cost + (i >= 4 ? diagonalStep : 1) * grid.getResolutionMeters());
+                if (neighborCost < costs[neighbor]) {
+                    costs[neighbor] = neighborCost;
+                    queue.push(neighbor, neighborCost);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isPassable(int cellIndex) {
+        if (!grid.isBlocked(cellIndex)) {
+            return true;
+        }
+        double dx = grid.getCellCenterX(grid.getColumn(cellIndex)) - goal.getX();
+        double dy = grid.getCellCenterY(grid.getRow(cellIndex)) - goal.getY();
+        return dx * dx + dy * dy <= dockingRadiusSquared;
+    }
+
+    public Translation2d getGoal() {
+        return goal;
+    }
+
+    /**
+     * @return Driving distance from the point to the goal, or infinity if the goal can't be reached from there
+     */
+    public double getCostToGo(Translation2d point) {
+        int cell = findReachableCell(point);
+        if (cell < 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return costs[cell] + point.getDistance(new Translation2d(
+                grid.getCellCenterX(grid.getColumn(cell)), grid.getCellCenterY(grid.getRow(cell))));
+    }
+
+    /**
+     * Finds a route from the point to the goal by walking downhill through the cost field, then
+     * straightening it out so only the corners remain.
+     * @return The corners of the route, ending with the goal itself, or an empty list if the goal can't be reached
+     */
+    public List<Translation2d> findRoute(Translation2d start) {
+        List<Translation2d> waypoints = new ArrayList<>();
+        int cell = findReachableCell(start);
+        if (cell < 0) {
+            return waypoints;
+        }
+
+        // Walk downhill. Every reachable cell has a strictly cheaper neighbor except the goal, so this terminates.
+        int[] path = new int[16];
+        int pathLength = 0;
+        path[pathLength++] = cell;
+        while (costs[cell] > 0) {
+            int next = cheapestNeighbor(cell);
+            if (next < 0) {
+                break;
+            }
+            if (pathLength == path.length) {
+                path = Arrays.copyOf(path, path.length * 2);
+            }
+            path[pathLength++] = next;
+            cell = next;
+        }
+
+        // Keep only the corners: from each corner, skip ahead as far as we can still see in a straight line.
+        int from = 0;
+        double anchorX = cellCenterX(path[0]);
+        double anchorY = cellCenterY(path[0]);
+        while (from < pathLength - 1) {
+            int to = from + 1;
+            while (to + 1 < pathLength
+                    && grid.isLineClear(anchorX, anchorY, cellCenterX(path[to + 1]), cellCenterY(path[to + 1]), this)) {
+                to++;
+            }
+            if (to == pathLength - 1) {
+                break;
+            }
+            anchorX = cellCenterX(path[to]);
+            anchorY = cellCenterY(path[to]);
+            waypoints.add(new Translation2d(anchorX, anchorY));
+            from = to;
+        }
+        waypoints.add(goal);
+        return waypoints;
+    }
+
+    private int cheapestNeighbor(int cell) {
+        int column = grid.getColumn(cell);
+        int row = grid.getRow(cell);
+        int best = -1;
+        float bestCost = costs[cell];
+        for (int i = 0; i < neighborColumnOffsets.length; i++) {
+            int neighborColumn = column + neighborColumnOffsets[i];
+            int neighborRow = row + neighborRowOffsets[i];
+            if (neighborColumn < 0 || neighborRow < 0
+                    || neighborColumn >= grid.getColumns() || neighborRow >= grid.getRows()) {
+                continue;
+            }
+            int neighbor = grid.getCellIndex(neighborColumn, neighborRow);
+            if (costs[neighbor] < bestCost) {
+                bestCost = costs[neighbor];
+                best = neighbor;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return The cell containing the point if the goal is reachable from it, otherwise the cheapest reachable
+     * cell in the nearest ring around it, or -1 if there's nothing reachable nearby
+     */
+    private int findReachableCell(Translation2d point) {
+        int column = (int) Math.floor(point.getX() / grid.getResolutionMeters());
+        int row = (int) Math.floor(point.getY() / grid.getResolutionMeters());
+
+        for (int ring = 0; ring <= maxStartSearchRings; ring++) {
+            int best = -1;
+            for (int dRow = -ring; dRow <= ring; dRow++) {
+                for (int dColumn = -ring; dColumn <= ring; dColumn++) {
+                    if (Math.max(Math.abs(dRow), Math.abs(dColumn)) != ring) {
+                        continue;
+                    }
+                    int c = column + dColumn;
+                    int r = row + dRow;
+                    if (c < 0 || r < 0 || c >= grid.getColumns() || r >= grid.getRows()) {
+                        continue;
+                    }
+                    int candidate = grid.getCellIndex(c, r);
+                    if (costs[candidate] < Float.POSITIVE_INFINITY
+                            && (best < 0 || costs[candidate] < costs[best])) {
+                        best = candidate;
+                    }
+                }
+            }
+            if (best >= 0) {
+                return best;
+            }
+        }
+        return -1;
+    }
+
+    private double cellCenterX(int cell) {
+        return grid.getCellCenterX(grid.getColumn(cell));
+    }
+
+    private double cellCenterY(int cell) {
+        return grid.getCellCenterY(grid.getRow(cell));
+    }
+
+    /**
+     * A binary min-heap of cells keyed by cost, stored in primitive arrays. Cells may appear more than once;
+     * stale entries are skipped when popped.
+     */
+    private static class CellQueue {
+        private int[] cells;
+        private float[] keys;
+        private int size = 0;
+
+        CellQueue(int initialCapacity) {
+            cells = new int[initialCapacity];
+            keys = new float[initialCapacity];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        float peekCost() {
+            return keys[0];
+        }
+
+        void push(int cell, float key) {
+            if (size == cells.length) {
+                cells = Arrays.copyOf(cells, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                cells[i] = cells[parent];
+                keys[i] = keys[parent];
+                i = parent;
+            }
+            cells[i] = cell;
+            keys[i] = key;
+        }
+
+        int pop() {
+            int top = cells[0];
+            size--;
+            int lastCell = cells[size];
+            float lastKey = keys[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (keys[child] >= lastKey) {
+                    break;
+                }
+                cells[i] = cells[child];
+                keys[i] = keys[child];
+                i = child;
+            }
+            cells[i] = lastCell;
+            keys[i] = lastKey;
+            return top;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package competition.subsystems.oracle;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+import java.util.List;
+
+/**
+ * The field rasterized into square cells, each either free or blocked for the robot's center.
+ * Obstacles (and the field walls) are grown by the robot's radius, so any free cell is somewhere the
+ * robot can physically sit. Immutable once built, so it can be shared between planning threads.
+ */
+public class FieldObstacleGrid {
+
+    private final double resolutionMeters;
+    private final int columns;
+    private final int rows;
+    private final boolean[] blocked;
+
+    /**
+     * @param fieldLengthMeters Field size along x
+     * @param fieldWidthMeters Field size along y
+     * @param resolutionMeters Size of one cell
+     * @param robotRadiusMeters How far the robot's center has to stay from walls and obstacles
+     * @param obstacles Convex polygons, each given as its vertices in order
+     */
+    public FieldObstacleGrid(double fieldLengthMeters, double fieldWidthMeters, double resolutionMeters,
+                             double robotRadiusMeters, List<Translation2d[]> obstacles) {
+        this.resolutionMeters = resolutionMeters;
+        this.columns = (int) Math.ceil(fieldLengthMeters / resolutionMeters);
+        this.rows = (int) Math.ceil(fieldWidthMeters / resolutionMeters);
+        this.blocked = new boolean[columns * rows];
+
+        for (int row = 0; row < rows; row++) {
+            double y = getCellCenterY(row);
+            for (int column = 0; column < columns; column++) {
+                double x = getCellCenterX(column);
+                boolean nearWall = x < robotRadiusMeters || y < robotRadiusMeters
+                        || x > fieldLengthMeters - robotRadiusMeters || y > fieldWidthMeters - robotRadiusMeters;
+                boolean isBlocked = nearWall;
+                for (int i = 0; i < obstacles.size() && !isBlocked; i++) {
+                    isBlocked = distanceToConvexPolygon(x, y, obstacles.get(i)) < robotRadiusMeters;
+                }
+                blocked[getCellIndex(column, row)] = isBlocked;
+            }
+        }
+    }
+
+    /**
+     * Distance from a point to a convex polygon; zero if the point is inside it.
+     */
+    static double distanceToConvexPolygon(double x, double y, Translation2d[] vertices) {
+        boolean inside = true;
+        double sign = 0;
+        double closest = Double.MAX_VALUE;
+        for (int i = 0; i < vertices.length; i++) {
+            Translation2d a = vertices[i];
+            Translation2d b = vertices[(i + 1) % vertices.length];
+            double edgeX = b.getX() - a.getX();
+            double edgeY = b.getY() - a.getY();
+            double toPointX = x - a.getX();
+            double toPointY = y - a.getY();
+
+            // Inside a convex polygon means being on the same side of every edge.
+            double cross = edgeX * toPointY - edgeY * toPointX;
+            if (cross != 0) {
+                if (sign == 0) {
+                    sign = Math.signum(cross);
+                } else if (Math.signum(cross) != sign) {
+                    inside = false;
+                }
+            }
+
+            double edgeLengthSquared = edgeX * edgeX + edgeY * edgeY;
+            double t = edgeLengthSquared > 0
+                    ? Math.max(0, Math.min(1, (toPointX * edgeX + toPointY * edgeY) / edgeLengthSquared))
+                    : 0;
+            closest = Math.min(closest, Math.hypot(toPointX - t * edgeX, toPointY - t * edgeY));
+        }
+        return inside ? 0 : closest;
+    }
+
+    public double getResolutionMeters() {
+        return resolutionMeters;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCellCount() {
+        return blocked.length;
+    }
+
+    public int getCellIndex(int column, int row) {
+        return row * columns + column;
+    }
+
+    /**
+     * @return The index of the cell containing the point, or -1 if it's off the field
+     */
+    public int getCellIndex(double x, double y) {
+        int column = (int) Math.floor(x / resolutionMeters);
+        int row = (int) Math.floor(y / resolutionMeters);
+        if (column < 0 || row < 0 || column >= columns || row >= rows) {
+            return -1;
+        }
+        return getCellIndex(column, row);
+    }
+
+    public int getColumn(int cellIndex) {
+        return cellIndex % columns;
+    }
+
+    public int getRow(int cellIndex) {
+        return cellIndex / columns;
+    }
+
+    public double getCellCenterX(int column) {
+        return (column + 0.5) * resolutionMeters;
+    }
+
+    public double getCellCenterY(int row) {
+        return (row + 0.5) * resolutionMeters;
+    }
+
+    public boolean isBlocked(int cellIndex) {
+        return blocked[cellIndex];
+    }
+
+    /**
+     * Checks whether a straight line stays in free cells (or cells the caller has chosen to allow),
+     * by sampling it every half cell.
+     */
+    public boolean isLineClear(double startX, double startY, double endX, double endY, CellFilter passable) {
+        double length = Math.hypot(endX - startX, endY - startY);
+        int samples = Math.max(1, (int) Math.ceil(length / (resolutionMeters / 2)));
+        for (int i = 0; i <= samples; i++) {
+            double t = (double) i / samples;
+            int cell = getCellIndex(startX + (endX - startX) * t, startY + (endY - startY) * t);
+            if (cell < 0 || !passable.isPassable(cell)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @FunctionalInterface
+    public interface CellFilter {
+        boolean isPassable(int cellIndex);
+    }
+}
@@ -0,0 +1,226 @@
+package competition.subsystems.oracle;
+
+import competition.electrical_contract.ElectricalContract;
+import competition.subsystems.pose.Landmarks;
+import competition.subsystems.pose.PoseSubsystem;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import xbot.common.trajectory.XbotSwervePoint;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static edu.wpi.first.units.Units.Meters;
+
+/**
+ * Plans routes anywhere on the field, around both reefs, the coral stations, the barge and the walls.
+ * At startup the field is rasterized into a {@link FieldObstacleGrid}, and a {@link CostToGoField} is computed for
+ * every place the oracle sends the robot (each reef branch approach point and coral station section, for both
+ * alliances). The fields are computed in parallel on the common fork-join pool, off the main thread, the first time
+ * anyone asks for them. After that, a route from any pose is a quick downhill walk.
+ */
+@Singleton
+public class FieldRoutePlanner {
+
+    private static final Logger log = LogManager.getLogger(FieldRoutePlanner.class);
+
+    public static final double fieldLengthMeters = 17.548;
+    public static final double fieldWidthMeters = 8.052;
+    static final double gridResolutionMeters = 0.1;
+    // Extra room on top of the bumpers, so routes don't scrape field elements.
+    static final double clearanceMarginMeters = 0.1;
+    // Goals closer than this are treated as the same goal.
+    static final double goalMatchToleranceMeters = 0.01;
+
+    // Corners of the coral station cutouts, measured from the blue alliance corner.
+    static final double coralStationCutoutAlongWallMeters = 1.70;
+    static final double coralStationCutoutAlongEndMeters = 1.25;
+    // Approximate footprint of the barge, centered on the middle of the field.
+    static final double bargeHalfDepthMeters = 0.56;
+    static final double bargeHalfWidthMeters = 1.85;
+
+    private final double robotRadiusMeters;
+    private final List<Pose2d> goals = new ArrayList<>();
+
+    private static final class PlannerTables {
+        FieldObstacleGrid grid;
+        CostToGoField[] fields;
+    }
+
+    private CompletableFuture<PlannerTables> precomputation;
+    private volatile PlannerTables tables;
+
+    @Inject
+    public FieldRoutePlanner(ElectricalContract contract, ReefCoordinateGenerator reefCoordinateGenerator) {
+        this.robotRadiusMeters = contract.getDistanceFromCenterToOuterBumperX().in(Meters) + clearanceMarginMeters;
+
+        for (DriverStation.Alliance alliance : DriverStation.Alliance.values()) {
+            for (Landmarks.ReefFace face : Landmarks.ReefFace.values()) {
+                for (Landmarks.Branch branch : Landmarks.Branch.values()) {
+                    goals.add(reefCoordinateGenerator.getTypicalApproachLocationForFaceBranch(alliance, face, branch));
+                }
+            }
+            for (Landmarks.CoralStation station : Landmarks.CoralStation.values()) {
+                for (Landmarks.CoralStationSection section : Landmarks.CoralStationSection.values()) {
+                    goals.add(Landmarks.getCoralStationSectionPose(alliance, station, section));
+                }
+            }
+        }
+    }
+
+    private PlannerTables precompute() {
+        long start = System.nanoTime();
+        var newTables = new PlannerTables();
+        newTables.grid = new FieldObstacleGrid(
+                fieldLengthMeters, fieldWidthMeters, gridResolutionMeters, robotRadiusMeters, buildObstacles());
+        newTables.fields = new CostToGoField[goals.size()];
+
+        // Goals are independent, so each one gets its own fork-join task.
+        IntStream.range(0, goals.size()).parallel().forEach(i ->
+                newTables.fields[i] = new CostToGoField(
+                        newTables.grid, goals.get(i).getTranslation(), robotRadiusMeters + gridResolutionMeters));
+
+        log.info("Computed {} route fields over {} cells in {} ms",
+                goals.size(), newTables.grid.getCellCount(), (System.nanoTime() - start) / 1_000_000);
+        return newTables;
+    }
+
+    /**
+     * Starts computing the route fields if nobody has yet, or picks up the computation already started.
+     */
+    private synchronized CompletableFuture<PlannerTables> startPrecomputing() {
+        if (precomputation == null) {
+            precomputation = CompletableFuture.supplyAsync(this::precompute);
+        }
+        return precomputation;
+    }
+
+    static List<Translation2d[]> buildObstacles() {
+        List<Translation2d[]> obstacles = new ArrayList<>();
+
+        // The reef is a hexagon with a face pointing at each alliance wall.
+        double reefApothem = Landmarks.reefCenterToFace.in(Meters);
+        Translation2d[] blueReef = new Translation2d[6];
+        for (int i = 0; i < 6; i++) {
+            blueReef[i] = Landmarks.BlueCenterOfReef.getTranslation().plus(new Translation2d(
+                    reefApothem / Math.cos(Math.PI / 6), Rotation2d.fromDegrees(30 + 60 * i)));
+        }
+        obstacles.add(blueReef);
+        obstacles.add(mirrored(blueReef));
+
+        // The coral stations cut the corners off the alliance walls.
+        Translation2d[] blueRightStation = {
+                new Translation2d(0, 0),
+                new Translation2d(coralStationCutoutAlongWallMeters, 0),
+                new Translation2d(0, coralStationCutoutAlongEndMeters)
+        };
+        Translation2d[] blueLeftStation = {
+                new Translation2d(0, fieldWidthMeters),
+                new Translation2d(0, fieldWidthMeters - coralStationCutoutAlongEndMeters),
+                new Translation2d(coralStationCutoutAlongWallMeters, fieldWidthMeters)
+        };
+        obstacles.add(blueRightStation);
+        obstacles.add(mirrored(blueRightStation));
+        obstacles.add(blueLeftStation);
+        obstacles.add(mirrored(blueLeftStation));
+
+        double midfieldX = fieldLengthMeters / 2;
+        double midfieldY = fieldWidthMeters / 2;
+        obstacles.add(new Translation2d[] {
+                new Translation2d(midfieldX - bargeHalfDepthMeters, midfieldY - bargeHalfWidthMeters),
+                new Translation2d(midfieldX + bargeHalfDepthMeters, midfieldY - bargeHalfWidthMeters),
+                new Translation2d(midfieldX + bargeHalfDepthMeters, midfieldY + bargeHalfWidthMeters),
+                new Translation2d(midfieldX - bargeHalfDepthMeters, midfieldY + bargeHalfWidthMeters)
+        });
+
+        return obstacles;
+    }
+
+    private static Translation2d[] mirrored(Translation2d[] bluePolygon) {
+        Translation2d[] redPolygon = new Translation2d[bluePolygon.length];
+        for (int i = 0; i < bluePolygon.length; i++) {
+            redPolygon[i] = PoseSubsystem.convertBlueToRed(bluePolygon[i]);
+        }
+        return redPolygon;
+    }
+
+    /**
+     * @return True once every route field has been computed
+     */
+    public synchronized boolean isReady() {
+        return tables != null
+                || (precomputation != null && precomputation.isDone() && !precomputation.isCompletedExceptionally());
+    }
+
+    /**
+     * Starts computing the route fields, if they haven't been already.
+     * @return A future that completes once every route field has been computed
+     */
+    public CompletableFuture<Void> whenReady() {
+        return startPrecomputing().thenAccept(computed -> { });
+    }
+
+    /**
+     * Plans a route to one of the precomputed goals (a reef branch approach point or a coral station section).
+     * @param startingPose Where the robot is now
+     * @param goalPose Where the robot should end up
+     * @return The route, ending at the goal pose; or empty if the fields aren't ready yet, the goal isn't one we
+     * precomputed, or the goal can't be reached from here
+     */
+    public Optional<List<XbotSwervePoint>> getRoute(Pose2d startingPose, Pose2d goalPose) {
+        CostToGoField field = getField(goalPose);
+        if (field == null) {
+            return Optional.empty();
+        }
+
+        List<Translation2d> corners = field.findRoute(startingPose.getTranslation());
+        if (corners.isEmpty()) {
+            return Optional.empty();
+        }
+
+        List<XbotSwervePoint> route = new ArrayList<>(corners.size());
+        for (int i = 0; i < corners.size() - 1; i++) {
+            route.add(new XbotSwervePoint(new Pose2d(corners.get(i), goalPose.getRotation()), 10));
+        }
+        route.add(new XbotSwervePoint(goalPose, 10));
+        return Optional.of(route);
+    }
+
+    /**
+     * @return Driving distance to one of the precomputed goals, or empty if we don't have a field for it (yet)
+     */
+    public Optional<Double> getCostToGo(Translation2d start, Pose2d goalPose) {
+        CostToGoField field = getField(goalPose);
+        if (field == null) {
+            return Optional.empty();
+        }
+        return Optional.of(field.getCostToGo(start));
+    }
+
+    private CostToGoField getField(Pose2d goalPose) {
+        PlannerTables currentTables = tables;
+        if (currentTables == null) {
+            var computing = startPrecomputing();
+            if (!computing.isDone() || computing.isCompletedExceptionally()) {
+                return null;
+            }
+            currentTables = computing.join();
+            tables = currentTables;
+        }
+        for (int i = 0; i < goals.size(); i++) {
+            if (goals.get(i).getTranslation().getDistance(goalPose.getTranslation()) < goalMatchToleranceMeters) {
+                return currentTables.fields[i];
+            }
+        }
+        return null;
+    }
+}
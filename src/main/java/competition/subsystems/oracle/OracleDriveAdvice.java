@@ -4,4 +4,9 @@ import xbot.common.trajectory.XbotSwervePoint;
 
 import java.util.List;
 
-public record OracleDriveAdvice (int instructionNumber, List<XbotSwervePoint> path) {}
\ No newline at end of file
+/**
+ * @param instructionNumber The oracle instruction this advice was planned for
+ * @param path The route to drive
+ * @param routeSource Which planner produced the route
+ */
+public record OracleDriveAdvice (int instructionNumber, List<XbotSwervePoint> path, String routeSource) {}
@@ -0,0 +1,84 @@
+package competition.subsystems.oracle;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Plans oracle drive routes on a background thread, so planning time never lands on the robot loop.
+ * The loop posts requests and polls for finished advice; both hand-offs are single atomic swaps, so neither
+ * side ever waits on the other. Requests that pile up while a plan is in progress are coalesced: only the newest
+ * one gets planned.
+ */
+public class OraclePlanningWorker {
+
+    private static final Logger log = LogManager.getLogger(OraclePlanningWorker.class);
+
+    /**
+     * Everything needed to plan a route, captured on the robot loop so the worker never reads live robot state.
+     * @param instructionNumber Instruction number the resulting advice will carry
+     * @param startingPose Where the robot was when the request was made
+     * @param routeGoal Where the route should lead
+     * @param finalWaypoint Optional extra point appended after the route (e.g. the final scoring approach), or null
+     */
+    public record PlanningRequest(int instructionNumber, Pose2d startingPose, Pose2d routeGoal, Pose2d finalWaypoint) {}
+
+    private final Function<PlanningRequest, OracleDriveAdvice> planner;
+    private final Executor executor;
+
+    private final AtomicReference<PlanningRequest> pendingRequest = new AtomicReference<>();
+    private final AtomicReference<OracleDriveAdvice> completedAdvice = new AtomicReference<>();
+    private final AtomicBoolean planning = new AtomicBoolean(false);
+
+    public OraclePlanningWorker(Function<PlanningRequest, OracleDriveAdvice> planner, Executor executor) {
+        this.planner = planner;
+        this.executor = executor;
+    }
+
+    /**
+     * Asks for a new plan. Replaces any request that hasn't been started yet.
+     */
+    public void submit(PlanningRequest request) {
+        pendingRequest.set(request);
+        if (planning.compareAndSet(false, true)) {
+            executor.execute(this::planPendingRequests);
+        }
+    }
+
+    private void planPendingRequests() {
+        while (true) {
+            PlanningRequest request = pendingRequest.getAndSet(null);
+            if (request == null) {
+                planning.set(false);
+                // A request may have slipped in after we looked but before we stood down.
+                if (pendingRequest.get() != null && planning.compareAndSet(false, true)) {
+                    continue;
+                }
+                return;
+            }
+
+            try {
+                completedAdvice.set(planner.apply(request));
+            } catch (RuntimeException e) {
+                log.error("Failed to plan oracle route for instruction " + request.instructionNumber(), e);
+            }
+        }
+    }
+
+    /**
+     * Takes the most recently finished advice, if any has finished since the last call.
+     */
+    public Optional<OracleDriveAdvice> pollCompletedAdvice() {
+        return Optional.ofNullable(completedAdvice.getAndSet(null));
+    }
+
+    public boolean isPlanning() {
+        return planning.get();
+    }
+}
@@ -1,14 +1,18 @@
 package competition.subsystems.oracle;
 
+import competition.injection.BackgroundExecutor;
+import competition.profiling.LoopTimeProfiler;
 import competition.subsystems.coral_scorer.CoralScorerSubsystem;
 import competition.subsystems.oracle.contracts.CoralCollectionInfoSource;
 import competition.subsystems.pose.Landmarks;
 import competition.subsystems.pose.PoseSubsystem;
 import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.units.measure.Distance;
 import edu.wpi.first.wpilibj.DriverStation;
 import xbot.common.command.BaseSubsystem;
 import xbot.common.logging.RobotAssertionManager;
+import xbot.common.properties.BooleanProperty;
 import xbot.common.properties.DoubleProperty;
 import xbot.common.properties.PropertyFactory;
 import xbot.common.trajectory.XbotSwervePoint;
@@ -17,6 +21,7 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import static competition.subsystems.oracle.OracleSubsystem.PrimaryActivity.CollectCoral;
 import static competition.subsystems.oracle.OracleSubsystem.PrimaryActivity.ScoreCoral;
@@ -40,6 +45,7 @@ public class OracleSubsystem extends BaseSubsystem {
     final RobotAssertionManager assertionManager;
     final ReefCoordinateGenerator reefCoordinateGenerator;
     final ScoringQueue scoringQueue;
+    final FieldRoutePlanner routePlanner;
 
     final ReefRoutingCircle blueReefRoutingCircle;
     final ReefRoutingCircle redReefRoutingCircle;
@@ -67,20 +73,29 @@ public class OracleSubsystem extends BaseSubsystem {
 
     final DoubleProperty rangeToStartMovingSuperstructureMeters;
     final DoubleProperty rangeToActivateScorerMeters;
+    final BooleanProperty planRoutesInBackground;
+
+    final OraclePlanningWorker planningWorker;
+
+    final LoopTimeProfiler.Section periodicSection;
 
     @Inject
     public OracleSubsystem(PoseSubsystem pose, CoralCollectionInfoSource coralInfoSource,
-                           ScoringQueue scoringQueue, ReefCoordinateGenerator generator, PropertyFactory pf,
-                           RobotAssertionManager assertionManager) {
+                           ScoringQueue scoringQueue, ReefCoordinateGenerator generator, FieldRoutePlanner routePlanner,
+                           PropertyFactory pf, RobotAssertionManager assertionManager,
+                           LoopTimeProfiler profiler, @BackgroundExecutor Executor backgroundExecutor) {
         this.pose = pose;
         this.assertionManager = assertionManager;
         this.coralInfoSource = coralInfoSource;
         this.scoringQueue = scoringQueue;
         this.reefCoordinateGenerator = generator;
+        this.routePlanner = routePlanner;
+        this.periodicSection = profiler.getSection("OracleSubsystem.periodic");
         pf.setPrefix(this);
 
         rangeToStartMovingSuperstructureMeters = pf.createPersistentProperty("RangeToStartMovingSuperstructure-m", 1);
         rangeToActivateScorerMeters = pf.createPersistentProperty("RangeToActivateScorerMeters-m", 0.05);
+        planRoutesInBackground = pf.createPersistentProperty("PlanRoutesInBackground", true);
 
         blueReefRoutingCircle =
                 new ReefRoutingCircle(
@@ -95,37 +110,97 @@ public class OracleSubsystem extends BaseSubsystem {
 
         aKitLog.record("BlueCollisionCircle", blueReefRoutingCircle.visualizeInnerCollisionCircleAsTrajectory());
         aKitLog.record("BlueRoutingCircle", blueReefRoutingCircle.visualizeOuterRoutingCircleAsTrajectory());
+
+        planningWorker = new OraclePlanningWorker(this::planDriveRoute, backgroundExecutor);
+    }
+
+    /**
+     * @return The routing circle around whichever alliance's reef is closer to the point
+     */
+    public ReefRoutingCircle getClosestReefRoutingCircle(Translation2d point) {
+        return blueReefRoutingCircle.getCenter().getDistance(point)
+                <= redReefRoutingCircle.getCenter().getDistance(point)
+                ? blueReefRoutingCircle
+                : redReefRoutingCircle;
     }
 
     public List<XbotSwervePoint> getRecommendedScoringTrajectory() {
+        return planDriveRoute(createScoringPlanningRequest(instructionNumber)).path();
+    }
 
+    public List<XbotSwervePoint> getRecommendedCoralPickupTrajectory() {
+        return planDriveRoute(createCoralPickupPlanningRequest(instructionNumber)).path();
+    }
+
+    private OraclePlanningWorker.PlanningRequest createScoringPlanningRequest(int instructionNumber) {
         ScoringTask activeScoringTask = scoringQueue.getActiveTask();
 
-        var penultimateWaypoint = reefCoordinateGenerator.getPoseRelativeToReefFaceAndBranch(
+        var penultimateWaypoint = reefCoordinateGenerator.getTypicalApproachLocationForFaceBranch(
                 DriverStation.Alliance.Blue,
                 activeScoringTask.reefFace().get(),
-                activeScoringTask.branch().get(),
-                Meters.of(1),
-                Meters.of(0));
+                activeScoringTask.branch().get());
         var finalWaypoint = reefCoordinateGenerator.getTypicalScoringLocationForFaceBranchLevel(
                 DriverStation.Alliance.Blue,
                 activeScoringTask.reefFace().get(),
                 activeScoringTask.branch().get(),
                 activeScoringTask.coralLevel().get());
 
-        var route = blueReefRoutingCircle.generateSwervePoints(pose.getCurrentPose2d(), penultimateWaypoint);
-        route.add(new XbotSwervePoint(finalWaypoint, 10));
+        return new OraclePlanningWorker.PlanningRequest(
+                instructionNumber, pose.getPoseSnapshot().pose(), penultimateWaypoint, finalWaypoint);
+    }
 
-        aKitLog.record("RecommendedRoute", XbotSwervePoint.generateTrajectory(route));
+    private OraclePlanningWorker.PlanningRequest createCoralPickupPlanningRequest(int instructionNumber) {
+        var currentPose = pose.getPoseSnapshot().pose();
+        return new OraclePlanningWorker.PlanningRequest(
+                instructionNumber, currentPose, getCoralStation(currentPose), null);
+    }
 
-        return route;
+    /**
+     * Turns a planning request into advice. May run on the planning worker's thread, so it only uses what's
+     * in the request plus immutable planning data, and doesn't log. Which planner made the route travels with
+     * the advice, so it's logged alongside the route it belongs to.
+     * Uses the precomputed field routes when we have one for this goal, and falls back to just going around
+     * the blue reef otherwise (e.g. while the route fields are still being computed at startup).
+     */
+    private OracleDriveAdvice planDriveRoute(OraclePlanningWorker.PlanningRequest request) {
+        var start = request.startingPose();
+        var goal = request.routeGoal();
+        var plannedRoute = routePlanner.getRoute(start, goal);
+        String routeSource = plannedRoute.isPresent() ? "FieldRoutePlanner" : "ReefRoutingCircle";
+        var route = plannedRoute.orElseGet(() -> blueReefRoutingCircle.generateSwervePoints(start, goal));
+        if (request.finalWaypoint() != null) {
+            route.add(new XbotSwervePoint(request.finalWaypoint(), 10));
+        }
+        return new OracleDriveAdvice(request.instructionNumber(), route, routeSource);
     }
 
-    public List<XbotSwervePoint> getRecommendedCoralPickupTrajectory() {
-        var goalCoralStation = getCoralStation(pose.getCurrentPose2d());
-        var route = blueReefRoutingCircle.generateSwervePoints(pose.getCurrentPose2d(), goalCoralStation);
-        aKitLog.record("RecommendedRoute", XbotSwervePoint.generateTrajectory(route));
-        return route;
+    /**
+     * Asks for a new drive route. In the background, the robot keeps following its current advice until the new
+     * route is ready; otherwise the route is planned (and adopted) right away.
+     */
+    private void requestDriveAdvice(OraclePlanningWorker.PlanningRequest request) {
+        // The goal is known up front, so progress towards it can be judged before the route comes back.
+        goalPose = request.finalWaypoint() != null ? request.finalWaypoint() : request.routeGoal();
+
+        if (planRoutesInBackground.get()) {
+            planningWorker.submit(request);
+        } else {
+            adoptDriveAdvice(planDriveRoute(request));
+        }
+    }
+
+    private void adoptCompletedDriveAdvice() {
+        planningWorker.pollCompletedAdvice().ifPresent(this::adoptDriveAdvice);
+    }
+
+    private void adoptDriveAdvice(OracleDriveAdvice advice) {
+        if (currentDriveAdvice != null && advice.instructionNumber() < currentDriveAdvice.instructionNumber()) {
+            // An older plan finished after a newer one; keep the newer one.
+            return;
+        }
+        setCurrentDriveAdvice(advice);
+        aKitLog.record("RouteSource", advice.routeSource());
+        aKitLog.record("RecommendedRoute", XbotSwervePoint.generateTrajectory(advice.path()));
     }
 
     private Pose2d getCoralStation(Pose2d currentPose) {
@@ -138,6 +213,11 @@ public class OracleSubsystem extends BaseSubsystem {
             case ONLY_RIGHT_STATION -> rightStation;
             case NO_STATION -> currentPose;
             case CLOSEST_STATION -> {
+                // If the scoring queue planned its order around a particular station, go there.
+                var plannedStation = scoringQueue.getPlannedCoralStationBeforeActiveTask();
+                if (plannedStation.isPresent()) {
+                    yield PoseSubsystem.convertBlueToRedIfNeeded(plannedStation.get());
+                }
                 double leftStationDistance = currentPose.getTranslation().getDistance(leftStation.getTranslation());
                 double rightStationDistance = currentPose.getTranslation().getDistance(rightStation.getTranslation());
                 yield leftStationDistance < rightStationDistance ? leftStation : rightStation;
@@ -145,6 +225,13 @@ public class OracleSubsystem extends BaseSubsystem {
         };
     }
 
+    /**
+     * Planning on the main loop makes runs repeatable, since advice no longer depends on when the worker finishes.
+     */
+    public void setPlanRoutesInBackground(boolean planInBackground) {
+        planRoutesInBackground.set(planInBackground);
+    }
+
     public void setCoralStationMode(CoralStationMode mode) {
         if (mode == null) {
             // TODO: Add in assertion manager message later
@@ -192,6 +279,8 @@ public class OracleSubsystem extends BaseSubsystem {
             return;
         }
 
+        double distanceToGoal = pose.getPoseSnapshot().distanceTo(goalPose);
+
         switch (currentScoringSubstage) {
             case Travel:
                 if (isScoringSubstageInitilizationRequired()) {
@@ -200,7 +289,7 @@ public class OracleSubsystem extends BaseSubsystem {
                 }
 
                 // Check if we're close enough to the goal to start scoring
-                if (pose.getCurrentPose2d().getTranslation().getDistance(goalPose.getTranslation()) < rangeToStartMovingSuperstructureMeters.get()) {
+                if (distanceToGoal < rangeToStartMovingSuperstructureMeters.get()) {
                     setNextScoringSubstage(ScoringSubstage.PrepareSuperstructure);
                 }
                 break;
@@ -211,7 +300,7 @@ public class OracleSubsystem extends BaseSubsystem {
                 }
 
                 // Check if we're at the scoring position
-                if (pose.getCurrentPose2d().getTranslation().getDistance(goalPose.getTranslation()) < rangeToActivateScorerMeters.get()) {
+                if (distanceToGoal < rangeToActivateScorerMeters.get()) {
                     setNextScoringSubstage(ScoringSubstage.ReleaseCoral);
                 }
                 break;
@@ -280,15 +369,23 @@ public class OracleSubsystem extends BaseSubsystem {
 
     @Override
     public void periodic() {
+        periodicSection.start();
+        try {
+            adoptCompletedDriveAdvice();
+            evaluatePrimaryActivity();
+        } finally {
+            periodicSection.stop();
+        }
+    }
+
+    private void evaluatePrimaryActivity() {
         // TODO: refactor the common elements out of collecting and scoring
         switch (currentActivity) {
             case CollectCoral:
                 // Check for first run or reevaluation
                 if (isPrimaryActivityInitilizationRequired() || reevaluationRequested) {
                     // Command the drive
-                    var newDriveAdvice = new OracleDriveAdvice(getNextInstructionNumber(), getRecommendedCoralPickupTrajectory());
-                    goalPose = newDriveAdvice.path().get(newDriveAdvice.path().size() - 1).keyPose;
-                    setCurrentDriveAdvice(newDriveAdvice);
+                    requestDriveAdvice(createCoralPickupPlanningRequest(getNextInstructionNumber()));
                     // Command the superstructure
                     var newSuperstructureAdvice = new OracleSuperstructureAdvice(
                             getNextInstructionNumber(), Landmarks.CoralLevel.COLLECTING, CoralScorerSubsystem.CoralScorerState.INTAKING);
@@ -303,6 +400,10 @@ public class OracleSubsystem extends BaseSubsystem {
                 }
                 break;
             case ScoreCoral:
+                if (isPrimaryActivityInitilizationRequired() || reevaluationRequested) {
+                    // Don't head for a slot that's been filled since it was queued.
+                    scoringQueue.removeFilledTasks();
+                }
                 // Need to check if we have an active scoring task. If not, we stall here until something happens.
                 if (scoringQueue.getActiveTask() == null) {
                     if (scoringQueue.getQueueSize() == 0) {
@@ -326,9 +427,7 @@ public class OracleSubsystem extends BaseSubsystem {
                 if (isPrimaryActivityInitilizationRequired() || reevaluationRequested) {
                     currentScoringSubstage = ScoringSubstage.Travel;
                     // Command the drive
-                    var newDriveAdvice = new OracleDriveAdvice(getNextInstructionNumber(), getRecommendedScoringTrajectory());
-                    setCurrentDriveAdvice(newDriveAdvice);
-                    goalPose = newDriveAdvice.path().get(newDriveAdvice.path().size() - 1).keyPose;
+                    requestDriveAdvice(createScoringPlanningRequest(getNextInstructionNumber()));
 
                     setPrimaryActivityInitializationFinished();
                     setNextScoringSubstage(ScoringSubstage.Travel);
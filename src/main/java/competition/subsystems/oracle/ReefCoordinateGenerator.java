@@ -9,10 +9,18 @@ import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.units.measure.Angle;
 import edu.wpi.first.units.measure.Distance;
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
 
 import static edu.wpi.first.units.Units.Degrees;
 import static edu.wpi.first.units.Units.Meter;
@@ -22,15 +30,40 @@ import static edu.wpi.first.units.Units.Radians;
 @Singleton
 public class ReefCoordinateGenerator {
 
+    private static final Logger log = LogManager.getLogger(ReefCoordinateGenerator.class);
+
+    public static final String handTunedOffsetsFileName = "reef_scoring_offsets.json";
+    public static final Distance typicalApproachDistanceFromFace = Meters.of(1);
+
+    private static final int allianceCount = DriverStation.Alliance.values().length;
+    private static final int faceCount = Landmarks.ReefFace.values().length;
+    private static final int branchCount = Landmarks.Branch.values().length;
+    private static final int levelCount = Landmarks.CoralLevel.values().length;
+
     private final HashMap<Landmarks.ReefFace, Angle> blueReefAngleMapping;
     private final ElectricalContract contract;
-    private final HashMap<String, Translation2d> handTunedOffsets;
+    private final File handTunedOffsetsFile;
+
+    /**
+     * Every typical scoring and approach pose, for every alliance/face/branch/level, computed up front.
+     * Rebuilt (and swapped in whole) whenever the hand-tuned offsets are reloaded.
+     */
+    private static final class ScoringPoseTable {
+        final Pose2d[] scoringPoses = new Pose2d[allianceCount * faceCount * branchCount * levelCount];
+        final Pose2d[] approachPoses = new Pose2d[allianceCount * faceCount * branchCount];
+    }
+
+    private volatile ScoringPoseTable scoringPoseTable;
 
     @Inject
     public ReefCoordinateGenerator(ElectricalContract contract) {
+        this(contract, new File(Filesystem.getDeployDirectory(), handTunedOffsetsFileName));
+    }
+
+    ReefCoordinateGenerator(ElectricalContract contract, File handTunedOffsetsFile) {
         blueReefAngleMapping = new HashMap<>();
-        handTunedOffsets = new HashMap<>();
         this.contract = contract;
+        this.handTunedOffsetsFile = handTunedOffsetsFile;
 
 
         blueReefAngleMapping.put(Landmarks.ReefFace.FAR, Degrees.of(60 * 0));
@@ -39,6 +72,87 @@ public class ReefCoordinateGenerator {
         blueReefAngleMapping.put(Landmarks.ReefFace.CLOSE, Degrees.of(60 * 3));
         blueReefAngleMapping.put(Landmarks.ReefFace.CLOSE_RIGHT, Degrees.of(60 * 4));
         blueReefAngleMapping.put(Landmarks.ReefFace.FAR_RIGHT, Degrees.of(60 * 5));
+
+        reloadHandTunedOffsets();
+    }
+
+    private static int scoringIndex(DriverStation.Alliance alliance, Landmarks.ReefFace reefFace,
+                                    Landmarks.Branch branch, Landmarks.CoralLevel level) {
+        return approachIndex(alliance, reefFace, branch) * levelCount + level.ordinal();
+    }
+
+    private static int approachIndex(DriverStation.Alliance alliance, Landmarks.ReefFace reefFace, Landmarks.Branch branch) {
+        return (alliance.ordinal() * faceCount + reefFace.ordinal()) * branchCount + branch.ordinal();
+    }
+
+    /**
+     * Re-reads the hand-tuned offsets file and rebuilds every scoring pose. Lookups made while this runs
+     * keep using the old poses until the new ones are ready.
+     */
+    public void reloadHandTunedOffsets() {
+        scoringPoseTable = buildScoringPoseTable(readHandTunedOffsets());
+    }
+
+    /**
+     * Same as {@link #reloadHandTunedOffsets()}, but does the file reading and math on another thread so it can
+     * be triggered while the robot is running.
+     */
+    public CompletableFuture<Void> reloadHandTunedOffsetsAsync() {
+        return CompletableFuture.runAsync(this::reloadHandTunedOffsets);
+    }
+
+    /**
+     * Reads offsets from a file shaped like:
+     * <pre>
+     * { "offsets": [ { "alliance": "Blue", "face": "CLOSE", "branch": "A", "level": "FOUR", "x": 0.02, "y": -0.01 } ] }
+     * </pre>
+     * where x is meters further from the reef face and y is meters along it.
+     */
+    private Translation2d[] readHandTunedOffsets() {
+        var offsets = new Translation2d[allianceCount * faceCount * branchCount * levelCount];
+        if (!handTunedOffsetsFile.exists()) {
+            log.warn("No hand-tuned reef offsets found at " + handTunedOffsetsFile + "; using none.");
+            return offsets;
+        }
+
+        try {
+            JsonNode root = new ObjectMapper().readTree(handTunedOffsetsFile);
+            for (JsonNode entry : root.path("offsets")) {
+                var alliance = DriverStation.Alliance.valueOf(entry.get("alliance").asText());
+                var face = Landmarks.ReefFace.valueOf(entry.get("face").asText());
+                var branch = Landmarks.Branch.valueOf(entry.get("branch").asText());
+                var level = Landmarks.CoralLevel.valueOf(entry.get("level").asText());
+                offsets[scoringIndex(alliance, face, branch, level)] =
+                        new Translation2d(entry.path("x").asDouble(0), entry.path("y").asDouble(0));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not read hand-tuned reef offsets from " + handTunedOffsetsFile + "; using none.", e);
+            return new Translation2d[offsets.length];
+        }
+        return offsets;
+    }
+
+    private ScoringPoseTable buildScoringPoseTable(Translation2d[] handTunedOffsets) {
+        var table = new ScoringPoseTable();
+        Distance bumperDistance = contract.getDistanceFromCenterToOuterBumperX();
+        for (DriverStation.Alliance alliance : DriverStation.Alliance.values()) {
+            for (Landmarks.ReefFace reefFace : Landmarks.ReefFace.values()) {
+                for (Landmarks.Branch branch : Landmarks.Branch.values()) {
+                    table.approachPoses[approachIndex(alliance, reefFace, branch)] = getPoseRelativeToReefFaceAndBranch(
+                            alliance, reefFace, branch, typicalApproachDistanceFromFace, Meters.zero());
+
+                    for (Landmarks.CoralLevel level : Landmarks.CoralLevel.values()) {
+                        int index = scoringIndex(alliance, reefFace, branch, level);
+                        Translation2d offset = handTunedOffsets[index] != null ? handTunedOffsets[index] : Translation2d.kZero;
+                        table.scoringPoses[index] = getPoseRelativeToReefFaceAndBranch(
+                                alliance, reefFace, branch,
+                                bumperDistance.plus(Meters.of(offset.getX())),
+                                Meters.of(offset.getY()));
+                    }
+                }
+            }
+        }
+        return table;
     }
 
     private Angle getReefRayDirection(DriverStation.Alliance alliance, Landmarks.ReefFace reefFace) {
@@ -89,21 +203,26 @@ public class ReefCoordinateGenerator {
         return getPoseRelativeToReefFace(alliance, reefFace, distanceFromFaceX, distanceFromBranchY.plus(horizontalOffset));
     }
 
+    /**
+     * Where the robot should be to score on a branch: bumpers against the reef face, plus any hand-tuned offset.
+     * Precomputed, so this is just an array read.
+     */
     public Pose2d getTypicalScoringLocationForFaceBranchLevel(
             DriverStation.Alliance alliance,
             Landmarks.ReefFace reefFace,
             Landmarks.Branch branch,
             Landmarks.CoralLevel level) {
+        return scoringPoseTable.scoringPoses[scoringIndex(alliance, reefFace, branch, level)];
+    }
 
-        String key = alliance.toString() + reefFace.toString() + branch.toString() + level.toString();
-        Translation2d offset = new Translation2d(0, 0);
-        if (handTunedOffsets.containsKey(key)) {
-            offset = handTunedOffsets.get(key);
-        }
-
-        Distance totalX = contract.getDistanceFromCenterToOuterBumperX().plus(Meters.of(offset.getX()));
-        Distance totalY = Meters.zero().plus(Meters.of(offset.getY()));
-
-        return getPoseRelativeToReefFaceAndBranch(alliance, reefFace, branch, totalX, totalY);
+    /**
+     * A point {@link #typicalApproachDistanceFromFace} out from a branch, lined up with it, which is a good place
+     * to be just before the final approach. Precomputed, so this is just an array read.
+     */
+    public Pose2d getTypicalApproachLocationForFaceBranch(
+            DriverStation.Alliance alliance,
+            Landmarks.ReefFace reefFace,
+            Landmarks.Branch branch) {
+        return scoringPoseTable.approachPoses[approachIndex(alliance, reefFace, branch)];
     }
 }
@@ -0,0 +1,131 @@
+package competition.subsystems.oracle;
+
+import competition.subsystems.pose.Landmarks;
+import xbot.common.advantage.AKitLogger;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Optional;
+
+/**
+ * Which coral slots on our reef are filled, and which faces still have algae.
+ * Every coral slot (6 faces x 2 branches x 4 levels) is one bit of a long, so questions like "what's the nearest open
+ * level on this branch?" are a couple of bit operations. The whole state is published as two integers.
+ * Meant to be used from the main robot loop.
+ */
+@Singleton
+public class ReefOccupancy {
+
+    static final int levelsPerBranch = 4;
+    static final int slotCount = Landmarks.ReefFace.values().length * Landmarks.Branch.values().length * levelsPerBranch;
+
+    private static final int allFacesMask = (1 << Landmarks.ReefFace.values().length) - 1;
+
+    final AKitLogger aKitLog;
+
+    private long coralBits = 0;
+    // A set bit means the face still has its algae.
+    private int algaeBits = allFacesMask;
+
+    @Inject
+    public ReefOccupancy() {
+        aKitLog = new AKitLogger("ReefOccupancy/");
+        publish();
+    }
+
+    /**
+     * @return Bit index of a slot; L1 through L4 of a branch are consecutive bits
+     */
+    static int slotIndex(Landmarks.ReefFace face, Landmarks.Branch branch, Landmarks.CoralLevel level) {
+        if (level == Landmarks.CoralLevel.COLLECTING) {
+            throw new IllegalArgumentException("COLLECTING isn't a scoring level");
+        }
+        return (face.ordinal() * Landmarks.Branch.values().length + branch.ordinal()) * levelsPerBranch
+                + level.ordinal() - Landmarks.CoralLevel.ONE.ordinal();
+    }
+
+    public boolean isCoralScored(Landmarks.ReefFace face, Landmarks.Branch branch, Landmarks.CoralLevel level) {
+        return (coralBits & (1L << slotIndex(face, branch, level))) != 0;
+    }
+
+    public boolean isCoralScored(ScoringTask task) {
+        return task.gameAction() == GameAction.ScoreCoral && ScoringQueue.isTaskWellFormed(task)
+                && isCoralScored(task.reefFace().get(), task.branch().get(), task.coralLevel().get());
+    }
+
+    public void markCoralScored(Landmarks.ReefFace face, Landmarks.Branch branch, Landmarks.CoralLevel level) {
+        setCoralBits(coralBits | (1L << slotIndex(face, branch, level)));
+    }
+
+    public void toggleCoral(Landmarks.ReefFace face, Landmarks.Branch branch, Landmarks.CoralLevel level) {
+        setCoralBits(coralBits ^ (1L << slotIndex(face, branch, level)));
+    }
+
+    public boolean isAlgaePresent(Landmarks.ReefFace face) {
+        return (algaeBits & (1 << face.ordinal())) != 0;
+    }
+
+    public void markAlgaeRemoved(Landmarks.ReefFace face) {
+        setAlgaeBits(algaeBits & ~(1 << face.ordinal()));
+    }
+
+    public void toggleAlgae(Landmarks.ReefFace face) {
+        setAlgaeBits(algaeBits ^ (1 << face.ordinal()));
+    }
+
+    /**
+     * Back to the start-of-match reef: no coral, algae on every face.
+     */
+    public void reset() {
+        coralBits = 0;
+        algaeBits = allFacesMask;
+        publish();
+    }
+
+    /**
+     * Finds an open level on a branch, preferring the one asked for, then higher ones, then lower ones.
+     * @return The level, or empty if the whole branch is full
+     */
+    public Optional<Landmarks.CoralLevel> findOpenLevel(Landmarks.ReefFace face, Landmarks.Branch branch,
+                                                        Landmarks.CoralLevel preferredLevel) {
+        int branchStart = slotIndex(face, branch, Landmarks.CoralLevel.ONE);
+        int openLevels = (int) (~coralBits >>> branchStart) & ((1 << levelsPerBranch) - 1);
+        if (openLevels == 0) {
+            return Optional.empty();
+        }
+
+        int preferred = preferredLevel.ordinal() - Landmarks.CoralLevel.ONE.ordinal();
+        int openAtOrAbove = openLevels & (-1 << preferred);
+        int chosen = openAtOrAbove != 0
+                ? Integer.numberOfTrailingZeros(openAtOrAbove)
+                : 31 - Integer.numberOfLeadingZeros(openLevels);
+        return Optional.of(Landmarks.CoralLevel.values()[chosen + Landmarks.CoralLevel.ONE.ordinal()]);
+    }
+
+    public long getCoralBits() {
+        return coralBits;
+    }
+
+    public int getAlgaeBits() {
+        return algaeBits;
+    }
+
+    private void setCoralBits(long bits) {
+        if (bits != coralBits) {
+            coralBits = bits;
+            publish();
+        }
+    }
+
+    private void setAlgaeBits(int bits) {
+        if (bits != algaeBits) {
+            algaeBits = bits;
+            publish();
+        }
+    }
+
+    private void publish() {
+        aKitLog.record("CoralBits", coralBits);
+        aKitLog.record("AlgaeBits", algaeBits);
+    }
+}
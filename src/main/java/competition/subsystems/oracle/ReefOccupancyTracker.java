@@ -0,0 +1,94 @@
+package competition.subsystems.oracle;
+
+import competition.subsystems.algae_arm.AlgaeArmSubsystem;
+import competition.subsystems.coral_scorer.CoralScorerSubsystem;
+import competition.subsystems.elevator.ElevatorSubsystem;
+import competition.subsystems.pose.Landmarks;
+import competition.subsystems.pose.PoseSubsystem;
+import xbot.common.command.BaseSubsystem;
+import xbot.common.properties.DoubleProperty;
+import xbot.common.properties.PropertyFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Keeps {@link ReefOccupancy} in step with what the robot actually does, whether the oracle or the drivers are in
+ * charge. Nothing senses the reef itself, so the NeoTrellis can still correct either kind of mark.
+ *
+ * <p>Coral is marked when the scorer confirms a score: the slot is the closest branch of the closest face, at the
+ * level the elevator was sent to. Algae is marked removed once the algae arm has reached a reef algae position while
+ * the robot is up against a face.
+ */
+@Singleton
+public class ReefOccupancyTracker extends BaseSubsystem {
+
+    final CoralScorerSubsystem coralScorer;
+    final ElevatorSubsystem elevator;
+    final AlgaeArmSubsystem algaeArm;
+    final PoseSubsystem pose;
+    final ReefOccupancy reefOccupancy;
+
+    final DoubleProperty maxDistanceFromReefFaceMeters;
+
+    private boolean wasCoralConfidentlyScored = false;
+    private boolean wasRemovingReefAlgae = false;
+
+    @Inject
+    public ReefOccupancyTracker(CoralScorerSubsystem coralScorer, ElevatorSubsystem elevator,
+                                AlgaeArmSubsystem algaeArm, PoseSubsystem pose, ReefOccupancy reefOccupancy,
+                                PropertyFactory pf) {
+        this.coralScorer = coralScorer;
+        this.elevator = elevator;
+        this.algaeArm = algaeArm;
+        this.pose = pose;
+        this.reefOccupancy = reefOccupancy;
+        pf.setPrefix(this);
+
+        maxDistanceFromReefFaceMeters = pf.createPersistentProperty("MaxDistanceFromReefFace-m", 0.5);
+    }
+
+    private boolean isNextToReefFace() {
+        return pose.getPoseSnapshot().pose().getTranslation()
+                .getDistance(pose.getClosestReefFacePose().getTranslation()) <= maxDistanceFromReefFaceMeters.get();
+    }
+
+    private boolean isRemovingReefAlgae() {
+        var position = algaeArm.getTargetPosition();
+        return position.isPresent()
+                && (position.get() == AlgaeArmSubsystem.AlgaeArmPositions.ReefAlgaeLow
+                    || position.get() == AlgaeArmSubsystem.AlgaeArmPositions.ReefAlgaeHigh)
+                && algaeArm.isMaintainerAtGoal()
+                && isNextToReefFace();
+    }
+
+    private void recordCoralScored() {
+        var level = elevator.getTargetCoralLevel();
+        if (level.isEmpty() || level.get() == Landmarks.CoralLevel.COLLECTING || !isNextToReefFace()) {
+            log.info("Scored coral away from the reef; not marking a slot.");
+            return;
+        }
+        var face = pose.getClosestReefFace();
+        var branch = pose.getClosestBranch(face);
+        log.info("Scored coral on {} {} {}", face, branch, level.get());
+        reefOccupancy.markCoralScored(face, branch, level.get());
+    }
+
+    @Override
+    public void periodic() {
+        boolean coralConfidentlyScored = coralScorer.confidentlyHasScoredCoral();
+        if (coralConfidentlyScored && !wasCoralConfidentlyScored) {
+            recordCoralScored();
+        }
+        wasCoralConfidentlyScored = coralConfidentlyScored;
+
+        boolean removingReefAlgae = isRemovingReefAlgae();
+        if (removingReefAlgae && !wasRemovingReefAlgae) {
+            var face = pose.getClosestReefFace();
+            log.info("Removed algae from {}", face);
+            reefOccupancy.markAlgaeRemoved(face);
+        }
+        wasRemovingReefAlgae = removingReefAlgae;
+        aKitLog.record("RemovingReefAlgae", removingReefAlgae);
+    }
+}
@@ -4,12 +4,10 @@ import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.trajectory.Trajectory;
-import edu.wpi.first.wpilibj.MockPowerDistributionPanel;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import xbot.common.trajectory.XbotSwervePoint;
 
-import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -18,6 +16,11 @@ public class ReefRoutingCircle {
     private final double radius;
     private final ReefCollisionCircle collisionCircle;
     private final double innerCollisionCircleRadius;
+    // Largest angle one straight step along the arc can cover while its chord keeps at least half the gap between
+    // the routing and collision circles.
+    private final double maxChordAngle;
+
+    private static final double pointTolerance = 1e-6;
 
     private static Logger log = LogManager.getLogger(ReefRoutingCircle.class);
 
@@ -30,6 +33,10 @@ public class ReefRoutingCircle {
         this.radius = routingRadius;
         this.innerCollisionCircleRadius = collisionRadius;
         this.collisionCircle = new ReefCollisionCircle(center, collisionRadius);
+        double minimumChordRadius = (routingRadius + collisionRadius) / 2;
+        this.maxChordAngle = minimumChordRadius < routingRadius
+                ? 2 * Math.acos(minimumChordRadius / routingRadius)
+                : Math.PI / 8;
     }
 
     public double getInnerCollisionCircleRadius() {
@@ -45,7 +52,10 @@ public class ReefRoutingCircle {
     }
 
     /**
-     * Generates a list of swerve points from Point A -> B while avoiding the big reef
+     * Generates a list of swerve points from Point A -> B while avoiding the big reef.
+     * The route is the shortest way around the routing circle: a tangent line out to the circle, an arc along it,
+     * and a tangent line (or a straight radial line, if the destination is inside the circle) in to the destination.
+     * The arc is covered with as few waypoints as possible while keeping every chord outside the collision circle.
      * @param startingPose you are at
      * @param endingPose you want to go to
      * @return a list of swerve points to destination
@@ -62,105 +72,95 @@ public class ReefRoutingCircle {
             return swervePoints;
         }
 
-        Translation2d tangentPoint = null;
-        if (center.getDistance(start) < radius) {
-            // If we're inside the routing circle and there is a collision, we need to first back out to the routing circle.
-            Translation2d direction = start.minus(center);
-            tangentPoint = center.plus(direction.times(radius / direction.getNorm()));
-            swervePoints.add(new XbotSwervePoint(new Pose2d(tangentPoint, startingPose.getRotation()), 10));
-        } else {
-            // otherwise, we're outside the routing circle, and we need to first move to the tangent point.
-            tangentPoint = findClosestTangentPoint(start, end);
-            swervePoints.add(new XbotSwervePoint(new Pose2d(tangentPoint, endingPose.getRotation()), 0));
+        Route route = solveRoute(start, end);
+
+        if (route.startInside) {
+            // Back straight out to the routing circle before going around.
+            swervePoints.add(new XbotSwervePoint(new Pose2d(pointOnCircle(route.exitAngle), startingPose.getRotation()), 10));
+        } else if (route.exitTangentLength > pointTolerance) {
+            swervePoints.add(new XbotSwervePoint(new Pose2d(pointOnCircle(route.exitAngle), endingPose.getRotation()), 0));
         }
 
-        int escape = 0;
-        while (collisionCircle.doesLineIntersect(tangentPoint, end)) {
-            escape++;
-            tangentPoint = moveAlongCircumference(tangentPoint, end, 0.25);
-            swervePoints.add(new XbotSwervePoint(new Pose2d(tangentPoint, endingPose.getRotation()), 10));
-            if (escape > 100) {
-                log.warn("Infinite loop detected in generateSwervePoints, breaking out!");
+        // Split the arc into the fewest equal steps whose chords stay clear of the collision circle.
+        int arcSteps = (int) Math.ceil(Math.abs(route.arcAngle) / maxChordAngle - 1e-9);
+        for (int i = 1; i <= arcSteps; i++) {
+            double angle = route.exitAngle + route.arcAngle * i / arcSteps;
+            Translation2d arcPoint = pointOnCircle(angle);
+            if (i == arcSteps && route.entryLength <= pointTolerance) {
+                // The destination is on the circle; the end point below covers it.
                 break;
             }
+            swervePoints.add(new XbotSwervePoint(new Pose2d(arcPoint, endingPose.getRotation()), 10));
         }
 
         swervePoints.add(new XbotSwervePoint(endingPose, 10));
         return swervePoints;
     }
 
-    // Note - the math in this class is AI generated and has not been fully verified.
-    // Some tests have been run, but it needs to be more hardened for robotics (e.g. protection against division by zero)
-    // TODO: additional protections
-    private Translation2d findClosestTangentPoint(Translation2d point, Translation2d endPoint) {
-        double cx = center.getX();
-        double cy = center.getY();
-        double r = radius;
-        double px = point.getX();
-        double py = point.getY();
-
-        // Distance from circle center to external point
-        double dx = px - cx;
-        double dy = py - cy;
-        double dSq = dx * dx + dy * dy;
-        double d = Math.sqrt(dSq);
-
-        // Check for cases like already on the circle or inside the circle
-        if ((d < 1e-12) || (d<r) || (Math.abs(d - r) < 1e-12)) {
-            return point;
+    /**
+     * Gets the length of the path {@link #generateSwervePoints} would follow between two points,
+     * measured along the true arc rather than the chords.
+     */
+    public double getPathLength(Translation2d start, Translation2d end) {
+        if (!collisionCircle.doesLineIntersect(start, end)) {
+            return start.getDistance(end);
         }
-
-        // Otherwise, there are two tangents.
-        // 1. Calculate a = r^2 / d^2
-        double a = (r * r) / (dSq);
-
-        // 2. Point M = C + a*(P - C)
-        double mx = cx + a * dx;
-        double my = cy + a * dy;
-
-        // 3. Vector w = ( - (y1 - y0), x1 - x0 ) = perpendicular to CP
-        //    In our notation, w = ( -dy, dx )
-        double wx = -dy;
-        double wy = dx;
-
-        // 4. Distance from M to each tangent point = b = (r/d) * sqrt(d^2 - r^2)
-        double h = Math.sqrt(dSq - r * r);
-        double b = (r / d) * h;
-
-        // Length of w is d; normalize and scale by b
-        double wxScaled = wx * (b / d);
-        double wyScaled = wy * (b / d);
-
-        // 5. The two tangent points T1 and T2
-        double t1x = mx + wxScaled;
-        double t1y = my + wyScaled;
-        double t2x = mx - wxScaled;
-        double t2y = my - wyScaled;
-
-        Translation2d tangentPoint1 = new Translation2d(t1x, t1y);
-        Translation2d tangentPoint2 = new Translation2d(t2x, t2y);
-
-        // Choose the tangent point closest to the end point
-        double distanceToEnd1 = tangentPoint1.getDistance(endPoint);
-        double distanceToEnd2 = tangentPoint2.getDistance(endPoint);
-
-        return distanceToEnd1 < distanceToEnd2 ? tangentPoint1 : tangentPoint2;
+        Route route = solveRoute(start, end);
+        return route.exitTangentLength + Math.abs(route.arcAngle) * radius + route.entryLength;
     }
 
-    private Translation2d moveAlongCircumference(Translation2d currentPoint, Translation2d targetPoint, double distance) {
-        double angleToTarget = Math.atan2(targetPoint.getY() - center.getY(), targetPoint.getX() - center.getX());
-        double angleCurrent = Math.atan2(currentPoint.getY() - center.getY(), currentPoint.getX() - center.getX());
-        double angleStep = distance / radius;
+    private record Route(boolean startInside, double exitAngle, double exitTangentLength,
+                         double arcAngle, double entryLength) {
+    }
 
-        double angleDifference = angleToTarget - angleCurrent;
-        if (angleDifference > Math.PI) {
-            angleDifference -= 2 * Math.PI;
-        } else if (angleDifference < -Math.PI) {
-            angleDifference += 2 * Math.PI;
+    private Route solveRoute(Translation2d start, Translation2d end) {
+        Translation2d startOffset = start.minus(center);
+        Translation2d endOffset = end.minus(center);
+        double startDistance = startOffset.getNorm();
+        double endDistance = endOffset.getNorm();
+
+        double endAngle = endDistance > pointTolerance
+                ? Math.atan2(endOffset.getY(), endOffset.getX())
+                : 0;
+        // Sitting right on the center gives no preferred direction; head out towards the destination.
+        double startAngle = startDistance > pointTolerance
+                ? Math.atan2(startOffset.getY(), startOffset.getX())
+                : endAngle;
+
+        // From a point outside the circle, the two tangent points sit +/- acos(r/d) from the point's own angle.
+        // From inside (or on) the circle, we leave / arrive radially.
+        boolean startInside = startDistance < radius;
+        double startTangentSpread = startInside ? 0 : Math.acos(radius / startDistance);
+        double exitTangentLength = startInside
+                ? radius - startDistance
+                : Math.sqrt(startDistance * startDistance - radius * radius);
+
+        boolean endInside = endDistance < radius;
+        double endTangentSpread = endInside ? 0 : Math.acos(radius / endDistance);
+        double entryLength = endInside
+                ? radius - endDistance
+                : Math.sqrt(endDistance * endDistance - radius * radius);
+
+        // Going counter-clockwise, we leave on the leading tangent and arrive on the trailing one; clockwise is
+        // the mirror image. The tangent lengths are the same either way, so the shorter arc is the shorter path.
+        double counterClockwiseExit = startAngle + startTangentSpread;
+        double counterClockwiseArc = positiveAngle(endAngle - endTangentSpread - counterClockwiseExit);
+        double clockwiseExit = startAngle - startTangentSpread;
+        double clockwiseArc = positiveAngle(clockwiseExit - (endAngle + endTangentSpread));
+
+        if (counterClockwiseArc <= clockwiseArc) {
+            return new Route(startInside, counterClockwiseExit, exitTangentLength, counterClockwiseArc, entryLength);
         }
+        return new Route(startInside, clockwiseExit, exitTangentLength, -clockwiseArc, entryLength);
+    }
+
+    private Translation2d pointOnCircle(double angle) {
+        return new Translation2d(center.getX() + radius * Math.cos(angle), center.getY() + radius * Math.sin(angle));
+    }
 
-        double newAngle = angleCurrent + (angleDifference > 0 ? angleStep : -angleStep);
-        return new Translation2d(center.getX() + radius * Math.cos(newAngle), center.getY() + radius * Math.sin(newAngle));
+    private static double positiveAngle(double angle) {
+        double wrapped = angle % (2 * Math.PI);
+        return wrapped < 0 ? wrapped + 2 * Math.PI : wrapped;
     }
 
     private Trajectory visualizeCircleAsTrajectory(Translation2d center, double radius, int numberOfSteps) {
@@ -0,0 +1,366 @@
+package competition.subsystems.oracle;
+
+import competition.subsystems.pose.Landmarks;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import xbot.common.properties.DoubleProperty;
+import xbot.common.properties.PropertyFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Picks the order to score a set of coral tasks in, and which coral station section to visit before each one,
+ * to finish them all as quickly as we can.
+ * Each leg is estimated as the slower of driving it and moving the superstructure, since the two overlap. Small
+ * sets are solved exactly; larger ones start from a greedy order and are improved until the time budget runs out
+ * (or, in repeatable mode, for a fixed number of improvements).
+ * Everything is planned in blue alliance coordinates, like the rest of the oracle.
+ */
+@Singleton
+public class ScoringOrderPlanner {
+
+    // Above this many tasks, exact search gets too slow and we switch to the heuristic.
+    static final int maxExactTasks = 10;
+    // In repeatable mode the heuristic stops after this many improvements rather than at the time budget.
+    static final int repeatableImprovementBudget = 200;
+
+    private final ReefCoordinateGenerator reefCoordinateGenerator;
+    private final FieldRoutePlanner routePlanner;
+
+    final DoubleProperty averageTravelSpeedMetersPerSecond;
+    final DoubleProperty timeBudgetMilliseconds;
+    final DoubleProperty[] levelMoveTimeSeconds = new DoubleProperty[Landmarks.CoralLevel.values().length];
+
+    private final List<Pose2d> coralStationPoses = new ArrayList<>();
+    private boolean repeatable = false;
+
+    /**
+     * @param orderedTasks The tasks, in the order to do them
+     * @param coralStationBeforeEachTask For each task, the coral station section to visit first (blue alliance),
+     *                                   or null if the robot already has coral
+     * @param estimatedSeconds Estimated time to finish every task
+     * @param exact Whether the order is known to be the best one
+     */
+    public record Plan(List<ScoringTask> orderedTasks, List<Pose2d> coralStationBeforeEachTask,
+                       double estimatedSeconds, boolean exact) {}
+
+    @Inject
+    public ScoringOrderPlanner(PropertyFactory pf, ReefCoordinateGenerator reefCoordinateGenerator,
+                               FieldRoutePlanner routePlanner) {
+        this.reefCoordinateGenerator = reefCoordinateGenerator;
+        this.routePlanner = routePlanner;
+
+        pf.setPrefix("ScoringOrderPlanner");
+        averageTravelSpeedMetersPerSecond = pf.createPersistentProperty("AverageTravelSpeed-mps", 2.0);
+        timeBudgetMilliseconds = pf.createPersistentProperty("TimeBudget-ms", 2.0);
+        // Time to move the elevator and arm between collecting and each level.
+        double[] defaultMoveTimes = {0, 0.3, 0.5, 0.8, 1.2};
+        for (Landmarks.CoralLevel level : Landmarks.CoralLevel.values()) {
+            levelMoveTimeSeconds[level.ordinal()] = pf.createPersistentProperty(
+                    "MoveTime" + level.name() + "-s", defaultMoveTimes[level.ordinal()]);
+        }
+
+        for (Landmarks.CoralStation station : Landmarks.CoralStation.values()) {
+            for (Landmarks.CoralStationSection section : Landmarks.CoralStationSection.values()) {
+                coralStationPoses.add(Landmarks.getCoralStationSectionPose(station, section));
+            }
+        }
+    }
+
+    /**
+     * In repeatable mode, the heuristic search is bounded by a fixed number of improvements instead of by time, so
+     * the same tasks always get the same order no matter how busy the machine is (e.g. when replaying a recording).
+     */
+    public void setRepeatable(boolean repeatable) {
+        this.repeatable = repeatable;
+    }
+
+    public static boolean isPlannable(ScoringTask task) {
+        return task != null && task.gameAction() == GameAction.ScoreCoral && ScoringQueue.isTaskWellFormed(task);
+    }
+
+    /**
+     * Where the robot lines up before scoring a task (blue alliance).
+     */
+    public Pose2d getApproachPose(ScoringTask task) {
+        return reefCoordinateGenerator.getTypicalApproachLocationForFaceBranch(
+                DriverStation.Alliance.Blue, task.reefFace().get(), task.branch().get());
+    }
+
+    /**
+     * Finds a fast order for the tasks.
+     * @param startingPose Where the robot starts (blue alliance)
+     * @param startWithCoral Whether the robot already has coral for the first task
+     * @param tasks Coral tasks; see {@link #isPlannable}
+     */
+    public Plan plan(Pose2d startingPose, boolean startWithCoral, List<ScoringTask> tasks) {
+        var costs = new CostTable(startingPose, startWithCoral, tasks);
+        int[] order;
+        boolean exact = tasks.size() <= maxExactTasks;
+        if (exact) {
+            order = solveExactly(costs);
+        } else if (repeatable) {
+            order = solveHeuristically(costs, Long.MAX_VALUE, repeatableImprovementBudget);
+        } else {
+            order = solveHeuristically(costs, System.nanoTime() + (long) (timeBudgetMilliseconds.get() * 1_000_000),
+                    Integer.MAX_VALUE);
+        }
+        return costs.toPlan(order, exact);
+    }
+
+    /**
+     * Estimates how long the tasks take in the order given, choosing the best coral stations along the way.
+     */
+    public double estimateSeconds(Pose2d startingPose, boolean startWithCoral, List<ScoringTask> tasks) {
+        var costs = new CostTable(startingPose, startWithCoral, tasks);
+        int[] order = new int[tasks.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        return costs.totalCost(order);
+    }
+
+    private double travelSeconds(Pose2d from, Pose2d to) {
+        double distance = routePlanner.getCostToGo(from.getTranslation(), to)
+                .filter(Double::isFinite)
+                .orElseGet(() -> from.getTranslation().getDistance(to.getTranslation()));
+        return distance / averageTravelSpeedMetersPerSecond.get();
+    }
+
+    /**
+     * Every leg cost the solvers need, computed once per plan.
+     */
+    private class CostTable {
+        final List<ScoringTask> tasks;
+        final int taskCount;
+        // Cost of the first leg, from the starting pose to each task.
+        final double[] startCost;
+        final int[] startStation;
+        // Cost of going from task i to task j (via the best coral station), stored at [i * taskCount + j].
+        final double[] legCost;
+        final int[] legStation;
+
+        CostTable(Pose2d startingPose, boolean startWithCoral, List<ScoringTask> tasks) {
+            this.tasks = tasks;
+            this.taskCount = tasks.size();
+            int stationCount = coralStationPoses.size();
+
+            Pose2d[] approachPoses = new Pose2d[taskCount];
+            double[] moveTimes = new double[taskCount];
+            for (int i = 0; i < taskCount; i++) {
+                approachPoses[i] = getApproachPose(tasks.get(i));
+                moveTimes[i] = levelMoveTimeSeconds[tasks.get(i).coralLevel().get().ordinal()].get();
+            }
+
+            // Station -> task, raising the superstructure on the way. Task -> station, lowering it.
+            double[] stationToTask = new double[stationCount * taskCount];
+            double[] taskToStation = new double[taskCount * stationCount];
+            for (int s = 0; s < stationCount; s++) {
+                Pose2d station = coralStationPoses.get(s);
+                for (int t = 0; t < taskCount; t++) {
+                    stationToTask[s * taskCount + t] = Math.max(travelSeconds(station, approachPoses[t]), moveTimes[t]);
+                    taskToStation[t * stationCount + s] = Math.max(travelSeconds(approachPoses[t], station), moveTimes[t]);
+                }
+            }
+
+            startCost = new double[taskCount];
+            startStation = new int[taskCount];
+            for (int t = 0; t < taskCount; t++) {
+                if (startWithCoral) {
+                    startCost[t] = Math.max(travelSeconds(startingPose, approachPoses[t]), moveTimes[t]);
+                    startStation[t] = -1;
+                } else {
+                    startCost[t] = Double.POSITIVE_INFINITY;
+                    for (int s = 0; s < stationCount; s++) {
+                        double cost = travelSeconds(startingPose, coralStationPoses.get(s)) + stationToTask[s * taskCount + t];
+                        if (cost < startCost[t]) {
+                            startCost[t] = cost;
+                            startStation[t] = s;
+                        }
+                    }
+                }
+            }
+
+            legCost = new double[taskCount * taskCount];
+            legStation = new int[taskCount * taskCount];
+            for (int i = 0; i < taskCount; i++) {
+                for (int j = 0; j < taskCount; j++) {
+                    double best = Double.POSITIVE_INFINITY;
+                    for (int s = 0; s < stationCount; s++) {
+                        double cost = taskToStation[i * stationCount + s] + stationToTask[s * taskCount + j];
+                        if (cost < best) {
+                            best = cost;
+                            legStation[i * taskCount + j] = s;
+                        }
+                    }
+                    legCost[i * taskCount + j] = best;
+                }
+            }
+        }
+
+        double totalCost(int[] order) {
+            if (order.length == 0) {
+                return 0;
+            }
+            double total = startCost[order[0]];
+            for (int i = 1; i < order.length; i++) {
+                total += legCost[order[i - 1] * taskCount + order[i]];
+            }
+            return total;
+        }
+
+        Plan toPlan(int[] order, boolean exact) {
+            List<ScoringTask> orderedTasks = new ArrayList<>(order.length);
+            List<Pose2d> stations = new ArrayList<>(order.length);
+            for (int i = 0; i < order.length; i++) {
+                orderedTasks.add(tasks.get(order[i]));
+                int station = i == 0 ? startStation[order[0]] : legStation[order[i - 1] * taskCount + order[i]];
+                stations.add(station >= 0 ? coralStationPoses.get(station) : null);
+            }
+            return new Plan(orderedTasks, stations, totalCost(order), exact);
+        }
+    }
+
+    /**
+     * Held-Karp: the cheapest way to finish each subset of tasks ending at each task, built up from smaller subsets.
+     */
+    private int[] solveExactly(CostTable costs) {
+        int n = costs.taskCount;
+        if (n == 0) {
+            return new int[0];
+        }
+        int subsetCount = 1 << n;
+        double[] best = new double[subsetCount * n];
+        int[] previous = new int[subsetCount * n];
+        Arrays.fill(best, Double.POSITIVE_INFINITY);
+
+        for (int t = 0; t < n; t++) {
+            best[(1 << t) * n + t] = costs.startCost[t];
+            previous[(1 << t) * n + t] = -1;
+        }
+        for (int subset = 1; subset < subsetCount; subset++) {
+            for (int last = 0; last < n; last++) {
+                double soFar = best[subset * n + last];
+                if ((subset & (1 << last)) == 0 || soFar == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                for (int next = 0; next < n; next++) {
+                    if ((subset & (1 << next)) != 0) {
+                        continue;
+                    }
+                    int nextSubset = subset | (1 << next);
+                    double cost = soFar + costs.legCost[last * n + next];
+                    if (cost < best[nextSubset * n + next]) {
+                        best[nextSubset * n + next] = cost;
+                        previous[nextSubset * n + next] = last;
+                    }
+                }
+            }
+        }
+
+        int full = subsetCount - 1;
+        int last = 0;
+        for (int t = 1; t < n; t++) {
+            if (best[full * n + t] < best[full * n + last]) {
+                last = t;
+            }
+        }
+
+        int[] order = new int[n];
+        int subset = full;
+        for (int i = n - 1; i >= 0; i--) {
+            order[i] = last;
+            int before = previous[subset * n + last];
+            subset &= ~(1 << last);
+            last = before;
+        }
+        return order;
+    }
+
+    /**
+     * Greedy nearest-next-task order (or the given order, if that's better), then moves single tasks to other
+     * positions while that helps and there's time (and improvement budget) left.
+     */
+    private int[] solveHeuristically(CostTable costs, long deadlineNanos, int maxImprovements) {
+        int n = costs.taskCount;
+        int[] order = new int[n];
+        boolean[] used = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            int bestTask = -1;
+            double bestCost = Double.POSITIVE_INFINITY;
+            for (int t = 0; t < n; t++) {
+                if (used[t]) {
+                    continue;
+                }
+                double cost = i == 0 ? costs.startCost[t] : costs.legCost[order[i - 1] * n + t];
+                if (bestTask < 0 || cost < bestCost) {
+                    bestTask = t;
+                    bestCost = cost;
+                }
+            }
+            order[i] = bestTask;
+            used[bestTask] = true;
+        }
+
+        double bestTotal = costs.totalCost(order);
+        int[] candidate = new int[n];
+        // Never do worse than the order the tasks were given in.
+        for (int i = 0; i < n; i++) {
+            candidate[i] = i;
+        }
+        double givenTotal = costs.totalCost(candidate);
+        if (givenTotal < bestTotal) {
+            System.arraycopy(candidate, 0, order, 0, n);
+            bestTotal = givenTotal;
+        }
+
+        boolean improved = true;
+        int improvements = 0;
+        while (improved && improvements < maxImprovements && System.nanoTime() < deadlineNanos) {
+            improved = false;
+            for (int from = 0; from < n && !improved; from++) {
+                for (int to = 0; to < n && !improved; to++) {
+                    if (from == to) {
+                        continue;
+                    }
+                    relocate(order, from, to, candidate);
+                    double total = costs.totalCost(candidate);
+                    if (total < bestTotal - 1e-9) {
+                        System.arraycopy(candidate, 0, order, 0, n);
+                        bestTotal = total;
+                        improved = true;
+                        improvements++;
+                    }
+                }
+                if (System.nanoTime() >= deadlineNanos) {
+                    break;
+                }
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Copies the order into the destination with the task at one position moved to another.
+     */
+    private static void relocate(int[] order, int from, int to, int[] destination) {
+        int moving = order[from];
+        int write = 0;
+        for (int read = 0; read < order.length; read++) {
+            if (read == from) {
+                continue;
+            }
+            if (write == to) {
+                destination[write++] = moving;
+            }
+            destination[write++] = order[read];
+        }
+        if (write == to) {
+            destination[write] = moving;
+        }
+    }
+}
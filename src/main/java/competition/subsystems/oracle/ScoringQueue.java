@@ -1,14 +1,15 @@
 package competition.subsystems.oracle;
 
 import competition.subsystems.pose.Landmarks;
+import edu.wpi.first.math.geometry.Pose2d;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import xbot.common.properties.BooleanProperty;
 import xbot.common.properties.PropertyFactory;
-import xbot.common.properties.StringProperty;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import javax.swing.text.html.Option;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
@@ -17,37 +18,26 @@ import java.util.Queue;
 @Singleton
 public class ScoringQueue {
 
+    private static final Logger log = LogManager.getLogger(ScoringQueue.class);
+
     private final Queue<ScoringTask> scoringTasks;
     private boolean defaultState = true;
 
-    final StringProperty task1;
-    final StringProperty task2;
-    final StringProperty task3;
-    final StringProperty task4;
-    final StringProperty task5;
-
-    final HashMap<Integer, StringProperty> taskProperties;
-
-    final String noTask = "No task";
+    final ScoringOrderPlanner orderPlanner;
+    final ReefOccupancy reefOccupancy;
+    final BooleanProperty optimizeOrder;
+    private Pose2d plannedCoralStationBeforeActiveTask;
 
     @Inject
-    public ScoringQueue(PropertyFactory pf) {
+    public ScoringQueue(PropertyFactory pf, ScoringOrderPlanner orderPlanner, ReefOccupancy reefOccupancy) {
         this.scoringTasks = new LinkedList<>();
+        this.orderPlanner = orderPlanner;
+        this.reefOccupancy = reefOccupancy;
 
         pf.setPrefix("ScoringQueue");
-        task1 = pf.createPersistentProperty("Task1", noTask);
-        task2 = pf.createPersistentProperty("Task2", noTask);
-        task3 = pf.createPersistentProperty("Task3", noTask);
-        task4 = pf.createPersistentProperty("Task4", noTask);
-        task5 = pf.createPersistentProperty("Task5", noTask);
-
-        taskProperties = new HashMap<>();
-        taskProperties.put(1, task1);
-        taskProperties.put(2, task2);
-        taskProperties.put(3, task3);
-        taskProperties.put(4, task4);
-        taskProperties.put(5, task5);
-
+        // When set, pending coral tasks are reordered to finish them all as quickly as possible,
+        // rather than being done in the order they were added.
+        optimizeOrder = pf.createPersistentProperty("OptimizeOrder", false);
         // TODO: set this up based on some commands invoked by the operator (before auto, or during the match)
         // for now, cheating in some tasks.
 
@@ -59,7 +49,7 @@ public class ScoringQueue {
     }
 
     public void addCoralTask(Landmarks.ReefFace face, Landmarks.Branch branch, Landmarks.CoralLevel level) {
-        scoringTasks.add(new ScoringTask(
+        addScoringGoalToBottomOfQueue(new ScoringTask(
                 GameAction.ScoreCoral,
                 Optional.of(face),
                 Optional.of(branch),
@@ -67,11 +57,16 @@ public class ScoringQueue {
     }
 
     public void addAlgaeRemovalTask(Landmarks.ReefFace face) {
+        if (!reefOccupancy.isAlgaePresent(face)) {
+            log.warn("{} has no algae left; not adding a removal task.", face);
+            return;
+        }
         scoringTasks.add(new ScoringTask(
                 GameAction.RemoveAlgae,
                 Optional.of(face),
                 Optional.empty(),
                 Optional.empty()));
+        reorderPendingTasksIfRequested();
     }
 
     public void addAlgaeProcessingTask() {
@@ -80,6 +75,7 @@ public class ScoringQueue {
                 Optional.empty(),
                 Optional.empty(),
                 Optional.empty()));
+        reorderPendingTasksIfRequested();
     }
 
     public static boolean isTaskWellFormed(ScoringTask task) {
@@ -96,11 +92,101 @@ public class ScoringQueue {
     }
 
     public void addScoringGoalToBottomOfQueue(ScoringTask scoringTask) {
-        scoringTasks.add(scoringTask);
+        var openTask = moveToOpenLevel(scoringTask);
+        if (openTask.isEmpty()) {
+            log.warn("Branch for {} is already full; not adding it to the queue.", scoringTask);
+            return;
+        }
+        scoringTasks.add(openTask.get());
+        reorderPendingTasksIfRequested();
+    }
+
+    /**
+     * If a coral task's slot is already filled, moves it to the nearest open level on the same branch.
+     * @return The task, possibly at a different level, or empty if the whole branch is full
+     */
+    private Optional<ScoringTask> moveToOpenLevel(ScoringTask task) {
+        if (task.gameAction() != GameAction.ScoreCoral || !isTaskWellFormed(task)) {
+            return Optional.of(task);
+        }
+        var level = task.coralLevel().get();
+        return reefOccupancy.findOpenLevel(task.reefFace().get(), task.branch().get(), level)
+                .map(openLevel -> openLevel == level
+                        ? task
+                        : new ScoringTask(task.gameAction(), task.reefFace(), task.branch(), Optional.of(openLevel)));
+    }
+
+    /**
+     * Drops any coral task whose slot has been filled since it was queued (e.g. by a partner, or marked by hand),
+     * and any algae removal task for a face that's already been cleared.
+     */
+    public void removeFilledTasks() {
+        if (scoringTasks.removeIf(task -> reefOccupancy.isCoralScored(task) || isAlgaeAlreadyRemoved(task))) {
+            log.info("Removed scoring tasks for slots that are already filled.");
+        }
+    }
+
+    private boolean isAlgaeAlreadyRemoved(ScoringTask task) {
+        return task.gameAction() == GameAction.RemoveAlgae && isTaskWellFormed(task)
+                && !reefOccupancy.isAlgaePresent(task.reefFace().get());
     }
 
     public void advanceToNextScoringGoal() {
-        scoringTasks.poll();
+        ScoringTask completedTask = scoringTasks.poll();
+        plannedCoralStationBeforeActiveTask = null;
+        removeFilledTasks();
+
+        // The next task hasn't been started yet, so it's fair game for reordering too. We'll be leaving from
+        // the task we just finished, without coral.
+        if (optimizeOrder.get() && ScoringOrderPlanner.isPlannable(completedTask)) {
+            var plan = reorder(new ArrayList<>(scoringTasks), orderPlanner.getApproachPose(completedTask));
+            if (plan != null) {
+                scoringTasks.clear();
+                scoringTasks.addAll(plan.orderedTasks());
+                plannedCoralStationBeforeActiveTask = plan.coralStationBeforeEachTask().get(0);
+            }
+        }
+    }
+
+    /**
+     * The active task is left alone, since we may already be on our way to it. Everything after it is reordered,
+     * starting from the active task's location.
+     */
+    private void reorderPendingTasksIfRequested() {
+        if (!optimizeOrder.get() || scoringTasks.size() < 3 || !ScoringOrderPlanner.isPlannable(scoringTasks.peek())) {
+            return;
+        }
+
+        var tasks = new ArrayList<>(scoringTasks);
+        var activeTask = tasks.remove(0);
+        var plan = reorder(tasks, orderPlanner.getApproachPose(activeTask));
+        if (plan != null) {
+            scoringTasks.clear();
+            scoringTasks.add(activeTask);
+            scoringTasks.addAll(plan.orderedTasks());
+        }
+    }
+
+    /**
+     * @return The plan, or null if there's nothing worth reordering (or something we don't know how to plan for,
+     * like algae, in which case the order is left as the operator entered it)
+     */
+    private ScoringOrderPlanner.Plan reorder(List<ScoringTask> tasks, Pose2d startingPose) {
+        if (tasks.isEmpty() || !tasks.stream().allMatch(ScoringOrderPlanner::isPlannable)) {
+            return null;
+        }
+        var plan = orderPlanner.plan(startingPose, false, tasks);
+        log.info("Reordered {} scoring tasks, estimated {} s ({})",
+                tasks.size(), String.format("%.1f", plan.estimatedSeconds()), plan.exact() ? "exact" : "heuristic");
+        return plan;
+    }
+
+    /**
+     * When the queue is being optimized, the coral station section (blue alliance) the plan picked to visit
+     * before the active task.
+     */
+    public Optional<Pose2d> getPlannedCoralStationBeforeActiveTask() {
+        return Optional.ofNullable(plannedCoralStationBeforeActiveTask);
     }
 
     public int getQueueSize() {
@@ -113,6 +199,7 @@ public class ScoringQueue {
 
     public void clearQueue() {
         scoringTasks.clear();
+        plannedCoralStationBeforeActiveTask = null;
     }
 
     public void clearQueueIfDefault() {
@@ -127,13 +214,4 @@ public class ScoringQueue {
         scoringTasks.forEach((t) -> tasks.add(t.toString().replace("Optional", "")));
         return tasks;
     }
-
-    public void renderTasksToProperties() {
-        var scoringArray = getTaskArray();
-
-        for (int i= 0; i < Math.min(5, scoringArray.size()); i++) {
-            var property = taskProperties.get(i+1);
-            property.set(scoringArray.get(i));
-        }
-    }
 }
\ No newline at end of file
@@ -50,27 +50,37 @@ public class DriveAccordingToOracleCommand extends BaseCommand {
 
     private void setNewInstruction() {
         OracleDriveAdvice advice = oracle.getDriveAdvice();
+        if (advice == null) {
+            // The oracle is still working out its first route.
+            return;
+        }
         lastSeenInstructionNumber = advice.instructionNumber();
 
         logic.setVelocityMode(SwerveSimpleTrajectoryMode.GlobalKinematicsValue);
         logic.setGlobalKinematicValues(new SwervePointKinematics(2, 0, pose.getAbsoluteVelocity(), 4));
         logic.setKeyPoints(advice.path());
 
-        logic.reset(pose.getCurrentPose2d());
+        logic.reset(pose.getPoseSnapshot().pose());
     }
 
     @Override
     public void execute() {
-        if (oracle.getDriveAdvice().instructionNumber() != lastSeenInstructionNumber) {
+        OracleDriveAdvice advice = oracle.getDriveAdvice();
+        if (advice == null) {
+            drive.move(new XYPair(), 0);
+            return;
+        }
+        if (advice.instructionNumber() != lastSeenInstructionNumber) {
             setNewInstruction();
         }
 
-        Twist2d powers = logic.calculatePowers(pose.getCurrentPose2d(), drive.getPositionalPid(), headingModule, drive.getMaxTargetSpeedMetersPerSecond());
+        var currentPose = pose.getPoseSnapshot();
+        Twist2d powers = logic.calculatePowers(currentPose.pose(), drive.getPositionalPid(), headingModule, drive.getMaxTargetSpeedMetersPerSecond());
 
         aKitLog.record("Powers", powers);
 
         drive.fieldOrientedDrive(
                 new XYPair(powers.dx, powers.dy),
-                powers.dtheta, pose.getCurrentHeading().getDegrees(), false);
+                powers.dtheta, currentPose.heading().getDegrees(), false);
     }
 }
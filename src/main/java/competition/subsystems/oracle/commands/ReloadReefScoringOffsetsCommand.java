@@ -0,0 +1,41 @@
+package competition.subsystems.oracle.commands;
+
+import competition.subsystems.oracle.ReefCoordinateGenerator;
+import xbot.common.command.BaseCommand;
+
+import javax.inject.Inject;
+
+/**
+ * Re-reads the hand-tuned reef scoring offsets from the deploy directory. The work happens in the background,
+ * so this is safe to run mid-match after tweaking the file.
+ */
+public class ReloadReefScoringOffsetsCommand extends BaseCommand {
+
+    final ReefCoordinateGenerator reefCoordinateGenerator;
+
+    @Inject
+    public ReloadReefScoringOffsetsCommand(ReefCoordinateGenerator reefCoordinateGenerator) {
+        this.reefCoordinateGenerator = reefCoordinateGenerator;
+    }
+
+    @Override
+    public void initialize() {
+        log.info("Initializing");
+        reefCoordinateGenerator.reloadHandTunedOffsetsAsync();
+    }
+
+    @Override
+    public void execute() {
+        // No-code
+    }
+
+    @Override
+    public boolean isFinished() {
+        return true;
+    }
+
+    @Override
+    public boolean runsWhenDisabled() {
+        return true;
+    }
+}
@@ -9,7 +9,6 @@ import edu.wpi.first.wpilibj.DriverStation;
 import javax.inject.Singleton;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 import static edu.wpi.first.units.Units.Meters;
@@ -73,24 +72,6 @@ public class Landmarks {
     public static int RedLeftTagFiducialId = 1;
     public static int RedRightTagFiducialId = 2;
 
-    public HashMap<String, Pose2d> namesToLocations;
-
-    public Landmarks() {
-        namesToLocations = new HashMap<>();
-    }
-
-    private void addAllLevelsForBranch(DriverStation.Alliance alliance, ReefFace face, Branch branch, Pose2d location) {
-        addNamedLocation(alliance, face, branch, CoralLevel.ONE, location);
-        addNamedLocation(alliance, face, branch, CoralLevel.TWO, location);
-        addNamedLocation(alliance, face, branch, CoralLevel.THREE, location);
-        addNamedLocation(alliance, face, branch, CoralLevel.FOUR, location);
-    }
-
-    private void addNamedLocation(DriverStation.Alliance alliance, ReefFace face, Branch branch, CoralLevel level, Pose2d location) {
-        String name = alliance.toString() + face.toString() + branch.toString() + level.toString();
-        namesToLocations.put(name, location);
-    }
-
     public enum ReefFace {
         CLOSE,
         CLOSE_LEFT,
@@ -129,19 +110,94 @@ public class Landmarks {
         FAR
     }
 
+    // Every reef and coral station pose for both alliances, indexed by alliance and enum ordinals.
+    // Built once when this class loads, so lookups are plain array reads. Red poses are mirrored from blue.
+    private static final Pose2d[][][] branchPoses =
+            new Pose2d[DriverStation.Alliance.values().length][ReefFace.values().length][Branch.values().length];
+    private static final Pose2d[][] reefFacePoses =
+            new Pose2d[DriverStation.Alliance.values().length][ReefFace.values().length];
+    private static final Pose2d[][][] coralStationPoses =
+            new Pose2d[DriverStation.Alliance.values().length][CoralStation.values().length][CoralStationSection.values().length];
+    private static final List<List<Pose2d>> reefFacePoseLists = new ArrayList<>();
+
+    static {
+        addReefFace(ReefFace.CLOSE, BlueCloseBranchA, BlueCloseAlgae, BlueCloseBranchB);
+        addReefFace(ReefFace.CLOSE_LEFT, BlueCloseLeftBranchA, BlueCloseLeftAlgae, BlueCloseLeftBranchB);
+        addReefFace(ReefFace.CLOSE_RIGHT, BlueCloseRightBranchA, BlueCloseRightAlgae, BlueCloseRightBranchB);
+        addReefFace(ReefFace.FAR, BlueFarBranchA, BlueFarAlgae, BlueFarBranchB);
+        addReefFace(ReefFace.FAR_LEFT, BlueFarLeftBranchA, BlueFarLeftAlgae, BlueFarLeftBranchB);
+        addReefFace(ReefFace.FAR_RIGHT, BlueFarRightBranchA, BlueFarRightAlgae, BlueFarRightBranchB);
+
+        addCoralStation(CoralStation.LEFT, BlueLeftCoralStationClose, BlueLeftCoralStationMid, BlueLeftCoralStationFar);
+        addCoralStation(CoralStation.RIGHT, BlueRightCoralStationClose, BlueRightCoralStationMid, BlueRightCoralStationFar);
+
+        for (DriverStation.Alliance alliance : DriverStation.Alliance.values()) {
+            reefFacePoseLists.add(List.of(reefFacePoses[alliance.ordinal()]));
+        }
+    }
+
+    private static void addReefFace(ReefFace face, Pose2d blueBranchA, Pose2d blueAlgae, Pose2d blueBranchB) {
+        for (DriverStation.Alliance alliance : DriverStation.Alliance.values()) {
+            branchPoses[alliance.ordinal()][face.ordinal()][Branch.A.ordinal()] = forAlliance(alliance, blueBranchA);
+            branchPoses[alliance.ordinal()][face.ordinal()][Branch.B.ordinal()] = forAlliance(alliance, blueBranchB);
+            reefFacePoses[alliance.ordinal()][face.ordinal()] = forAlliance(alliance, blueAlgae);
+        }
+    }
+
+    private static void addCoralStation(CoralStation station, Pose2d blueClose, Pose2d blueMid, Pose2d blueFar) {
+        for (DriverStation.Alliance alliance : DriverStation.Alliance.values()) {
+            var sections = coralStationPoses[alliance.ordinal()][station.ordinal()];
+            sections[CoralStationSection.CLOSE.ordinal()] = forAlliance(alliance, blueClose);
+            sections[CoralStationSection.MID.ordinal()] = forAlliance(alliance, blueMid);
+            sections[CoralStationSection.FAR.ordinal()] = forAlliance(alliance, blueFar);
+        }
+    }
+
+    private static Pose2d forAlliance(DriverStation.Alliance alliance, Pose2d bluePose) {
+        return alliance == DriverStation.Alliance.Red ? PoseSubsystem.convertBluetoRed(bluePose) : bluePose;
+    }
+
+    /**
+     * Gets the blue alliance scoring pose for a reef branch. Use {@link #getBranchPose(DriverStation.Alliance, ReefFace, Branch)}
+     * if you want the pose already mirrored for the red alliance.
+     */
     public static Pose2d getBranchPose(ReefFace reefFace, Branch branch) {
-        EnumsToPose enumsToPose = new EnumsToPose();
-        return enumsToPose.getBranchPose(reefFace, branch);
+        return getBranchPose(DriverStation.Alliance.Blue, reefFace, branch);
+    }
+
+    public static Pose2d getBranchPose(DriverStation.Alliance alliance, ReefFace reefFace, Branch branch) {
+        return branchPoses[alliance.ordinal()][reefFace.ordinal()][branch.ordinal()];
     }
 
+    /**
+     * Gets the blue alliance pose in front of the middle of a reef face (where the algae sits).
+     */
     public static Pose2d getReefFacePose(ReefFace reefFace) {
-        EnumsToPose enumsToPose = new EnumsToPose();
-        return enumsToPose.getReefFacePose(reefFace);
+        return getReefFacePose(DriverStation.Alliance.Blue, reefFace);
     }
 
+    public static Pose2d getReefFacePose(DriverStation.Alliance alliance, ReefFace reefFace) {
+        return reefFacePoses[alliance.ordinal()][reefFace.ordinal()];
+    }
+
+    /**
+     * Gets all six reef face poses for an alliance, in {@link ReefFace} order.
+     * @return An immutable list, shared between callers
+     */
+    public static List<Pose2d> getReefFacePoses(DriverStation.Alliance alliance) {
+        return reefFacePoseLists.get(alliance.ordinal());
+    }
+
+    /**
+     * Gets the blue alliance pose for a section of a coral station.
+     */
     public static Pose2d getCoralStationSectionPose(CoralStation station, CoralStationSection section) {
-        EnumsToPose enumsToPose = new EnumsToPose();
-        return enumsToPose.getCoralStationPose(station, section);
+        return getCoralStationSectionPose(DriverStation.Alliance.Blue, station, section);
+    }
+
+    public static Pose2d getCoralStationSectionPose(DriverStation.Alliance alliance, CoralStation station,
+                                                    CoralStationSection section) {
+        return coralStationPoses[alliance.ordinal()][station.ordinal()][section.ordinal()];
     }
 
     public static ReefFace getReefFaceFromTagId(int tagId) {
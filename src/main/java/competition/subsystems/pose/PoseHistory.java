@@ -0,0 +1,131 @@
+package competition.subsystems.pose;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+import java.util.Optional;
+
+/**
+ * A fixed-size history of timestamped robot poses, so we can answer "where was the robot when this
+ * camera frame was captured?". Storage is a ring of primitive arrays; recording a pose never allocates.
+ * Not thread-safe; meant to be written and read from the main robot loop.
+ */
+public class PoseHistory {
+
+    private final int capacity;
+    private final double[] timestampsSeconds;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] headingsRadians;
+
+    // Index of the oldest entry, and how many entries are valid.
+    private int oldestIndex = 0;
+    private int count = 0;
+
+    public PoseHistory(int capacity) {
+        this.capacity = capacity;
+        timestampsSeconds = new double[capacity];
+        xs = new double[capacity];
+        ys = new double[capacity];
+        headingsRadians = new double[capacity];
+    }
+
+    /**
+     * Adds a pose to the history. Timestamps are expected to increase; a repeated timestamp replaces the
+     * newest entry, and an older timestamp means time went backwards, so the history starts over.
+     */
+    public void record(double timestampSeconds, Pose2d pose) {
+        if (count > 0) {
+            double newestTimestamp = getNewestTimestamp();
+            if (timestampSeconds == newestTimestamp) {
+                write(physicalIndex(count - 1), timestampSeconds, pose);
+                return;
+            }
+            if (timestampSeconds < newestTimestamp) {
+                clear();
+            }
+        }
+
+        if (count < capacity) {
+            write(physicalIndex(count), timestampSeconds, pose);
+            count++;
+        } else {
+            // Full; overwrite the oldest entry.
+            write(oldestIndex, timestampSeconds, pose);
+            oldestIndex = (oldestIndex + 1) % capacity;
+        }
+    }
+
+    private void write(int index, double timestampSeconds, Pose2d pose) {
+        timestampsSeconds[index] = timestampSeconds;
+        xs[index] = pose.getX();
+        ys[index] = pose.getY();
+        headingsRadians[index] = pose.getRotation().getRadians();
+    }
+
+    public void clear() {
+        oldestIndex = 0;
+        count = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public double getOldestTimestamp() {
+        return count == 0 ? Double.NaN : timestampsSeconds[oldestIndex];
+    }
+
+    public double getNewestTimestamp() {
+        return count == 0 ? Double.NaN : timestampsSeconds[physicalIndex(count - 1)];
+    }
+
+    /**
+     * Gets the pose at the given time, interpolating between the two recorded poses that surround it.
+     * Times slightly newer than the newest entry (e.g. a camera frame that arrived between odometry samples)
+     * get the newest pose.
+     * @param timestampSeconds FPGA time of interest
+     * @return The pose, or empty if the history doesn't reach back that far
+     */
+    public Optional<Pose2d> getPoseAt(double timestampSeconds) {
+        // Written so that a NaN timestamp also comes back empty.
+        if (count == 0 || !(timestampSeconds >= getOldestTimestamp())) {
+            return Optional.empty();
+        }
+        if (timestampSeconds >= getNewestTimestamp()) {
+            return Optional.of(poseAt(physicalIndex(count - 1)));
+        }
+
+        // Binary search for the last entry at or before the requested time.
+        int low = 0;
+        int high = count - 1;
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            if (timestampsSeconds[physicalIndex(mid)] <= timestampSeconds) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+
+        int before = physicalIndex(low);
+        int after = physicalIndex(high);
+        double span = timestampsSeconds[after] - timestampsSeconds[before];
+        double t = span > 0 ? (timestampSeconds - timestampsSeconds[before]) / span : 0;
+
+        double headingDelta = MathUtil.angleModulus(headingsRadians[after] - headingsRadians[before]);
+        return Optional.of(new Pose2d(
+                MathUtil.interpolate(xs[before], xs[after], t),
+                MathUtil.interpolate(ys[before], ys[after], t),
+                new Rotation2d(headingsRadians[before] + headingDelta * t)));
+    }
+
+    private Pose2d poseAt(int index) {
+        return new Pose2d(xs[index], ys[index], new Rotation2d(headingsRadians[index]));
+    }
+
+    private int physicalIndex(int logicalIndex) {
+        return (oldestIndex + logicalIndex) % capacity;
+    }
+}
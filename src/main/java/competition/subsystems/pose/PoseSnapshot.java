@@ -0,0 +1,36 @@
+package competition.subsystems.pose;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import xbot.common.math.WrappedRotation2d;
+
+/**
+ * Everything the rest of the robot usually wants to know about where the robot is, captured once per loop
+ * at the end of odometry. Since it's immutable, every command and subsystem running in the same loop can share
+ * it and will agree on where the robot was.
+ * @param pose The robot pose, using whichever estimate PoseSubsystem is configured to trust
+ * @param heading The robot heading, matching the rotation of the pose
+ * @param fieldVelocityMetersPerSecond Field-relative velocity, from the change in pose since the previous snapshot
+ * @param timestampSeconds FPGA time the snapshot was taken
+ * @param alliance The alliance we were on when the snapshot was taken
+ */
+public record PoseSnapshot(
+        Pose2d pose,
+        WrappedRotation2d heading,
+        Translation2d fieldVelocityMetersPerSecond,
+        double timestampSeconds,
+        DriverStation.Alliance alliance) {
+
+    public Translation2d translation() {
+        return pose.getTranslation();
+    }
+
+    public double speedMetersPerSecond() {
+        return fieldVelocityMetersPerSecond.getNorm();
+    }
+
+    public double distanceTo(Pose2d target) {
+        return pose.getTranslation().getDistance(target.getTranslation());
+    }
+}
@@ -1,49 +1,68 @@
 package competition.subsystems.pose;
 
-import java.util.Arrays;
-import java.util.List;
 import java.util.Optional;
 import java.util.function.Supplier;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import competition.profiling.LoopTimeProfiler;
 import competition.subsystems.drive.DriveSubsystem;
-import competition.subsystems.vision.CoprocessorCommunicationSubsystem;
+import competition.subsystems.vision.AprilTagVisionSubsystemExtended;
 import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Pose3d;
-import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveOdometry;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.units.measure.Distance;
+import edu.wpi.first.wpilibj.DriverStation;
 
 import static edu.wpi.first.units.Units.Meters;
 
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
-import org.kobe.xbot.JClient.XTablesClient;
-import org.kobe.xbot.Utilities.Entities.BatchedPushRequests;
 import xbot.common.controls.sensors.XGyro.XGyroFactory;
+import xbot.common.controls.sensors.XTimer;
 import xbot.common.math.WrappedRotation2d;
 import xbot.common.properties.BooleanProperty;
 import xbot.common.properties.Property;
 import xbot.common.properties.PropertyFactory;
 import xbot.common.subsystems.pose.BasePoseSubsystem;
-import xbot.common.subsystems.vision.AprilTagVisionSubsystem;
 
 @Singleton
 public class PoseSubsystem extends BasePoseSubsystem {
 
-    final SwerveDrivePoseEstimator onlyWheelsGyroSwerveOdometry;
+    // Wheels and gyro only never takes vision measurements, so it doesn't need a full Kalman estimator.
+    final SwerveDriveOdometry onlyWheelsGyroSwerveOdometry;
     final SwerveDrivePoseEstimator fullSwerveOdometry;
 
     private final DriveSubsystem drive;
-    private final AprilTagVisionSubsystem aprilTagVisionSubsystem;
+    private final AprilTagVisionSubsystemExtended aprilTagVisionSubsystem;
     private final BooleanProperty useVisionAssistedPose;
     private final BooleanProperty reportCameraPoses;
-    private final CoprocessorCommunicationSubsystem coprocessorComms;
+    private final LoopTimeProfiler.Section periodicSection;
+
+    // Poses shared with the coprocessors. Sent from the publisher's own thread.
+    private final XTablesPosePublisher posePublisher;
+    private final XTablesPosePublisher.Topic wheelsOnlyEstimateTopic;
+    private final XTablesPosePublisher.Topic odometryOnlyRobotPoseTopic;
+    private final XTablesPosePublisher.Topic visionEnhancedPoseTopic;
+    private final XTablesPosePublisher.Topic robotPoseTopic;
+
+    static final int moduleCount = 4;
+    // Reused every loop so that reading the modules doesn't allocate. The estimators copy what they need.
+    private final SwerveModulePosition[] sampledModulePositions = createModulePositionBuffer();
+
+    // Where the full estimator thought we were over the last couple of seconds, for judging camera frames
+    // against where we were when they were captured.
+    private final PoseHistory poseHistory = new PoseHistory(256);
+    final VisionObservationFilter visionObservationFilter;
+
+    // Rebuilt once at the end of every updateOdometry (and on any pose reset); read by everyone else.
+    private PoseSnapshot snapshot;
 
     public static final Distance fieldXMidpointInMeters = Meters.of(8.7785);
     public static final Distance fieldYMidpointInMeters = Meters.of(4.025);
@@ -54,19 +73,35 @@ public class PoseSubsystem extends BasePoseSubsystem {
 
     @Inject
     public PoseSubsystem(XGyroFactory gyroFactory, PropertyFactory propManager, DriveSubsystem drive,
-                         AprilTagVisionSubsystem aprilTagVisionSubsystem, CoprocessorCommunicationSubsystem coprocessorComms) {
+                         AprilTagVisionSubsystemExtended aprilTagVisionSubsystem,
+                         LoopTimeProfiler profiler, XTablesPosePublisher posePublisher) {
         super(gyroFactory, propManager);
         this.drive = drive;
         this.aprilTagVisionSubsystem = aprilTagVisionSubsystem;
-        this.coprocessorComms = coprocessorComms;
+        this.periodicSection = profiler.getSection("PoseSubsystem.periodic");
 
-        onlyWheelsGyroSwerveOdometry = initializeSwerveOdometry();
+        this.posePublisher = posePublisher;
+        String xtablesPrefix = "PoseSubsystem";
+        wheelsOnlyEstimateTopic = posePublisher.createTopic(xtablesPrefix + ".WheelsOnlyEstimate");
+        odometryOnlyRobotPoseTopic = posePublisher.createTopic(xtablesPrefix + ".OdometryOnlyRobotPose");
+        visionEnhancedPoseTopic = posePublisher.createTopic(xtablesPrefix + ".VisionEnhancedPose");
+        robotPoseTopic = posePublisher.createTopic(xtablesPrefix + ".RobotPose");
+
+        onlyWheelsGyroSwerveOdometry = new SwerveDriveOdometry(
+                drive.getSwerveDriveKinematics(),
+                getCurrentHeadingGyroOnly(),
+                getSwerveModulePositions(),
+                new Pose2d());
         fullSwerveOdometry = initializeSwerveOdometry();
 
         propManager.setPrefix(this);
         propManager.setDefaultLevel(Property.PropertyLevel.Important);
         useVisionAssistedPose = propManager.createPersistentProperty("UseVisionAssistedPose", true);
         reportCameraPoses = propManager.createPersistentProperty("ReportCameraPoses", false);
+        visionObservationFilter = new VisionObservationFilter(
+                propManager, this.getPrefix(), aprilTagVisionSubsystem.getCameraCount());
+
+        refreshSnapshot();
     }
 
     @Override
@@ -87,56 +122,70 @@ public class PoseSubsystem extends BasePoseSubsystem {
                 new Pose2d());
     }
 
-    @Override
-    protected void updateOdometry() {
-        XTablesClient xTablesClient = this.coprocessorComms.getXTablesManager().getOrNull();
-        String xtablesPrefix = "PoseSubsystem";
-        // Package all requests into single message to ensure all data is synchronized and updated at once.
-        BatchedPushRequests batchedPushRequests = new BatchedPushRequests();
+    private static SwerveModulePosition[] createModulePositionBuffer() {
+        var positions = new SwerveModulePosition[moduleCount];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = new SwerveModulePosition();
+        }
+        return positions;
+    }
 
-        // Update pose estimators
-        onlyWheelsGyroSwerveOdometry.update(
-                this.getCurrentHeadingGyroOnly(),
-                getSwerveModulePositions()
-        );
-        aKitLog.record("WheelsOnlyEstimate", onlyWheelsGyroSwerveOdometry.getEstimatedPosition());
+    /**
+     * Reads the gyro and the swerve modules once, and feeds that one sample into both the wheels-only odometry
+     * and the full estimator.
+     */
+    private void updateEstimatorsFromOdometry() {
+        double timestampSeconds = XTimer.getFPGATimestamp();
+        var yaw = getCurrentHeadingGyroOnly();
+        var modulePositions = readSwerveModulePositions(sampledModulePositions);
+        onlyWheelsGyroSwerveOdometry.update(yaw, modulePositions);
+        poseHistory.record(timestampSeconds, fullSwerveOdometry.updateWithTime(timestampSeconds, yaw, modulePositions));
+    }
 
+    @Override
+    public void periodic() {
+        periodicSection.start();
+        try {
+            super.periodic();
+        } finally {
+            periodicSection.stop();
+        }
+    }
 
-        batchedPushRequests.putPose2d(xtablesPrefix + ".WheelsOnlyEstimate", onlyWheelsGyroSwerveOdometry.getEstimatedPosition());
-        fullSwerveOdometry.update(
-                this.getCurrentHeadingGyroOnly(),
-                getSwerveModulePositions()
-        );
-        this.aprilTagVisionSubsystem.getAllPoseObservations().forEach(observation -> {
-            fullSwerveOdometry.addVisionMeasurement(
+    @Override
+    protected void updateOdometry() {
+        // Update pose estimators
+        updateEstimatorsFromOdometry();
+
+        // Pose2d is immutable, so these can be reported as-is rather than copied.
+        Pose2d estimatedPosition = onlyWheelsGyroSwerveOdometry.getPoseMeters();
+        aKitLog.record("WheelsOnlyEstimate", estimatedPosition);
+        wheelsOnlyEstimateTopic.offer(estimatedPosition);
+        for (var observation : this.aprilTagVisionSubsystem.getAllPoseObservations()) {
+            visionObservationFilter.offer(
+                    aprilTagVisionSubsystem.getCameraForPoseObservation(
+                            observation.timestampSeconds(), observation.visionRobotPoseMeters()),
                     observation.visionRobotPoseMeters(),
                     observation.timestampSeconds(),
-                    observation.visionMeasurementStdDevs()
-            );
-        });
+                    observation.visionMeasurementStdDevs(),
+                    poseHistory);
+        }
+        aKitLog.record("VisionFramesSubmitted", visionObservationFilter.submitAcceptedFrames(fullSwerveOdometry));
 
         // Report poses
-        Pose2d estimatedPosition = new Pose2d(
-                onlyWheelsGyroSwerveOdometry.getEstimatedPosition().getTranslation(),
-                getCurrentHeadingGyroOnly()
-        );
         aKitLog.record("OdometryOnlyRobotPose", estimatedPosition);
-        batchedPushRequests.putPose2d(xtablesPrefix + ".OdometryOnlyRobotPose", estimatedPosition);
+        odometryOnlyRobotPoseTopic.offer(estimatedPosition);
 
-        Pose2d visionEnhancedPosition = new Pose2d(
-                fullSwerveOdometry.getEstimatedPosition().getTranslation(),
-                fullSwerveOdometry.getEstimatedPosition().getRotation()
-        );
+        Pose2d visionEnhancedPosition = fullSwerveOdometry.getEstimatedPosition();
         aKitLog.record("VisionEnhancedPose", visionEnhancedPosition);
-        batchedPushRequests.putPose2d(xtablesPrefix + ".VisionEnhancedPose", visionEnhancedPosition);
+        visionEnhancedPoseTopic.offer(visionEnhancedPosition);
 
         Pose2d robotPose = this.useVisionAssistedPose.get() ? visionEnhancedPosition : estimatedPosition;
         aKitLog.record("RobotPose", robotPose);
-        batchedPushRequests.putPose2d(xtablesPrefix + ".RobotPose", robotPose);
-        if (xTablesClient != null) {
-            // This is asynchronous - does not block & sends all updates in a single "packet"
-            xTablesClient.sendBatchedPushRequests(batchedPushRequests);
-        }
+        robotPoseTopic.offer(robotPose);
+        // All four poses go to the coprocessors together, as they were this loop.
+        posePublisher.send();
+        posePublisher.recordStats();
 
         // Record the camera positions
         if (reportCameraPoses.get()) {
@@ -159,6 +208,53 @@ public class PoseSubsystem extends BasePoseSubsystem {
         this.velocityX = ((totalDistanceX - prevTotalDistanceX));
         this.velocityY = ((totalDistanceY - prevTotalDistanceY));
         this.totalVelocity = (Math.sqrt(Math.pow(velocityX, 2.0) + Math.pow(velocityY, 2.0))); // Unnecessary?
+
+        refreshSnapshot(robotPose);
+    }
+
+    /**
+     * Rebuilds the snapshot after the pose has been reset. The jump is not movement, so velocity starts over at zero.
+     */
+    private void refreshSnapshot() {
+        snapshot = null;
+        refreshSnapshot(this.useVisionAssistedPose.get()
+                ? fullSwerveOdometry.getEstimatedPosition()
+                : onlyWheelsGyroSwerveOdometry.getPoseMeters());
+    }
+
+    private void refreshSnapshot(Pose2d robotPose) {
+        double now = XTimer.getFPGATimestamp();
+        Translation2d velocity = Translation2d.kZero;
+        if (snapshot != null && now > snapshot.timestampSeconds()) {
+            velocity = robotPose.getTranslation()
+                    .minus(snapshot.translation())
+                    .div(now - snapshot.timestampSeconds());
+        }
+        snapshot = new PoseSnapshot(
+                robotPose,
+                WrappedRotation2d.fromRotation2d(robotPose.getRotation()),
+                velocity,
+                now,
+                DriverStation.getAlliance().orElse(DriverStation.Alliance.Blue));
+    }
+
+    /**
+     * Gets the pose, heading, velocity and alliance as of the end of the most recent odometry update (or pose reset).
+     * Unlike getCurrentPose2d()/getCurrentHeading(), which are live, this doesn't change part way through a loop,
+     * so everything that opts in to it within a loop works from the same numbers.
+     * @return The latest pose snapshot
+     */
+    public PoseSnapshot getPoseSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Gets where the pose estimator thought the robot was at some recent time, e.g. when a camera frame was captured.
+     * @param timestampSeconds FPGA time of interest
+     * @return The interpolated pose, or empty if that's further back than we keep history
+     */
+    public Optional<Pose2d> getPoseAtTimestamp(double timestampSeconds) {
+        return poseHistory.getPoseAt(timestampSeconds);
     }
 
     public double getAbsoluteVelocity() {
@@ -189,27 +285,43 @@ public class PoseSubsystem extends BasePoseSubsystem {
     }
 
     private void resetPoseEstimator(Pose2d pose) {
+        this.poseHistory.clear();
         this.fullSwerveOdometry.resetPose(pose);
         this.onlyWheelsGyroSwerveOdometry.resetPose(pose);
+        refreshSnapshot();
     }
 
     private SwerveModulePosition[] getSwerveModulePositions() {
+        return readSwerveModulePositions(createModulePositionBuffer());
+    }
+
+    /**
+     * Reads the current module positions into an existing array, reusing the positions already in it.
+     * @param positions Array to fill, one entry per module
+     * @return The array that was passed in, or the simulated positions if we are being simulated
+     */
+    private SwerveModulePosition[] readSwerveModulePositions(SwerveModulePosition[] positions) {
         // if we have simulated data, return that directly instead of asking the
         // modules
         if (simulatedModulePositions.isPresent()) {
             return simulatedModulePositions.get();
         }
-        return new SwerveModulePosition[]{
-                drive.getFrontLeftSwerveModuleSubsystem().getCurrentPosition(),
-                drive.getFrontRightSwerveModuleSubsystem().getCurrentPosition(),
-                drive.getRearLeftSwerveModuleSubsystem().getCurrentPosition(),
-                drive.getRearRightSwerveModuleSubsystem().getCurrentPosition()
-        };
+        copyModulePosition(drive.getFrontLeftSwerveModuleSubsystem().getCurrentPosition(), positions[0]);
+        copyModulePosition(drive.getFrontRightSwerveModuleSubsystem().getCurrentPosition(), positions[1]);
+        copyModulePosition(drive.getRearLeftSwerveModuleSubsystem().getCurrentPosition(), positions[2]);
+        copyModulePosition(drive.getRearRightSwerveModuleSubsystem().getCurrentPosition(), positions[3]);
+        return positions;
+    }
+
+    private static void copyModulePosition(SwerveModulePosition from, SwerveModulePosition into) {
+        into.distanceMeters = from.distanceMeters;
+        into.angle = from.angle;
     }
 
     public void setCurrentPosition(double newXPositionMeters, double newYPositionMeters, WrappedRotation2d heading) {
         super.setCurrentPosition(newXPositionMeters, newYPositionMeters);
         super.setCurrentHeading(heading.getDegrees());
+        poseHistory.clear();
         onlyWheelsGyroSwerveOdometry.resetPosition(
                 heading,
                 getSwerveModulePositions(),
@@ -224,6 +336,7 @@ public class PoseSubsystem extends BasePoseSubsystem {
                         newXPositionMeters,
                         newYPositionMeters,
                         this.getCurrentHeadingGyroOnly()));
+        refreshSnapshot();
     }
 
     public void setCurrentPosition(Pose2d pose) {
@@ -238,24 +351,20 @@ public class PoseSubsystem extends BasePoseSubsystem {
         );
     }
 
+    /**
+     * Gets the live pose from whichever estimator we're trusting. Callers that want every read in a loop to agree
+     * should use getPoseSnapshot() instead.
+     */
     @Override
     public Pose2d getCurrentPose2d() {
-        return useVisionAssistedPose.get() ? new Pose2d(
-                fullSwerveOdometry.getEstimatedPosition().getTranslation(),
-                fullSwerveOdometry.getEstimatedPosition().getRotation()
-        ) : new Pose2d(
-                onlyWheelsGyroSwerveOdometry.getEstimatedPosition().getTranslation(),
-                onlyWheelsGyroSwerveOdometry.getEstimatedPosition().getRotation()
-        );
+        return useVisionAssistedPose.get()
+                ? fullSwerveOdometry.getEstimatedPosition()
+                : onlyWheelsGyroSwerveOdometry.getPoseMeters();
     }
 
     @Override
     public WrappedRotation2d getCurrentHeading() {
-        if (useVisionAssistedPose.get()) {
-            return WrappedRotation2d.fromRotation2d(fullSwerveOdometry.getEstimatedPosition().getRotation());
-        } else {
-            return WrappedRotation2d.fromRotation2d(onlyWheelsGyroSwerveOdometry.getEstimatedPosition().getRotation());
-        }
+        return WrappedRotation2d.fromRotation2d(getCurrentPose2d().getRotation());
     }
 
     // used by the physics simulator to mock what the swerve modules are doing currently for pose estimation
@@ -264,27 +373,28 @@ public class PoseSubsystem extends BasePoseSubsystem {
     }
 
     public Pose2d getClosestReefFacePose() {
-        Pose2d currentPose = getCurrentPose2d();
+        var currentPose = getPoseSnapshot();
+        return currentPose.pose().nearest(Landmarks.getReefFacePoses(currentPose.alliance()));
+    }
 
-        List<Pose2d> reefFacePoses = Arrays.asList(
-                convertBlueToRedIfNeeded(Landmarks.BlueCloseAlgae),
-                convertBlueToRedIfNeeded(Landmarks.BlueCloseLeftAlgae),
-                convertBlueToRedIfNeeded(Landmarks.BlueCloseRightAlgae),
-                convertBlueToRedIfNeeded(Landmarks.BlueFarLeftAlgae),
-                convertBlueToRedIfNeeded(Landmarks.BlueFarAlgae),
-                convertBlueToRedIfNeeded(Landmarks.BlueFarRightAlgae));
+    public Landmarks.ReefFace getClosestReefFace() {
+        var facePoses = Landmarks.getReefFacePoses(getPoseSnapshot().alliance());
+        return Landmarks.ReefFace.values()[facePoses.indexOf(getClosestReefFacePose())];
+    }
 
-        return currentPose.nearest(reefFacePoses);
+    public Landmarks.Branch getClosestBranch(Landmarks.ReefFace face) {
+        var currentPose = getPoseSnapshot();
+        var translation = currentPose.pose().getTranslation();
+        double distanceToA = translation.getDistance(
+                Landmarks.getBranchPose(currentPose.alliance(), face, Landmarks.Branch.A).getTranslation());
+        double distanceToB = translation.getDistance(
+                Landmarks.getBranchPose(currentPose.alliance(), face, Landmarks.Branch.B).getTranslation());
+        return distanceToA <= distanceToB ? Landmarks.Branch.A : Landmarks.Branch.B;
     }
 
     public Landmarks.ReefFace getReefFaceFromAngle() {
-        double currentAngleInDegrees;
-        if (useVisionAssistedPose.get()) {
-            currentAngleInDegrees = fullSwerveOdometry.getEstimatedPosition().getRotation().getDegrees();
-        } else {
-            currentAngleInDegrees = onlyWheelsGyroSwerveOdometry.getEstimatedPosition().getRotation().getDegrees();
-        }
-        
+        double currentAngleInDegrees = getCurrentHeading().getDegrees();
+
         if (currentAngleInDegrees > 150 || currentAngleInDegrees < -150) {
             return Landmarks.ReefFace.FAR;
         }
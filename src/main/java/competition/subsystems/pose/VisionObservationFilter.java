@@ -0,0 +1,200 @@
+package competition.subsystems.pose;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import xbot.common.advantage.AKitLogger;
+import xbot.common.properties.DoubleProperty;
+import xbot.common.properties.PropertyFactory;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Decides which vision pose observations are worth handing to the pose estimator.
+ * Each loop, observations are offered one at a time, along with the camera they came from. Each camera has a
+ * consumption cursor, so a frame no newer than the last one we looked at from that camera is a duplicate, but
+ * two cameras capturing at the same moment are both used. Frames older than our pose history, low-confidence
+ * frames, and frames that disagree too much with where odometry says we were at capture time are also dropped.
+ * Whatever survives is handed to the estimator in timestamp order.
+ */
+public class VisionObservationFilter {
+
+    public enum Verdict {
+        Accepted,
+        Duplicate,
+        Stale,
+        Overflow,
+        LowConfidence,
+        Innovation
+    }
+
+    static final int maxFramesPerLoop = 32;
+
+    final DoubleProperty maxXYStandardDeviation;
+    final DoubleProperty maxTranslationInnovationMeters;
+    final DoubleProperty maxHeadingInnovationDegrees;
+    final DoubleProperty innovationRejectionsBeforeReset;
+    final AKitLogger aKitLog;
+
+    private static class Frame {
+        Pose2d pose;
+        double timestampSeconds;
+        Matrix<N3, N1> standardDeviations;
+    }
+
+    private final Frame[] acceptedFrames = new Frame[maxFramesPerLoop];
+    private int acceptedFrameCount = 0;
+    private final Comparator<Frame> byTimestamp = Comparator.comparingDouble(frame -> frame.timestampSeconds);
+
+    // Capture time of the newest frame looked at from each camera, indexed by camera. The extra last entry is
+    // shared by frames whose camera isn't known.
+    private final double[] cameraCursors;
+    private final int[] acceptedCountsByCamera;
+
+    private int consecutiveInnovationRejections = 0;
+    private final int[] verdictCounts = new int[Verdict.values().length];
+    private final String[] verdictCountKeys = new String[Verdict.values().length];
+
+    public VisionObservationFilter(PropertyFactory pf, String owningSystemPrefix, int cameraCount) {
+        pf.setPrefix(owningSystemPrefix + "VisionObservationFilter");
+        aKitLog = new AKitLogger(owningSystemPrefix + "VisionObservationFilter/");
+
+        // The vision subsystem scales standard deviation with tag distance, so this is effectively a distance gate.
+        maxXYStandardDeviation = pf.createPersistentProperty("MaxXYStandardDeviation", 1.0);
+        maxTranslationInnovationMeters = pf.createPersistentProperty("MaxTranslationInnovation-m", 1.0);
+        maxHeadingInnovationDegrees = pf.createPersistentProperty("MaxHeadingInnovation-deg", 20.0);
+        // If odometry has drifted far enough, every frame will look like an outlier. After this many rejections
+        // in a row, trust vision again.
+        innovationRejectionsBeforeReset = pf.createPersistentProperty("InnovationRejectionsBeforeReset", 10.0);
+
+        for (int i = 0; i < acceptedFrames.length; i++) {
+            acceptedFrames[i] = new Frame();
+        }
+        cameraCursors = new double[cameraCount + 1];
+        Arrays.fill(cameraCursors, Double.NEGATIVE_INFINITY);
+        acceptedCountsByCamera = new int[cameraCount + 1];
+        for (Verdict verdict : Verdict.values()) {
+            verdictCountKeys[verdict.ordinal()] = "Frames/" + verdict.name();
+        }
+    }
+
+    private int cursorFor(int camera) {
+        return camera >= 0 && camera < cameraCursors.length - 1 ? camera : cameraCursors.length - 1;
+    }
+
+    /**
+     * Considers one vision observation, and holds on to it for {@link #submitAcceptedFrames} if it passes.
+     * A camera's frames are expected to be offered oldest first.
+     * @param camera Index of the camera that captured the frame, or -1 if it isn't known
+     * @param pose Robot pose seen by the camera
+     * @param timestampSeconds Capture time of the frame
+     * @param standardDeviations Measurement standard deviations reported for the frame
+     * @param history Recent robot poses, used to judge the frame against where we were at capture time
+     * @return Why the frame was accepted or rejected
+     */
+    public Verdict offer(int camera, Pose2d pose, double timestampSeconds, Matrix<N3, N1> standardDeviations,
+                         PoseHistory history) {
+        int cursor = cursorFor(camera);
+        Verdict verdict = evaluate(cursor, pose, timestampSeconds, standardDeviations, history);
+        verdictCounts[verdict.ordinal()]++;
+
+        if (verdict != Verdict.Stale && verdict != Verdict.Overflow && verdict != Verdict.Duplicate) {
+            // Move past everything we've looked at, not just what we accepted, so it isn't judged twice.
+            cameraCursors[cursor] = timestampSeconds;
+        }
+
+        if (verdict == Verdict.Accepted) {
+            acceptedCountsByCamera[cursor]++;
+            Frame frame = acceptedFrames[acceptedFrameCount++];
+            frame.pose = pose;
+            frame.timestampSeconds = timestampSeconds;
+            frame.standardDeviations = standardDeviations;
+        }
+        return verdict;
+    }
+
+    private Verdict evaluate(int cursor, Pose2d pose, double timestampSeconds, Matrix<N3, N1> standardDeviations,
+                             PoseHistory history) {
+        if (timestampSeconds <= cameraCursors[cursor]) {
+            return Verdict.Duplicate;
+        }
+
+        if (acceptedFrameCount >= maxFramesPerLoop) {
+            return Verdict.Overflow;
+        }
+
+        var poseAtCapture = history.getPoseAt(timestampSeconds);
+        if (poseAtCapture.isEmpty()) {
+            // Older than anything we remember; the estimator would ignore it anyway.
+            return Verdict.Stale;
+        }
+
+        if (Math.max(standardDeviations.get(0, 0), standardDeviations.get(1, 0)) > maxXYStandardDeviation.get()) {
+            return Verdict.LowConfidence;
+        }
+
+        double translationInnovation = poseAtCapture.get().getTranslation().getDistance(pose.getTranslation());
+        double headingInnovation = Math.abs(Math.toDegrees(MathUtil.angleModulus(
+                pose.getRotation().getRadians() - poseAtCapture.get().getRotation().getRadians())));
+        if (translationInnovation > maxTranslationInnovationMeters.get()
+                || headingInnovation > maxHeadingInnovationDegrees.get()) {
+            consecutiveInnovationRejections++;
+            if (consecutiveInnovationRejections <= innovationRejectionsBeforeReset.get()) {
+                return Verdict.Innovation;
+            }
+        }
+
+        consecutiveInnovationRejections = 0;
+        return Verdict.Accepted;
+    }
+
+    /**
+     * Somewhere to send accepted frames. Matches {@link SwerveDrivePoseEstimator#addVisionMeasurement}.
+     */
+    interface MeasurementSink {
+        void addVisionMeasurement(Pose2d pose, double timestampSeconds, Matrix<N3, N1> standardDeviations);
+    }
+
+    /**
+     * Hands every frame accepted since the last call to the estimator, oldest first.
+     * @param estimator The estimator to update
+     * @return How many frames were submitted
+     */
+    public int submitAcceptedFrames(SwerveDrivePoseEstimator estimator) {
+        return submitAcceptedFrames(estimator::addVisionMeasurement);
+    }
+
+    int submitAcceptedFrames(MeasurementSink sink) {
+        Arrays.sort(acceptedFrames, 0, acceptedFrameCount, byTimestamp);
+        for (int i = 0; i < acceptedFrameCount; i++) {
+            Frame frame = acceptedFrames[i];
+            sink.addVisionMeasurement(frame.pose, frame.timestampSeconds, frame.standardDeviations);
+            frame.pose = null;
+            frame.standardDeviations = null;
+        }
+
+        int submitted = acceptedFrameCount;
+        acceptedFrameCount = 0;
+
+        for (int i = 0; i < verdictCounts.length; i++) {
+            aKitLog.record(verdictCountKeys[i], verdictCounts[i]);
+        }
+        return submitted;
+    }
+
+    public int getVerdictCount(Verdict verdict) {
+        return verdictCounts[verdict.ordinal()];
+    }
+
+    /**
+     * @param camera Index of the camera, or -1 for frames whose camera wasn't known
+     * @return How many of the camera's frames have been accepted so far
+     */
+    public int getAcceptedCount(int camera) {
+        return acceptedCountsByCamera[cursorFor(camera)];
+    }
+}
@@ -0,0 +1,214 @@
+package competition.subsystems.pose;
+
+import competition.injection.BackgroundExecutor;
+import competition.subsystems.vision.CoprocessorCommunicationSubsystem;
+import edu.wpi.first.math.geometry.Pose2d;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.kobe.xbot.JClient.XTablesClient;
+import org.kobe.xbot.Utilities.Entities.BatchedPushRequests;
+import xbot.common.advantage.AKitLogger;
+import xbot.common.controls.sensors.XTimer;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Sends poses to the coprocessors over XTables from a background thread, so the robot loop only has to hand
+ * them off.
+ *
+ * <p>Each key is a {@link Topic}, created once while setting up. Every loop, the robot offers a pose to each topic
+ * and then calls {@link #send()}, which hands the whole set to the background thread as one unit. The background
+ * thread turns that set into a single batch, so every pose in a batch comes from the same loop. If the loop sends
+ * again before the previous set went out (or faster than the batch rate allows), the older set is replaced whole.
+ * Poses that moved less than the thresholds since they were last sent are left out of the batch, except for an
+ * occasional heartbeat so late subscribers still get a value; a pose that's left out is still current.
+ *
+ * <p>Nothing runs in the background unless the loop has sent something.
+ */
+@Singleton
+public class XTablesPosePublisher {
+
+    private static final Logger log = LogManager.getLogger(XTablesPosePublisher.class);
+
+    // A little under the fastest (20 ms) robot loop, so loop jitter alone doesn't drop a set.
+    static final double minSecondsBetweenBatches = 0.015;
+    static final double minTranslationChangeMeters = 0.005;
+    static final double minRotationChangeRadians = Math.toRadians(0.25);
+    static final double heartbeatSeconds = 1.0;
+    // x, y and heading; each topic adds its key
+    static final int payloadBytesPerPose = 3 * Double.BYTES;
+
+    /**
+     * One XTables key. Offered from the robot loop, published from the background thread.
+     */
+    public static class Topic {
+        final String key;
+        final int index;
+        final int approximateBytes;
+
+        // Only touched on the robot loop
+        Pose2d offered;
+        // Only touched on the publishing thread
+        Pose2d lastPublished;
+        double lastPublishTime = Double.NEGATIVE_INFINITY;
+
+        final AtomicLong skipped = new AtomicLong();
+        final AtomicLong published = new AtomicLong();
+
+        Topic(String key, int index) {
+            this.key = key;
+            this.index = index;
+            this.approximateBytes = key.length() + payloadBytesPerPose;
+        }
+
+        /**
+         * Sets this topic's pose for the set the next {@link #send()} hands off. Never blocks.
+         */
+        public void offer(Pose2d pose) {
+            offered = pose;
+        }
+
+        /**
+         * @return Whether the pose is worth publishing; if so, it's recorded as published
+         */
+        boolean takeIfChanged(Pose2d pose, double now) {
+            boolean heartbeatDue = now - lastPublishTime >= heartbeatSeconds;
+            if (!heartbeatDue && lastPublished != null && !movedEnough(lastPublished, pose)) {
+                skipped.incrementAndGet();
+                return false;
+            }
+            lastPublished = pose;
+            lastPublishTime = now;
+            published.incrementAndGet();
+            return true;
+        }
+
+        private static boolean movedEnough(Pose2d from, Pose2d to) {
+            return from.getTranslation().getDistance(to.getTranslation()) >= minTranslationChangeMeters
+                    || Math.abs(from.getRotation().minus(to.getRotation()).getRadians()) >= minRotationChangeRadians;
+        }
+    }
+
+    final CoprocessorCommunicationSubsystem coprocessorComms;
+    final AKitLogger aKitLog;
+    private final Executor executor;
+    private final List<Topic> topics = new ArrayList<>();
+
+    final AtomicReference<Pose2d[]> pendingSet = new AtomicReference<>();
+    private final AtomicBoolean flushQueued = new AtomicBoolean(false);
+    // Only touched on the publishing thread
+    private double lastBatchTime = Double.NEGATIVE_INFINITY;
+
+    private long setsSent = 0;
+    final AtomicLong setsSuperseded = new AtomicLong();
+    private final AtomicLong batchesSent = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    @Inject
+    public XTablesPosePublisher(CoprocessorCommunicationSubsystem coprocessorComms,
+                                @BackgroundExecutor Executor executor) {
+        this.coprocessorComms = coprocessorComms;
+        this.executor = executor;
+        this.aKitLog = new AKitLogger("XTablesPosePublisher/");
+    }
+
+    /**
+     * Creates a topic. Meant to be called while setting up, before poses start flowing.
+     */
+    public Topic createTopic(String key) {
+        var topic = new Topic(key, topics.size());
+        topics.add(topic);
+        return topic;
+    }
+
+    /**
+     * Hands the poses offered since the last call to the background thread as one set. Call from the robot loop,
+     * once every topic has its pose for this loop. Never blocks.
+     */
+    public void send() {
+        var set = new Pose2d[topics.size()];
+        for (var topic : topics) {
+            set[topic.index] = topic.offered;
+            topic.offered = null;
+        }
+        setsSent++;
+        if (pendingSet.getAndSet(set) != null) {
+            setsSuperseded.incrementAndGet();
+        }
+        if (flushQueued.compareAndSet(false, true)) {
+            executor.execute(this::flush);
+        }
+    }
+
+    private void flush() {
+        flushQueued.set(false);
+        try {
+            double now = XTimer.getFPGATimestamp();
+            // Too soon; the set stays pending until the loop replaces it
+            if (now - lastBatchTime < minSecondsBetweenBatches) {
+                return;
+            }
+            var set = pendingSet.getAndSet(null);
+            XTablesClient client = coprocessorComms.getXTablesManager().getOrNull();
+            if (set == null || client == null) {
+                return;
+            }
+            var batch = new BatchedPushRequests();
+            int bytes = collectChanged(set, now, batch);
+            lastBatchTime = now;
+            if (bytes > 0) {
+                // Asynchronous, and the whole set goes out in a single message
+                client.sendBatchedPushRequests(batch);
+                batchesSent.incrementAndGet();
+                bytesSent.addAndGet(bytes);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to publish poses: {}", e.toString());
+        }
+    }
+
+    /**
+     * Adds every pose in the set that's worth publishing to the batch (if one is given).
+     * @return Approximate payload size, or 0 if nothing needed sending
+     */
+    int collectChanged(Pose2d[] set, double now, BatchedPushRequests batch) {
+        int bytes = 0;
+        for (var topic : topics) {
+            var pose = set[topic.index];
+            if (pose != null && topic.takeIfChanged(pose, now)) {
+                if (batch != null) {
+                    batch.putPose2d(topic.key, pose);
+                }
+                bytes += topic.approximateBytes;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Logs publishing statistics. Call from the robot loop.
+     */
+    public void recordStats() {
+        long skipped = 0;
+        long published = 0;
+        for (var topic : topics) {
+            skipped += topic.skipped.get();
+            published += topic.published.get();
+        }
+        long superseded = setsSuperseded.get();
+        aKitLog.record("SetsSent", setsSent);
+        aKitLog.record("SetsSuperseded", superseded);
+        aKitLog.record("Published", published);
+        aKitLog.record("SkippedUnchanged", skipped);
+        aKitLog.record("DropRate", setsSent == 0 ? 0.0 : (double) superseded / setsSent);
+        aKitLog.record("Batches", batchesSent.get());
+        aKitLog.record("ApproximateBytes", bytesSent.get());
+    }
+}
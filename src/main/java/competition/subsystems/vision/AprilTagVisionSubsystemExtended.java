@@ -1,14 +1,18 @@
 package competition.subsystems.vision;
 
+import competition.simulation.vision.SimulatedCameras;
 import competition.subsystems.pose.Landmarks;
-import competition.subsystems.pose.PoseSubsystem;
 import edu.wpi.first.apriltag.AprilTagFieldLayout;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.wpilibj.DriverStation;
+import xbot.common.controls.sensors.XTimer;
 import xbot.common.injection.electrical_contract.XCameraElectricalContract;
+import xbot.common.properties.DoubleProperty;
 import xbot.common.properties.PropertyFactory;
 import xbot.common.subsystems.vision.AprilTagVisionIO;
 import xbot.common.subsystems.vision.AprilTagVisionIOFactory;
@@ -16,55 +20,328 @@ import xbot.common.subsystems.vision.AprilTagVisionSubsystem;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 @Singleton
 public class AprilTagVisionSubsystemExtended extends AprilTagVisionSubsystem {
-    HashMap<Pose2d, Integer> aprilTagIDHashMap = new HashMap<>();
+    public static final int noTag = -1;
+    // Reef face poses come straight from Landmarks, maybe flipped to the other alliance, so anything further off
+    // than this isn't a reef face pose at all.
+    static final double reefFaceMatchToleranceMeters = 0.05;
+
     private final AprilTagFieldLayout aprilTagFieldLayout;
 
+    // Everything we need to know about each tag, indexed by tag ID and built once at startup.
+    private final Pose3d[] tagFieldPoses;
+    private final Landmarks.FieldElementType[] tagElementTypes;
+    private final Landmarks.ReefFace[] tagReefFaces;
+    // And the other direction: which tag is on each reef face, indexed by [alliance][face].
+    private final int[][] reefFaceTagIds =
+            new int[DriverStation.Alliance.values().length][Landmarks.ReefFace.values().length];
+    private final DoubleProperty targetObservationLatencySeconds;
+
+    // Each camera's inputs, as last updated by the base class.
+    final CameraInputCapture cameraInputs;
+    private final Rotation3d[] cameraRotations;
+    // When the frame behind each camera's current targets was captured, and the targets it was worked out for.
+    private final double[] cameraFrameTimestamps;
+    private final AprilTagVisionIO.TargetObservation[][] cameraFrameTargets;
+
+    // What every camera saw this loop, captured once in refreshDataFrame so that every query is an array read
+    // and everyone in the loop agrees on what was seen. Per-tag slots are indexed by [camera * tagSlots + tagId].
+    private final int tagSlots;
+    private final boolean[] tagVisible;
+    private final double[] tagRobotRelativeX;
+    private final double[] tagRobotRelativeY;
+    private final double[] tagRobotRelativeZ;
+    private final double[] tagAmbiguity;
+    private final double[] tagCaptureTimestamps;
+    // The best (latest) observation for each camera, indexed by camera.
+    private final int[] bestTagId;
+    private final double[] bestTagRobotRelativeX;
+    private final double[] bestTagRobotRelativeY;
+
+    /**
+     * Hands out the real camera IO, wrapped so that we keep hold of each camera's inputs once the base class
+     * has updated them. That lets the frame snapshot read every camera's targets directly, in one pass.
+     */
+    static class CameraInputCapture implements AprilTagVisionIOFactory {
+        private final AprilTagVisionIOFactory delegate;
+        private final List<AprilTagVisionIO.VisionIOInputs> latestInputs = new ArrayList<>();
+
+        CameraInputCapture(AprilTagVisionIOFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public AprilTagVisionIO create(String name, Transform3d robotToCamera) {
+            var io = delegate.create(name, robotToCamera);
+            int camera = latestInputs.size();
+            latestInputs.add(null);
+            return inputs -> {
+                io.updateInputs(inputs);
+                latestInputs.set(camera, inputs);
+            };
+        }
+
+        /**
+         * @return The camera's inputs, or null if it hasn't been updated yet
+         */
+        AprilTagVisionIO.VisionIOInputs get(int camera) {
+            return latestInputs.get(camera);
+        }
+
+        void set(int camera, AprilTagVisionIO.VisionIOInputs inputs) {
+            latestInputs.set(camera, inputs);
+        }
+    }
+
     @Inject
     public AprilTagVisionSubsystemExtended(PropertyFactory pf,
                                            AprilTagFieldLayout fieldLayout, XCameraElectricalContract contract,
-                                           AprilTagVisionIOFactory visionIOFactory) {
-        super(pf, fieldLayout, contract, visionIOFactory);
-
-        // Note: flipped april tag IDs across the y-midpoint of the field for blue alliance
-        // map both blue and red alliance poses
-        aprilTagIDHashMap.put(PoseSubsystem.convertBluetoRed(Landmarks.BlueCloseLeftAlgae), 6);
-        aprilTagIDHashMap.put(PoseSubsystem.convertBluetoRed(Landmarks.BlueCloseAlgae), 7);
-        aprilTagIDHashMap.put(PoseSubsystem.convertBluetoRed(Landmarks.BlueCloseRightAlgae), 8);
-        aprilTagIDHashMap.put(PoseSubsystem.convertBluetoRed(Landmarks.BlueFarLeftAlgae), 11);
-        aprilTagIDHashMap.put(PoseSubsystem.convertBluetoRed(Landmarks.BlueFarAlgae), 10);
-        aprilTagIDHashMap.put(PoseSubsystem.convertBluetoRed(Landmarks.BlueFarRightAlgae), 9);
-        aprilTagIDHashMap.put(Landmarks.BlueCloseLeftAlgae, 19);
-        aprilTagIDHashMap.put(Landmarks.BlueCloseAlgae, 18);
-        aprilTagIDHashMap.put(Landmarks.BlueCloseRightAlgae, 17);
-        aprilTagIDHashMap.put(Landmarks.BlueFarLeftAlgae, 20);
-        aprilTagIDHashMap.put(Landmarks.BlueFarAlgae, 21);
-        aprilTagIDHashMap.put(Landmarks.BlueFarRightAlgae, 22);
+                                           AprilTagVisionIOFactory visionIOFactory,
+                                           @SimulatedCameras Optional<AprilTagVisionIOFactory> simulatedCameras) {
+        this(pf, fieldLayout, contract, new CameraInputCapture(simulatedCameras.orElse(visionIOFactory)));
+    }
+
+    private AprilTagVisionSubsystemExtended(PropertyFactory pf, AprilTagFieldLayout fieldLayout,
+                                            XCameraElectricalContract contract, CameraInputCapture cameraInputs) {
+        super(pf, fieldLayout, contract, cameraInputs);
 
+        this.cameraInputs = cameraInputs;
         aprilTagFieldLayout = fieldLayout;
+
+        int maxTagId = 0;
+        for (var tag : fieldLayout.getTags()) {
+            maxTagId = Math.max(maxTagId, tag.ID);
+        }
+        tagFieldPoses = new Pose3d[maxTagId + 1];
+        tagElementTypes = new Landmarks.FieldElementType[maxTagId + 1];
+        tagReefFaces = new Landmarks.ReefFace[maxTagId + 1];
+        for (int[] faceTagIds : reefFaceTagIds) {
+            Arrays.fill(faceTagIds, noTag);
+        }
+
+        // Tags on the red half of the field belong to the red reef.
+        double fieldMidpointX = fieldLayout.getFieldLength() / 2;
+        for (var tag : fieldLayout.getTags()) {
+            tagFieldPoses[tag.ID] = tag.pose;
+            tagElementTypes[tag.ID] = Landmarks.getFieldElementTypeForAprilTag(tag.ID);
+            if (tagElementTypes[tag.ID] == Landmarks.FieldElementType.REEF_FACE) {
+                var face = Landmarks.getReefFaceFromTagId(tag.ID);
+                var alliance = tag.pose.getX() > fieldMidpointX ? DriverStation.Alliance.Red : DriverStation.Alliance.Blue;
+                tagReefFaces[tag.ID] = face;
+                reefFaceTagIds[alliance.ordinal()][face.ordinal()] = tag.ID;
+            }
+        }
+
+        pf.setPrefix(this);
+        // Time from the camera capturing a frame to its target observations showing up here.
+        targetObservationLatencySeconds = pf.createPersistentProperty("TargetObservationLatency-s", 0.04);
+
+        int cameraCount = getCameraCount();
+        cameraRotations = new Rotation3d[cameraCount];
+        for (int camera = 0; camera < cameraCount; camera++) {
+            cameraRotations[camera] = getCameraPosition(camera).getRotation();
+        }
+        cameraFrameTimestamps = new double[cameraCount];
+        Arrays.fill(cameraFrameTimestamps, Double.NaN);
+        cameraFrameTargets = new AprilTagVisionIO.TargetObservation[cameraCount][];
+
+        tagSlots = maxTagId + 1;
+        tagVisible = new boolean[cameraCount * tagSlots];
+        tagRobotRelativeX = new double[cameraCount * tagSlots];
+        tagRobotRelativeY = new double[cameraCount * tagSlots];
+        tagRobotRelativeZ = new double[cameraCount * tagSlots];
+        tagAmbiguity = new double[cameraCount * tagSlots];
+        tagCaptureTimestamps = new double[cameraCount * tagSlots];
+        bestTagId = new int[cameraCount];
+        bestTagRobotRelativeX = new double[cameraCount];
+        bestTagRobotRelativeY = new double[cameraCount];
+        Arrays.fill(bestTagId, noTag);
+        Arrays.fill(bestTagRobotRelativeX, Double.NaN);
+        Arrays.fill(bestTagRobotRelativeY, Double.NaN);
+    }
+
+    @Override
+    public void refreshDataFrame() {
+        super.refreshDataFrame();
+        captureVisionFrame();
     }
 
-    public Translation2d getRobotRelativeLocationOfBestDetectedAprilTag(int cameraToUse) {
-        Translation3d data = getLatestTargetObservation(cameraToUse).cameraToTarget().getTranslation().rotateBy(
-                getCameraPosition(cameraToUse).getRotation()
-        );
+    void captureVisionFrame() {
+        double now = XTimer.getFPGATimestamp();
+        for (int camera = 0; camera < bestTagId.length; camera++) {
+            Arrays.fill(tagVisible, camera * tagSlots, (camera + 1) * tagSlots, false);
+            bestTagId[camera] = noTag;
+            bestTagRobotRelativeX[camera] = Double.NaN;
+            bestTagRobotRelativeY[camera] = Double.NaN;
+
+            var inputs = cameraInputs.get(camera);
+            if (inputs == null || inputs.targetObservations == null) {
+                continue;
+            }
+            double captureTime = updateFrameTimestamp(camera, inputs, now);
+
+            // One pass over what the camera saw, rotating from the camera's frame into the robot's frame once here
+            // rather than in every query.
+            for (var target : inputs.targetObservations) {
+                int tagId = target.fiducialId();
+                if (target.cameraToTarget() == null || tagId < 0 || tagId >= tagSlots) {
+                    continue;
+                }
+                int slot = camera * tagSlots + tagId;
+                if (tagVisible[slot] && tagAmbiguity[slot] <= target.ambiguity()) {
+                    continue;
+                }
+                Translation3d location = target.cameraToTarget().getTranslation().rotateBy(cameraRotations[camera]);
+                tagVisible[slot] = true;
+                tagRobotRelativeX[slot] = location.getX();
+                tagRobotRelativeY[slot] = location.getY();
+                tagRobotRelativeZ[slot] = location.getZ();
+                tagAmbiguity[slot] = target.ambiguity();
+                tagCaptureTimestamps[slot] = captureTime;
+            }
 
-        return new Translation2d(data.getX(), data.getY());
+            var best = inputs.latestTargetObservation;
+            if (best != null && best.cameraToTarget() != null) {
+                int bestSlot = slotFor(camera, best.fiducialId());
+                bestTagId[camera] = best.fiducialId();
+                if (bestSlot >= 0 && tagVisible[bestSlot]) {
+                    bestTagRobotRelativeX[camera] = tagRobotRelativeX[bestSlot];
+                    bestTagRobotRelativeY[camera] = tagRobotRelativeY[bestSlot];
+                } else {
+                    Translation3d bestLocation = best.cameraToTarget().getTranslation().rotateBy(cameraRotations[camera]);
+                    bestTagRobotRelativeX[camera] = bestLocation.getX();
+                    bestTagRobotRelativeY[camera] = bestLocation.getY();
+                }
+            }
+        }
     }
 
-    public Optional<Translation2d> getRobotRelativeLocationOfAprilTag(int cameraToUse, int tagId) {
-        var observation = getTargetObservation(cameraToUse, tagId);
-        return observation.map(obs -> {
-            Translation3d data = obs.cameraToTarget().getTranslation().rotateBy(
-                    getCameraPosition(cameraToUse).getRotation()
-            );
+    /**
+     * Works out when the frame behind the camera's current targets was captured. Target observations don't carry
+     * a capture time, but the pose observations solved from the same frame do. If a new set of targets arrives
+     * without one, fall back to the configured latency.
+     * @return FPGA time the camera's current frame was captured
+     */
+    private double updateFrameTimestamp(int camera, AprilTagVisionIO.VisionIOInputs inputs, double now) {
+        double latestPoseObservation = Double.NaN;
+        if (inputs.poseObservations != null) {
+            for (var observation : inputs.poseObservations) {
+                if (Double.isNaN(latestPoseObservation) || observation.timestamp() > latestPoseObservation) {
+                    latestPoseObservation = observation.timestamp();
+                }
+            }
+        }
+
+        if (!Double.isNaN(latestPoseObservation)) {
+            cameraFrameTimestamps[camera] = latestPoseObservation;
+        } else if (inputs.targetObservations != cameraFrameTargets[camera]
+                || Double.isNaN(cameraFrameTimestamps[camera])) {
+            cameraFrameTimestamps[camera] = now - targetObservationLatencySeconds.get();
+        }
+        cameraFrameTargets[camera] = inputs.targetObservations;
+        return cameraFrameTimestamps[camera];
+    }
+
+    /**
+     * Works out which camera produced one of {@link #getAllPoseObservations()}, since they don't say. The observation
+     * is matched on capture time, then on the solved pose, against what each camera delivered this loop.
+     * @param timestampSeconds Capture time of the observation
+     * @param robotPose Robot pose of the observation
+     * @return The camera index, or -1 if no camera delivered a frame captured at that time this loop
+     */
+    public int getCameraForPoseObservation(double timestampSeconds, Pose2d robotPose) {
+        int bestCamera = -1;
+        double bestDistanceSquared = Double.MAX_VALUE;
+        for (int camera = 0; camera < bestTagId.length; camera++) {
+            var inputs = cameraInputs.get(camera);
+            if (inputs == null || inputs.poseObservations == null) {
+                continue;
+            }
+            for (var observation : inputs.poseObservations) {
+                if (observation.timestamp() != timestampSeconds) {
+                    continue;
+                }
+                double dx = observation.pose().getX() - robotPose.getX();
+                double dy = observation.pose().getY() - robotPose.getY();
+                double distanceSquared = dx * dx + dy * dy;
+                if (distanceSquared < bestDistanceSquared) {
+                    bestDistanceSquared = distanceSquared;
+                    bestCamera = camera;
+                }
+            }
+        }
+        return bestCamera;
+    }
 
-            return new Translation2d(data.getX(), data.getY());
-        });
+    private int slotFor(int camera, int tagId) {
+        if (camera < 0 || camera >= bestTagId.length || tagId < 0 || tagId >= tagSlots) {
+            return -1;
+        }
+        return camera * tagSlots + tagId;
+    }
+
+    /**
+     * @return True if the camera saw the tag in this loop's frame, with ambiguity no higher than the given limit
+     */
+    public boolean isTagVisible(int camera, int tagId, double maxAmbiguity) {
+        int slot = slotFor(camera, tagId);
+        return slot >= 0 && tagVisible[slot] && tagAmbiguity[slot] <= maxAmbiguity;
+    }
+
+    /**
+     * Robot-relative X (forward) distance to the tag, in meters.
+     * @return The distance, or NaN if the camera doesn't see the tag
+     */
+    public double getRobotRelativeTagX(int camera, int tagId) {
+        return readSlot(tagRobotRelativeX, camera, tagId);
+    }
+
+    /**
+     * Robot-relative Y (left) distance to the tag, in meters.
+     * @return The distance, or NaN if the camera doesn't see the tag
+     */
+    public double getRobotRelativeTagY(int camera, int tagId) {
+        return readSlot(tagRobotRelativeY, camera, tagId);
+    }
+
+    public double getRobotRelativeTagZ(int camera, int tagId) {
+        return readSlot(tagRobotRelativeZ, camera, tagId);
+    }
+
+    public double getTagAmbiguity(int camera, int tagId) {
+        return readSlot(tagAmbiguity, camera, tagId);
+    }
+
+    /**
+     * @return FPGA time the frame the camera saw the tag in was captured, or NaN if the camera doesn't see the tag
+     */
+    public double getTagCaptureTimestamp(int camera, int tagId) {
+        return readSlot(tagCaptureTimestamps, camera, tagId);
+    }
+
+    private double readSlot(double[] values, int camera, int tagId) {
+        int slot = slotFor(camera, tagId);
+        return slot >= 0 && tagVisible[slot] ? values[slot] : Double.NaN;
+    }
+
+    public Optional<Translation2d> getRobotRelativeLocationOfBestDetectedAprilTag(int cameraToUse) {
+        if (cameraToUse < 0 || cameraToUse >= bestTagId.length || bestTagId[cameraToUse] == noTag) {
+            return Optional.empty();
+        }
+        return Optional.of(new Translation2d(bestTagRobotRelativeX[cameraToUse], bestTagRobotRelativeY[cameraToUse]));
+    }
+
+    public Optional<Translation2d> getRobotRelativeLocationOfAprilTag(int cameraToUse, int tagId) {
+        if (!isTagVisible(cameraToUse, tagId, Double.MAX_VALUE)) {
+            return Optional.empty();
+        }
+        return Optional.of(new Translation2d(getRobotRelativeTagX(cameraToUse, tagId), getRobotRelativeTagY(cameraToUse, tagId)));
     }
 
     /**
@@ -73,25 +350,73 @@ public class AprilTagVisionSubsystemExtended extends AprilTagVisionSubsystem {
      * @return the Pose3d (AKA position) of the tag
      */
     public Optional<Pose3d> getAprilTagFieldOrientedPose(int targetAprilTagID) {
-        return aprilTagFieldLayout.getTagPose(targetAprilTagID);
+        if (targetAprilTagID < 0 || targetAprilTagID >= tagFieldPoses.length) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(tagFieldPoses[targetAprilTagID]);
+    }
+
+    /**
+     * @return What kind of field element the tag is mounted on. Unknown tags are treated as reef faces,
+     * matching {@link Landmarks#getFieldElementTypeForAprilTag(int)}.
+     */
+    public Landmarks.FieldElementType getFieldElementType(int tagId) {
+        if (tagId < 0 || tagId >= tagElementTypes.length || tagElementTypes[tagId] == null) {
+            return Landmarks.getFieldElementTypeForAprilTag(tagId);
+        }
+        return tagElementTypes[tagId];
+    }
+
+    /**
+     * @return The reef face the tag is on, or empty if it isn't a reef tag
+     */
+    public Optional<Landmarks.ReefFace> getReefFace(int tagId) {
+        if (tagId < 0 || tagId >= tagReefFaces.length) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(tagReefFaces[tagId]);
     }
 
     public boolean reefAprilTagCameraHasCorrectTarget(int targetAprilTagID) {
-        AprilTagVisionIO.TargetObservation targetObservation = getLatestTargetObservation(0);
-        return targetObservation.fiducialId() == targetAprilTagID;
+        return doesCameraBestObservationHaveAprilTagId(0, targetAprilTagID);
     }
 
     public boolean doesCameraBestObservationHaveAprilTagId(int cameraToUse, int targetAprilTagID) {
-        AprilTagVisionIO.TargetObservation targetObservation = getLatestTargetObservation(cameraToUse);
-        return targetObservation.fiducialId() == targetAprilTagID;
+        return targetAprilTagID != noTag && cameraToUse >= 0 && cameraToUse < bestTagId.length
+                && bestTagId[cameraToUse] == targetAprilTagID;
     }
 
+    /**
+     * Finds the tag on the reef face closest to the given pose. Intended for poses from
+     * {@link Landmarks#getReefFacePose(DriverStation.Alliance, Landmarks.ReefFace)}, for either alliance.
+     * @return The tag ID, or {@link #noTag} if the pose isn't on any reef face
+     */
     public int getTargetAprilTagID(Pose2d targetReefFacePose) {
-        return aprilTagIDHashMap.get(targetReefFacePose);
+        DriverStation.Alliance closestAlliance = DriverStation.Alliance.Blue;
+        Landmarks.ReefFace closestFace = Landmarks.ReefFace.CLOSE;
+        double closestDistance = Double.MAX_VALUE;
+        for (DriverStation.Alliance alliance : DriverStation.Alliance.values()) {
+            for (Landmarks.ReefFace face : Landmarks.ReefFace.values()) {
+                double distance = Landmarks.getReefFacePose(alliance, face).getTranslation()
+                        .getDistance(targetReefFacePose.getTranslation());
+                if (distance < closestDistance) {
+                    closestDistance = distance;
+                    closestAlliance = alliance;
+                    closestFace = face;
+                }
+            }
+        }
+        if (closestDistance > reefFaceMatchToleranceMeters) {
+            return noTag;
+        }
+        return getTargetAprilTagID(closestAlliance, closestFace);
     }
 
     public int getTargetAprilTagID(Landmarks.ReefFace reefFace) {
-        Pose2d targetReefFacePose = PoseSubsystem.convertBlueToRedIfNeeded(Landmarks.getReefFacePose(reefFace));
-        return getTargetAprilTagID(targetReefFacePose);
+        return getTargetAprilTagID(DriverStation.getAlliance().orElse(DriverStation.Alliance.Blue), reefFace);
+    }
+
+    public int getTargetAprilTagID(DriverStation.Alliance alliance, Landmarks.ReefFace reefFace) {
+        return reefFaceTagIds[alliance.ordinal()][reefFace.ordinal()];
     }
 }
@@ -1,21 +1,50 @@
 package competition.subsystems.vision;
 
+import com.google.protobuf.ByteString;
+import competition.injection.BackgroundExecutor;
+import com.google.protobuf.InvalidProtocolBufferException;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
 import org.kobe.xbot.JClient.XTablesClient;
 import org.kobe.xbot.JClient.XTablesClientManager;
+import org.kobe.xbot.Utilities.Entities.XTableValues;
 import org.kobe.xbot.Utilities.Logger.XTablesLogger;
+import org.kobe.xbot.Utilities.XTablesByteUtils;
 import xbot.common.advantage.DataFrameRefreshable;
 import xbot.common.command.BaseSubsystem;
+import xbot.common.controls.sensors.XTimer;
 import xbot.common.logging.RobotAssertionManager;
 import xbot.common.properties.PropertyFactory;
 import xbot.common.properties.StringProperty;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import java.util.logging.Level;
 
 /**
  * This is a subsystem for getting data from coprocessors not related to AprilTags (e.g. data
  * about Coral, Algae, other robots, planned paths).
+ *
+ * <p>Coprocessor data is pushed to us: a background thread subscribes to the XTables keys once the client
+ * connects, and each update is decoded on the XTables thread into a {@link CoprocessorDataChannel}.
+ * The robot loop only reads the snapshot taken in refreshDataFrame(), so it never touches the network.
+ *
+ * <p>Values use the same XTables types the coprocessor already exchanges with us: poses are the
+ * {@link XTableValues.ControlPoint} messages its path planner takes, waypoints are the control points of the
+ * {@link XTableValues.BezierCurves} it plans, and plain numbers (like the teleport position the dashboard sets)
+ * are XTables doubles.
+ *
+ * <p>The same background thread pings the coprocessor to keep a {@link CoprocessorLatencyEstimator} estimate. None
+ * of those values carry the coprocessor's clock, so each reading is stamped with when it was most likely sent:
+ * half the measured round trip before it arrived.
+ *
+ * <p>The background work is requested from refreshDataFrame(), so it only happens while the robot loop is running.
  */
 @Singleton
 public class CoprocessorCommunicationSubsystem extends BaseSubsystem implements DataFrameRefreshable {
@@ -30,10 +59,34 @@ public class CoprocessorCommunicationSubsystem extends BaseSubsystem implements
     // always persisted xtables client manager instance
     private XTablesClientManager xTablesClientManager;
 
+    static final double backgroundPeriodSeconds = 0.25;
+    static final String timeSyncPingKey = "TimeSync.Ping";
+    static final String timeSyncPongKey = "TimeSync.Pong";
+
+    final CoprocessorLatencyEstimator latencyEstimator = new CoprocessorLatencyEstimator();
+
+    final CoprocessorDataChannel<Pose2d> targetPose = new CoprocessorDataChannel<>("TargetPose");
+    final CoprocessorDataChannel<List<Translation2d>> targetWaypoints = new CoprocessorDataChannel<>("TargetWaypoints");
+    final CoprocessorDataChannel<Double> targetHeading = new CoprocessorDataChannel<>("TargetHeading");
+    final CoprocessorDataChannel<Double> teleportX = new CoprocessorDataChannel<>("TeleportX");
+    final CoprocessorDataChannel<Double> teleportY = new CoprocessorDataChannel<>("TeleportY");
+    final CoprocessorDataChannel<Double> teleportYaw = new CoprocessorDataChannel<>("TeleportYaw");
+    private final List<CoprocessorDataChannel<?>> channels =
+            List.of(targetPose, targetWaypoints, targetHeading, teleportX, teleportY, teleportYaw);
+
+    // Subscribes once connected, then keeps pinging to measure the round trip
+    private final Executor backgroundExecutor;
+    private final AtomicBoolean backgroundTasksQueued = new AtomicBoolean(false);
+    private double lastBackgroundRequestTime = Double.NEGATIVE_INFINITY;
+    // Only touched on the background thread
+    private boolean subscribed = false;
+
 
     @Inject
-    public CoprocessorCommunicationSubsystem(PropertyFactory pf, RobotAssertionManager assertionManager) {
+    public CoprocessorCommunicationSubsystem(PropertyFactory pf, RobotAssertionManager assertionManager,
+                                             @BackgroundExecutor Executor backgroundExecutor) {
         this.assertionManager = assertionManager;
+        this.backgroundExecutor = backgroundExecutor;
         pf.setPrefix(this);
 
         xtablesTargetPose = pf.createPersistentProperty("Xtables Target Pose", "target_pose");
@@ -44,6 +97,167 @@ public class CoprocessorCommunicationSubsystem extends BaseSubsystem implements
         XTablesLogger.setLoggingLevel(Level.OFF);
     }
 
+    private void runBackgroundTasks() {
+        try {
+            XTablesClient client = xTablesClientManager.getOrNull();
+            if (client == null) {
+                return;
+            }
+            if (!subscribed) {
+                subscribe(client, xtablesTargetPose.get(), targetPose, CoprocessorCommunicationSubsystem::decodePose);
+                subscribe(client, xtablesCoordinateLocation.get(), targetWaypoints,
+                        CoprocessorCommunicationSubsystem::decodeWaypoints);
+                subscribeDouble(client, xtablesHeadingLocation.get(), targetHeading);
+                // Set from the dashboard for TeleportToPositionCommand
+                subscribeDouble(client, "setXPosition", teleportX);
+                subscribeDouble(client, "setYPosition", teleportY);
+                subscribeDouble(client, "setYawRotation", teleportYaw);
+                client.subscribe(timeSyncPongKey, update -> receivePong(update.getValue()));
+                subscribed = true;
+                log.info("Subscribed to coprocessor data");
+            }
+            sendPing(client);
+        } catch (RuntimeException e) {
+            log.warn("Coprocessor communication failed: {}", e.toString());
+        } finally {
+            backgroundTasksQueued.set(false);
+        }
+    }
+
+    private <T> void subscribe(XTablesClient client, String key, CoprocessorDataChannel<T> channel,
+                               Function<ByteString, T> decoder) {
+        client.subscribe(key, update -> receive(channel, decoder, update.getValue(), XTimer.getFPGATimestamp()));
+    }
+
+    /**
+     * Decodes an update into its channel, stamped with when it was most likely sent in FPGA time.
+     */
+    <T> void receive(CoprocessorDataChannel<T> channel, Function<ByteString, T> decoder, ByteString bytes,
+                     double receivedTime) {
+        try {
+            channel.publish(decoder.apply(bytes), receivedTime, latencyEstimator.estimateSendTime(receivedTime));
+        } catch (RuntimeException e) {
+            channel.recordDecodeFailure();
+        }
+    }
+
+    /**
+     * Numbers are often set once (e.g. from the dashboard) before we connect, so also start from the current value.
+     */
+    private void subscribeDouble(XTablesClient client, String key, CoprocessorDataChannel<Double> channel) {
+        subscribe(client, key, channel, XTablesByteUtils::toDouble);
+        try {
+            Double current = client.getDouble(key);
+            if (current != null && channel.getPublishedCount() == 0) {
+                channel.publish(current, XTimer.getFPGATimestamp());
+            }
+        } catch (IllegalArgumentException e) {
+            channel.recordDecodeFailure();
+        }
+    }
+
+    /**
+     * A ping is [sequence, FPGA send time]. The coprocessor echoes it back on the pong key.
+     */
+    private void sendPing(XTablesClient client) {
+        client.putDoubleList(timeSyncPingKey,
+                List.of((double) latencyEstimator.nextPingSequence(), XTimer.getFPGATimestamp()));
+    }
+
+    private void receivePong(ByteString bytes) {
+        double receivedTime = XTimer.getFPGATimestamp();
+        try {
+            receivePong(XTablesByteUtils.toDoubleList(bytes), receivedTime);
+        } catch (RuntimeException e) {
+            log.warn("Malformed ping echo from the coprocessor");
+        }
+    }
+
+    /**
+     * @param values [sequence, FPGA send time], plus anything else the coprocessor appends
+     * @return Whether the echo was used for the round trip estimate
+     */
+    boolean receivePong(List<Double> values, double receivedTime) {
+        if (values.size() < 2) {
+            log.warn("Malformed ping echo from the coprocessor");
+            return false;
+        }
+        return latencyEstimator.recordPong(values.get(0).longValue(), values.get(1), receivedTime);
+    }
+
+    /**
+     * Poses are the same ControlPoint message the coprocessor's path planner takes: meters and degrees.
+     */
+    static Pose2d decodePose(ByteString bytes) {
+        try {
+            var point = XTableValues.ControlPoint.parseFrom(bytes);
+            return new Pose2d(point.getX(), point.getY(), Rotation2d.fromDegrees(point.getRotationDegrees()));
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Waypoints are the control points, in order, of the same BezierCurves message the coprocessor's path planner
+     * sends back.
+     */
+    static List<Translation2d> decodeWaypoints(ByteString bytes) {
+        try {
+            var waypoints = new ArrayList<Translation2d>();
+            for (var curve : XTableValues.BezierCurves.parseFrom(bytes).getCurvesList()) {
+                for (var point : curve.getControlPointsList()) {
+                    waypoints.add(new Translation2d(point.getX(), point.getY()));
+                }
+            }
+            return List.copyOf(waypoints);
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    @Override
+    public void refreshDataFrame() {
+        super.refreshDataFrame();
+        double now = XTimer.getFPGATimestamp();
+        if (now - lastBackgroundRequestTime >= backgroundPeriodSeconds
+                && backgroundTasksQueued.compareAndSet(false, true)) {
+            lastBackgroundRequestTime = now;
+            backgroundExecutor.execute(this::runBackgroundTasks);
+        }
+        for (var channel : channels) {
+            channel.takeSnapshot();
+            aKitLog.record(channel.getName() + "/Published", channel.getPublishedCount());
+            aKitLog.record(channel.getName() + "/DecodeFailures", channel.getDecodeFailureCount());
+        }
+        var latency = latencyEstimator.getEstimate();
+        aKitLog.record("RoundTrip-s", latency.roundTripSeconds());
+        aKitLog.record("RoundTripSamples", latency.samples());
+    }
+
+    public CoprocessorDataChannel<Pose2d> getTargetPoseChannel() {
+        return targetPose;
+    }
+
+    public CoprocessorDataChannel<List<Translation2d>> getTargetWaypointsChannel() {
+        return targetWaypoints;
+    }
+
+    public CoprocessorDataChannel<Double> getTargetHeadingChannel() {
+        return targetHeading;
+    }
+
+    public CoprocessorDataChannel<Double> getTeleportXChannel() {
+        return teleportX;
+    }
+
+    public CoprocessorDataChannel<Double> getTeleportYChannel() {
+        return teleportY;
+    }
+
+    public CoprocessorDataChannel<Double> getTeleportYawChannel() {
+        return teleportYaw;
+    }
+
     public XTablesClientManager getXTablesManager(){
         return xTablesClientManager;
     }
@@ -0,0 +1,87 @@
+package competition.subsystems.vision;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The newest value of one piece of coprocessor data. Values are published from the XTables listener thread
+ * and picked up by the robot loop through a single atomic read per loop, so neither side ever waits on the other.
+ * Everything the loop reads comes from that once-per-loop snapshot, so all consumers in a loop agree.
+ * @param <T> The decoded value
+ */
+public class CoprocessorDataChannel<T> {
+
+    /**
+     * @param value The decoded value
+     * @param receivedTimestamp FPGA time the value arrived on the robot
+     * @param capturedTimestamp FPGA time the coprocessor produced the value, as best we can tell
+     * @param sequence Counts up by one for every value published, so consumers can tell when something new arrived
+     */
+    public record Reading<T>(T value, double receivedTimestamp, double capturedTimestamp, long sequence) {
+    }
+
+    private final String name;
+    private final AtomicReference<Reading<T>> latest = new AtomicReference<>();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong decodeFailures = new AtomicLong();
+    private Reading<T> snapshot;
+
+    public CoprocessorDataChannel(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Safe to call from any thread.
+     */
+    public void publish(T value, double receivedTimestamp, double capturedTimestamp) {
+        latest.set(new Reading<>(value, receivedTimestamp, capturedTimestamp, published.incrementAndGet()));
+    }
+
+    /**
+     * For values with no better idea of when they were produced than when they arrived.
+     */
+    public void publish(T value, double receivedTimestamp) {
+        publish(value, receivedTimestamp, receivedTimestamp);
+    }
+
+    /**
+     * Safe to call from any thread.
+     */
+    public void recordDecodeFailure() {
+        decodeFailures.incrementAndGet();
+    }
+
+    /**
+     * Called once per loop, before anyone reads the channel.
+     */
+    void takeSnapshot() {
+        snapshot = latest.get();
+    }
+
+    /**
+     * @return The newest value as of this loop's snapshot, or empty if nothing has arrived yet
+     */
+    public Optional<Reading<T>> get() {
+        return Optional.ofNullable(snapshot);
+    }
+
+    /**
+     * @return The newest value, if it arrived no more than maxAgeSeconds before the given time
+     */
+    public Optional<Reading<T>> getIfFresh(double nowSeconds, double maxAgeSeconds) {
+        return get().filter(reading -> nowSeconds - reading.receivedTimestamp() <= maxAgeSeconds);
+    }
+
+    public long getPublishedCount() {
+        return published.get();
+    }
+
+    public long getDecodeFailureCount() {
+        return decodeFailures.get();
+    }
+}
@@ -0,0 +1,81 @@
+package competition.subsystems.vision;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Estimates how long coprocessor data takes to reach us, from ping/echo round trips.
+ *
+ * <p>We send a ping carrying a sequence number and our send time, and the coprocessor echoes both back. None of
+ * the values the coprocessor sends carry its own clock, so the best we can say about when one was sent is that it
+ * left half a round trip before it arrived. Network delay is rarely symmetric, and the samples with the shortest
+ * round trips have the least room for asymmetry, so the estimate follows the fastest round trip among the last
+ * few samples.
+ *
+ * <p>Echoes can arrive on any thread; estimates are published atomically for the robot loop.
+ */
+public class CoprocessorLatencyEstimator {
+
+    /**
+     * @param roundTripSeconds Fastest recent round trip
+     * @param samples How many round trips have been accepted
+     */
+    public record Estimate(double roundTripSeconds, int samples) {
+    }
+
+    static final int windowSize = 8;
+    // Round trips slower than this say more about a stalled link than about normal delivery.
+    static final double maxRoundTripSeconds = 0.5;
+
+    private final double[] windowRoundTrips = new double[windowSize];
+    private int samples = 0;
+    private long nextSequence = 1;
+    private long lastSequenceReceived = 0;
+    private final AtomicReference<Estimate> estimate = new AtomicReference<>(new Estimate(Double.NaN, 0));
+
+    /**
+     * @return Sequence number for the next ping
+     */
+    public synchronized long nextPingSequence() {
+        return nextSequence++;
+    }
+
+    /**
+     * Takes in an echoed ping.
+     * @param sequence The ping's sequence number
+     * @param fpgaSendTime Our send time, as echoed back
+     * @param fpgaReceiveTime When the echo got back to us
+     * @return Whether the sample was used
+     */
+    public synchronized boolean recordPong(long sequence, double fpgaSendTime, double fpgaReceiveTime) {
+        double roundTrip = fpgaReceiveTime - fpgaSendTime;
+        // Duplicates and echoes that were overtaken by a newer one are dropped, as are implausible round trips.
+        if (sequence <= lastSequenceReceived || sequence >= nextSequence
+                || roundTrip < 0 || roundTrip > maxRoundTripSeconds) {
+            return false;
+        }
+        lastSequenceReceived = sequence;
+
+        windowRoundTrips[samples % windowSize] = roundTrip;
+        samples++;
+
+        double fastest = Double.POSITIVE_INFINITY;
+        int filled = Math.min(samples, windowSize);
+        for (int i = 0; i < filled; i++) {
+            fastest = Math.min(fastest, windowRoundTrips[i]);
+        }
+        estimate.set(new Estimate(fastest, samples));
+        return true;
+    }
+
+    public Estimate getEstimate() {
+        return estimate.get();
+    }
+
+    /**
+     * Best guess, in FPGA time, at when something that arrived at the given time was sent.
+     */
+    public double estimateSendTime(double fpgaReceiveTime) {
+        var current = estimate.get();
+        return current.samples() > 0 ? fpgaReceiveTime - current.roundTripSeconds() / 2 : fpgaReceiveTime;
+    }
+}
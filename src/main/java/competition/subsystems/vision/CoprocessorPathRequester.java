@@ -0,0 +1,135 @@
+package competition.subsystems.vision;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.kobe.xbot.Utilities.Entities.VisionCoprocessor;
+import org.kobe.xbot.Utilities.Entities.XTableValues;
+import org.kobe.xbot.Utilities.VisionCoprocessorCommander;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Asks the vision coprocessor for Bezier paths without blocking the robot loop.
+ * Requests run on background threads and hand back a future. Finished paths are kept in a small LRU cache keyed by
+ * the start and end poses, rounded so that asking again from nearly the same place is a cache hit. Asking for a
+ * path that's already being requested joins the request in flight rather than starting another.
+ */
+@Singleton
+public class CoprocessorPathRequester {
+
+    private static final Logger log = LogManager.getLogger(CoprocessorPathRequester.class);
+
+    static final int cacheCapacity = 16;
+    static final double positionQuantumMeters = 0.1;
+    static final double headingQuantumDegrees = 5;
+    static final long requestTimeoutSeconds = 5;
+
+    record PathKey(long startX, long startY, long startHeading, long endX, long endY, long endHeading) {
+        static PathKey of(Pose2d start, Pose2d end) {
+            return new PathKey(
+                    Math.round(start.getX() / positionQuantumMeters),
+                    Math.round(start.getY() / positionQuantumMeters),
+                    quantizeHeading(start),
+                    Math.round(end.getX() / positionQuantumMeters),
+                    Math.round(end.getY() / positionQuantumMeters),
+                    quantizeHeading(end));
+        }
+
+        private static long quantizeHeading(Pose2d pose) {
+            // Wrap so that -180 and 180 degrees land in the same bucket
+            return Math.floorMod(Math.round(pose.getRotation().getDegrees() / headingQuantumDegrees),
+                    Math.round(360 / headingQuantumDegrees));
+        }
+    }
+
+    private final Function<XTableValues.RequestVisionCoprocessorMessage, XTableValues.BezierCurves> requester;
+    private final Executor executor;
+
+    private final Map<PathKey, XTableValues.BezierCurves> cache = new LinkedHashMap<>(cacheCapacity, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<PathKey, XTableValues.BezierCurves> eldest) {
+            return size() > cacheCapacity;
+        }
+    };
+    private final Map<PathKey, CompletableFuture<XTableValues.BezierCurves>> requestsInFlight = new HashMap<>();
+
+    @Inject
+    public CoprocessorPathRequester() {
+        // A request that hangs until its timeout shouldn't hold up the next one, so each gets its own thread.
+        this(CoprocessorPathRequester::requestFromCoprocessor, Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "CoprocessorPathRequester");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    CoprocessorPathRequester(Function<XTableValues.RequestVisionCoprocessorMessage, XTableValues.BezierCurves> requester,
+                             Executor executor) {
+        this.requester = requester;
+        this.executor = executor;
+    }
+
+    private static XTableValues.BezierCurves requestFromCoprocessor(XTableValues.RequestVisionCoprocessorMessage message) {
+        try (VisionCoprocessorCommander commander = new VisionCoprocessorCommander(VisionCoprocessor.ORIN2)) {
+            return commander.requestBezierPathWithOptions(message, requestTimeoutSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * @return The curves, if there's at least one control point to drive to
+     */
+    private static XTableValues.BezierCurves requireControlPoints(XTableValues.BezierCurves curves) {
+        if (curves == null || curves.getCurvesList().stream().allMatch(curve -> curve.getControlPointsCount() == 0)) {
+            throw new IllegalStateException("Coprocessor didn't return a path");
+        }
+        return curves;
+    }
+
+    /**
+     * @param start Where the path starts; with end, decides whether a cached path can be used
+     * @param end Where the path ends
+     * @param message The full request to send if the path isn't cached
+     * @return The path, completed immediately on a cache hit. Completes exceptionally if the coprocessor fails,
+     * times out or returns a path with no control points.
+     */
+    public synchronized CompletableFuture<XTableValues.BezierCurves> request(
+            Pose2d start, Pose2d end, XTableValues.RequestVisionCoprocessorMessage message) {
+        var key = PathKey.of(start, end);
+        var cached = cache.get(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        var inFlight = requestsInFlight.get(key);
+        if (inFlight != null) {
+            return inFlight;
+        }
+
+        var request = CompletableFuture.supplyAsync(() -> requireControlPoints(requester.apply(message)), executor);
+        requestsInFlight.put(key, request);
+        request.whenComplete((curves, error) -> finishRequest(key, curves, error));
+        return request;
+    }
+
+    private synchronized void finishRequest(PathKey key, XTableValues.BezierCurves curves, Throwable error) {
+        requestsInFlight.remove(key);
+        if (error == null) {
+            cache.put(key, curves);
+        } else {
+            log.warn("Coprocessor path request failed: {}", error.toString());
+        }
+    }
+
+    synchronized int getCachedPathCount() {
+        return cache.size();
+    }
+}
@@ -0,0 +1,63 @@
+package competition;
+
+import edu.wpi.first.wpilibj.Timer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs whole autos, so it's left out of the regular unit test run; use ./gradlew simulateAuto.
+ */
+public class HeadlessSimulationTest {
+
+    // What a full 15 s auto should take on a dev machine or the build server.
+    static final double wallClockLimitSeconds = 1.0;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAutonomousRunsWellUnderASecond() {
+        try (var sim = new HeadlessSimulation()) {
+            double fpgaStart = Timer.getFPGATimestamp();
+            long wallStart = System.nanoTime();
+
+            sim.startAutonomous(sim.getInjectorComponent().fromLeftCageScoreLeftFacesLevelFours());
+            sim.runFor(15);
+            sim.disable();
+
+            double wallSeconds = (System.nanoTime() - wallStart) / 1e9;
+            double fpgaSeconds = Timer.getFPGATimestamp() - fpgaStart;
+
+            // The clock only moves when we step it, one period per loop.
+            assertEquals(15 + 2 * sim.getRobot().getPeriod(), fpgaSeconds, 1e-6);
+            assertTrue(String.format("15 s of autonomous took %.2f s of wall time", wallSeconds),
+                    wallSeconds < wallClockLimitSeconds);
+            assertEquals(0, sim.getRobot().getScheduler().getNumberOfCrashes());
+        }
+    }
+
+    @Test
+    public void testRecordedRunReplaysExactly() throws IOException {
+        var recording = folder.newFile("auto.sim").toPath();
+        try (var sim = new HeadlessSimulation()) {
+            sim.startRecording(recording, 7, "replay test");
+            sim.startAutonomous(sim.getInjectorComponent().fromLeftCageScoreLeftFacesLevelFours());
+            sim.runFor(5);
+            sim.disable();
+        }
+
+        try (var sim = new HeadlessSimulation()) {
+            sim.selectAutonomous(sim.getInjectorComponent().fromLeftCageScoreLeftFacesLevelFours());
+            var result = sim.replay(recording);
+            assertTrue("Replay diverged at loop " + result.firstDivergentFrame() + ": " + result.divergenceReason(),
+                    result.matched());
+            assertEquals(Math.round(5 / sim.getRobot().getPeriod()) + 2, result.frames());
+        }
+    }
+}
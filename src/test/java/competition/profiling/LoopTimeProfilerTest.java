@@ -0,0 +1,66 @@
+package competition.profiling;
+
+import competition.BaseCompetitionTest;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LoopTimeProfilerTest extends BaseCompetitionTest {
+
+    @Test
+    public void testSectionsAreReused() {
+        LoopTimeProfiler profiler = getInjectorComponent().loopTimeProfiler();
+        assertSame(profiler.getSection("Foo"), profiler.getSection("Foo"));
+    }
+
+    @Test
+    public void testRollingStatistics() {
+        LoopTimeProfiler profiler = getInjectorComponent().loopTimeProfiler();
+        var section = profiler.getSection("Stats");
+
+        for (int i = 1; i <= 100; i++) {
+            section.record(i);
+            profiler.completeLoop(1);
+        }
+
+        assertEquals(50, section.getP50Ms(), 1);
+        assertEquals(99, section.getP99Ms(), 1);
+        assertEquals(100, section.getMaxMs(), 0.001);
+        assertEquals(0, profiler.getOverrunCount());
+    }
+
+    @Test
+    public void testMultipleRecordsInOneLoopAreSummed() {
+        LoopTimeProfiler profiler = getInjectorComponent().loopTimeProfiler();
+        var section = profiler.getSection("Summed");
+
+        section.record(2);
+        section.record(3);
+        assertEquals(5, section.getThisLoopMs(), 0.001);
+        assertEquals(5, profiler.getTotalSectionMsThisLoop(), 0.001);
+
+        profiler.completeLoop(5);
+        assertEquals(5, section.getMaxMs(), 0.001);
+        assertEquals(0, section.getThisLoopMs(), 0.001);
+    }
+
+    @Test
+    public void testOverrunAttributedToLargestContributors() {
+        LoopTimeProfiler profiler = getInjectorComponent().loopTimeProfiler();
+        profiler.getSection("Small").record(1);
+        profiler.getSection("Large").record(15);
+        profiler.getSection("Medium").record(8);
+        profiler.getSection("Tiny").record(0.5);
+
+        profiler.completeLoop(30);
+
+        assertEquals(1, profiler.getOverrunCount());
+        String contributors = profiler.getLastOverrunContributors();
+        assertTrue(contributors, contributors.startsWith("Large="));
+        assertTrue(contributors, contributors.indexOf("Medium=") > contributors.indexOf("Large="));
+        assertTrue(contributors, contributors.indexOf("Small=") > contributors.indexOf("Medium="));
+        assertTrue(contributors, !contributors.contains("Tiny"));
+    }
+}
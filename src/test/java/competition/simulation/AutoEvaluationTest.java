@@ -0,0 +1,60 @@
+package competition.simulation;
+
+import competition.BaseCompetitionTest;
+import competition.simulation.evaluation.AutoEvaluator;
+import competition.simulation.evaluation.MatchResult;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AutoEvaluationTest extends BaseCompetitionTest {
+
+    @Test
+    public void testVariationIsRepeatablePerSeed() {
+        var first = new SimulationVariation();
+        var second = new SimulationVariation();
+        first.randomize(42);
+        second.randomize(42);
+        assertEquals(first.getStartingPoseError(), second.getStartingPoseError());
+        assertEquals(first.getHumanPlayerDelaySeconds(), second.getHumanPlayerDelaySeconds(), 0);
+        assertEquals(first.getExtraVisionLatencySeconds(), second.getExtraVisionLatencySeconds(), 0);
+        assertTrue(first.getExtraVisionLatencySeconds() >= 0
+                && first.getExtraVisionLatencySeconds() <= SimulationVariation.maxExtraVisionLatencySeconds);
+
+        second.randomize(43);
+        assertNotEquals(first.getLaserNoiseMeters(), second.getLaserNoiseMeters(), 0);
+    }
+
+    @Test
+    public void testResultSurvivesJson() {
+        var result = new MatchResult(7, 2, List.of(4.5, 3.25),
+                Map.of(SimulatedMatchStats.Failure.CoralDroppedAwayFromReef, 1));
+        var parsed = MatchResult.fromJson(new JSONObject(result.toJson().toString()));
+        assertEquals(result.seed(), parsed.seed());
+        assertEquals(result.coralScored(), parsed.coralScored());
+        assertEquals(result.cycleTimes(), parsed.cycleTimes());
+        assertEquals(result.failures(), parsed.failures());
+    }
+
+    @Test
+    public void testSummary() {
+        var results = List.of(
+                new MatchResult(0, 2, List.of(5.0, 4.0), Map.of()),
+                new MatchResult(1, 1, List.of(6.0),
+                        Map.of(SimulatedMatchStats.Failure.AutoDidNotFinish, 1)),
+                MatchResult.crashed(2));
+
+        var summary = AutoEvaluator.summarize("Test", results);
+        assertTrue(summary.contains("3 runs"));
+        assertTrue(summary.contains("mean 1.00"));
+        assertTrue(summary.contains("p50 5.00"));
+        assertTrue(summary.contains("AutoDidNotFinish: 1 times in 1 runs"));
+        assertTrue(summary.contains("RunCrashed: 1 times in 1 runs"));
+    }
+}
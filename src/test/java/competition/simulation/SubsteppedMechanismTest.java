@@ -0,0 +1,82 @@
+package competition.simulation;
+
+import competition.BaseCompetitionTest;
+import competition.simulation.elevator.ElevatorSimConstants;
+import edu.wpi.first.math.system.plant.DCMotor;
+import org.junit.Test;
+import xbot.common.controls.actuators.mock_adapters.MockCANMotorController;
+import xbot.common.math.PIDManager;
+
+import static edu.wpi.first.units.Units.Rotations;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SubsteppedMechanismTest extends BaseCompetitionTest {
+
+    private static SubsteppedMechanism createElevator() {
+        return SubsteppedMechanism.createElevator(
+                DCMotor.getKrakenX60(2),
+                ElevatorSimConstants.elevatorGearing,
+                ElevatorSimConstants.carriageMass,
+                ElevatorSimConstants.elevatorDrumRadius,
+                ElevatorSimConstants.minElevatorHeightMeters,
+                ElevatorSimConstants.maxElevatorHeightMeters,
+                true,
+                ElevatorSimConstants.startingHeightMeters,
+                ElevatorSimConstants.rotationsPerMeterHeight,
+                0,
+                SubsteppedMechanism.defaultSubstepSeconds);
+    }
+
+    private static MockCANMotorController createMotor(MockCANMotorController.ControlMode mode, double targetRotations) {
+        var motor = mock(MockCANMotorController.class);
+        when(motor.getControlMode()).thenReturn(mode);
+        when(motor.getTargetPosition()).thenReturn(Rotations.of(targetRotations));
+        when(motor.getPower()).thenReturn(0.0);
+        return motor;
+    }
+
+    private static PIDManager createPid(double p) {
+        var pid = mock(PIDManager.class);
+        when(pid.getP()).thenReturn(p);
+        when(pid.getI()).thenReturn(0.0);
+        when(pid.getD()).thenReturn(0.0);
+        return pid;
+    }
+
+    @Test
+    public void testPositionControlDoesNotDependOnLoopPeriod() {
+        double targetHeight = 1.0;
+        var motor = createMotor(MockCANMotorController.ControlMode.Position,
+                targetHeight * ElevatorSimConstants.rotationsPerMeterHeight);
+        var pid = createPid(0.05);
+
+        var everyTwentyMs = createElevator();
+        var everyFortyMs = createElevator();
+        for (int i = 0; i <= 150; i++) {
+            everyTwentyMs.update(motor, pid, 0.02, true, 12, i * 0.02);
+            if (i % 2 == 0) {
+                everyFortyMs.update(motor, pid, 0.02, true, 12, i * 0.02);
+            }
+        }
+
+        assertEquals(targetHeight, everyTwentyMs.getPosition(), 0.01);
+        assertEquals(everyTwentyMs.getPosition(), everyFortyMs.getPosition(), 1e-6);
+        assertEquals(0, everyTwentyMs.getVelocity(), 0.01);
+    }
+
+    @Test
+    public void testUnpoweredElevatorFallsToTheBottom() {
+        // No gains and no feed forward, so the onboard controller never applies any power
+        var motor = createMotor(MockCANMotorController.ControlMode.Position, 0);
+        var pid = createPid(0);
+        var elevator = createElevator();
+
+        for (int i = 0; i <= 50; i++) {
+            elevator.update(motor, pid, 0, true, 12, i * 0.04);
+        }
+        assertEquals(ElevatorSimConstants.minElevatorHeightMeters, elevator.getPosition(), 1e-9);
+        assertEquals(0, elevator.getVelocity(), 1e-9);
+    }
+}
@@ -0,0 +1,59 @@
+package competition.simulation.reef;
+
+import competition.BaseCompetitionTest;
+import edu.wpi.first.math.geometry.Translation3d;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReefSimulatorTest extends BaseCompetitionTest {
+
+    @Test
+    public void testNearestSlotMatchesBruteForce() {
+        var reef = new ReefSimulator();
+        for (double x = 3.0; x <= 6.0; x += 0.25) {
+            for (double y = 2.5; y <= 5.5; y += 0.25) {
+                for (double z = 0.3; z <= 2.0; z += 0.4) {
+                    var scorer = new Translation3d(x, y, z);
+                    var nearest = reef.findNearestCoral(scorer);
+
+                    double bestDistance = Double.POSITIVE_INFINITY;
+                    for (var face : ReefSimulator.ReefFace.values()) {
+                        for (var level : ReefSimulator.ReefLevel.values()) {
+                            for (var post : ReefSimulator.ReefPost.values()) {
+                                bestDistance = Math.min(bestDistance,
+                                        scorer.getDistance(reef.computeCoralPose(face, level, post).getTranslation()));
+                            }
+                        }
+                    }
+                    assertEquals(bestDistance, scorer.getDistance(reef.getCoralPose(nearest).getTranslation()), 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testScoringUpdatesLoggedPoses() {
+        var reef = new ReefSimulator();
+        assertEquals(0, reef.getCoralPoses().length);
+        assertEquals(6, reef.getAlgaePoses().length);
+
+        var key = new ReefSimulator.ReefCoralKey(
+                ReefSimulator.ReefFace.CLOSE, ReefSimulator.ReefLevel.LEVEL_4, ReefSimulator.ReefPost.B);
+        assertFalse(reef.isCoralScored(key));
+        reef.scoreCoral(key);
+        assertTrue(reef.isCoralScored(key));
+        assertEquals(1, reef.getCoralPoses().length);
+        assertEquals(reef.getCoralPose(key), reef.getCoralPoses()[0]);
+
+        reef.fillReefWithCoral();
+        assertEquals(ReefSimulator.coralSlotCount, new HashSet<>(List.of(reef.getCoralPoses())).size());
+        reef.resetField();
+        assertEquals(0, reef.getCoralPoses().length);
+    }
+}
@@ -0,0 +1,93 @@
+package competition.simulation.replay;
+
+import competition.simulation.SimulationRandom;
+import edu.wpi.first.hal.AllianceStationID;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SimulationRecordingTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static InputFrame.JoystickState[] joysticks(float leftX) {
+        var sticks = new InputFrame.JoystickState[2];
+        sticks[0] = new InputFrame.JoystickState(new float[] {leftX, -0.5f}, 10, 0b101, new short[] {90});
+        sticks[1] = new InputFrame.JoystickState(new float[0], 0, 0, new short[0]);
+        return sticks;
+    }
+
+    @Test
+    public void testFramesRoundTrip() throws IOException {
+        var path = folder.newFile("run.sim").toPath();
+        var header = new SimulationRecording.Header(1234, 0.02, "test run");
+
+        try (var writer = new SimulationRecording.Writer(path, header)) {
+            writer.write(new InputFrame(false, false, false, AllianceStationID.Blue1,
+                    joysticks(0.25f), new double[0], 1));
+            writer.write(new InputFrame(true, true, false, AllianceStationID.Red3,
+                    joysticks(0.25f), new double[] {0.1, 0.9}, -2));
+            writer.write(new InputFrame(true, false, false, AllianceStationID.Red3,
+                    joysticks(-1f), new double[] {Double.MIN_VALUE}, Long.MAX_VALUE));
+        }
+
+        try (var reader = new SimulationRecording.Reader(path)) {
+            assertEquals(header, reader.getHeader());
+
+            var first = reader.read();
+            assertFalse(first.enabled());
+            assertEquals(AllianceStationID.Blue1, first.allianceStation());
+            assertTrue(InputFrame.sameJoysticks(joysticks(0.25f), first.joysticks()));
+            assertEquals(1, first.stateChecksum());
+
+            var second = reader.read();
+            assertTrue(second.enabled());
+            assertTrue(second.autonomous());
+            assertEquals(AllianceStationID.Red3, second.allianceStation());
+            // Unchanged joysticks aren't written again
+            assertNull(second.joysticks());
+            assertArrayEquals(new double[] {0.1, 0.9}, second.randomDraws(), 0);
+            assertEquals(-2, second.stateChecksum());
+
+            var third = reader.read();
+            assertFalse(third.autonomous());
+            assertTrue(InputFrame.sameJoysticks(joysticks(-1f), third.joysticks()));
+            assertArrayEquals(new double[] {Double.MIN_VALUE}, third.randomDraws(), 0);
+            assertEquals(Long.MAX_VALUE, third.stateChecksum());
+
+            assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void testRandomReplaysRecordedDraws() {
+        var random = new SimulationRandom();
+        random.setSeed(5);
+        random.setRecording(true);
+        double first = random.nextDouble();
+        double second = random.nextDouble();
+        var draws = random.takeRecordedDraws();
+        assertArrayEquals(new double[] {first, second}, draws, 0);
+
+        var replayed = new SimulationRandom();
+        replayed.setSeed(99);
+        replayed.setReplaying(true);
+        replayed.queueDrawsToReplay(draws);
+        assertEquals(first, replayed.nextDouble(), 0);
+        assertEquals(second, replayed.nextDouble(), 0);
+        assertFalse(replayed.checkAndClearReplayDivergence());
+
+        // Asking for more than was recorded is a divergence
+        replayed.nextDouble();
+        assertTrue(replayed.checkAndClearReplayDivergence());
+    }
+}
@@ -0,0 +1,61 @@
+package competition.simulation.vision;
+
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class SimulatedAprilTagVisionIOTest {
+
+    static final double horizontalFov = Math.toRadians(70);
+    static final double verticalFov = Math.toRadians(50);
+    static final double maxDistance = 5;
+    static final double maxViewingAngle = Math.toRadians(75);
+
+    // A tag 2 m ahead of the origin, facing back at it
+    final Pose3d tag = new Pose3d(2, 0, 0.3, new Rotation3d(0, 0, Math.PI));
+
+    private SimulatedAprilTagVisionIO.Sighting see(Pose3d camera, Pose3d tagPose) {
+        return SimulatedAprilTagVisionIO.see(camera, tagPose, horizontalFov, verticalFov, maxDistance, maxViewingAngle);
+    }
+
+    @Test
+    public void testTagStraightAheadIsSeen() {
+        var sighting = see(new Pose3d(0, 0, 0.3, new Rotation3d()), tag);
+        assertNotNull(sighting);
+        assertEquals(2, sighting.cameraToTag().getX(), 1e-9);
+        assertEquals(0, sighting.cameraToTag().getY(), 1e-9);
+        assertEquals(2, sighting.distance(), 1e-9);
+        assertEquals(1, sighting.viewingCosine(), 1e-9);
+    }
+
+    @Test
+    public void testTagBehindCameraIsCulled() {
+        assertNull(see(new Pose3d(0, 0, 0.3, new Rotation3d(0, 0, Math.PI)), tag));
+    }
+
+    @Test
+    public void testTagOutsideFieldOfViewIsCulled() {
+        // 45 degrees to the left, past half of the 70 degree field of view
+        assertNull(see(new Pose3d(0, -2, 0.3, new Rotation3d()), tag));
+        // Pitched up well above the tag
+        assertNull(see(new Pose3d(0, 0, 0.3, new Rotation3d(0, Math.toRadians(-40), 0)), tag));
+    }
+
+    @Test
+    public void testDistantTagIsCulled() {
+        assertNull(see(new Pose3d(-4, 0, 0.3, new Rotation3d()), tag));
+    }
+
+    @Test
+    public void testTagSeenFromBehindOrEdgeOnIsCulled() {
+        // The camera is in front, but the tag faces away from it
+        assertNull(see(new Pose3d(0, 0, 0.3, new Rotation3d()), new Pose3d(2, 0, 0.3, new Rotation3d())));
+        // Nearly edge-on: the tag faces 80 degrees away from the camera
+        assertNull(see(new Pose3d(0, 0, 0.3, new Rotation3d()),
+                new Pose3d(2, 0, 0.3, new Rotation3d(0, 0, Math.PI + Math.toRadians(80)))));
+    }
+}
@@ -0,0 +1,66 @@
+package competition.subsystems.drive.logic;
+
+import competition.BaseCompetitionTest;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import org.junit.Test;
+
+import static edu.wpi.first.units.Units.Meters;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AlignCameraToAprilTagCalculatorTargetFixTest extends BaseCompetitionTest {
+
+    private AlignCameraToAprilTagCalculator calculator;
+
+    @Override
+    public void setUp() {
+        super.setUp();
+        calculator = getInjectorComponent().alignCameraToAprilTagCalculatorFactory().create();
+        calculator.configureAndReset(18, 0, Meters.zero(), false);
+    }
+
+    // With no pose history, fixes are placed relative to the current pose, which here is the origin.
+    private double expectedX(double tagX) {
+        return tagX - calculator.alignmentPointOffset.getX();
+    }
+
+    @Test
+    public void testSuccessiveFixesAreBlended() {
+        assertTrue(calculator.fuseTargetFix(new Translation2d(2, 0), 1.0, new Pose2d()));
+        // The first fix is taken as-is
+        assertEquals(expectedX(2), calculator.targetLocationOnField.getX(), 1e-9);
+
+        assertTrue(calculator.fuseTargetFix(new Translation2d(3, 0), 1.1, new Pose2d()));
+        // Moves 30% of the way to the new fix
+        assertEquals(expectedX(2.3), calculator.targetLocationOnField.getX(), 1e-9);
+        assertEquals(0, calculator.targetLocationOnField.getY(), 1e-9);
+    }
+
+    @Test
+    public void testGainOfOneTrustsOnlyTheLatestFix() {
+        calculator.targetFixFilterGain.set(1.0);
+        calculator.fuseTargetFix(new Translation2d(2, 0), 1.0, new Pose2d());
+        calculator.fuseTargetFix(new Translation2d(3, 1), 1.1, new Pose2d());
+
+        assertEquals(expectedX(3), calculator.targetLocationOnField.getX(), 1e-9);
+        assertEquals(1, calculator.targetLocationOnField.getY(), 1e-9);
+    }
+
+    @Test
+    public void testTheSameFrameIsOnlyFusedOnce() {
+        calculator.fuseTargetFix(new Translation2d(2, 0), 1.0, new Pose2d());
+
+        // Same capture time, even though the numbers differ
+        assertFalse(calculator.fuseTargetFix(new Translation2d(4, 0), 1.0, new Pose2d()));
+        // Same tag location reported again
+        assertFalse(calculator.fuseTargetFix(new Translation2d(2, 0), 1.2, new Pose2d()));
+        assertEquals(expectedX(2), calculator.targetLocationOnField.getX(), 1e-9);
+        assertEquals(1, calculator.targetFixCount);
+
+        // Reconfiguring starts over
+        calculator.configureAndReset(18, 0, Meters.zero(), false);
+        assertTrue(calculator.fuseTargetFix(new Translation2d(2, 0), 1.0, new Pose2d()));
+    }
+}
@@ -0,0 +1,100 @@
+package competition.subsystems.oracle;
+
+import competition.BaseCompetitionTest;
+import competition.subsystems.pose.Landmarks;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import org.junit.Test;
+import xbot.common.trajectory.XbotSwervePoint;
+
+import java.util.List;
+
+import static edu.wpi.first.units.Units.Meters;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FieldRoutePlannerTest extends BaseCompetitionTest {
+
+    // Solving every route field takes a while, so the tests that need them share the first component's planner.
+    private static FieldRoutePlanner readyPlanner;
+
+    private FieldRoutePlanner getReadyPlanner() {
+        if (readyPlanner == null) {
+            readyPlanner = getInjectorComponent().fieldRoutePlanner();
+            readyPlanner.whenReady().join();
+        }
+        assertTrue(readyPlanner.isReady());
+        return readyPlanner;
+    }
+
+    @Test
+    public void testRouteAroundReefStaysClear() {
+        FieldRoutePlanner planner = getReadyPlanner();
+        Pose2d goal = getInjectorComponent().reefCoordinateGenerator().getTypicalApproachLocationForFaceBranch(
+                DriverStation.Alliance.Blue, Landmarks.ReefFace.CLOSE, Landmarks.Branch.A);
+        // Directly behind the reef from the goal.
+        Pose2d start = new Pose2d(6.5, 4.0, new Rotation2d());
+
+        List<XbotSwervePoint> route = planner.getRoute(start, goal).orElseThrow();
+
+        assertEquals(goal.getTranslation(), route.get(route.size() - 1).getTranslation2d());
+        assertTrue("Route should be a few corners, not every cell", route.size() < 10);
+
+        // Every leg of the route should keep the robot's bumpers off the reef.
+        Translation2d[] blueReef = FieldRoutePlanner.buildObstacles().get(0);
+        double bumperDistance = getInjectorComponent().electricalContract().getDistanceFromCenterToOuterBumperX().in(Meters);
+        Translation2d previous = start.getTranslation();
+        for (XbotSwervePoint point : route) {
+            Translation2d next = point.getTranslation2d();
+            for (int i = 0; i <= 20; i++) {
+                Translation2d sample = previous.interpolate(next, i / 20.0);
+                assertTrue(FieldObstacleGrid.distanceToConvexPolygon(sample.getX(), sample.getY(), blueReef) > bumperDistance);
+            }
+            previous = next;
+        }
+
+        double costToGo = planner.getCostToGo(start.getTranslation(), goal).orElseThrow();
+        assertTrue(costToGo > start.getTranslation().getDistance(goal.getTranslation()));
+    }
+
+    @Test
+    public void testCoralStationIsReachable() {
+        FieldRoutePlanner planner = getReadyPlanner();
+        Pose2d goal = Landmarks.getCoralStationSectionPose(
+                DriverStation.Alliance.Blue, Landmarks.CoralStation.LEFT, Landmarks.CoralStationSection.MID);
+
+        var route = planner.getRoute(new Pose2d(3, 6, new Rotation2d()), goal);
+
+        assertTrue(route.isPresent());
+        assertEquals(goal, route.get().get(route.get().size() - 1).keyPose);
+    }
+
+    @Test
+    public void testUnknownGoalHasNoRoute() {
+        FieldRoutePlanner planner = getReadyPlanner();
+        assertFalse(planner.getRoute(new Pose2d(3, 6, new Rotation2d()), new Pose2d(2, 2, new Rotation2d())).isPresent());
+    }
+
+    @Test
+    public void testFieldsAreSolvedOnDemandOncePerComponent() {
+        var planner = getInjectorComponent().fieldRoutePlanner();
+        // Nothing is solved until someone asks
+        assertFalse(planner.isReady());
+        // and everything in the component asks the same planner
+        assertSame(planner, getInjectorComponent().oracleSubsystem().routePlanner);
+    }
+
+    @Test
+    public void testDistanceToConvexPolygon() {
+        Translation2d[] square = {
+                new Translation2d(0, 0), new Translation2d(1, 0), new Translation2d(1, 1), new Translation2d(0, 1)
+        };
+        assertEquals(0, FieldObstacleGrid.distanceToConvexPolygon(0.5, 0.5, square), 1e-9);
+        assertEquals(1, FieldObstacleGrid.distanceToConvexPolygon(2, 0.5, square), 1e-9);
+        assertEquals(Math.sqrt(2), FieldObstacleGrid.distanceToConvexPolygon(-1, -1, square), 1e-9);
+    }
+}
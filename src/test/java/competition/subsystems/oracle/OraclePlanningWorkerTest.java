@@ -0,0 +1,87 @@
+package competition.subsystems.oracle;
+
+import competition.BaseCompetitionTest;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import org.junit.Test;
+import xbot.common.trajectory.XbotSwervePoint;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OraclePlanningWorkerTest extends BaseCompetitionTest {
+
+    private final ArrayDeque<Runnable> queuedWork = new ArrayDeque<>();
+    private final List<Integer> plannedInstructions = new ArrayList<>();
+
+    private OraclePlanningWorker createWorker() {
+        return new OraclePlanningWorker(request -> {
+            plannedInstructions.add(request.instructionNumber());
+            List<XbotSwervePoint> route = new ArrayList<>();
+            route.add(new XbotSwervePoint(request.routeGoal(), 10));
+            return new OracleDriveAdvice(request.instructionNumber(), route, "Test");
+        }, queuedWork::add);
+    }
+
+    private static OraclePlanningWorker.PlanningRequest request(int instructionNumber) {
+        return new OraclePlanningWorker.PlanningRequest(
+                instructionNumber, new Pose2d(), new Pose2d(instructionNumber, 0, new Rotation2d()), null);
+    }
+
+    @Test
+    public void testAdviceIsHandedBackOnce() {
+        var worker = createWorker();
+        worker.submit(request(1));
+
+        // Nothing until the worker actually runs.
+        assertFalse(worker.pollCompletedAdvice().isPresent());
+        assertTrue(worker.isPlanning());
+
+        queuedWork.poll().run();
+
+        var advice = worker.pollCompletedAdvice();
+        assertTrue(advice.isPresent());
+        assertEquals(1, advice.get().instructionNumber());
+        assertEquals("Test", advice.get().routeSource());
+        assertFalse(worker.pollCompletedAdvice().isPresent());
+        assertFalse(worker.isPlanning());
+    }
+
+    @Test
+    public void testRequestsWaitingForTheWorkerAreCoalesced() {
+        var worker = createWorker();
+        worker.submit(request(1));
+        worker.submit(request(2));
+        worker.submit(request(3));
+
+        // Only one job gets scheduled, and it only plans the newest request.
+        assertEquals(1, queuedWork.size());
+        queuedWork.poll().run();
+
+        assertEquals(List.of(3), plannedInstructions);
+        assertEquals(3, worker.pollCompletedAdvice().get().instructionNumber());
+    }
+
+    @Test
+    public void testFailedPlanDoesNotStopTheWorker() {
+        var worker = new OraclePlanningWorker(request -> {
+            if (request.instructionNumber() == 1) {
+                throw new IllegalStateException("Planning failed");
+            }
+            return new OracleDriveAdvice(request.instructionNumber(), new ArrayList<>(), "Test");
+        }, queuedWork::add);
+
+        worker.submit(request(1));
+        queuedWork.poll().run();
+        assertFalse(worker.pollCompletedAdvice().isPresent());
+
+        worker.submit(request(2));
+        queuedWork.poll().run();
+        assertEquals(2, worker.pollCompletedAdvice().get().instructionNumber());
+    }
+}
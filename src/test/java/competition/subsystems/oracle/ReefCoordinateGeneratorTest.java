@@ -6,8 +6,13 @@ import edu.wpi.first.wpilibj.DriverStation;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
 import static edu.wpi.first.units.Units.Meters;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 public class ReefCoordinateGeneratorTest extends BaseCompetitionTest {
 
@@ -39,6 +44,47 @@ public class ReefCoordinateGeneratorTest extends BaseCompetitionTest {
         assertEquals(Landmarks.BlueCenterOfReef.getY() - Landmarks.reefBranchHorizontalOffsetForBranchTypeA.in(Meters) - 2, pose.getY(), 0.001);
     }
 
+    @Test
+    public void testPrecomputedScoringLocations() {
+        ReefCoordinateGenerator generator = getInjectorComponent().reefCoordinateGenerator();
+        var bumperDistance = getInjectorComponent().electricalContract().getDistanceFromCenterToOuterBumperX();
+
+        for (DriverStation.Alliance alliance : DriverStation.Alliance.values()) {
+            var expected = generator.getPoseRelativeToReefFaceAndBranch(
+                    alliance, Landmarks.ReefFace.FAR_LEFT, Landmarks.Branch.B, bumperDistance, Meters.zero());
+            var actual = generator.getTypicalScoringLocationForFaceBranchLevel(
+                    alliance, Landmarks.ReefFace.FAR_LEFT, Landmarks.Branch.B, Landmarks.CoralLevel.THREE);
+            assertEquals(expected, actual);
+        }
+
+        // Lookups shouldn't build anything new
+        assertSame(
+                generator.getTypicalApproachLocationForFaceBranch(DriverStation.Alliance.Red, Landmarks.ReefFace.CLOSE, Landmarks.Branch.A),
+                generator.getTypicalApproachLocationForFaceBranch(DriverStation.Alliance.Red, Landmarks.ReefFace.CLOSE, Landmarks.Branch.A));
+    }
+
+    @Test
+    public void testHandTunedOffsetsAreLoaded() throws IOException {
+        File offsetsFile = File.createTempFile("reef_scoring_offsets", ".json");
+        offsetsFile.deleteOnExit();
+        Files.writeString(offsetsFile.toPath(),
+                "{ \"offsets\": [ { \"alliance\": \"Blue\", \"face\": \"FAR\", \"branch\": \"A\", \"level\": \"FOUR\", \"x\": 0.5, \"y\": 0.25 } ] }");
+
+        var contract = getInjectorComponent().electricalContract();
+        var generator = new ReefCoordinateGenerator(contract, offsetsFile);
+        var bumperDistance = contract.getDistanceFromCenterToOuterBumperX();
+
+        var tuned = generator.getTypicalScoringLocationForFaceBranchLevel(
+                DriverStation.Alliance.Blue, Landmarks.ReefFace.FAR, Landmarks.Branch.A, Landmarks.CoralLevel.FOUR);
+        assertEquals(generator.getPoseRelativeToReefFaceAndBranch(DriverStation.Alliance.Blue, Landmarks.ReefFace.FAR,
+                Landmarks.Branch.A, bumperDistance.plus(Meters.of(0.5)), Meters.of(0.25)), tuned);
+
+        var untuned = generator.getTypicalScoringLocationForFaceBranchLevel(
+                DriverStation.Alliance.Blue, Landmarks.ReefFace.FAR, Landmarks.Branch.A, Landmarks.CoralLevel.THREE);
+        assertEquals(generator.getPoseRelativeToReefFaceAndBranch(DriverStation.Alliance.Blue, Landmarks.ReefFace.FAR,
+                Landmarks.Branch.A, bumperDistance, Meters.zero()), untuned);
+    }
+
     @Test
     @Ignore(" Not an active test, just a way of quickly checking hardcoded values against the generated values to see if they are in the same ballpark.")
     public void compareHardcodedToGenerated() {
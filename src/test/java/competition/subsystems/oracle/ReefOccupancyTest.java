@@ -0,0 +1,115 @@
+package competition.subsystems.oracle;
+
+import competition.BaseCompetitionTest;
+import competition.subsystems.pose.Landmarks;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReefOccupancyTest extends BaseCompetitionTest {
+
+    @Test
+    public void testEverySlotHasItsOwnBit() {
+        var seen = new HashSet<Integer>();
+        for (Landmarks.ReefFace face : Landmarks.ReefFace.values()) {
+            for (Landmarks.Branch branch : Landmarks.Branch.values()) {
+                for (Landmarks.CoralLevel level : Landmarks.CoralLevel.values()) {
+                    if (level != Landmarks.CoralLevel.COLLECTING) {
+                        int slot = ReefOccupancy.slotIndex(face, branch, level);
+                        assertTrue(slot >= 0 && slot < ReefOccupancy.slotCount);
+                        assertTrue(seen.add(slot));
+                    }
+                }
+            }
+        }
+        assertEquals(ReefOccupancy.slotCount, seen.size());
+    }
+
+    @Test
+    public void testFindOpenLevelPrefersRequestedThenHigher() {
+        ReefOccupancy reef = getInjectorComponent().reefOccupancy();
+        var face = Landmarks.ReefFace.FAR;
+        var branch = Landmarks.Branch.B;
+
+        assertEquals(Optional.of(Landmarks.CoralLevel.THREE), reef.findOpenLevel(face, branch, Landmarks.CoralLevel.THREE));
+
+        reef.markCoralScored(face, branch, Landmarks.CoralLevel.THREE);
+        assertTrue(reef.isCoralScored(face, branch, Landmarks.CoralLevel.THREE));
+        assertEquals(Optional.of(Landmarks.CoralLevel.FOUR), reef.findOpenLevel(face, branch, Landmarks.CoralLevel.THREE));
+
+        reef.markCoralScored(face, branch, Landmarks.CoralLevel.FOUR);
+        assertEquals(Optional.of(Landmarks.CoralLevel.TWO), reef.findOpenLevel(face, branch, Landmarks.CoralLevel.THREE));
+
+        reef.markCoralScored(face, branch, Landmarks.CoralLevel.ONE);
+        reef.markCoralScored(face, branch, Landmarks.CoralLevel.TWO);
+        assertFalse(reef.findOpenLevel(face, branch, Landmarks.CoralLevel.THREE).isPresent());
+
+        // Other branches aren't affected.
+        assertEquals(Optional.of(Landmarks.CoralLevel.THREE),
+                reef.findOpenLevel(face, Landmarks.Branch.A, Landmarks.CoralLevel.THREE));
+    }
+
+    @Test
+    public void testToggleCoral() {
+        ReefOccupancy reef = getInjectorComponent().reefOccupancy();
+        reef.toggleCoral(Landmarks.ReefFace.CLOSE, Landmarks.Branch.A, Landmarks.CoralLevel.FOUR);
+        assertTrue(reef.isCoralScored(Landmarks.ReefFace.CLOSE, Landmarks.Branch.A, Landmarks.CoralLevel.FOUR));
+        assertFalse(reef.isCoralScored(Landmarks.ReefFace.CLOSE, Landmarks.Branch.B, Landmarks.CoralLevel.FOUR));
+
+        reef.toggleCoral(Landmarks.ReefFace.CLOSE, Landmarks.Branch.A, Landmarks.CoralLevel.FOUR);
+        assertEquals(0, reef.getCoralBits());
+    }
+
+    @Test
+    public void testAlgae() {
+        ReefOccupancy reef = getInjectorComponent().reefOccupancy();
+        assertTrue(reef.isAlgaePresent(Landmarks.ReefFace.FAR_LEFT));
+        reef.markAlgaeRemoved(Landmarks.ReefFace.FAR_LEFT);
+        assertFalse(reef.isAlgaePresent(Landmarks.ReefFace.FAR_LEFT));
+        assertTrue(reef.isAlgaePresent(Landmarks.ReefFace.FAR));
+
+        reef.markCoralScored(Landmarks.ReefFace.FAR, Landmarks.Branch.A, Landmarks.CoralLevel.TWO);
+        reef.reset();
+        assertTrue(reef.isAlgaePresent(Landmarks.ReefFace.FAR_LEFT));
+        assertEquals(0, reef.getCoralBits());
+    }
+
+    @Test
+    public void testScoringQueueSkipsClearedAlgae() {
+        ReefOccupancy reef = getInjectorComponent().reefOccupancy();
+        ScoringQueue queue = getInjectorComponent().scoringQueue();
+        queue.clearQueue();
+
+        reef.markAlgaeRemoved(Landmarks.ReefFace.CLOSE);
+        queue.addAlgaeRemovalTask(Landmarks.ReefFace.CLOSE);
+        assertEquals(0, queue.getQueueSize());
+
+        queue.addAlgaeRemovalTask(Landmarks.ReefFace.FAR);
+        reef.markAlgaeRemoved(Landmarks.ReefFace.FAR);
+        queue.removeFilledTasks();
+        assertEquals(0, queue.getQueueSize());
+    }
+
+    @Test
+    public void testScoringQueueSkipsFilledSlots() {
+        ReefOccupancy reef = getInjectorComponent().reefOccupancy();
+        ScoringQueue queue = getInjectorComponent().scoringQueue();
+        queue.clearQueue();
+
+        reef.markCoralScored(Landmarks.ReefFace.CLOSE, Landmarks.Branch.A, Landmarks.CoralLevel.FOUR);
+        queue.addCoralTask(Landmarks.ReefFace.CLOSE, Landmarks.Branch.A, Landmarks.CoralLevel.FOUR);
+        // Moved down to the next open level on the same branch.
+        assertEquals(Landmarks.CoralLevel.THREE, queue.getActiveTask().coralLevel().get());
+
+        queue.addCoralTask(Landmarks.ReefFace.FAR, Landmarks.Branch.A, Landmarks.CoralLevel.TWO);
+        reef.markCoralScored(Landmarks.ReefFace.CLOSE, Landmarks.Branch.A, Landmarks.CoralLevel.THREE);
+        queue.removeFilledTasks();
+        assertEquals(1, queue.getQueueSize());
+        assertEquals(Landmarks.ReefFace.FAR, queue.getActiveTask().reefFace().get());
+    }
+}
@@ -0,0 +1,68 @@
+package competition.subsystems.oracle;
+
+import competition.BaseCompetitionTest;
+import competition.subsystems.coral_scorer.CoralScorerSubsystem;
+import competition.subsystems.pose.Landmarks;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReefOccupancyTrackerTest extends BaseCompetitionTest {
+
+    private void scoreCoral(ReefOccupancyTracker tracker) {
+        var scorer = getInjectorComponent().coralScorerSubsystem();
+        scorer.setCoralScorerState(CoralScorerSubsystem.CoralScorerState.SCORING);
+        tracker.periodic();
+        timer.advanceTimeInSecondsBy(1);
+        tracker.periodic();
+        scorer.setCoralScorerState(CoralScorerSubsystem.CoralScorerState.STOPPED);
+        tracker.periodic();
+    }
+
+    @Test
+    public void testConfirmedScoreMarksTheBranchWeAreOn() {
+        var tracker = getInjectorComponent().reefOccupancyTracker();
+        var reef = getInjectorComponent().reefOccupancy();
+        var pose = getInjectorComponent().poseSubsystem();
+        var alliance = pose.getPoseSnapshot().alliance();
+
+        pose.setCurrentPosition(Landmarks.getBranchPose(alliance, Landmarks.ReefFace.FAR_LEFT, Landmarks.Branch.B));
+        getInjectorComponent().elevatorSubsystem().setTargetHeight(Landmarks.CoralLevel.THREE);
+
+        var scorer = getInjectorComponent().coralScorerSubsystem();
+        scorer.setCoralScorerState(CoralScorerSubsystem.CoralScorerState.SCORING);
+        tracker.periodic();
+        // Not until the scorer is sure the coral is out
+        assertEquals(0, reef.getCoralBits());
+
+        timer.advanceTimeInSecondsBy(1);
+        tracker.periodic();
+        assertTrue(reef.isCoralScored(Landmarks.ReefFace.FAR_LEFT, Landmarks.Branch.B, Landmarks.CoralLevel.THREE));
+        assertEquals(1, Long.bitCount(reef.getCoralBits()));
+    }
+
+    @Test
+    public void testScoresAwayFromTheReefAreNotMarked() {
+        var tracker = getInjectorComponent().reefOccupancyTracker();
+        var reef = getInjectorComponent().reefOccupancy();
+        var pose = getInjectorComponent().poseSubsystem();
+        var elevator = getInjectorComponent().elevatorSubsystem();
+
+        pose.setCurrentPosition(new Pose2d(1, 1, Rotation2d.kZero));
+        elevator.setTargetHeight(Landmarks.CoralLevel.FOUR);
+        scoreCoral(tracker);
+        assertEquals(0, reef.getCoralBits());
+
+        // Next to the reef, but with the elevator at a hand-set height there's no level to mark
+        var alliance = pose.getPoseSnapshot().alliance();
+        pose.setCurrentPosition(Landmarks.getBranchPose(alliance, Landmarks.ReefFace.CLOSE, Landmarks.Branch.A));
+        elevator.setTargetValue(elevator.getCurrentValue());
+        scoreCoral(tracker);
+        assertFalse(reef.isCoralScored(Landmarks.ReefFace.CLOSE, Landmarks.Branch.A, Landmarks.CoralLevel.FOUR));
+        assertEquals(0, reef.getCoralBits());
+    }
+}
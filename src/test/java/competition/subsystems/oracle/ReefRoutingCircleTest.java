@@ -14,6 +14,7 @@ import java.util.List;
 import static edu.wpi.first.units.Units.Degrees;
 import static edu.wpi.first.units.Units.Radians;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class ReefRoutingCircleTest extends BaseCompetitionTest {
@@ -68,5 +69,48 @@ public class ReefRoutingCircleTest extends BaseCompetitionTest {
         assertEquals(endPose.getTranslation(), swervePoints.get(swervePoints.size() - 1).getTranslation2d());
     }
 
+    @Test
+    public void testRouteTakesShorterWayAroundAndStaysClear() {
+        Translation2d center = new Translation2d(0, 0);
+        ReefRoutingCircle routingCircle = new ReefRoutingCircle(center, 2.0);
+        var collisionCircle = new ReefCollisionCircle(center, routingCircle.getInnerCollisionCircleRadius());
+
+        Pose2d startPose = new Pose2d(new Translation2d(-5, 0.5), new Rotation2d());
+        Pose2d endPose = new Pose2d(new Translation2d(5, 0.5), new Rotation2d());
+
+        List<XbotSwervePoint> swervePoints = routingCircle.generateSwervePoints(startPose, endPose);
+
+        // Exit tangent, a few arc points, entry tangent, destination - not dozens of small steps.
+        assertTrue(swervePoints.size() <= 6);
+        Translation2d previous = startPose.getTranslation();
+        for (XbotSwervePoint point : swervePoints) {
+            // Going over the top is shorter, since both points are above the center.
+            assertTrue(point.getTranslation2d().getY() > 0);
+            assertFalse(collisionCircle.doesLineIntersect(previous, point.getTranslation2d()));
+            previous = point.getTranslation2d();
+        }
+        assertEquals(endPose.getTranslation(), previous);
+
+        // The straight line is 10m; going around the circle has to be longer, but not by much.
+        double pathLength = routingCircle.getPathLength(startPose.getTranslation(), endPose.getTranslation());
+        assertTrue(pathLength > 10);
+        assertTrue(pathLength < 11);
+    }
 
-}
\ No newline at end of file
+    @Test
+    public void testStartInsideRoutingCircleBacksOutRadially() {
+        Translation2d center = new Translation2d(0, 0);
+        ReefRoutingCircle routingCircle = new ReefRoutingCircle(center, 2.0);
+
+        Pose2d startPose = new Pose2d(new Translation2d(-1.8, 0), new Rotation2d());
+        Pose2d endPose = new Pose2d(new Translation2d(1.8, 0.1), new Rotation2d());
+
+        List<XbotSwervePoint> swervePoints = routingCircle.generateSwervePoints(startPose, endPose);
+
+        assertEquals(-2.0, swervePoints.get(0).getTranslation2d().getX(), 1e-6);
+        assertEquals(0, swervePoints.get(0).getTranslation2d().getY(), 1e-6);
+        assertEquals(endPose.getTranslation(), swervePoints.get(swervePoints.size() - 1).getTranslation2d());
+        // Half a lap around the circle should only need a handful of points.
+        assertTrue(swervePoints.size() <= 7);
+    }
+}
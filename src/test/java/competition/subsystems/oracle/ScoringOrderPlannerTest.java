@@ -0,0 +1,118 @@
+package competition.subsystems.oracle;
+
+import competition.BaseCompetitionTest;
+import competition.subsystems.pose.Landmarks;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ScoringOrderPlannerTest extends BaseCompetitionTest {
+
+    private static ScoringTask coral(Landmarks.ReefFace face, Landmarks.Branch branch, Landmarks.CoralLevel level) {
+        return new ScoringTask(GameAction.ScoreCoral, Optional.of(face), Optional.of(branch), Optional.of(level));
+    }
+
+    private static List<ScoringTask> manyTasks(int count) {
+        var tasks = new ArrayList<ScoringTask>();
+        var faces = Landmarks.ReefFace.values();
+        var levels = new Landmarks.CoralLevel[] {
+                Landmarks.CoralLevel.TWO, Landmarks.CoralLevel.THREE, Landmarks.CoralLevel.FOUR };
+        for (int i = 0; i < count; i++) {
+            tasks.add(coral(faces[(i * 5) % faces.length], Landmarks.Branch.values()[i % 2], levels[i % levels.length]));
+        }
+        return tasks;
+    }
+
+    private static void permute(List<ScoringTask> remaining, List<ScoringTask> prefix, List<List<ScoringTask>> out) {
+        if (remaining.isEmpty()) {
+            out.add(new ArrayList<>(prefix));
+            return;
+        }
+        for (int i = 0; i < remaining.size(); i++) {
+            var rest = new ArrayList<>(remaining);
+            prefix.add(rest.remove(i));
+            permute(rest, prefix, out);
+            prefix.remove(prefix.size() - 1);
+        }
+    }
+
+    @Test
+    public void testSmallPlanIsOptimal() {
+        ScoringOrderPlanner planner = getInjectorComponent().scoringOrderPlanner();
+        Pose2d start = new Pose2d(2, 2, new Rotation2d());
+        var tasks = manyTasks(5);
+
+        var plan = planner.plan(start, true, tasks);
+        assertTrue(plan.exact());
+        assertEquals(tasks.size(), plan.orderedTasks().size());
+        // Already holding coral, so no station trip before the first task.
+        assertEquals(null, plan.coralStationBeforeEachTask().get(0));
+
+        var permutations = new ArrayList<List<ScoringTask>>();
+        permute(tasks, new ArrayList<>(), permutations);
+        double bestSeconds = Double.POSITIVE_INFINITY;
+        for (var permutation : permutations) {
+            bestSeconds = Math.min(bestSeconds, planner.estimateSeconds(start, true, permutation));
+        }
+        assertEquals(bestSeconds, plan.estimatedSeconds(), 1e-6);
+    }
+
+    @Test
+    public void testLargePlanIsNoWorseThanGivenOrder() {
+        ScoringOrderPlanner planner = getInjectorComponent().scoringOrderPlanner();
+        Pose2d start = new Pose2d(2, 2, new Rotation2d());
+        var tasks = manyTasks(ScoringOrderPlanner.maxExactTasks + 4);
+
+        var plan = planner.plan(start, false, tasks);
+
+        assertFalse(plan.exact());
+        assertEquals(tasks.size(), plan.orderedTasks().size());
+        assertEquals(new HashSet<>(tasks), new HashSet<>(plan.orderedTasks()));
+        assertTrue(plan.coralStationBeforeEachTask().stream().allMatch(station -> station != null));
+        assertTrue(plan.estimatedSeconds() <= planner.estimateSeconds(start, false, tasks) + 1e-6);
+    }
+
+    @Test
+    public void testRepeatablePlanDoesNotDependOnTime() {
+        ScoringOrderPlanner planner = getInjectorComponent().scoringOrderPlanner();
+        Pose2d start = new Pose2d(2, 2, new Rotation2d());
+        var tasks = manyTasks(ScoringOrderPlanner.maxExactTasks + 4);
+        // No time at all, so only the improvement budget can stop the search
+        planner.timeBudgetMilliseconds.set(0);
+        var rushed = planner.plan(start, false, tasks);
+
+        planner.setRepeatable(true);
+        var first = planner.plan(start, false, tasks);
+        var second = planner.plan(start, false, tasks);
+
+        assertEquals(first.orderedTasks(), second.orderedTasks());
+        assertEquals(first.coralStationBeforeEachTask(), second.coralStationBeforeEachTask());
+        assertTrue(first.estimatedSeconds() <= rushed.estimatedSeconds() + 1e-6);
+    }
+
+    @Test
+    public void testOptimizedQueueKeepsActiveTask() {
+        ScoringQueue queue = getInjectorComponent().scoringQueue();
+        queue.optimizeOrder.set(true);
+        queue.clearQueue();
+
+        var tasks = manyTasks(6);
+        tasks.forEach(queue::addScoringGoalToBottomOfQueue);
+
+        assertEquals(tasks.get(0), queue.getActiveTask());
+        assertEquals(tasks.size(), queue.getQueueSize());
+
+        queue.advanceToNextScoringGoal();
+        assertEquals(tasks.size() - 1, queue.getQueueSize());
+        assertTrue(queue.getPlannedCoralStationBeforeActiveTask().isPresent());
+    }
+}
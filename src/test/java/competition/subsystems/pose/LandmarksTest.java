@@ -0,0 +1,45 @@
+package competition.subsystems.pose;
+
+import competition.BaseCompetitionTest;
+import edu.wpi.first.wpilibj.DriverStation;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class LandmarksTest extends BaseCompetitionTest {
+
+    @Test
+    public void testBluePosesMatchLandmarks() {
+        assertSame(Landmarks.BlueFarLeftBranchB,
+                Landmarks.getBranchPose(Landmarks.ReefFace.FAR_LEFT, Landmarks.Branch.B));
+        assertSame(Landmarks.BlueCloseRightAlgae, Landmarks.getReefFacePose(Landmarks.ReefFace.CLOSE_RIGHT));
+        assertSame(Landmarks.BlueRightCoralStationMid, Landmarks.getCoralStationSectionPose(
+                Landmarks.CoralStation.RIGHT, Landmarks.CoralStationSection.MID));
+    }
+
+    @Test
+    public void testRedPosesAreMirrored() {
+        for (Landmarks.ReefFace face : Landmarks.ReefFace.values()) {
+            for (Landmarks.Branch branch : Landmarks.Branch.values()) {
+                assertEquals(
+                        PoseSubsystem.convertBluetoRed(Landmarks.getBranchPose(face, branch)),
+                        Landmarks.getBranchPose(DriverStation.Alliance.Red, face, branch));
+            }
+            assertEquals(
+                    PoseSubsystem.convertBluetoRed(Landmarks.getReefFacePose(face)),
+                    Landmarks.getReefFacePose(DriverStation.Alliance.Red, face));
+        }
+    }
+
+    @Test
+    public void testReefFacePoseListsFollowEnumOrder() {
+        for (DriverStation.Alliance alliance : DriverStation.Alliance.values()) {
+            var poses = Landmarks.getReefFacePoses(alliance);
+            assertEquals(Landmarks.ReefFace.values().length, poses.size());
+            for (Landmarks.ReefFace face : Landmarks.ReefFace.values()) {
+                assertSame(Landmarks.getReefFacePose(alliance, face), poses.get(face.ordinal()));
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package competition.subsystems.pose;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PoseHistoryTest {
+
+    @Test
+    public void testInterpolatesBetweenSamples() {
+        var history = new PoseHistory(8);
+        history.record(1.0, new Pose2d(0, 0, Rotation2d.fromDegrees(170)));
+        history.record(2.0, new Pose2d(2, 4, Rotation2d.fromDegrees(-170)));
+
+        var pose = history.getPoseAt(1.5).get();
+        assertEquals(1, pose.getX(), 0.001);
+        assertEquals(2, pose.getY(), 0.001);
+        // Should go the short way around, through 180
+        assertEquals(180, Math.abs(pose.getRotation().getDegrees()), 0.001);
+    }
+
+    @Test
+    public void testOutOfRangeQueries() {
+        var history = new PoseHistory(8);
+        assertFalse(history.getPoseAt(1.0).isPresent());
+
+        history.record(1.0, new Pose2d(1, 0, new Rotation2d()));
+        history.record(2.0, new Pose2d(2, 0, new Rotation2d()));
+
+        assertFalse(history.getPoseAt(0.5).isPresent());
+        assertEquals(2, history.getPoseAt(2.5).get().getX(), 0.001);
+    }
+
+    @Test
+    public void testOldestSamplesAreOverwritten() {
+        var history = new PoseHistory(4);
+        for (int i = 0; i < 10; i++) {
+            history.record(i, new Pose2d(i, 0, new Rotation2d()));
+        }
+
+        assertEquals(4, history.size());
+        assertEquals(6, history.getOldestTimestamp(), 0.001);
+        assertEquals(9, history.getNewestTimestamp(), 0.001);
+        assertFalse(history.getPoseAt(5.5).isPresent());
+        assertEquals(7.25, history.getPoseAt(7.25).get().getX(), 0.001);
+    }
+
+    @Test
+    public void testTimeGoingBackwardsStartsOver() {
+        var history = new PoseHistory(4);
+        history.record(5, new Pose2d(5, 0, new Rotation2d()));
+        history.record(6, new Pose2d(6, 0, new Rotation2d()));
+        history.record(1, new Pose2d(1, 0, new Rotation2d()));
+
+        assertEquals(1, history.size());
+        assertTrue(history.getPoseAt(1).isPresent());
+    }
+}
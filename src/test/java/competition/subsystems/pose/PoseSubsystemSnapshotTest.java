@@ -0,0 +1,53 @@
+package competition.subsystems.pose;
+
+import competition.BaseCompetitionTest;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class PoseSubsystemSnapshotTest extends BaseCompetitionTest {
+
+    @Test
+    public void testSnapshotIsStableUntilNextUpdate() {
+        PoseSubsystem pose = getInjectorComponent().poseSubsystem();
+        var snapshot = pose.getPoseSnapshot();
+
+        assertSame(snapshot, pose.getPoseSnapshot());
+        assertEquals(snapshot.pose(), pose.getCurrentPose2d());
+        assertEquals(snapshot.heading().getDegrees(), pose.getCurrentHeading().getDegrees(), 0.001);
+    }
+
+    @Test
+    public void testCurrentPoseGettersStayLiveBetweenSnapshots() {
+        PoseSubsystem pose = getInjectorComponent().poseSubsystem();
+        var snapshot = pose.getPoseSnapshot();
+
+        // Drive the estimators directly, without going through anything that refreshes the snapshot.
+        var moved = new Pose2d(2, 1, Rotation2d.fromDegrees(45));
+        pose.fullSwerveOdometry.resetPose(moved);
+        pose.onlyWheelsGyroSwerveOdometry.resetPose(moved);
+
+        assertSame(snapshot, pose.getPoseSnapshot());
+        assertEquals(2, pose.getCurrentPose2d().getX(), 0.001);
+        assertEquals(1, pose.getCurrentPose2d().getY(), 0.001);
+        assertEquals(45, pose.getCurrentHeading().getDegrees(), 0.001);
+    }
+
+    @Test
+    public void testResetRefreshesSnapshotWithZeroVelocity() {
+        PoseSubsystem pose = getInjectorComponent().poseSubsystem();
+
+        timer.advanceTimeInSecondsBy(1);
+        pose.setCurrentPosition(new Pose2d(3, 4, Rotation2d.fromDegrees(90)));
+
+        var snapshot = pose.getPoseSnapshot();
+        assertEquals(3, snapshot.pose().getX(), 0.001);
+        assertEquals(4, snapshot.pose().getY(), 0.001);
+        assertEquals(90, snapshot.heading().getDegrees(), 0.001);
+        assertEquals(0, snapshot.speedMetersPerSecond(), 0.001);
+        assertEquals(5, snapshot.distanceTo(new Pose2d()), 0.001);
+    }
+}
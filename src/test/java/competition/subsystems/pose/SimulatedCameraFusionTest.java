@@ -0,0 +1,45 @@
+package competition.subsystems.pose;
+
+import competition.HeadlessSimulation;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform2d;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SimulatedCameraFusionTest {
+
+    // Blue reef, close face
+    static final int reefTagId = 18;
+
+    @Test
+    public void testEveryCameraReachesThePoseEstimator() {
+        try (var sim = new HeadlessSimulation()) {
+            var tagPose = AprilTagFieldLayout.loadField(AprilTagFields.k2025ReefscapeWelded)
+                    .getTagPose(reefTagId).get().toPose2d();
+            // 1.5 m out from the tag, facing it, so both front cameras have it in view
+            var robotPose = tagPose.transformBy(new Transform2d(1.5, 0, Rotation2d.k180deg));
+            sim.getInjectorComponent().simulator().resetPosition(robotPose);
+            PoseSubsystem pose = sim.getInjectorComponent().poseSubsystem();
+            pose.setCurrentPosition(robotPose);
+
+            sim.runFor(2);
+
+            var vision = sim.getInjectorComponent().aprilTagVisionSubsystemExtended();
+            int cameraCount = vision.getCameraCount();
+            assertTrue(cameraCount > 1);
+            for (int camera = 0; camera < cameraCount; camera++) {
+                assertTrue("Camera " + camera + " had no observations accepted",
+                        pose.visionObservationFilter.getAcceptedCount(camera) > 0);
+                assertFalse(Double.isNaN(vision.getTagCaptureTimestamp(camera, reefTagId)));
+            }
+            // The cameras aren't synchronized, so they don't capture at the same instant.
+            assertNotEquals(vision.getTagCaptureTimestamp(0, reefTagId),
+                    vision.getTagCaptureTimestamp(1, reefTagId), 1e-6);
+        }
+    }
+}
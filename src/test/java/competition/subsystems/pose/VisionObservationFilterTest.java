@@ -0,0 +1,102 @@
+package competition.subsystems.pose;
+
+import competition.BaseCompetitionTest;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class VisionObservationFilterTest extends BaseCompetitionTest {
+
+    static final Matrix<N3, N1> confident = VecBuilder.fill(0.1, 0.1, 0.1);
+    static final Pose2d here = new Pose2d(1, 1, new Rotation2d());
+
+    private VisionObservationFilter filter;
+    private PoseHistory history;
+
+    @Override
+    public void setUp() {
+        super.setUp();
+        filter = getInjectorComponent().poseSubsystem().visionObservationFilter;
+        history = new PoseHistory(16);
+        history.record(1.0, here);
+        history.record(2.0, here);
+    }
+
+    private VisionObservationFilter.Verdict offer(int camera, Pose2d pose, double timestamp) {
+        return filter.offer(camera, pose, timestamp, confident, history);
+    }
+
+    @Test
+    public void testCamerasCapturingAtTheSameTimeAreBothUsed() {
+        assertEquals(VisionObservationFilter.Verdict.Accepted, offer(0, here, 1.5));
+        assertEquals(VisionObservationFilter.Verdict.Accepted, offer(1, here, 1.5));
+        assertEquals(VisionObservationFilter.Verdict.Duplicate, offer(0, here, 1.5));
+        // Anything no newer than what we've already looked at from that camera
+        assertEquals(VisionObservationFilter.Verdict.Duplicate, offer(1, here, 1.4));
+
+        assertEquals(2, filter.submitAcceptedFrames((pose, timestamp, deviations) -> { }));
+        assertEquals(1, filter.getAcceptedCount(0));
+        assertEquals(1, filter.getAcceptedCount(1));
+    }
+
+    @Test
+    public void testGates() {
+        assertEquals(VisionObservationFilter.Verdict.Stale, offer(0, here, 0.5));
+        assertEquals(VisionObservationFilter.Verdict.LowConfidence,
+                filter.offer(0, here, 1.1, VecBuilder.fill(2.0, 2.0, 0.1), history));
+        assertEquals(VisionObservationFilter.Verdict.Innovation, offer(0, new Pose2d(3, 1, new Rotation2d()), 1.2));
+        assertEquals(VisionObservationFilter.Verdict.Innovation,
+                offer(0, new Pose2d(1, 1, Rotation2d.fromDegrees(45)), 1.3));
+        assertEquals(VisionObservationFilter.Verdict.Accepted, offer(0, here, 1.4));
+    }
+
+    @Test
+    public void testPersistentInnovationEventuallyWins() {
+        var elsewhere = new Pose2d(3, 1, new Rotation2d());
+        double timestamp = 1.0;
+        for (int i = 0; i < 10; i++) {
+            timestamp += 0.01;
+            assertEquals(VisionObservationFilter.Verdict.Innovation, offer(2, elsewhere, timestamp));
+        }
+        assertEquals(VisionObservationFilter.Verdict.Accepted, offer(2, elsewhere, timestamp + 0.01));
+    }
+
+    @Test
+    public void testOverflowIsNotConsumed() {
+        double timestamp = 1.0;
+        for (int i = 0; i < VisionObservationFilter.maxFramesPerLoop; i++) {
+            timestamp += 0.01;
+            assertEquals(VisionObservationFilter.Verdict.Accepted, offer(0, here, timestamp));
+        }
+        assertEquals(VisionObservationFilter.Verdict.Overflow, offer(0, here, timestamp + 0.01));
+        assertEquals(1, filter.getVerdictCount(VisionObservationFilter.Verdict.Overflow));
+        assertEquals(0, filter.getVerdictCount(VisionObservationFilter.Verdict.Stale));
+
+        filter.submitAcceptedFrames((pose, t, deviations) -> { });
+        assertEquals(VisionObservationFilter.Verdict.Accepted, offer(0, here, timestamp + 0.01));
+    }
+
+    @Test
+    public void testFramesAreSubmittedOldestFirst() {
+        offer(1, here, 1.6);
+        offer(-1, here, 1.7);
+        offer(0, here, 1.2);
+        offer(0, here, 1.4);
+        offer(2, here, 1.3);
+
+        List<Double> submitted = new ArrayList<>();
+        assertEquals(5, filter.submitAcceptedFrames((pose, timestamp, deviations) -> submitted.add(timestamp)));
+        assertEquals(List.of(1.2, 1.3, 1.4, 1.6, 1.7), submitted);
+        assertEquals(1, filter.getAcceptedCount(-1));
+        assertEquals(0, filter.submitAcceptedFrames((pose, timestamp, deviations) -> submitted.add(timestamp)));
+    }
+}
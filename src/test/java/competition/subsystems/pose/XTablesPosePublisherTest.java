@@ -0,0 +1,68 @@
+package competition.subsystems.pose;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class XTablesPosePublisherTest {
+
+    private static Pose2d pose(double x, double degrees) {
+        return new Pose2d(x, 1, Rotation2d.fromDegrees(degrees));
+    }
+
+    @Test
+    public void testEachSendHandsOffOneWholeSet() {
+        var queuedFlushes = new ArrayList<Runnable>();
+        var publisher = new XTablesPosePublisher(null, queuedFlushes::add);
+        var robotPose = publisher.createTopic("PoseSubsystem.RobotPose");
+        var visionPose = publisher.createTopic("PoseSubsystem.VisionEnhancedPose");
+
+        robotPose.offer(pose(1, 0));
+        visionPose.offer(pose(1.1, 0));
+        publisher.send();
+        var newest = pose(2, 0);
+        robotPose.offer(newest);
+        publisher.send();
+
+        // The first set was replaced whole, rather than mixed with the second one.
+        assertArrayEquals(new Pose2d[] { newest, null }, publisher.pendingSet.get());
+        assertEquals(1, publisher.setsSuperseded.get());
+        // Only one flush is waiting, however many sets came in.
+        assertEquals(1, queuedFlushes.size());
+    }
+
+    @Test
+    public void testTinyChangesAreSkippedExceptForHeartbeats() {
+        var publisher = new XTablesPosePublisher(null, runnable -> { });
+        var topic = publisher.createTopic("PoseSubsystem.RobotPose");
+        int bytesPerPose = topic.approximateBytes;
+
+        assertEquals(bytesPerPose, publisher.collectChanged(new Pose2d[] { pose(1, 0) }, 0, null));
+
+        assertEquals(0, publisher.collectChanged(new Pose2d[] { pose(1.001, 0.1) }, 0.02, null));
+        assertEquals(1, topic.skipped.get());
+
+        assertEquals(bytesPerPose, publisher.collectChanged(new Pose2d[] { pose(1, 1) }, 0.04, null));
+        assertEquals(1, topic.lastPublished.getRotation().getDegrees(), 1e-9);
+
+        assertEquals(0, publisher.collectChanged(new Pose2d[] { pose(1, 1) }, 0.06, null));
+        assertEquals(bytesPerPose,
+                publisher.collectChanged(new Pose2d[] { pose(1, 1) }, 0.04 + XTablesPosePublisher.heartbeatSeconds, null));
+        assertEquals(3, topic.published.get());
+    }
+
+    @Test
+    public void testTopicsMissingFromASetArentPublished() {
+        var publisher = new XTablesPosePublisher(null, runnable -> { });
+        var robotPose = publisher.createTopic("PoseSubsystem.RobotPose");
+        var visionPose = publisher.createTopic("PoseSubsystem.VisionEnhancedPose");
+
+        assertEquals(robotPose.approximateBytes, publisher.collectChanged(new Pose2d[] { pose(1, 0), null }, 0, null));
+        assertEquals(0, visionPose.published.get());
+    }
+}
@@ -0,0 +1,145 @@
+package competition.subsystems.vision;
+
+import competition.BaseCompetitionTest;
+import competition.subsystems.pose.Landmarks;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform2d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.wpilibj.DriverStation;
+import org.junit.Test;
+import xbot.common.controls.sensors.XTimer;
+import xbot.common.subsystems.vision.AprilTagVisionIO;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AprilTagVisionSubsystemExtendedTest extends BaseCompetitionTest {
+
+    @Test
+    public void testReefFaceTagIds() {
+        var vision = getInjectorComponent().aprilTagVisionSubsystemExtended();
+
+        assertEquals(18, vision.getTargetAprilTagID(DriverStation.Alliance.Blue, Landmarks.ReefFace.CLOSE));
+        assertEquals(20, vision.getTargetAprilTagID(DriverStation.Alliance.Blue, Landmarks.ReefFace.FAR_LEFT));
+        assertEquals(7, vision.getTargetAprilTagID(DriverStation.Alliance.Red, Landmarks.ReefFace.CLOSE));
+        assertEquals(9, vision.getTargetAprilTagID(DriverStation.Alliance.Red, Landmarks.ReefFace.FAR_RIGHT));
+    }
+
+    @Test
+    public void testTagIdFromReefFacePose() {
+        var vision = getInjectorComponent().aprilTagVisionSubsystemExtended();
+
+        for (DriverStation.Alliance alliance : DriverStation.Alliance.values()) {
+            for (Landmarks.ReefFace face : Landmarks.ReefFace.values()) {
+                int tagId = vision.getTargetAprilTagID(Landmarks.getReefFacePose(alliance, face));
+                assertEquals(vision.getTargetAprilTagID(alliance, face), tagId);
+                assertEquals(face, vision.getReefFace(tagId).get());
+            }
+        }
+        // Anywhere else isn't a reef face
+        var stationPose = Landmarks.getCoralStationSectionPose(
+                Landmarks.CoralStation.LEFT, Landmarks.CoralStationSection.MID);
+        assertEquals(AprilTagVisionSubsystemExtended.noTag, vision.getTargetAprilTagID(stationPose));
+        var offFacePose = Landmarks.getReefFacePose(DriverStation.Alliance.Blue, Landmarks.ReefFace.CLOSE)
+                .transformBy(new Transform2d(0.5, 0, new Rotation2d()));
+        assertEquals(AprilTagVisionSubsystemExtended.noTag, vision.getTargetAprilTagID(offFacePose));
+    }
+
+    @Test
+    public void testTagMetadata() {
+        var vision = getInjectorComponent().aprilTagVisionSubsystemExtended();
+
+        assertEquals(Landmarks.FieldElementType.CORAL_STATION, vision.getFieldElementType(13));
+        assertFalse(vision.getReefFace(13).isPresent());
+        assertTrue(vision.getAprilTagFieldOrientedPose(21).isPresent());
+        assertFalse(vision.getAprilTagFieldOrientedPose(99).isPresent());
+    }
+
+    private static AprilTagVisionIO.TargetObservation target(int tagId, Translation3d cameraToTarget, double ambiguity) {
+        return new AprilTagVisionIO.TargetObservation(
+                new Rotation2d(), new Rotation2d(), tagId, new Transform3d(cameraToTarget, new Rotation3d()), ambiguity);
+    }
+
+    private static AprilTagVisionIO.VisionIOInputs frame(double captureTime, AprilTagVisionIO.TargetObservation... targets) {
+        var inputs = new AprilTagVisionIO.VisionIOInputs();
+        inputs.connected = true;
+        inputs.targetObservations = targets;
+        inputs.tagIds = new int[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            inputs.tagIds[i] = targets[i].fiducialId();
+        }
+        inputs.latestTargetObservation = targets.length > 0
+                ? targets[0]
+                : new AprilTagVisionIO.TargetObservation(new Rotation2d(), new Rotation2d(), -1, null, 0);
+        inputs.poseObservations = Double.isNaN(captureTime)
+                ? new AprilTagVisionIO.PoseObservation[0]
+                : new AprilTagVisionIO.PoseObservation[] {
+                        new AprilTagVisionIO.PoseObservation(captureTime, new Pose3d(), 0, targets.length, 2,
+                                AprilTagVisionIO.PoseObservationType.PHOTONVISION)
+                };
+        return inputs;
+    }
+
+    @Test
+    public void testFrameSnapshotIsFilledFromEachCamerasTargets() {
+        var vision = getInjectorComponent().aprilTagVisionSubsystemExtended();
+        var cameraToTag = new Translation3d(2, 0.5, 0.1);
+        var expected = cameraToTag.rotateBy(vision.getCameraPosition(1).getRotation());
+
+        vision.cameraInputs.set(1, frame(12.5, target(18, cameraToTag, 0.2), target(17, cameraToTag, 0.9)));
+        vision.captureVisionFrame();
+
+        assertTrue(vision.isTagVisible(1, 18, 0.5));
+        assertFalse(vision.isTagVisible(1, 17, 0.5));
+        assertFalse(vision.isTagVisible(0, 18, 0.5));
+        assertEquals(expected.getX(), vision.getRobotRelativeTagX(1, 18), 1e-9);
+        assertEquals(expected.getY(), vision.getRobotRelativeTagY(1, 18), 1e-9);
+        assertEquals(expected.getZ(), vision.getRobotRelativeTagZ(1, 18), 1e-9);
+        assertEquals(0.2, vision.getTagAmbiguity(1, 18), 1e-9);
+        assertEquals(12.5, vision.getTagCaptureTimestamp(1, 18), 1e-9);
+        assertTrue(vision.doesCameraBestObservationHaveAprilTagId(1, 18));
+        assertEquals(expected.getX(), vision.getRobotRelativeLocationOfBestDetectedAprilTag(1).get().getX(), 1e-9);
+    }
+
+    @Test
+    public void testTagsDisappearWhenTheCameraLosesThem() {
+        var vision = getInjectorComponent().aprilTagVisionSubsystemExtended();
+        vision.cameraInputs.set(0, frame(3, target(18, new Translation3d(2, 0, 0), 0.1)));
+        vision.captureVisionFrame();
+        assertTrue(vision.isTagVisible(0, 18, 1));
+
+        vision.cameraInputs.set(0, frame(Double.NaN));
+        vision.captureVisionFrame();
+
+        assertFalse(vision.isTagVisible(0, 18, 1));
+        assertTrue(Double.isNaN(vision.getRobotRelativeTagX(0, 18)));
+        assertTrue(Double.isNaN(vision.getTagCaptureTimestamp(0, 18)));
+        assertFalse(vision.doesCameraBestObservationHaveAprilTagId(0, 18));
+        assertFalse(vision.getRobotRelativeLocationOfBestDetectedAprilTag(0).isPresent());
+    }
+
+    @Test
+    public void testTargetsWithoutAPoseObservationUseTheConfiguredLatency() {
+        var vision = getInjectorComponent().aprilTagVisionSubsystemExtended();
+        vision.cameraInputs.set(0, frame(Double.NaN, target(18, new Translation3d(2, 0, 0), 0.1)));
+        vision.captureVisionFrame();
+
+        assertEquals(XTimer.getFPGATimestamp() - 0.04, vision.getTagCaptureTimestamp(0, 18), 1e-9);
+    }
+
+    @Test
+    public void testUnknownTagsAndCamerasAreNotVisible() {
+        var vision = getInjectorComponent().aprilTagVisionSubsystemExtended();
+
+        assertFalse(vision.isTagVisible(0, 99, 1));
+        assertTrue(Double.isNaN(vision.getRobotRelativeTagX(0, 99)));
+        assertTrue(Double.isNaN(vision.getRobotRelativeTagY(-1, 18)));
+        assertTrue(Double.isNaN(vision.getTagAmbiguity(42, 18)));
+        assertFalse(vision.getRobotRelativeLocationOfAprilTag(0, 99).isPresent());
+        assertFalse(vision.getRobotRelativeLocationOfBestDetectedAprilTag(42).isPresent());
+    }
+}
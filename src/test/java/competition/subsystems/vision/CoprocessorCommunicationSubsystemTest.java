@@ -0,0 +1,102 @@
+package competition.subsystems.vision;
+
+import com.google.protobuf.ByteString;
+import competition.BaseCompetitionTest;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import org.junit.Test;
+import org.kobe.xbot.Utilities.Entities.XTableValues;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CoprocessorCommunicationSubsystemTest extends BaseCompetitionTest {
+
+    private static XTableValues.ControlPoint point(double x, double y, double degrees) {
+        return XTableValues.ControlPoint.newBuilder().setX(x).setY(y).setRotationDegrees(degrees).build();
+    }
+
+    /**
+     * Echoes a few pings with a 20 ms round trip.
+     */
+    private static void measureRoundTrip(CoprocessorCommunicationSubsystem comms) {
+        for (int i = 0; i < 3; i++) {
+            double sendTime = 1 + i;
+            assertTrue(comms.receivePong(
+                    List.of((double) comms.latencyEstimator.nextPingSequence(), sendTime), sendTime + 0.02));
+        }
+    }
+
+    @Test
+    public void testPongsDriveTheRoundTripEstimate() {
+        var comms = getInjectorComponent().coprocessorCommunicationSubsystem();
+        assertEquals(0, comms.latencyEstimator.getEstimate().samples());
+
+        measureRoundTrip(comms);
+
+        assertEquals(3, comms.latencyEstimator.getEstimate().samples());
+        assertEquals(0.02, comms.latencyEstimator.getEstimate().roundTripSeconds(), 1e-9);
+        // Too short to be an echo
+        assertFalse(comms.receivePong(List.of(1.0), 10));
+    }
+
+    @Test
+    public void testDecodedPayloadsAreStampedInFpgaTime() {
+        var comms = getInjectorComponent().coprocessorCommunicationSubsystem();
+        var channel = comms.getTargetPoseChannel();
+
+        // Before any round trips, all we know is when it arrived.
+        comms.receive(channel, CoprocessorCommunicationSubsystem::decodePose, point(1, 2, 90).toByteString(), 5);
+        channel.takeSnapshot();
+        var reading = channel.get().get();
+        assertEquals(new Pose2d(1, 2, Rotation2d.fromDegrees(90)), reading.value());
+        assertEquals(5, reading.receivedTimestamp(), 0);
+        assertEquals(5, reading.capturedTimestamp(), 0);
+
+        // Once we've measured the round trip, it was most likely sent half of one before it arrived.
+        measureRoundTrip(comms);
+        comms.receive(channel, CoprocessorCommunicationSubsystem::decodePose, point(3, 4, 0).toByteString(), 8);
+        channel.takeSnapshot();
+        reading = channel.get().get();
+        assertEquals(3, reading.value().getX(), 0);
+        assertEquals(8, reading.receivedTimestamp(), 0);
+        assertEquals(7.99, reading.capturedTimestamp(), 1e-9);
+        assertEquals(2, reading.sequence());
+    }
+
+    @Test
+    public void testWaypointsAreEveryControlPointInOrder() {
+        var comms = getInjectorComponent().coprocessorCommunicationSubsystem();
+        var curves = XTableValues.BezierCurves.newBuilder()
+                .addCurves(XTableValues.BezierCurve.newBuilder()
+                        .addControlPoints(point(1, 1, 0))
+                        .addControlPoints(point(2, 1, 0)))
+                .addCurves(XTableValues.BezierCurve.newBuilder()
+                        .addControlPoints(point(3, 2, 0)))
+                .build();
+
+        comms.receive(comms.getTargetWaypointsChannel(), CoprocessorCommunicationSubsystem::decodeWaypoints,
+                curves.toByteString(), 3);
+        comms.getTargetWaypointsChannel().takeSnapshot();
+
+        assertEquals(List.of(new Translation2d(1, 1), new Translation2d(2, 1), new Translation2d(3, 2)),
+                comms.getTargetWaypointsChannel().get().get().value());
+    }
+
+    @Test
+    public void testMalformedPayloadsAreCountedNotPublished() {
+        var comms = getInjectorComponent().coprocessorCommunicationSubsystem();
+        var channel = comms.getTargetPoseChannel();
+
+        // A truncated field tag
+        comms.receive(channel, CoprocessorCommunicationSubsystem::decodePose, ByteString.copyFrom(new byte[] { -1 }), 5);
+        channel.takeSnapshot();
+
+        assertFalse(channel.get().isPresent());
+        assertEquals(1, channel.getDecodeFailureCount());
+    }
+}
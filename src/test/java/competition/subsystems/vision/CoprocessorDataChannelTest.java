@@ -0,0 +1,60 @@
+package competition.subsystems.vision;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CoprocessorDataChannelTest {
+
+    @Test
+    public void testReadersSeeTheSnapshotUntilTheNextOne() {
+        var channel = new CoprocessorDataChannel<Double>("Heading");
+        assertFalse(channel.get().isPresent());
+
+        channel.publish(1.0, 10);
+        // Not visible until the loop takes its snapshot
+        assertFalse(channel.get().isPresent());
+
+        channel.takeSnapshot();
+        assertEquals(1.0, channel.get().get().value(), 0);
+        assertEquals(1, channel.get().get().sequence());
+
+        channel.publish(2.0, 10.5);
+        channel.publish(3.0, 10.6);
+        assertEquals(1.0, channel.get().get().value(), 0);
+
+        // Only the newest value survives
+        channel.takeSnapshot();
+        assertEquals(3.0, channel.get().get().value(), 0);
+        assertEquals(3, channel.get().get().sequence());
+        assertEquals(3, channel.getPublishedCount());
+    }
+
+    @Test
+    public void testStaleValuesAreFiltered() {
+        var channel = new CoprocessorDataChannel<Double>("Heading");
+        channel.publish(1.0, 10);
+        channel.takeSnapshot();
+
+        assertTrue(channel.getIfFresh(10.2, 0.25).isPresent());
+        assertFalse(channel.getIfFresh(10.3, 0.25).isPresent());
+    }
+
+    @Test
+    public void testPublishingFromAnotherThread() throws InterruptedException {
+        var channel = new CoprocessorDataChannel<Integer>("Count");
+        var publisher = new Thread(() -> {
+            for (int i = 1; i <= 1000; i++) {
+                channel.publish(i, i);
+            }
+        });
+        publisher.start();
+        publisher.join();
+
+        channel.takeSnapshot();
+        assertEquals(1000, (int) channel.get().get().value());
+        assertEquals(1000, channel.get().get().sequence());
+    }
+}
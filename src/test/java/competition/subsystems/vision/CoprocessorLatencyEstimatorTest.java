@@ -0,0 +1,77 @@
+package competition.subsystems.vision;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CoprocessorLatencyEstimatorTest {
+
+    /**
+     * Stands in for the coprocessor and the network between us: pings take a random time to get there,
+     * echoes take a different (and on average longer) random time to come back.
+     */
+    private static class SimulatedLink {
+        final Random random = new Random(488);
+        final CoprocessorLatencyEstimator latency;
+
+        SimulatedLink(CoprocessorLatencyEstimator latency) {
+            this.latency = latency;
+        }
+
+        boolean ping(double fpgaSendTime) {
+            long sequence = latency.nextPingSequence();
+            double arrival = fpgaSendTime + 0.002 + random.nextDouble() * 0.02;
+            double echoArrival = arrival + 0.002 + random.nextDouble() * 0.04;
+            return latency.recordPong(sequence, fpgaSendTime, echoArrival);
+        }
+    }
+
+    @Test
+    public void testRoundTripFollowsTheFastestRecentSample() {
+        var latency = new CoprocessorLatencyEstimator();
+        var link = new SimulatedLink(latency);
+        assertEquals(0, latency.getEstimate().samples());
+
+        for (int i = 0; i < 40; i++) {
+            assertTrue(link.ping(100 + i * 0.25));
+        }
+
+        var estimate = latency.getEstimate();
+        assertEquals(40, estimate.samples());
+        // Never faster than the fixed part of the delays, and the fastest recent trips are well under the average
+        assertTrue(estimate.roundTripSeconds() >= 0.004);
+        assertTrue(estimate.roundTripSeconds() < 0.035);
+    }
+
+    @Test
+    public void testStaleAndImplausibleEchoesAreIgnored() {
+        var latency = new CoprocessorLatencyEstimator();
+        long first = latency.nextPingSequence();
+        long second = latency.nextPingSequence();
+
+        assertTrue(latency.recordPong(second, 10, 10.02));
+        // Overtaken by a newer echo
+        assertFalse(latency.recordPong(first, 9.9, 10.03));
+        // Duplicate
+        assertFalse(latency.recordPong(second, 10, 10.04));
+        // Never sent
+        assertFalse(latency.recordPong(second + 1, 10, 10.04));
+
+        long slow = latency.nextPingSequence();
+        assertFalse(latency.recordPong(slow, 11, 12));
+        assertEquals(1, latency.getEstimate().samples());
+    }
+
+    @Test
+    public void testSendTimeIsHalfTheRoundTripBeforeArrival() {
+        var latency = new CoprocessorLatencyEstimator();
+        assertEquals(5, latency.estimateSendTime(5), 0);
+
+        latency.recordPong(latency.nextPingSequence(), 1, 1.02);
+        assertEquals(4.99, latency.estimateSendTime(5), 1e-9);
+    }
+}
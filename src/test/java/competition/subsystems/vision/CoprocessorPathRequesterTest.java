@@ -0,0 +1,126 @@
+package competition.subsystems.vision;
+
+import competition.BaseCompetitionTest;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import org.junit.Test;
+import org.kobe.xbot.Utilities.Entities.XTableValues;
+
+import java.util.ArrayDeque;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CoprocessorPathRequesterTest extends BaseCompetitionTest {
+
+    private final ArrayDeque<Runnable> queuedWork = new ArrayDeque<>();
+    private int requestsSent = 0;
+    private boolean coprocessorFails = false;
+    private boolean coprocessorReturnsEmptyCurve = false;
+
+    private CoprocessorPathRequester createRequester() {
+        return new CoprocessorPathRequester(message -> {
+            requestsSent++;
+            if (coprocessorFails) {
+                throw new IllegalStateException("Coprocessor didn't return a path");
+            }
+            if (coprocessorReturnsEmptyCurve) {
+                return XTableValues.BezierCurves.newBuilder()
+                        .addCurves(XTableValues.BezierCurve.newBuilder())
+                        .build();
+            }
+            return XTableValues.BezierCurves.newBuilder()
+                    .addCurves(XTableValues.BezierCurve.newBuilder()
+                            .addControlPoints(message.getEnd()))
+                    .build();
+        }, queuedWork::add);
+    }
+
+    private static XTableValues.RequestVisionCoprocessorMessage message(Pose2d end) {
+        return XTableValues.RequestVisionCoprocessorMessage.newBuilder()
+                .setEnd(XTableValues.ControlPoint.newBuilder().setX(end.getX()).setY(end.getY()).build())
+                .build();
+    }
+
+    private final Pose2d start = new Pose2d(2, 2, Rotation2d.fromDegrees(179));
+    private final Pose2d end = new Pose2d(5, 4, Rotation2d.kZero);
+
+    @Test
+    public void testRequestDoesNotBlock() {
+        var requester = createRequester();
+        var path = requester.request(start, end, message(end));
+
+        assertFalse(path.isDone());
+        assertEquals(0, requestsSent);
+
+        queuedWork.poll().run();
+        assertTrue(path.isDone());
+        assertEquals(1, requestsSent);
+    }
+
+    @Test
+    public void testNearbyRequestsShareTheCachedPath() {
+        var requester = createRequester();
+        var first = requester.request(start, end, message(end));
+        // Asking again while the first request is still out joins it
+        var joined = requester.request(start, end, message(end));
+        assertSame(first, joined);
+        queuedWork.poll().run();
+        assertTrue(queuedWork.isEmpty());
+
+        // A couple of centimeters and degrees away (and across the +/-180 wrap) is the same path
+        var nearbyStart = new Pose2d(2.02, 1.99, Rotation2d.fromDegrees(-179));
+        var cached = requester.request(nearbyStart, end, message(end));
+        assertTrue(cached.isDone());
+        assertSame(first.join(), cached.join());
+        assertEquals(1, requestsSent);
+
+        // Somewhere else isn't
+        requester.request(new Pose2d(3, 2, Rotation2d.kZero), end, message(end));
+        assertEquals(1, queuedWork.size());
+    }
+
+    @Test
+    public void testFailedRequestsAreNotCached() {
+        var requester = createRequester();
+        coprocessorFails = true;
+        var failed = requester.request(start, end, message(end));
+        queuedWork.poll().run();
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(0, requester.getCachedPathCount());
+
+        coprocessorFails = false;
+        var retried = requester.request(start, end, message(end));
+        assertFalse(retried.isDone());
+        queuedWork.poll().run();
+        assertFalse(retried.isCompletedExceptionally());
+        assertEquals(1, requester.getCachedPathCount());
+    }
+
+    @Test
+    public void testPathsWithoutControlPointsAreRejected() {
+        var requester = createRequester();
+        coprocessorReturnsEmptyCurve = true;
+        var empty = requester.request(start, end, message(end));
+        queuedWork.poll().run();
+        assertTrue(empty.isCompletedExceptionally());
+        assertEquals(0, requester.getCachedPathCount());
+    }
+
+    @Test
+    public void testCacheKeepsTheMostRecentlyUsedPaths() {
+        var requester = createRequester();
+        for (int i = 0; i <= CoprocessorPathRequester.cacheCapacity; i++) {
+            var destination = new Pose2d(i, 0, Rotation2d.kZero);
+            requester.request(start, destination, message(destination));
+            queuedWork.poll().run();
+        }
+        assertEquals(CoprocessorPathRequester.cacheCapacity, requester.getCachedPathCount());
+
+        // The first path was the least recently used, so it was evicted
+        var first = new Pose2d(0, 0, Rotation2d.kZero);
+        assertFalse(requester.request(start, first, message(first)).isDone());
+    }
+}